@@ -31,6 +31,7 @@ import static org.apache.commons.lang3.StringUtils.isNotBlank;
 
 import java.io.Serializable;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
@@ -249,6 +250,28 @@ public class ExtendedPermissionServiceImpl extends PermissionServiceImpl impleme
         return result;
     }
 
+    /**
+     * Checks each node through {@link #hasPermission(NodeRef, String)}, so that the permission pre- and
+     * post-processors see every node rather than one node per ACL.
+     *
+     * @see org.alfresco.repo.security.permissions.impl.PermissionServiceImpl#hasPermissions(java.util.List, java.lang.String)
+     */
+    @Override
+    public BitSet hasPermissions(List<NodeRef> nodeRefs, String perm)
+    {
+        BitSet allowed = new BitSet(nodeRefs.size());
+        for (int i = 0; i < nodeRefs.size(); i++)
+        {
+            NodeRef nodeRef = nodeRefs.get(i);
+            // as in the core service, there is nothing to deny on a missing node
+            if (nodeRef == null || AccessStatus.ALLOWED.equals(hasPermission(nodeRef, perm)))
+            {
+                allowed.set(i);
+            }
+        }
+        return allowed;
+    }
+
     /**
      * Implementation of hasPermission method call.
      * <p>
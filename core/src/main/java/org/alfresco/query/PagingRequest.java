@@ -34,6 +34,9 @@ public class PagingRequest
     
     private int requestTotalCountMax = 0; // request total count up to a given max (0 => do not request total count)
     private String queryExecutionId;
+    
+    private boolean keysetPaging = false;
+    private String continuationToken;
 
     /**
      * Construct a page request
@@ -158,4 +161,52 @@ public class PagingRequest
     {
         this.queryExecutionId = queryExecutionId; 
     }
+    
+    /**
+     * Is keyset (seek) paging requested? If so, the query orders by a unique key and continues after the
+     * key given by the {@link #getContinuationToken() continuation token} rather than skipping results.
+     * Only supported by some queries.
+     * 
+     * @since 7.1
+     */
+    public boolean isKeysetPaging()
+    {
+        return keysetPaging;
+    }
+    
+    /**
+     * Request keyset (seek) paging. Default is <tt>false</tt>. Should be used with a skip count of 0.
+     * 
+     * @param keysetPaging          <tt>true</tt> to request keyset paging
+     * 
+     * @since 7.1
+     */
+    public void setKeysetPaging(boolean keysetPaging)
+    {
+        this.keysetPaging = keysetPaging;
+    }
+    
+    /**
+     * Get the opaque continuation token identifying the last result of the previous page (keyset paging only).
+     * 
+     * @return                      the continuation token or <tt>null</tt> to start from the first result
+     * 
+     * @since 7.1
+     */
+    public String getContinuationToken()
+    {
+        return continuationToken;
+    }
+    
+    /**
+     * Set the opaque continuation token returned with the previous page (keyset paging only).
+     * 
+     * @param continuationToken     the continuation token or <tt>null</tt> to start from the first result
+     * 
+     * @since 7.1
+     */
+    public void setContinuationToken(String continuationToken)
+    {
+        this.continuationToken = continuationToken;
+    }
 }
@@ -0,0 +1,352 @@
+/*
+ * Copyright (C) 2005-2014 Alfresco Software Limited.
+ *
+ * This file is part of Alfresco
+ *
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.alfresco.util.collections;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.LongConsumer;
+
+/**
+ * A growable list of primitive <tt>long</tt> values.
+ * <p/>
+ * Intended for the large ID lists passed around during bulk node and ACL loading,
+ * where a <tt>List&lt;Long&gt;</tt> costs an object per element.  The list is not
+ * thread-safe.
+ *
+ * @since 7.1
+ */
+public class LongArrayList
+{
+    private static final long[] EMPTY = new long[0];
+
+    private long[] values;
+    private int size;
+
+    public LongArrayList()
+    {
+        this.values = EMPTY;
+    }
+
+    /**
+     * @param initialCapacity   the number of values to make room for
+     */
+    public LongArrayList(int initialCapacity)
+    {
+        if (initialCapacity < 0)
+        {
+            throw new IllegalArgumentException("Initial capacity may not be negative: " + initialCapacity);
+        }
+        this.values = initialCapacity == 0 ? EMPTY : new long[initialCapacity];
+    }
+
+    /**
+     * Copy the values of a boxed collection, skipping <tt>null</tt> entries.
+     *
+     * @param values            the values to copy (may be <tt>null</tt>)
+     * @return                  a new list holding the non-null values in iteration order
+     */
+    public static LongArrayList of(Collection<Long> values)
+    {
+        if (values == null)
+        {
+            return new LongArrayList();
+        }
+        LongArrayList list = new LongArrayList(values.size());
+        for (Long value : values)
+        {
+            if (value != null)
+            {
+                list.add(value);
+            }
+        }
+        return list;
+    }
+
+    /**
+     * @param values            the values to copy
+     * @return                  a new list holding the given values
+     */
+    public static LongArrayList of(long... values)
+    {
+        LongArrayList list = new LongArrayList(values.length);
+        list.addAll(values);
+        return list;
+    }
+
+    public int size()
+    {
+        return size;
+    }
+
+    public boolean isEmpty()
+    {
+        return size == 0;
+    }
+
+    public void add(long value)
+    {
+        ensureCapacity(size + 1);
+        values[size++] = value;
+    }
+
+    public void addAll(long[] toAdd)
+    {
+        ensureCapacity(size + toAdd.length);
+        System.arraycopy(toAdd, 0, values, size, toAdd.length);
+        size += toAdd.length;
+    }
+
+    public void addAll(LongArrayList toAdd)
+    {
+        ensureCapacity(size + toAdd.size);
+        System.arraycopy(toAdd.values, 0, values, size, toAdd.size);
+        size += toAdd.size;
+    }
+
+    /**
+     * @param index             the position of the value
+     * @return                  the value at the given position
+     * @throws IndexOutOfBoundsException if the index is not in <tt>[0, size)</tt>
+     */
+    public long get(int index)
+    {
+        checkIndex(index);
+        return values[index];
+    }
+
+    /**
+     * @param index             the position of the value to replace
+     * @param value             the new value
+     * @return                  the previous value
+     */
+    public long set(int index, long value)
+    {
+        checkIndex(index);
+        long previous = values[index];
+        values[index] = value;
+        return previous;
+    }
+
+    /**
+     * Remove and return the last value, allowing the list to be used as a stack.
+     *
+     * @throws NoSuchElementException if the list is empty
+     */
+    public long removeLast()
+    {
+        if (size == 0)
+        {
+            throw new NoSuchElementException();
+        }
+        return values[--size];
+    }
+
+    /**
+     * Linear search for the value.  Sort and use {@link #binarySearch(long)} for
+     * repeated lookups against large lists.
+     */
+    public boolean contains(long value)
+    {
+        for (int i = 0; i < size; i++)
+        {
+            if (values[i] == value)
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Search a list previously ordered by {@link #sort()}.
+     *
+     * @return                  the index of the value or a negative insertion point,
+     *                          as per {@link Arrays#binarySearch(long[], int, int, long)}
+     */
+    public int binarySearch(long value)
+    {
+        return Arrays.binarySearch(values, 0, size, value);
+    }
+
+    /**
+     * Sort the values into ascending order.
+     */
+    public void sort()
+    {
+        Arrays.sort(values, 0, size);
+    }
+
+    /**
+     * Sort the values and drop duplicates.
+     */
+    public void sortAndDeduplicate()
+    {
+        if (size < 2)
+        {
+            return;
+        }
+        Arrays.sort(values, 0, size);
+        int last = 0;
+        for (int i = 1; i < size; i++)
+        {
+            if (values[i] != values[last])
+            {
+                values[++last] = values[i];
+            }
+        }
+        size = last + 1;
+    }
+
+    /**
+     * Remove all values, retaining the backing array for reuse.
+     */
+    public void clear()
+    {
+        size = 0;
+    }
+
+    /**
+     * Grow the backing array, if necessary, to hold at least the given number of values.
+     */
+    public void ensureCapacity(int capacity)
+    {
+        if (capacity > values.length)
+        {
+            int newCapacity = Math.max(capacity, Math.max(8, values.length + (values.length >> 1)));
+            values = Arrays.copyOf(values, newCapacity);
+        }
+    }
+
+    /**
+     * @return                  a copy of the values
+     */
+    public long[] toArray()
+    {
+        return Arrays.copyOf(values, size);
+    }
+
+    /**
+     * @return                  a boxed copy of the values, for APIs that still require one
+     */
+    public List<Long> toList()
+    {
+        List<Long> list = new ArrayList<>(size);
+        for (int i = 0; i < size; i++)
+        {
+            list.add(values[i]);
+        }
+        return list;
+    }
+
+    /**
+     * Copy a range of the values into a new list.  Changes to either list do not affect the
+     * other.  Useful for splitting a large list into query-sized batches.
+     *
+     * @param fromIndex         the first index (inclusive)
+     * @param toIndex           the last index (exclusive)
+     * @return                  a copy of the range
+     */
+    public LongArrayList subList(int fromIndex, int toIndex)
+    {
+        if (fromIndex < 0 || toIndex > size || fromIndex > toIndex)
+        {
+            throw new IndexOutOfBoundsException("Range [" + fromIndex + ", " + toIndex + ") for size " + size);
+        }
+        LongArrayList list = new LongArrayList(toIndex - fromIndex);
+        System.arraycopy(values, fromIndex, list.values, 0, toIndex - fromIndex);
+        list.size = toIndex - fromIndex;
+        return list;
+    }
+
+    public void forEach(LongConsumer consumer)
+    {
+        for (int i = 0; i < size; i++)
+        {
+            consumer.accept(values[i]);
+        }
+    }
+
+    public LongIterator iterator()
+    {
+        return new LongIterator()
+        {
+            private int next = 0;
+
+            @Override
+            public boolean hasNext()
+            {
+                return next < size;
+            }
+
+            @Override
+            public long nextLong()
+            {
+                if (next >= size)
+                {
+                    throw new NoSuchElementException();
+                }
+                return values[next++];
+            }
+        };
+    }
+
+    private void checkIndex(int index)
+    {
+        if (index < 0 || index >= size)
+        {
+            throw new IndexOutOfBoundsException("Index " + index + " for size " + size);
+        }
+    }
+
+    @Override
+    public boolean equals(Object obj)
+    {
+        if (this == obj)
+        {
+            return true;
+        }
+        if (!(obj instanceof LongArrayList))
+        {
+            return false;
+        }
+        LongArrayList that = (LongArrayList) obj;
+        return Arrays.equals(this.values, 0, this.size, that.values, 0, that.size);
+    }
+
+    @Override
+    public int hashCode()
+    {
+        int hashCode = 1;
+        for (int i = 0; i < size; i++)
+        {
+            hashCode = 31 * hashCode + Long.hashCode(values[i]);
+        }
+        return hashCode;
+    }
+
+    @Override
+    public String toString()
+    {
+        return Arrays.toString(toArray());
+    }
+}
@@ -0,0 +1,358 @@
+/*
+ * Copyright (C) 2005-2014 Alfresco Software Limited.
+ *
+ * This file is part of Alfresco
+ *
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.alfresco.util.collections;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.NoSuchElementException;
+import java.util.function.LongConsumer;
+
+/**
+ * An open-addressing hash set of primitive <tt>long</tt> values.
+ * <p/>
+ * Used for visited-sets and result sets of node and ACL IDs, where a
+ * <tt>HashSet&lt;Long&gt;</tt> costs a box and a map entry per element.  Linear
+ * probing keeps lookups cache-friendly; removal shifts later entries back so no
+ * tombstones are needed.  The set is not thread-safe.
+ *
+ * @since 7.1
+ */
+public class LongHashSet
+{
+    /** Marks an empty slot; the value <tt>0</tt> itself is tracked separately */
+    private static final long FREE = 0L;
+    private static final float LOAD_FACTOR = 0.6f;
+
+    private long[] slots;
+    private int mask;
+    private int resizeAt;
+    private int size;
+    private boolean containsFree;
+
+    public LongHashSet()
+    {
+        this(16);
+    }
+
+    /**
+     * @param expectedSize      the number of values to make room for before resizing
+     */
+    public LongHashSet(int expectedSize)
+    {
+        if (expectedSize < 0)
+        {
+            throw new IllegalArgumentException("Expected size may not be negative: " + expectedSize);
+        }
+        allocate(capacityFor(expectedSize));
+    }
+
+    /**
+     * Copy the values of a boxed collection, skipping <tt>null</tt> entries.
+     */
+    public static LongHashSet of(Collection<Long> values)
+    {
+        LongHashSet set = new LongHashSet(values == null ? 0 : values.size());
+        if (values != null)
+        {
+            for (Long value : values)
+            {
+                if (value != null)
+                {
+                    set.add(value);
+                }
+            }
+        }
+        return set;
+    }
+
+    public int size()
+    {
+        return size;
+    }
+
+    public boolean isEmpty()
+    {
+        return size == 0;
+    }
+
+    /**
+     * @return                  <tt>true</tt> if the value was added, <tt>false</tt> if it was already present
+     */
+    public boolean add(long value)
+    {
+        if (value == FREE)
+        {
+            if (containsFree)
+            {
+                return false;
+            }
+            containsFree = true;
+            size++;
+            return true;
+        }
+        int slot = slotFor(value);
+        while (slots[slot] != FREE)
+        {
+            if (slots[slot] == value)
+            {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+        slots[slot] = value;
+        if (++size >= resizeAt)
+        {
+            allocate(slots.length << 1);
+        }
+        return true;
+    }
+
+    /**
+     * Add all values from the list
+     *
+     * @return                  the number of values that were not already present
+     */
+    public int addAll(LongArrayList values)
+    {
+        int added = 0;
+        for (int i = 0; i < values.size(); i++)
+        {
+            if (add(values.get(i)))
+            {
+                added++;
+            }
+        }
+        return added;
+    }
+
+    public boolean contains(long value)
+    {
+        if (value == FREE)
+        {
+            return containsFree;
+        }
+        int slot = slotFor(value);
+        while (slots[slot] != FREE)
+        {
+            if (slots[slot] == value)
+            {
+                return true;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return false;
+    }
+
+    /**
+     * @return                  <tt>true</tt> if the value was present
+     */
+    public boolean remove(long value)
+    {
+        if (value == FREE)
+        {
+            if (!containsFree)
+            {
+                return false;
+            }
+            containsFree = false;
+            size--;
+            return true;
+        }
+        int slot = slotFor(value);
+        while (slots[slot] != FREE)
+        {
+            if (slots[slot] == value)
+            {
+                shiftBack(slot);
+                size--;
+                return true;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return false;
+    }
+
+    public void clear()
+    {
+        Arrays.fill(slots, FREE);
+        containsFree = false;
+        size = 0;
+    }
+
+    /**
+     * @return                  the values in no particular order
+     */
+    public long[] toArray()
+    {
+        long[] result = new long[size];
+        int i = 0;
+        if (containsFree)
+        {
+            result[i++] = FREE;
+        }
+        for (long value : slots)
+        {
+            if (value != FREE)
+            {
+                result[i++] = value;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return                  the values, sorted, as a list suitable for range-ordered queries
+     */
+    public LongArrayList toSortedList()
+    {
+        long[] values = toArray();
+        Arrays.sort(values);
+        return LongArrayList.of(values);
+    }
+
+    public void forEach(LongConsumer consumer)
+    {
+        if (containsFree)
+        {
+            consumer.accept(FREE);
+        }
+        for (long value : slots)
+        {
+            if (value != FREE)
+            {
+                consumer.accept(value);
+            }
+        }
+    }
+
+    /**
+     * The iterator does not detect concurrent modification; do not change the set while iterating.
+     */
+    public LongIterator iterator()
+    {
+        return new LongIterator()
+        {
+            private boolean freePending = containsFree;
+            private int next = advance(0);
+
+            private int advance(int from)
+            {
+                while (from < slots.length && slots[from] == FREE)
+                {
+                    from++;
+                }
+                return from;
+            }
+
+            @Override
+            public boolean hasNext()
+            {
+                return freePending || next < slots.length;
+            }
+
+            @Override
+            public long nextLong()
+            {
+                if (freePending)
+                {
+                    freePending = false;
+                    return FREE;
+                }
+                if (next >= slots.length)
+                {
+                    throw new NoSuchElementException();
+                }
+                long value = slots[next];
+                next = advance(next + 1);
+                return value;
+            }
+        };
+    }
+
+    /**
+     * Close the gap left at the given slot by moving back any later entries of the
+     * same probe run that would otherwise become unreachable.
+     */
+    private void shiftBack(int gap)
+    {
+        int slot = gap;
+        while (true)
+        {
+            slot = (slot + 1) & mask;
+            long value = slots[slot];
+            if (value == FREE)
+            {
+                break;
+            }
+            int home = slotFor(value);
+            // Move the entry if its home slot is not cyclically within (gap, slot]
+            if (((slot - home) & mask) >= ((slot - gap) & mask))
+            {
+                slots[gap] = value;
+                gap = slot;
+            }
+        }
+        slots[gap] = FREE;
+    }
+
+    private int slotFor(long value)
+    {
+        return LongHash.mix(value) & mask;
+    }
+
+    private void allocate(int capacity)
+    {
+        long[] old = slots;
+        slots = new long[capacity];
+        mask = capacity - 1;
+        resizeAt = Math.max(1, (int) (capacity * LOAD_FACTOR));
+        if (old != null)
+        {
+            for (long value : old)
+            {
+                if (value != FREE)
+                {
+                    int slot = slotFor(value);
+                    while (slots[slot] != FREE)
+                    {
+                        slot = (slot + 1) & mask;
+                    }
+                    slots[slot] = value;
+                }
+            }
+        }
+    }
+
+    static int capacityFor(int expectedSize)
+    {
+        long needed = (long) Math.ceil(Math.max(expectedSize, 2) / LOAD_FACTOR) + 1;
+        if (needed > (1 << 30))
+        {
+            throw new IllegalArgumentException("Too many values for a LongHashSet: " + expectedSize);
+        }
+        return Integer.highestOneBit((int) needed - 1) << 1;
+    }
+
+    @Override
+    public String toString()
+    {
+        return Arrays.toString(toSortedList().toArray());
+    }
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright (C) 2005-2014 Alfresco Software Limited.
+ *
+ * This file is part of Alfresco
+ *
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.alfresco.util.collections;
+
+import java.util.NoSuchElementException;
+
+/**
+ * An iterator over primitive <tt>long</tt> values, avoiding the boxing done by
+ * {@link java.util.Iterator Iterator&lt;Long&gt;}.
+ *
+ * @since 7.1
+ */
+public interface LongIterator
+{
+    /**
+     * @return                  <tt>true</tt> if there are more values
+     */
+    boolean hasNext();
+
+    /**
+     * @return                  the next value
+     * @throws NoSuchElementException if there are no more values
+     */
+    long nextLong();
+}
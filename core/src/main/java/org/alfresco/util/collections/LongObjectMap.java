@@ -0,0 +1,283 @@
+/*
+ * Copyright (C) 2005-2014 Alfresco Software Limited.
+ *
+ * This file is part of Alfresco
+ *
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.alfresco.util.collections;
+
+import java.util.Arrays;
+
+/**
+ * An open-addressing hash map from primitive <tt>long</tt> keys to object values.
+ * <p/>
+ * Intended for ID-keyed lookups built during bulk loading (e.g. node ID to parent
+ * association), where a <tt>HashMap&lt;Long, V&gt;</tt> costs a box and an entry
+ * object per mapping.  <tt>null</tt> values are not supported.  The map is not
+ * thread-safe.
+ *
+ * @param <V>               the value type
+ *
+ * @since 7.1
+ */
+public class LongObjectMap<V>
+{
+    private static final long FREE = 0L;
+    private static final float LOAD_FACTOR = 0.6f;
+
+    /**
+     * Callback for {@link LongObjectMap#forEach(EntryCallback)}
+     */
+    public interface EntryCallback<V>
+    {
+        void handle(long key, V value);
+    }
+
+    private long[] keys;
+    private Object[] values;
+    private int mask;
+    private int resizeAt;
+    private int size;
+    /** The value mapped to the key <tt>0</tt>, which cannot be stored in the key table */
+    private V freeValue;
+
+    public LongObjectMap()
+    {
+        this(16);
+    }
+
+    /**
+     * @param expectedSize      the number of mappings to make room for before resizing
+     */
+    public LongObjectMap(int expectedSize)
+    {
+        if (expectedSize < 0)
+        {
+            throw new IllegalArgumentException("Expected size may not be negative: " + expectedSize);
+        }
+        allocate(LongHashSet.capacityFor(expectedSize));
+    }
+
+    public int size()
+    {
+        return size;
+    }
+
+    public boolean isEmpty()
+    {
+        return size == 0;
+    }
+
+    public boolean containsKey(long key)
+    {
+        return get(key) != null;
+    }
+
+    /**
+     * @return                  the value mapped to the key or <tt>null</tt>
+     */
+    @SuppressWarnings("unchecked")
+    public V get(long key)
+    {
+        if (key == FREE)
+        {
+            return freeValue;
+        }
+        int slot = slotFor(key);
+        while (keys[slot] != FREE)
+        {
+            if (keys[slot] == key)
+            {
+                return (V) values[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return null;
+    }
+
+    /**
+     * @param value             the value (may not be <tt>null</tt>)
+     * @return                  the previous value or <tt>null</tt>
+     */
+    @SuppressWarnings("unchecked")
+    public V put(long key, V value)
+    {
+        if (value == null)
+        {
+            throw new IllegalArgumentException("LongObjectMap does not support null values");
+        }
+        if (key == FREE)
+        {
+            V previous = freeValue;
+            freeValue = value;
+            if (previous == null)
+            {
+                size++;
+            }
+            return previous;
+        }
+        int slot = slotFor(key);
+        while (keys[slot] != FREE)
+        {
+            if (keys[slot] == key)
+            {
+                V previous = (V) values[slot];
+                values[slot] = value;
+                return previous;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        if (++size >= resizeAt)
+        {
+            allocate(keys.length << 1);
+        }
+        return null;
+    }
+
+    /**
+     * @return                  the removed value or <tt>null</tt>
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(long key)
+    {
+        if (key == FREE)
+        {
+            V previous = freeValue;
+            if (previous != null)
+            {
+                freeValue = null;
+                size--;
+            }
+            return previous;
+        }
+        int slot = slotFor(key);
+        while (keys[slot] != FREE)
+        {
+            if (keys[slot] == key)
+            {
+                V previous = (V) values[slot];
+                shiftBack(slot);
+                size--;
+                return previous;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return null;
+    }
+
+    public void clear()
+    {
+        Arrays.fill(keys, FREE);
+        Arrays.fill(values, null);
+        freeValue = null;
+        size = 0;
+    }
+
+    /**
+     * @return                  the keys in no particular order
+     */
+    public LongArrayList keys()
+    {
+        LongArrayList result = new LongArrayList(size);
+        if (freeValue != null)
+        {
+            result.add(FREE);
+        }
+        for (long key : keys)
+        {
+            if (key != FREE)
+            {
+                result.add(key);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Visit each mapping in no particular order.  Do not change the map from the callback.
+     */
+    @SuppressWarnings("unchecked")
+    public void forEach(EntryCallback<? super V> callback)
+    {
+        if (freeValue != null)
+        {
+            callback.handle(FREE, freeValue);
+        }
+        for (int i = 0; i < keys.length; i++)
+        {
+            if (keys[i] != FREE)
+            {
+                callback.handle(keys[i], (V) values[i]);
+            }
+        }
+    }
+
+    private void shiftBack(int gap)
+    {
+        int slot = gap;
+        while (true)
+        {
+            slot = (slot + 1) & mask;
+            long key = keys[slot];
+            if (key == FREE)
+            {
+                break;
+            }
+            int home = slotFor(key);
+            if (((slot - home) & mask) >= ((slot - gap) & mask))
+            {
+                keys[gap] = key;
+                values[gap] = values[slot];
+                gap = slot;
+            }
+        }
+        keys[gap] = FREE;
+        values[gap] = null;
+    }
+
+    private int slotFor(long key)
+    {
+        return LongHash.mix(key) & mask;
+    }
+
+    private void allocate(int capacity)
+    {
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+        keys = new long[capacity];
+        values = new Object[capacity];
+        mask = capacity - 1;
+        resizeAt = Math.max(1, (int) (capacity * LOAD_FACTOR));
+        if (oldKeys != null)
+        {
+            for (int i = 0; i < oldKeys.length; i++)
+            {
+                if (oldKeys[i] != FREE)
+                {
+                    int slot = slotFor(oldKeys[i]);
+                    while (keys[slot] != FREE)
+                    {
+                        slot = (slot + 1) & mask;
+                    }
+                    keys[slot] = oldKeys[i];
+                    values[slot] = oldValues[i];
+                }
+            }
+        }
+    }
+}
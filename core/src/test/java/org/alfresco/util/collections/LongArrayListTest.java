@@ -0,0 +1,111 @@
+/*
+ * Copyright (C) 2005-2014 Alfresco Software Limited.
+ *
+ * This file is part of Alfresco
+ *
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.alfresco.util.collections;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.NoSuchElementException;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link LongArrayList}.
+ */
+public class LongArrayListTest
+{
+    @Test public void addGrowsAndPreservesOrder()
+    {
+        LongArrayList list = new LongArrayList(0);
+        for (long i = 0; i < 100; i++)
+        {
+            list.add(100 - i);
+        }
+        assertEquals(100, list.size());
+        assertEquals(100L, list.get(0));
+        assertEquals(1L, list.get(99));
+        assertTrue(list.contains(50L));
+        assertFalse(list.contains(101L));
+    }
+
+    @Test public void ofSkipsNulls()
+    {
+        LongArrayList list = LongArrayList.of(Arrays.asList(3L, null, 1L));
+        assertArrayEquals(new long[] {3L, 1L}, list.toArray());
+        assertEquals(Arrays.asList(3L, 1L), list.toList());
+        assertTrue(LongArrayList.of((Collection<Long>) null).isEmpty());
+    }
+
+    @Test public void sortAndDeduplicate()
+    {
+        LongArrayList list = LongArrayList.of(5L, 1L, 5L, 3L, 1L, 1L);
+        list.sortAndDeduplicate();
+        assertArrayEquals(new long[] {1L, 3L, 5L}, list.toArray());
+        assertEquals(1, list.binarySearch(3L));
+        assertTrue(list.binarySearch(4L) < 0);
+    }
+
+    @Test public void removeLastUsesListAsStack()
+    {
+        LongArrayList stack = LongArrayList.of(1L, 2L);
+        stack.add(3L);
+        assertEquals(3L, stack.removeLast());
+        assertEquals(2L, stack.removeLast());
+        assertEquals(1, stack.size());
+    }
+
+    @Test public void subListCopiesRange()
+    {
+        LongArrayList list = LongArrayList.of(1L, 2L, 3L, 4L);
+        LongArrayList sub = list.subList(1, 3);
+        assertEquals(LongArrayList.of(2L, 3L), sub);
+        sub.set(0, 9L);
+        assertEquals(2L, list.get(1));
+    }
+
+    @Test public void iteratorVisitsAllValues()
+    {
+        LongArrayList list = LongArrayList.of(7L, 8L);
+        LongIterator iterator = list.iterator();
+        assertEquals(7L, iterator.nextLong());
+        assertEquals(8L, iterator.nextLong());
+        assertFalse(iterator.hasNext());
+        try
+        {
+            iterator.nextLong();
+            fail("Expected NoSuchElementException");
+        }
+        catch (NoSuchElementException e)
+        {
+            // Expected
+        }
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class) public void getBeyondSizeFails()
+    {
+        LongArrayList list = new LongArrayList(10);
+        list.add(1L);
+        list.get(1);
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright (C) 2005-2014 Alfresco Software Limited.
+ *
+ * This file is part of Alfresco
+ *
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.alfresco.util.collections;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link LongHashSet}.
+ */
+public class LongHashSetTest
+{
+    @Test public void zeroAndNegativeValues()
+    {
+        LongHashSet set = new LongHashSet();
+        assertTrue(set.add(0L));
+        assertFalse(set.add(0L));
+        assertTrue(set.add(-1L));
+        assertTrue(set.add(Long.MIN_VALUE));
+        assertEquals(3, set.size());
+        assertTrue(set.contains(0L));
+        assertArrayEquals(new long[] {Long.MIN_VALUE, -1L, 0L}, set.toSortedList().toArray());
+        assertTrue(set.remove(0L));
+        assertFalse(set.contains(0L));
+        assertEquals(2, set.size());
+    }
+
+    @Test public void iteratorMatchesContents()
+    {
+        LongHashSet set = LongHashSet.of(Arrays.asList(0L, 5L, 17L, null));
+        Set<Long> seen = new HashSet<>();
+        LongIterator iterator = set.iterator();
+        while (iterator.hasNext())
+        {
+            seen.add(iterator.nextLong());
+        }
+        assertEquals(new HashSet<>(Arrays.asList(0L, 5L, 17L)), seen);
+    }
+
+    /**
+     * Compare against <tt>HashSet</tt> through growth and removals, which exercises the
+     * backward shift on removal.
+     */
+    @Test public void behavesLikeHashSet()
+    {
+        Random random = new Random(42L);
+        LongHashSet set = new LongHashSet(4);
+        Set<Long> expected = new HashSet<>();
+        for (int i = 0; i < 50000; i++)
+        {
+            long value = random.nextInt(2000);
+            if (random.nextInt(3) == 0)
+            {
+                assertEquals(expected.remove(value), set.remove(value));
+            }
+            else
+            {
+                assertEquals(expected.add(value), set.add(value));
+            }
+        }
+        assertEquals(expected.size(), set.size());
+        for (long value = 0; value < 2000; value++)
+        {
+            assertEquals(expected.contains(value), set.contains(value));
+        }
+    }
+
+    @Test public void addAllCountsNewValues()
+    {
+        LongHashSet set = LongHashSet.of(Arrays.asList(1L, 2L));
+        assertEquals(1, set.addAll(LongArrayList.of(2L, 3L)));
+        assertEquals(3, set.size());
+        set.clear();
+        assertTrue(set.isEmpty());
+        assertFalse(set.contains(1L));
+    }
+}
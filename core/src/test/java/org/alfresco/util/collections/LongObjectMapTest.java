@@ -0,0 +1,82 @@
+/*
+ * Copyright (C) 2005-2014 Alfresco Software Limited.
+ *
+ * This file is part of Alfresco
+ *
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.alfresco.util.collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link LongObjectMap}.
+ */
+public class LongObjectMapTest
+{
+    @Test public void putGetRemove()
+    {
+        LongObjectMap<String> map = new LongObjectMap<>();
+        assertNull(map.put(0L, "zero"));
+        assertNull(map.put(42L, "a"));
+        assertEquals("a", map.put(42L, "b"));
+        assertEquals(2, map.size());
+        assertEquals("zero", map.get(0L));
+        assertEquals("b", map.get(42L));
+        assertTrue(map.containsKey(0L));
+        assertEquals("zero", map.remove(0L));
+        assertFalse(map.containsKey(0L));
+        assertNull(map.remove(7L));
+        assertEquals(1, map.size());
+    }
+
+    @Test(expected = IllegalArgumentException.class) public void nullValuesRejected()
+    {
+        new LongObjectMap<String>().put(1L, null);
+    }
+
+    @Test public void behavesLikeHashMap()
+    {
+        Random random = new Random(7L);
+        LongObjectMap<Long> map = new LongObjectMap<>(2);
+        Map<Long, Long> expected = new HashMap<>();
+        for (int i = 0; i < 50000; i++)
+        {
+            long key = random.nextInt(3000);
+            if (random.nextInt(3) == 0)
+            {
+                assertEquals(expected.remove(key), map.remove(key));
+            }
+            else
+            {
+                long value = random.nextLong();
+                assertEquals(expected.put(key, value), map.put(key, value));
+            }
+        }
+        assertEquals(expected.size(), map.size());
+        assertEquals(expected.size(), map.keys().size());
+        Map<Long, Long> visited = new HashMap<>();
+        map.forEach(visited::put);
+        assertEquals(expected, visited);
+    }
+}
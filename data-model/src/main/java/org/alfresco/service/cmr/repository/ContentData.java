@@ -52,6 +52,7 @@ public class ContentData implements Serializable
     private final long size;
     private final String encoding;
     private final Locale locale;
+    private final String contentDigest;
     
     /**
      * Construct a content property from a string
@@ -133,7 +134,8 @@ public class ContentData implements Serializable
                 mimetype,
                 existing == null ? 0L : existing.size,
                 existing == null ? "UTF-8" : existing.encoding,
-                existing == null ? null : existing.locale);
+                existing == null ? null : existing.locale,
+                existing == null ? null : existing.contentDigest);
         // done
         return ret;
     }
@@ -153,7 +155,31 @@ public class ContentData implements Serializable
                 existing == null ? null : existing.mimetype,
                 existing == null ? 0L : existing.size,
                 encoding,
-                existing == null ? null : existing.locale);
+                existing == null ? null : existing.locale,
+                existing == null ? null : existing.contentDigest);
+        // done
+        return ret;
+    }
+    
+    /**
+     * Constructs a new instance using the existing one as a template, but replacing the
+     * content digest.
+     * 
+     * @param existing      an existing set of content data
+     * @param contentDigest the digest of the binary, in the form <code>algorithm:hex</code>
+     * @return              Returns a new, immutable instance of the data
+     * 
+     * @since 7.1
+     */
+    public static ContentData setContentDigest(ContentData existing, String contentDigest)
+    {
+        ContentData ret = new ContentData(
+                existing.contentUrl,
+                existing.mimetype,
+                existing.size,
+                existing.encoding,
+                existing.locale,
+                contentDigest);
         // done
         return ret;
     }
@@ -188,6 +214,7 @@ public class ContentData implements Serializable
         this.locale = original.locale;
         this.mimetype = original.mimetype;
         this.size = original.size;
+        this.contentDigest = original.contentDigest;
     }
     
     /**
@@ -215,6 +242,20 @@ public class ContentData implements Serializable
      *      {@link I18NUtil#getLocale() default locale} will be used.
      */
     public ContentData(String contentUrl, String mimetype, long size, String encoding, Locale locale)
+    {
+        this(contentUrl, mimetype, size, encoding, locale, null);
+    }
+    
+    /**
+     * Create a compound set of data representing a single instance of <i>content</i>, along with
+     * the digest of its binary.
+     * 
+     * @param contentDigest the digest of the binary, in the form <code>algorithm:hex</code> (may be <tt>null</tt>)
+     * @see #ContentData(String, String, long, String, Locale)
+     * 
+     * @since 7.1
+     */
+    public ContentData(String contentUrl, String mimetype, long size, String encoding, Locale locale, String contentDigest)
     {
         if (contentUrl != null && (mimetype == null || mimetype.length() == 0))
         {
@@ -230,6 +271,7 @@ public class ContentData implements Serializable
             locale = I18NUtil.getLocale();
         }
         this.locale = locale;
+        this.contentDigest = contentDigest;
     }
     
     public boolean equals(Object obj)
@@ -364,6 +406,19 @@ public class ContentData implements Serializable
         return locale;
     }
     
+    /**
+     * Get the digest of the content's binary.  The digest is derived from the binary that the
+     * {@link #getContentUrl() content URL} refers to, so it takes no part in equality.
+     * 
+     * @return Returns the digest in the form <code>algorithm:hex</code>, or null if it was not computed
+     * 
+     * @since 7.1
+     */
+    public String getContentDigest()
+    {
+        return contentDigest;
+    }
+    
     /**
      * @return hashCode
      */
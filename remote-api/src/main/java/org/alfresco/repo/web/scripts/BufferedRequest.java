@@ -30,6 +30,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 
+import org.alfresco.error.AlfrescoRuntimeException;
 import org.springframework.extensions.surf.util.Content;
 import org.springframework.extensions.webscripts.Description.FormatStyle;
 import org.springframework.extensions.webscripts.Match;
@@ -38,6 +39,12 @@ import org.springframework.extensions.webscripts.WebScriptRequest;
 import org.springframework.extensions.webscripts.WrappingWebScriptRequest;
 import org.springframework.util.FileCopyUtils;
 
+/**
+ * Wraps a request so that its content can be read again when the transaction is retried.
+ * <p/>
+ * If there is no stream factory the content is not buffered: it is read straight from
+ * the client and a retry that needs to read it again fails.
+ */
 public class BufferedRequest implements WrappingWebScriptRequest
 {
     private TempOutputStreamFactory streamFactory;
@@ -45,7 +52,12 @@ public class BufferedRequest implements WrappingWebScriptRequest
     private TempOutputStream bufferStream;
     private InputStream contentStream;
     private BufferedReader contentReader;
-    
+    private boolean contentRead;
+
+    /**
+     * @param req the request to wrap
+     * @param streamFactory the factory for the buffer of the content, or <tt>null</tt> to read the content unbuffered
+     */
     public BufferedRequest(WebScriptRequest req, TempOutputStreamFactory streamFactory)
     {
         this.req = req;
@@ -81,7 +93,19 @@ public class BufferedRequest implements WrappingWebScriptRequest
         }
         if (contentStream == null)
         {
-            contentStream = getBufferedBodyAsTempStream().getInputStream();
+            if (streamFactory != null)
+            {
+                contentStream = getBufferedBodyAsTempStream().getInputStream();
+            }
+            else if (!contentRead)
+            {
+                contentRead = true;
+                contentStream = req.getContent().getInputStream();
+            }
+            else
+            {
+                throw new AlfrescoRuntimeException("The request content is not buffered and cannot be read again, the request must be resent");
+            }
         }
 
         return contentStream;
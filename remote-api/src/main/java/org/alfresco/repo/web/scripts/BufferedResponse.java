@@ -170,7 +170,7 @@ public class BufferedResponse implements WrappingWebScriptResponse
     {
         if (outputStream != null)
         {
-            outputStream = null;
+            destroyOutputStream();
         }
         else if (outputWriter != null)
         {
@@ -186,7 +186,7 @@ public class BufferedResponse implements WrappingWebScriptResponse
     {
         if (outputStream != null)
         {
-            outputStream = null;
+            destroyOutputStream();
         }
         else if (outputWriter != null)
         {
@@ -195,6 +195,25 @@ public class BufferedResponse implements WrappingWebScriptResponse
         res.reset(preserveHeadersPattern);
     }
 
+    /**
+     * Discards the buffered output, releasing its memory and temp file straight away
+     */
+    private void destroyOutputStream()
+    {
+        try
+        {
+            outputStream.destroy();
+        }
+        catch (IOException e)
+        {
+            if (logger.isDebugEnabled())
+            {
+                logger.debug("Failed to destroy the discarded output stream", e);
+            }
+        }
+        outputStream = null;
+    }
+
     /*
      * (non-Javadoc)
      * @see org.alfresco.web.scripts.WebScriptResponse#setCache(org.alfresco.web.scripts.Cache)
@@ -97,6 +97,8 @@ public class RepositoryContainer extends AbstractRuntimeContainer
     private long maxContentSize = (long) 4 * 1024 * 1024 * 1024; // 4gb
     private TempOutputStreamFactory streamFactory = null;
     private TempOutputStreamFactory responseStreamFactory = null;
+    private TempBufferPool bufferPool = null;
+    private boolean bufferRequestContent = true;
     private String preserveHeadersPattern = null;
 
     private Class<?>[] notPublicExceptions = new Class<?>[] {};
@@ -108,8 +110,44 @@ public class RepositoryContainer extends AbstractRuntimeContainer
     public void setup()
     {
         File tempDirectory = TempFileProvider.getTempDir(tempDirectoryName);
-        this.streamFactory = new TempOutputStreamFactory(tempDirectory, memoryThreshold, maxContentSize, encryptTempFiles, false);
-        this.responseStreamFactory = new TempOutputStreamFactory(tempDirectory, memoryThreshold, maxContentSize, encryptTempFiles, true);
+        this.streamFactory = new TempOutputStreamFactory(tempDirectory, memoryThreshold, maxContentSize, encryptTempFiles, false, bufferPool);
+        this.responseStreamFactory = new TempOutputStreamFactory(tempDirectory, memoryThreshold, maxContentSize, encryptTempFiles, true, bufferPool);
+    }
+
+    /**
+     * @param bufferPool the pool of buffers shared by the request and response buffers, or <tt>null</tt> to not pool them
+     */
+    public void setBufferPool(TempBufferPool bufferPool)
+    {
+        this.bufferPool = bufferPool;
+    }
+
+    /**
+     * @param bufferRequestContent <tt>false</tt> to read request content straight from the client, in which case
+     *            a transaction retry of a script that has read the content fails
+     */
+    public void setBufferRequestContent(Boolean bufferRequestContent)
+    {
+        if (bufferRequestContent != null)
+        {
+            this.bufferRequestContent = bufferRequestContent.booleanValue();
+        }
+    }
+
+    /**
+     * @return the amount of request content buffered for transaction retries
+     */
+    public TempOutputStreamStatistics getRequestBufferStatistics()
+    {
+        return streamFactory.getStatistics();
+    }
+
+    /**
+     * @return the amount of response content buffered for transaction retries
+     */
+    public TempOutputStreamStatistics getResponseBufferStatistics()
+    {
+        return responseStreamFactory.getStatistics();
     }
 
     public void setEncryptTempFiles(Boolean encryptTempFiles)
@@ -486,7 +524,7 @@ public class RepositoryContainer extends AbstractRuntimeContainer
                             logger.debug("Creating Transactional Response for ReadWrite transaction; buffersize=" + trxParams.getBufferSize());
 
                         // create buffered request and response that allow transaction retrying
-                        bufferedReq = new BufferedRequest(scriptReq, streamFactory);
+                        bufferedReq = new BufferedRequest(scriptReq, bufferRequestContent ? streamFactory : null);
                         bufferedRes = new BufferedResponse(scriptRes, trxParams.getBufferSize(), responseStreamFactory);
                     }
                     else
@@ -0,0 +1,120 @@
+/*
+ * #%L
+ * Alfresco Remote API
+ * %%
+ * Copyright (C) 2005 - 2016 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.web.scripts;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A bounded pool of equally sized byte arrays that hold the in-memory part of {@link TempOutputStream}s,
+ * so that buffering request and response bodies reuses memory rather than allocating new arrays for every
+ * request.
+ * <p/>
+ * Buffers are returned by {@link TempOutputStream#destroy()}.  Buffers that are never returned, or that are
+ * returned when the pool is already holding <b>maxPooledBytes</b>, are left to the garbage collector.
+ * 
+ * @since 7.1
+ */
+public class TempBufferPool
+{
+    /** The size of each pooled buffer: 64kb */
+    public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    private final int bufferSize;
+    private final int maxPooledBuffers;
+    private final Queue<byte[]> buffers = new ConcurrentLinkedQueue<byte[]>();
+    private final AtomicInteger pooledBuffers = new AtomicInteger();
+
+    /**
+     * @param maxPooledBytes
+     *            the maximum number of bytes held by idle buffers
+     */
+    public TempBufferPool(long maxPooledBytes)
+    {
+        this(DEFAULT_BUFFER_SIZE, maxPooledBytes);
+    }
+
+    /**
+     * @param bufferSize
+     *            the size of each buffer in B
+     * @param maxPooledBytes
+     *            the maximum number of bytes held by idle buffers
+     */
+    public TempBufferPool(int bufferSize, long maxPooledBytes)
+    {
+        if (bufferSize <= 0)
+        {
+            throw new IllegalArgumentException("bufferSize must be greater than 0");
+        }
+        this.bufferSize = bufferSize;
+        this.maxPooledBuffers = (int) Math.min(Integer.MAX_VALUE, Math.max(0L, maxPooledBytes) / bufferSize);
+    }
+
+    /**
+     * @return an idle buffer or a new one if there are none
+     */
+    byte[] acquire()
+    {
+        byte[] buffer = buffers.poll();
+        if (buffer == null)
+        {
+            return new byte[bufferSize];
+        }
+        pooledBuffers.decrementAndGet();
+        return buffer;
+    }
+
+    /**
+     * Returns a buffer to the pool.  The caller must not use it afterwards.
+     */
+    void release(byte[] buffer)
+    {
+        if (buffer.length != bufferSize)
+        {
+            return;
+        }
+        if (pooledBuffers.incrementAndGet() > maxPooledBuffers)
+        {
+            pooledBuffers.decrementAndGet();
+            return;
+        }
+        buffers.offer(buffer);
+    }
+
+    public int getBufferSize()
+    {
+        return bufferSize;
+    }
+
+    /**
+     * @return the number of bytes held by idle buffers
+     */
+    public long getPooledBytes()
+    {
+        return (long) pooledBuffers.get() * bufferSize;
+    }
+}
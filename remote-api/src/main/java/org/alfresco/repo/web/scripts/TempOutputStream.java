@@ -27,8 +27,6 @@ package org.alfresco.repo.web.scripts;
 
 import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
@@ -36,12 +34,15 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.security.Key;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.List;
 
 import javax.crypto.Cipher;
 import javax.crypto.CipherInputStream;
 import javax.crypto.CipherOutputStream;
-import javax.crypto.KeyGenerator;
 import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
 
 import org.alfresco.repo.content.ContentLimitViolationException;
 import org.alfresco.util.TempFileProvider;
@@ -59,6 +60,12 @@ import org.apache.commons.logging.LogFactory;
  * 
  * If <b>deleteTempFileOnClose</b> is false then use proper try-finally patterns
  * to ensure that the temp file is destroyed after it is no longer needed.
+ * <p/>
+ * 
+ * The data kept in memory is held in buffers taken from a {@link TempBufferPool}, if
+ * there is one, which are returned when the stream is destroyed.  Input streams from
+ * {@link #getInputStream()} throw an <code>IOException</code> if they are read after that,
+ * as the buffers may by then hold another stream's data.
  * 
  * <pre>
  *   <code>try
@@ -84,6 +91,7 @@ public class TempOutputStream extends OutputStream
     private static final String TRANSFORMATION = ALGORITHM + '/' + MODE + '/' + PADDING;
     private static final int KEY_SIZE = 128;
     public static final String TEMP_FILE_PREFIX = "tempStreamFile-";
+    private static final SecureRandom RANDOM = new SecureRandom();
 
     private final File tempDir;
     private final int memoryThreshold;
@@ -94,7 +102,8 @@ public class TempOutputStream extends OutputStream
     private long length = 0;
     private OutputStream outputStream;
     private File tempFile;
-    private TempByteArrayOutputStream tempStream;
+    private MemoryBuffer tempStream;
+    private final TempOutputStreamStatistics statistics;
 
     private Key symKey;
     private byte[] iv;
@@ -119,15 +128,35 @@ public class TempOutputStream extends OutputStream
      *            {@link TempOutputStream}.destroy to clean up properly.
      */
     public TempOutputStream(File tempDir, int memoryThreshold, long maxContentSize, boolean encrypt, boolean deleteTempFileOnClose)
+    {
+        this(tempDir, memoryThreshold, maxContentSize, encrypt, deleteTempFileOnClose, null, null);
+    }
+
+    /**
+     * Creates a TempOutputStream that keeps its in-memory data in pooled buffers.
+     * 
+     * @param bufferPool
+     *            the pool of buffers for the in-memory data, or <tt>null</tt> to allocate them
+     * @param statistics
+     *            where to record the data buffered, or <tt>null</tt>
+     * @see #TempOutputStream(File, int, long, boolean, boolean)
+     */
+    TempOutputStream(File tempDir, int memoryThreshold, long maxContentSize, boolean encrypt, boolean deleteTempFileOnClose,
+                TempBufferPool bufferPool, TempOutputStreamStatistics statistics)
     {
         this.tempDir = tempDir;
         this.memoryThreshold = (memoryThreshold < 0) ? DEFAULT_MEMORY_THRESHOLD : memoryThreshold;
         this.maxContentSize = maxContentSize;
         this.encrypt = encrypt;
         this.deleteTempFileOnClose = deleteTempFileOnClose;
+        this.statistics = statistics;
 
-        this.tempStream = new TempByteArrayOutputStream();
+        this.tempStream = new MemoryBuffer(bufferPool);
         this.outputStream = this.tempStream;
+        if (statistics != null)
+        {
+            statistics.streamCreated();
+        }
     }
 
     /**
@@ -161,9 +190,13 @@ public class TempOutputStream extends OutputStream
             }
             return new BufferedInputStream(new FileInputStream(tempFile));
         }
+        else if (tempStream != null)
+        {
+            return tempStream.getInputStream();
+        }
         else
         {
-            return new ByteArrayInputStream(tempStream.getBuffer(), 0, tempStream.getCount());
+            throw new IOException("The stream has been destroyed");
         }
     }
 
@@ -216,6 +249,12 @@ public class TempOutputStream extends OutputStream
     public void destroy() throws IOException
     {
         close(true);
+
+        if (tempStream != null)
+        {
+            tempStream.release();
+            tempStream = null;
+        }
     }
 
     public long getLength()
@@ -299,13 +338,13 @@ public class TempOutputStream extends OutputStream
         {
             try
             {
-                // Generate a symmetric key
-                final KeyGenerator keyGen = KeyGenerator.getInstance(ALGORITHM);
-                keyGen.init(KEY_SIZE);
-                symKey = keyGen.generateKey();
+                // Generate a symmetric key from the shared random source, which is cheaper than a KeyGenerator per file
+                byte[] keyBytes = new byte[KEY_SIZE / 8];
+                RANDOM.nextBytes(keyBytes);
+                symKey = new SecretKeySpec(keyBytes, ALGORITHM);
 
                 Cipher cipher = Cipher.getInstance(TRANSFORMATION);
-                cipher.init(Cipher.ENCRYPT_MODE, symKey);
+                cipher.init(Cipher.ENCRYPT_MODE, symKey, RANDOM);
 
                 iv = cipher.getIV();
 
@@ -337,47 +376,229 @@ public class TempOutputStream extends OutputStream
             throw new ContentLimitViolationException("Content size violation, limit = " + maxContentSize);
         }
 
+        if (tempFile == null && tempStream == null)
+        {
+            throw new IOException("The stream has been destroyed");
+        }
+
         if (tempFile == null && (tempStream.getCount() + len) > memoryThreshold)
         {
             File file = TempFileProvider.createTempFile(TEMP_FILE_PREFIX, ".bin", tempDir);
 
             BufferedOutputStream fileOutputStream = createOutputStream(file);
-            fileOutputStream.write(this.tempStream.getBuffer(), 0, this.tempStream.getCount());
+            tempStream.writeTo(fileOutputStream);
             fileOutputStream.flush();
 
-            try
+            if (statistics != null)
             {
-                tempStream.close();
-            }
-            catch (IOException e)
-            {
-                // Ignore exception
+                statistics.spilled(tempStream.getCount());
             }
+            tempStream.release();
             tempStream = null;
 
             tempFile = file;
             outputStream = fileOutputStream;
         }
 
+        if (statistics != null)
+        {
+            if (tempFile == null)
+            {
+                statistics.buffered(len);
+            }
+            else
+            {
+                statistics.appendedToFile(len);
+            }
+        }
         length += len;
     }
 
-    private static class TempByteArrayOutputStream extends ByteArrayOutputStream
+    /**
+     * Holds the in-memory data in a list of buffers, so that it never has to be copied to grow
+     */
+    private static class MemoryBuffer extends OutputStream
     {
+        private static final int MIN_BUFFER_SIZE = 1024;
+
+        private final TempBufferPool bufferPool;
+        private final List<byte[]> buffers = new ArrayList<byte[]>();
+        private byte[] current;
+        private int position;
+        private int count;
+        private volatile boolean released;
+
+        MemoryBuffer(TempBufferPool bufferPool)
+        {
+            this.bufferPool = bufferPool;
+        }
+
+        @Override
+        public void write(int b)
+        {
+            ensureCapacity();
+            current[position++] = (byte) b;
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len)
+        {
+            while (len > 0)
+            {
+                ensureCapacity();
+                int n = Math.min(len, current.length - position);
+                System.arraycopy(b, off, current, position, n);
+                position += n;
+                count += n;
+                off += n;
+                len -= n;
+            }
+        }
+
+        private void ensureCapacity()
+        {
+            if (current == null || position == current.length)
+            {
+                if (bufferPool != null)
+                {
+                    current = bufferPool.acquire();
+                }
+                else
+                {
+                    // Without a pool start small, as most bodies are small, and double up to the pooled size
+                    current = new byte[current == null ? MIN_BUFFER_SIZE : Math.min(current.length * 2, TempBufferPool.DEFAULT_BUFFER_SIZE)];
+                }
+                buffers.add(current);
+                position = 0;
+            }
+        }
+
         /**
-         * @return The internal buffer where data is stored
+         * @return The number of valid bytes in the buffers.
          */
-        public byte[] getBuffer()
+        int getCount()
         {
-            return buf;
+            return count;
+        }
+
+        void writeTo(OutputStream out) throws IOException
+        {
+            int remaining = count;
+            for (byte[] buffer : buffers)
+            {
+                int n = Math.min(remaining, buffer.length);
+                out.write(buffer, 0, n);
+                remaining -= n;
+            }
+        }
+
+        InputStream getInputStream()
+        {
+            return new MemoryInputStream();
         }
 
         /**
-         * @return The number of valid bytes in the buffer.
+         * Return the buffers to the pool
          */
-        public int getCount()
+        void release()
         {
-            return count;
+            released = true;
+            if (bufferPool != null)
+            {
+                for (byte[] buffer : buffers)
+                {
+                    bufferPool.release(buffer);
+                }
+            }
+            buffers.clear();
+            current = null;
+            position = 0;
+            count = 0;
+        }
+
+        /**
+         * Reads the buffers in place.  Fails once they have been released, rather than read data that may
+         * have been written to them since.
+         */
+        private final class MemoryInputStream extends InputStream
+        {
+            private final int end = count;
+            private int pos;
+            private int bufferIndex;
+            private int offset;
+
+            @Override
+            public int read() throws IOException
+            {
+                ensureOpen();
+                if (pos >= end)
+                {
+                    return -1;
+                }
+                int b = buffers.get(bufferIndex)[offset] & 0xFF;
+                advance(1);
+                return b;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException
+            {
+                ensureOpen();
+                if (len == 0)
+                {
+                    return 0;
+                }
+                if (pos >= end)
+                {
+                    return -1;
+                }
+                byte[] buffer = buffers.get(bufferIndex);
+                int n = Math.min(len, Math.min(buffer.length - offset, end - pos));
+                System.arraycopy(buffer, offset, b, off, n);
+                advance(n);
+                return n;
+            }
+
+            @Override
+            public long skip(long n) throws IOException
+            {
+                ensureOpen();
+                long skipped = 0;
+                while (skipped < n && pos < end)
+                {
+                    int step = (int) Math.min(n - skipped, Math.min(buffers.get(bufferIndex).length - offset, end - pos));
+                    advance(step);
+                    skipped += step;
+                }
+                return skipped;
+            }
+
+            @Override
+            public int available() throws IOException
+            {
+                ensureOpen();
+                return end - pos;
+            }
+
+            private void advance(int n)
+            {
+                pos += n;
+                offset += n;
+                if (offset == buffers.get(bufferIndex).length)
+                {
+                    bufferIndex++;
+                    offset = 0;
+                }
+            }
+
+            private void ensureOpen() throws IOException
+            {
+                if (released)
+                {
+                    throw new IOException("The stream has been destroyed");
+                }
+            }
         }
     }
 }
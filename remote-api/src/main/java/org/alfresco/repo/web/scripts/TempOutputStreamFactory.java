@@ -41,6 +41,8 @@ public class TempOutputStreamFactory
     private long maxContentSize;
     private boolean encrypt;
     private boolean deleteTempFileOnClose;
+    private final TempBufferPool bufferPool;
+    private final TempOutputStreamStatistics statistics = new TempOutputStreamStatistics();
 
     /**
      * Creates a {@link TempOutputStream} factory.
@@ -62,12 +64,26 @@ public class TempOutputStreamFactory
      *            {@link TempOutputStream}.destroy to clean up properly.
      */
     public TempOutputStreamFactory(File tempDir, int memoryThreshold, long maxContentSize, boolean encrypt, boolean deleteTempFileOnClose)
+    {
+        this(tempDir, memoryThreshold, maxContentSize, encrypt, deleteTempFileOnClose, null);
+    }
+
+    /**
+     * Creates a {@link TempOutputStream} factory whose streams keep their in-memory data in pooled buffers.
+     * 
+     * @param bufferPool
+     *            the pool of buffers shared by the streams, or <tt>null</tt> to allocate them per stream
+     * @see #TempOutputStreamFactory(File, int, long, boolean, boolean)
+     */
+    public TempOutputStreamFactory(File tempDir, int memoryThreshold, long maxContentSize, boolean encrypt, boolean deleteTempFileOnClose,
+                TempBufferPool bufferPool)
     {
         this.tempDir = tempDir;
         this.memoryThreshold = memoryThreshold;
         this.maxContentSize = maxContentSize;
         this.encrypt = encrypt;
         this.deleteTempFileOnClose = deleteTempFileOnClose;
+        this.bufferPool = bufferPool;
     }
 
     /**
@@ -75,7 +91,7 @@ public class TempOutputStreamFactory
      */
     public TempOutputStream createOutputStream()
     {
-        return new TempOutputStream(tempDir, memoryThreshold, maxContentSize, encrypt, deleteTempFileOnClose);
+        return new TempOutputStream(tempDir, memoryThreshold, maxContentSize, encrypt, deleteTempFileOnClose, bufferPool, statistics);
     }
 
     public File getTempDir()
@@ -102,4 +118,20 @@ public class TempOutputStreamFactory
     {
         return deleteTempFileOnClose;
     }
+
+    /**
+     * @return the pool of buffers used by the streams, or <tt>null</tt>
+     */
+    public TempBufferPool getBufferPool()
+    {
+        return bufferPool;
+    }
+
+    /**
+     * @return the amount of data buffered by the streams created by this factory
+     */
+    public TempOutputStreamStatistics getStatistics()
+    {
+        return statistics;
+    }
 }
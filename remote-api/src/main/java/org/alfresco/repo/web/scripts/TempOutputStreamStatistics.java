@@ -0,0 +1,102 @@
+/*
+ * #%L
+ * Alfresco Remote API
+ * %%
+ * Copyright (C) 2005 - 2016 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.web.scripts;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts the data buffered by the {@link TempOutputStream}s of a {@link TempOutputStreamFactory}, to help
+ * size the <b>memoryThreshold</b> and the {@link TempBufferPool}.
+ * 
+ * @since 7.1
+ */
+public class TempOutputStreamStatistics
+{
+    private final LongAdder streams = new LongAdder();
+    private final LongAdder spilledStreams = new LongAdder();
+    private final LongAdder bytesBuffered = new LongAdder();
+    private final LongAdder bytesSpilled = new LongAdder();
+
+    void streamCreated()
+    {
+        streams.increment();
+    }
+
+    void buffered(long bytes)
+    {
+        bytesBuffered.add(bytes);
+    }
+
+    void spilled(long bytesMoved)
+    {
+        spilledStreams.increment();
+        bytesSpilled.add(bytesMoved);
+    }
+
+    void appendedToFile(long bytes)
+    {
+        bytesSpilled.add(bytes);
+    }
+
+    /**
+     * @return the number of streams created
+     */
+    public long getStreams()
+    {
+        return streams.sum();
+    }
+
+    /**
+     * @return the number of streams that exceeded the memory threshold and were written to a temp file
+     */
+    public long getSpilledStreams()
+    {
+        return spilledStreams.sum();
+    }
+
+    /**
+     * @return the number of bytes buffered in memory, including those later moved to temp files
+     */
+    public long getBytesBuffered()
+    {
+        return bytesBuffered.sum();
+    }
+
+    /**
+     * @return the number of bytes written to temp files
+     */
+    public long getBytesSpilled()
+    {
+        return bytesSpilled.sum();
+    }
+
+    @Override
+    public String toString()
+    {
+        return "TempOutputStreamStatistics[streams=" + getStreams() + ", spilledStreams=" + getSpilledStreams() +
+                ", bytesBuffered=" + getBytesBuffered() + ", bytesSpilled=" + getBytesSpilled() + "]";
+    }
+}
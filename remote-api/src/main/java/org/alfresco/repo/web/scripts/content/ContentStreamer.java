@@ -36,6 +36,7 @@ import java.util.Date;
 import java.util.Locale;
 import java.util.Map;
 
+import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
 import org.alfresco.model.ContentModel;
@@ -43,6 +44,7 @@ import org.alfresco.repo.content.MimetypeMap;
 import org.alfresco.repo.content.filestore.FileContentReader;
 import org.alfresco.sync.repo.events.EventPublisher;
 import org.alfresco.repo.web.util.HttpRangeProcessor;
+import org.alfresco.repo.web.util.ZeroCopyTransfer;
 import org.alfresco.rest.framework.resource.content.CacheDirective;
 import org.alfresco.service.cmr.repository.ContentIOException;
 import org.alfresco.service.cmr.repository.ContentReader;
@@ -62,6 +64,8 @@ import org.springframework.extensions.webscripts.Cache;
 import org.springframework.extensions.webscripts.WebScriptException;
 import org.springframework.extensions.webscripts.WebScriptRequest;
 import org.springframework.extensions.webscripts.WebScriptResponse;
+import org.springframework.extensions.webscripts.servlet.WebScriptServletResponse;
+import org.springframework.extensions.webscripts.servlet.WebScriptServletRuntime;
 import org.springframework.util.FileCopyUtils;
 
 
@@ -376,6 +380,7 @@ public class ContentStreamer implements ResourceLoaderAware
         try
         {
             boolean processedRange = false;
+            HttpServletRequest sendfileRequest = getSendfileRequest(req, res);
             String range = req.getHeader(HEADER_CONTENT_RANGE);
             final long size = reader.getSize();
             final String encoding = reader.getEncoding();
@@ -414,7 +419,7 @@ public class ContentStreamer implements ResourceLoaderAware
                            logger.info("Multi-range only supported for nodeRefs");
                   }
                   else {
-                      HttpRangeProcessor rangeProcessor = new HttpRangeProcessor(contentService);
+                      HttpRangeProcessor rangeProcessor = new HttpRangeProcessor(contentService, sendfileRequest);
                       processedRange = rangeProcessor.processRange(
                             res, reader, range.substring(6), nodeRef, propertyQName,
                             mimetype, req.getHeader(HEADER_USER_AGENT));
@@ -437,10 +442,25 @@ public class ContentStreamer implements ResourceLoaderAware
                // set caching
                setResponseCache(res, modified, eTag, model);
                
-               // get the content and stream directly to the response output stream
-               // assuming the repository is capable of streaming in chunks, this should allow large files
-               // to be streamed directly to the browser response stream.
-               reader.getContent( res.getOutputStream() );
+               // let the container send the file directly if it can, otherwise copy the content to the response
+               // output stream
+               if (!ZeroCopyTransfer.sendfile(sendfileRequest, reader, 0L, size))
+               {
+                   OutputStream os = res.getOutputStream();
+                   try
+                   {
+                       ZeroCopyTransfer.transfer(reader, 0L, size, os);
+                   }
+                   catch (IOException e)
+                   {
+                       throw new ContentIOException("Failed to copy content to output stream: \n" +
+                               "   accessor: " + reader, e);
+                   }
+                   finally
+                   {
+                       os.close();
+                   }
+               }
             }
         }
         catch (SocketException e1)
@@ -456,6 +476,23 @@ public class ContentStreamer implements ResourceLoaderAware
         }
     }
 
+    /**
+     * Get the servlet request to use for container sendfile - only if the response is written directly to the
+     * servlet response (i.e. not buffered or wrapped by the web script runtime).
+     * 
+     * @param req WebScriptRequest
+     * @param res WebScriptResponse
+     * @return the HTTP servlet request or <code>null</code> if sendfile cannot be used
+     */
+    private HttpServletRequest getSendfileRequest(WebScriptRequest req, WebScriptResponse res)
+    {
+        if (!(res instanceof WebScriptServletResponse))
+        {
+            return null;
+        }
+        return WebScriptServletRuntime.getHttpServletRequest(req);
+    }
+
     /**
      * Set attachment header
      * 
@@ -26,14 +26,14 @@
 package org.alfresco.repo.web.util;
 
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.StringTokenizer;
 
-import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
 import org.alfresco.service.cmr.repository.ContentReader;
@@ -57,9 +57,9 @@ public class HttpRangeProcessor
     private static final String MULTIPART_BYTERANGES_HEADER  = "multipart/byteranges; boundary=" + MULTIPART_BYTERANGES_BOUNDRY;
     private static final String MULTIPART_BYTERANGES_BOUNDRY_SEP = "--" + MULTIPART_BYTERANGES_BOUNDRY;
     private static final String MULTIPART_BYTERANGES_BOUNDRY_END = MULTIPART_BYTERANGES_BOUNDRY_SEP + "--";
-    /** size of a multi-part byte range output buffer */
-    private static final int CHUNKSIZE = 64*1024;
+    private static final String CRLF = "\r\n";
     private ContentService contentService;
+    private HttpServletRequest request;
     
     
     /**
@@ -68,8 +68,20 @@ public class HttpRangeProcessor
      * @param contentService ContentService
      */
     public HttpRangeProcessor(ContentService contentService)
+    {
+        this(contentService, null);
+    }
+    
+    /**
+     * Constructor.
+     * 
+     * @param contentService ContentService
+     * @param request the HTTP request, used to detect container sendfile support for single ranges (may be null)
+     */
+    public HttpRangeProcessor(ContentService contentService, HttpServletRequest request)
     {
         this.contentService = contentService;
+        this.request = request;
     }
 
     /**
@@ -96,7 +108,7 @@ public class HttpRangeProcessor
        }
        else
        {
-          return processMultiRange(res, range, ref, property, mimetype, userAgent);
+          return processMultiRange(res, reader, range, ref, property, mimetype, userAgent);
        }
     }
     
@@ -124,7 +136,7 @@ public class HttpRangeProcessor
        }
        else
        {
-          return processMultiRange(res, range, ref, property, mimetype, userAgent);
+          return processMultiRange(res, reader, range, ref, property, mimetype, userAgent);
        }
     }
 
@@ -170,7 +182,6 @@ public class HttpRangeProcessor
        /* 'Range' header example:
               bytes=10485760-20971519 */
        
-       boolean processedRange = false;
        Range r = null;
        try
        {
@@ -196,6 +207,20 @@ public class HttpRangeProcessor
           return true;
        }
        
+       return outputSingleRange(httpServletResponse, webScriptResponse, reader, r, mimetype);
+    }
+    
+    /**
+     * Output a single range response.
+     * 
+     * @return true if processed range, false otherwise
+     */
+    private boolean outputSingleRange(HttpServletResponse httpServletResponse, WebScriptResponse webScriptResponse,
+          ContentReader reader, Range r, String mimetype)
+       throws IOException
+    {
+       boolean processedRange = false;
+       
        // set Partial Content status and range headers
        String contentRange = "bytes " + Long.toString(r.start) + 
                "-" + Long.toString(r.end) + "/" + Long.toString(reader.getSize());
@@ -217,7 +242,13 @@ public class HttpRangeProcessor
        if (getLogger().isDebugEnabled())
           getLogger().debug("Processing: Content-Range: " + contentRange);
        
-       InputStream is = null;
+       long span = (r.end - r.start) + 1L;
+       if (ZeroCopyTransfer.sendfile(request, reader, r.start, span))
+       {
+          // the container sends the range of the file directly
+          return true;
+       }
+       
        try
        {
           // output the binary data for the range
@@ -230,9 +261,8 @@ public class HttpRangeProcessor
           {
              os = webScriptResponse.getOutputStream();
           }
-          is = reader.getContentInputStream();
           
-          streamRangeBytes(r, is, os, 0L);
+          ZeroCopyTransfer.transfer(reader, r.start, span, os);
           
           os.close();
           processedRange = true;
@@ -243,10 +273,6 @@ public class HttpRangeProcessor
              getLogger().debug("Unable to process single range due to IO Exception: " + err.getMessage());
           throw err;
        }
-       finally
-       {
-          if (is != null) is.close();
-       }
        
        return processedRange;
     }
@@ -255,6 +281,7 @@ public class HttpRangeProcessor
      * Process multiple ranges.
      * 
      * @param res        HttpServletResponse
+     * @param reader     ContentReader to retrieve content, if not already read
      * @param range      Range header value
      * @param ref        NodeRef to the content for streaming
      * @param property   Content Property for the content
@@ -264,7 +291,7 @@ public class HttpRangeProcessor
      * @return true if processed range, false otherwise
      */
     private boolean processMultiRange(
-          Object res, String range, NodeRef ref, QName property, String mimetype, String userAgent)
+          Object res, ContentReader reader, String range, NodeRef ref, QName property, String mimetype, String userAgent)
        throws IOException
     {
        final Log logger = getLogger();
@@ -302,10 +329,11 @@ public class HttpRangeProcessor
           bytes=500-600,601-999
           bytes=500-700,601-999 */
        
-       boolean processedRange = false;
-       
-       // get the content reader
-       ContentReader reader = contentService.getReader(ref, property);
+       // read the ranges from the given reader if it has not been used, rather than opening the content again
+       if (reader == null || reader.isChannelOpen())
+       {
+          reader = contentService.getReader(ref, property);
+       }
        
        final List<Range> ranges = new ArrayList<Range>(8);
        long entityLength = reader.getSize();
@@ -336,178 +364,106 @@ public class HttpRangeProcessor
           }
        }
        
-       if (ranges.size() != 0)
+       if (ranges.size() == 0)
        {
-          // merge byte ranges if possible - IE handles this well, FireFox not so much
-          if (userAgent == null || userAgent.indexOf("MSIE ") != -1)
-          {
-             Collections.sort(ranges);
-             
-             for (int i=0; i<ranges.size() - 1; i++)
-             {
-                Range first = ranges.get(i);
-                Range second = ranges.get(i + 1);
-                if (first.end + 1 >= second.start)
-                {
-                   if (logger.isDebugEnabled())
-                      logger.debug("Merging byte range: " + first + " with " + second);
-                   
-                   if (first.end < second.end)
-                   {
-                      // merge second range into first
-                      first.end = second.end;
-                   }
-                   // else we simply discard the second range - it is contained within the first
-                   
-                   // delete second range
-                   ranges.remove(i + 1);
-                   // reset loop index
-                   i--;
-                }
-             }
-          }
-          
-          // calculate response content length
-          long length = MULTIPART_BYTERANGES_BOUNDRY_END.length() + 2;
-          for (Range r : ranges)
-          {
-             length += r.getLength();
-          }
-          
-          // output headers as we have at least one range to process
-          OutputStream os = null;
-          if (httpServletResponse != null)
-          {
-             httpServletResponse.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
-             httpServletResponse.setHeader(HEADER_CONTENT_TYPE, MULTIPART_BYTERANGES_HEADER);
-             httpServletResponse.setHeader(HEADER_CONTENT_LENGTH, Long.toString(length));
-             os = httpServletResponse.getOutputStream();
-          }
-          else if (webScriptResponse != null)
-          {
-             webScriptResponse.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
-             webScriptResponse.setHeader(HEADER_CONTENT_TYPE, MULTIPART_BYTERANGES_HEADER);
-             webScriptResponse.setHeader(HEADER_CONTENT_LENGTH, Long.toString(length));
-             os =webScriptResponse.getOutputStream();
-          }
-          
-          InputStream is = null;
-          try
-          {
-             for (Range r : ranges)
-             {
-                if (logger.isDebugEnabled())
-                   logger.debug("Processing: " + r.getContentRange());
-                
-                try
-                {
-                   // output the header bytes for the range
-                   if (os instanceof ServletOutputStream)
-                       r.outputHeader((ServletOutputStream) os);
-                   
-                   // output the binary data for the range
-                   // need a new reader for each new InputStream
-                   is = contentService.getReader(ref, property).getContentInputStream();
-                   streamRangeBytes(r, is, os, 0L);
-                   is.close();
-                   is = null;
-                   
-                   // section marker and flush stream
-                   if (os instanceof ServletOutputStream)
-                       ((ServletOutputStream) os).println();
-                   os.flush();
-                }
-                catch (IOException err)
-                {
-                   if (getLogger().isDebugEnabled())
-                      getLogger().debug("Unable to process multiple range due to IO Exception: " + err.getMessage());
-                   throw err;
-                }
-             }
-          }
-          finally
-          {
-             if (is != null)
-             {
-                is.close();
-             }
-          }
-          
-          // end marker
-          if (os instanceof ServletOutputStream)
-              ((ServletOutputStream) os).println(MULTIPART_BYTERANGES_BOUNDRY_END);
-          os.close();
-          processedRange = true;
+          return false;
        }
        
-       return processedRange;
-    }
-    
-    /**
-     * Stream a range of bytes from the given InputStream to the ServletOutputStream
-     * 
-     * @param r       Byte Range to process
-     * @param is      InputStream
-     * @param os      ServletOutputStream
-     * @param offset  Assumed InputStream position - to calculate skip bytes from
-     * 
-     */
-    private void streamRangeBytes(final Range r, final InputStream is, final OutputStream os, long offset)
-       throws IOException
-    {
-       final Log logger = getLogger();
-       final boolean trace = logger.isTraceEnabled();
+       // sort and merge overlapping and adjacent byte ranges (RFC 7233 section 4.1), so that each byte is read
+       // at most once and the content is read forwards
+       mergeRanges(ranges);
+       if (ranges.size() == 1)
+       {
+          // a single part response is more efficient and may be sent by the container directly
+          return outputSingleRange(httpServletResponse, webScriptResponse, reader, ranges.get(0), mimetype);
+       }
        
-       // TODO: investigate using getFileChannel() on ContentReader
+       // calculate response content length
+       long length = MULTIPART_BYTERANGES_BOUNDRY_END.length() + 2;
+       for (Range r : ranges)
+       {
+          length += r.getLength();
+       }
        
-       if (r.start != 0L && r.start > offset)
+       // output headers as we have at least one range to process
+       OutputStream os = null;
+       if (httpServletResponse != null)
        {
-          long skipped = offset + is.skip(r.start - offset);
-          if (skipped < r.start)
-          {
-              // Nothing left to download!
-              return;
-          }
+          httpServletResponse.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+          httpServletResponse.setHeader(HEADER_CONTENT_TYPE, MULTIPART_BYTERANGES_HEADER);
+          httpServletResponse.setHeader(HEADER_CONTENT_LENGTH, Long.toString(length));
+          os = httpServletResponse.getOutputStream();
+       }
+       else if (webScriptResponse != null)
+       {
+          webScriptResponse.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+          webScriptResponse.setHeader(HEADER_CONTENT_TYPE, MULTIPART_BYTERANGES_HEADER);
+          webScriptResponse.setHeader(HEADER_CONTENT_LENGTH, Long.toString(length));
+          os = webScriptResponse.getOutputStream();
        }
-       long span = (r.end - r.start) + 1L;
-       long bytesLeft = span;
-       int read = 0;
        
-       // Check that bytesLeft isn't greater than int can hold
-       int bufSize;
-       if (bytesLeft >= Integer.MAX_VALUE - 8)
+       // the content is opened once and each part is streamed straight to the response
+       try (ZeroCopyTransfer.RangeSource source = ZeroCopyTransfer.openRanges(reader))
        {
-          bufSize = CHUNKSIZE;
+          for (Range r : ranges)
+          {
+             if (logger.isDebugEnabled())
+                logger.debug("Processing: " + r.getContentRange());
+             
+             // output the header bytes for the range
+             r.outputHeader(os);
+             
+             // output the binary data for the range
+             source.transfer(r.start, r.end - r.start + 1L, os);
+             
+             // section marker and flush stream
+             os.write(CRLF.getBytes(StandardCharsets.US_ASCII));
+             os.flush();
+          }
        }
-       else
+       catch (IOException err)
        {
-          bufSize = ((int)bytesLeft) < CHUNKSIZE ? (int)bytesLeft : CHUNKSIZE;
+          if (getLogger().isDebugEnabled())
+             getLogger().debug("Unable to process multiple range due to IO Exception: " + err.getMessage());
+          throw err;
        }
-       byte[] buf = new byte[bufSize];
        
-       while ((read = is.read(buf)) > 0 && bytesLeft != 0L)
+       // end marker
+       os.write((MULTIPART_BYTERANGES_BOUNDRY_END + CRLF).getBytes(StandardCharsets.US_ASCII));
+       os.close();
+       return true;
+    }
+    
+    /**
+     * Sort the byte ranges by start position and merge those that overlap or are adjacent.
+     * 
+     * @param ranges     the byte ranges, modified in place
+     */
+    private static void mergeRanges(List<Range> ranges)
+    {
+       Collections.sort(ranges);
+       for (int i=0; i<ranges.size() - 1; i++)
        {
-          os.write(buf, 0, read);
-          
-          bytesLeft -= (long)read;
-          
-          if (bytesLeft != 0L)
+          Range first = ranges.get(i);
+          Range second = ranges.get(i + 1);
+          if (first.end + 1 >= second.start)
           {
-             int resize;
-             if (bytesLeft >= Integer.MAX_VALUE - 8)
-             {
-                resize = CHUNKSIZE;
-             }
-             else
-             {
-                resize = ((int)bytesLeft) < CHUNKSIZE ? (int)bytesLeft : CHUNKSIZE;
-             }
-             if (resize != buf.length)
+             if (getLogger().isDebugEnabled())
+                getLogger().debug("Merging byte range: " + first + " with " + second);
+             
+             if (first.end < second.end)
              {
-                buf = new byte[resize];
+                // merge second range into first
+                first.end = second.end;
+                first.contentRange = null;
              }
+             // else we simply discard the second range - it is contained within the first
+             
+             // delete second range
+             ranges.remove(i + 1);
+             // reset loop index
+             i--;
           }
-          if (trace) logger.trace("...wrote " + read + " bytes, with " + bytesLeft + " to go...");
        }
     }
     
@@ -579,9 +535,15 @@ public class HttpRangeProcessor
                 start = Long.parseLong(range.substring(0, separator));
              }
              long end = entityLength - 1L;
-             if (separator != range.length() - 1)
+             if (separator == 0)
+             {
+                // suffix range - the final bytes of the entity
+                start = Math.max(0L, entityLength - Long.parseLong(range.substring(1)));
+             }
+             else if (separator != range.length() - 1)
              {
-                end = Long.parseLong(range.substring(separator + 1));
+                // a last byte position beyond the end of the entity means the end of the entity
+                end = Math.min(end, Long.parseLong(range.substring(separator + 1)));
              }
              
              if (start > end)
@@ -601,25 +563,24 @@ public class HttpRangeProcessor
        /**
         * Output the header bytes for a multi-part byte range header
         */
-       void outputHeader(ServletOutputStream os) throws IOException
+       void outputHeader(OutputStream os) throws IOException
        {
-          // output multi-part boundry separator
-          os.println(MULTIPART_BYTERANGES_BOUNDRY_SEP);
-          // output content type and range size sub-header for this part
-          os.println(this.contentType);
-          os.println(getContentRange());
-          os.println();
+          // output multi-part boundry separator, content type and range size sub-header for this part
+          String header = MULTIPART_BYTERANGES_BOUNDRY_SEP + CRLF +
+                this.contentType + CRLF +
+                getContentRange() + CRLF + CRLF;
+          os.write(header.getBytes(StandardCharsets.US_ASCII));
        }
        
        /**
         * @return the length in bytes of the byte range content including the header bytes
         */
-       int getLength()
+       long getLength()
        {
           // length in bytes of range plus it's header plus section marker and line feed bytes
           return MULTIPART_BYTERANGES_BOUNDRY_SEP.length() + 2 +
                  this.contentType.length() + 2 +
-                 getContentRange().length() + 4 + (int)(this.end - this.start + 1L) + 2;
+                 getContentRange().length() + 4 + (this.end - this.start + 1L) + 2;
        }
        
        /**
@@ -646,7 +607,7 @@ public class HttpRangeProcessor
         */
        public int compareTo(Range o)
        {
-          return this.start > o.start ? 1 : -1;
+          return Long.compare(this.start, o.start);
        }
     }
 
@@ -0,0 +1,375 @@
+/*
+ * #%L
+ * Alfresco Remote API
+ * %%
+ * Copyright (C) 2005 - 2016 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.web.util;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.alfresco.repo.content.filestore.FileContentReader;
+import org.alfresco.service.cmr.repository.ContentReader;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Delivers content (or a byte range of it) to an HTTP response with as little copying as possible.
+ * <p>
+ * In order of preference:
+ * <ul>
+ *   <li><b>sendfile</b> - if the reader is backed by a local file and the servlet container advertises sendfile
+ *       support (Tomcat NIO/NIO2/APR connectors), the file is handed to the container which writes it to the socket
+ *       using the kernel (no bytes pass through the JVM heap).</li>
+ *   <li><b>file</b> - if the reader is backed by a local file, the bytes are read from the requested offset with
+ *       positional {@link FileChannel} reads and copied to the response through a 64KB buffer.</li>
+ *   <li><b>stream</b> - otherwise the content input stream is copied through a 64KB buffer, as for any other
+ *       content store.</li>
+ * </ul>
+ * Only sendfile avoids copying: a servlet output stream is not a file or socket channel, so
+ * {@link FileChannel#transferTo} would only copy through a buffer of its own.
+ * The bytes sent and throughput of each transfer are logged at debug level.
+ *
+ * @since 7.1
+ */
+public class ZeroCopyTransfer
+{
+    private static final Log logger = LogFactory.getLog(ZeroCopyTransfer.class);
+    
+    /** Request attributes of the servlet container sendfile contract */
+    public static final String ATTR_SENDFILE_SUPPORT  = "org.apache.tomcat.sendfile.support";
+    public static final String ATTR_SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    public static final String ATTR_SENDFILE_START    = "org.apache.tomcat.sendfile.start";
+    public static final String ATTR_SENDFILE_END      = "org.apache.tomcat.sendfile.end";
+    
+    /** size of the stream copy buffer */
+    private static final int CHUNKSIZE = 64*1024;
+    
+    private ZeroCopyTransfer()
+    {
+    }
+    
+    /**
+     * Get the local file backing the given reader, if there is one that can be read directly.
+     * 
+     * @param reader the content reader
+     * @return the file or <tt>null</tt> if the content must be read through the reader's stream
+     */
+    public static File getFile(ContentReader reader)
+    {
+        if (!(reader instanceof FileContentReader) || reader.isChannelOpen())
+        {
+            return null;
+        }
+        FileContentReader fileReader = (FileContentReader) reader;
+        if (fileReader.getLimits() != null)
+        {
+            // transformation read limits are only applied by the stream
+            return null;
+        }
+        File file = fileReader.getFile();
+        return (file != null && file.isFile()) ? file : null;
+    }
+    
+    /**
+     * Ask the servlet container to send the given byte range of the content file itself, once the request
+     * has been handled. The response headers (including Content-Length) must already have been set and nothing
+     * must be written to the response body.
+     * 
+     * @param req    the HTTP request (may be <tt>null</tt> if not available)
+     * @param reader the content reader
+     * @param start  the offset of the first byte to send
+     * @param count  the number of bytes to send
+     * @return <tt>true</tt> if the container will send the content, <tt>false</tt> if the caller must write it
+     */
+    public static boolean sendfile(HttpServletRequest req, ContentReader reader, long start, long count)
+    {
+        if (req == null || count <= 0L || !Boolean.TRUE.equals(req.getAttribute(ATTR_SENDFILE_SUPPORT)))
+        {
+            return false;
+        }
+        File file = getFile(reader);
+        if (file == null || start + count > file.length())
+        {
+            return false;
+        }
+        
+        req.setAttribute(ATTR_SENDFILE_FILENAME, file.getAbsolutePath());
+        req.setAttribute(ATTR_SENDFILE_START, Long.valueOf(start));
+        req.setAttribute(ATTR_SENDFILE_END, Long.valueOf(start + count));
+        
+        if (logger.isDebugEnabled())
+        {
+            logger.debug("Sending " + count + " bytes from offset " + start + " (sendfile): " + reader);
+        }
+        return true;
+    }
+    
+    /**
+     * Write the given byte range of the content to the output stream. The output stream is not closed.
+     * 
+     * @param reader the content reader
+     * @param start  the offset of the first byte to write
+     * @param count  the number of bytes to write
+     * @param os     the output stream
+     * @return the number of bytes written - fewer than <tt>count</tt> if the content is shorter than expected
+     */
+    public static long transfer(ContentReader reader, long start, long count, OutputStream os) throws IOException
+    {
+        long startTime = System.nanoTime();
+        String mode;
+        long transferred;
+        if (getFile(reader) != null)
+        {
+            ReadableByteChannel channel = reader.getReadableChannel();
+            if (channel instanceof FileChannel)
+            {
+                mode = "file";
+                try
+                {
+                    transferred = copy((FileChannel) channel, start, count, os);
+                }
+                finally
+                {
+                    channel.close();
+                }
+            }
+            else
+            {
+                // no random access to the file
+                mode = "stream";
+                transferred = transferStream(Channels.newInputStream(channel), start, count, os);
+            }
+        }
+        else
+        {
+            mode = "stream";
+            transferred = transferStream(reader.getContentInputStream(), start, count, os);
+        }
+        
+        if (logger.isDebugEnabled())
+        {
+            long micros = Math.max(1L, (System.nanoTime() - startTime) / 1000L);
+            logger.debug("Transferred " + transferred + " bytes from offset " + start + " (" + mode + ") in " + (micros / 1000L) +
+                    " ms [" + ((transferred * 1000000L / micros) / 1024L) + " KB/s]: " + reader);
+        }
+        return transferred;
+    }
+    
+    /**
+     * Open the content for writing several byte ranges to the same output. The content is opened once: file-backed
+     * content is read with positional {@link FileChannel} reads, other content is read forward through a single stream.
+     * 
+     * @param reader the content reader
+     * @return the range source, which must be closed by the caller
+     */
+    public static RangeSource openRanges(ContentReader reader)
+    {
+        return new RangeSource(reader);
+    }
+    
+    /**
+     * Source of the byte ranges of a single piece of content.
+     * <p>
+     * Ranges are best requested in ascending order. Content that is not file-backed has to be re-opened if a range
+     * starts before the end of the previous one.
+     */
+    public static class RangeSource implements Closeable
+    {
+        private final ContentReader reader;
+        private final long startTime = System.nanoTime();
+        private String mode;
+        private FileChannel channel;
+        private InputStream is;
+        private long position;
+        private long transferred;
+        private int ranges;
+        
+        private RangeSource(ContentReader reader)
+        {
+            this.reader = reader;
+            if (getFile(reader) != null)
+            {
+                ReadableByteChannel readableChannel = reader.getReadableChannel();
+                if (readableChannel instanceof FileChannel)
+                {
+                    this.mode = "file";
+                    this.channel = (FileChannel) readableChannel;
+                }
+                else
+                {
+                    this.mode = "stream";
+                    this.is = Channels.newInputStream(readableChannel);
+                }
+            }
+            else
+            {
+                this.mode = "stream";
+                this.is = reader.getContentInputStream();
+            }
+        }
+        
+        /**
+         * Write the given byte range of the content to the output stream. The output stream is not closed.
+         * 
+         * @param start  the offset of the first byte to write
+         * @param count  the number of bytes to write
+         * @param os     the output stream
+         * @return the number of bytes written - fewer than <tt>count</tt> if the content is shorter than expected
+         */
+        public long transfer(long start, long count, OutputStream os) throws IOException
+        {
+            long written;
+            if (channel != null)
+            {
+                written = copy(channel, start, count, os);
+            }
+            else
+            {
+                if (start < position)
+                {
+                    // a stream cannot go backwards
+                    if (logger.isDebugEnabled())
+                    {
+                        logger.debug("Re-opening content to read from offset " + start + " after offset " + position + ": " + reader);
+                    }
+                    is.close();
+                    is = reader.getReader().getContentInputStream();
+                    position = 0L;
+                }
+                position += skip(is, start - position);
+                written = (position == start) ? copy(is, count, os) : 0L;
+                position += written;
+            }
+            transferred += written;
+            ranges++;
+            return written;
+        }
+        
+        @Override
+        public void close() throws IOException
+        {
+            try
+            {
+                if (channel != null)
+                {
+                    channel.close();
+                }
+                if (is != null)
+                {
+                    is.close();
+                }
+            }
+            finally
+            {
+                if (logger.isDebugEnabled())
+                {
+                    long micros = Math.max(1L, (System.nanoTime() - startTime) / 1000L);
+                    logger.debug("Transferred " + transferred + " bytes in " + ranges + " ranges (" + mode + ") in " + (micros / 1000L) +
+                            " ms [" + ((transferred * 1000000L / micros) / 1024L) + " KB/s]: " + reader);
+                }
+            }
+        }
+    }
+    
+    private static long copy(FileChannel channel, long start, long count, OutputStream os) throws IOException
+    {
+        long transferred = 0L;
+        byte[] buf = new byte[(int) Math.min(CHUNKSIZE, Math.max(count, 1L))];
+        ByteBuffer buffer = ByteBuffer.wrap(buf);
+        while (transferred < count)
+        {
+            buffer.clear().limit((int) Math.min(buf.length, count - transferred));
+            int read = channel.read(buffer, start + transferred);
+            if (read == -1)
+            {
+                // end of file
+                break;
+            }
+            os.write(buf, 0, read);
+            transferred += read;
+        }
+        return transferred;
+    }
+    
+    private static long transferStream(InputStream in, long start, long count, OutputStream os) throws IOException
+    {
+        try (InputStream is = in)
+        {
+            if (skip(is, start) < start)
+            {
+                // nothing left to transfer
+                return 0L;
+            }
+            return copy(is, count, os);
+        }
+    }
+    
+    /**
+     * @return the number of bytes skipped - fewer than <tt>count</tt> if the end of the stream was reached
+     */
+    private static long skip(InputStream is, long count) throws IOException
+    {
+        long skipped = 0L;
+        while (skipped < count)
+        {
+            long n = is.skip(count - skipped);
+            if (n <= 0L)
+            {
+                if (is.read() == -1)
+                {
+                    break;
+                }
+                n = 1L;
+            }
+            skipped += n;
+        }
+        return skipped;
+    }
+    
+    private static long copy(InputStream is, long count, OutputStream os) throws IOException
+    {
+        long transferred = 0L;
+        byte[] buf = new byte[(int) Math.min(CHUNKSIZE, Math.max(count, 1L))];
+        while (transferred < count)
+        {
+            int read = is.read(buf, 0, (int) Math.min(buf.length, count - transferred));
+            if (read == -1)
+            {
+                break;
+            }
+            os.write(buf, 0, read);
+            transferred += read;
+        }
+        return transferred;
+    }
+}
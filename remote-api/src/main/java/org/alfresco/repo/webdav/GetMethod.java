@@ -26,6 +26,7 @@
 package org.alfresco.repo.webdav;
 
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.Serializable;
 import java.io.Writer;
 import java.net.SocketException;
@@ -41,10 +42,12 @@ import javax.servlet.http.HttpServletResponse;
 import org.alfresco.model.ContentModel;
 import org.alfresco.repo.content.filestore.FileContentReader;
 import org.alfresco.repo.web.util.HttpRangeProcessor;
+import org.alfresco.repo.web.util.ZeroCopyTransfer;
 import org.alfresco.service.cmr.model.FileFolderService;
 import org.alfresco.service.cmr.model.FileInfo;
 import org.alfresco.service.cmr.model.FileNotFoundException;
 import org.alfresco.service.cmr.repository.ContentData;
+import org.alfresco.service.cmr.repository.ContentIOException;
 import org.alfresco.service.cmr.repository.ContentReader;
 import org.alfresco.service.cmr.repository.MimetypeService;
 import org.alfresco.service.cmr.repository.NodeRef;
@@ -323,7 +326,7 @@ public class GetMethod extends WebDAVMethod
     {
         if (byteRanges != null && byteRanges.startsWith(RANGE_HEADER_UNIT_SPECIFIER))
         {
-            HttpRangeProcessor rangeProcessor = new HttpRangeProcessor(getContentService());
+            HttpRangeProcessor rangeProcessor = new HttpRangeProcessor(getContentService(), m_request);
             String userAgent = m_request.getHeader(WebDAV.HEADER_USER_AGENT);
             
             if (m_returnContent)
@@ -347,8 +350,24 @@ public class GetMethod extends WebDAVMethod
                 m_response.setHeader(WebDAV.HEADER_CONTENT_LENGTH, Long.toString(reader.getSize()));
                 m_response.setHeader(WebDAV.HEADER_CONTENT_TYPE, reader.getMimetype());
                 m_davHelper.publishReadEvent(realNodeInfo, reader.getMimetype(), reader.getSize(), null, reader.getEncoding());
-                // copy the content to the response output stream
-                reader.getContent(m_response.getOutputStream());
+                // let the container send the file if it can, otherwise copy the content to the response output stream
+                if (!ZeroCopyTransfer.sendfile(m_request, reader, 0L, reader.getSize()))
+                {
+                    OutputStream os = m_response.getOutputStream();
+                    try
+                    {
+                        ZeroCopyTransfer.transfer(reader, 0L, reader.getSize(), os);
+                    }
+                    catch (IOException e)
+                    {
+                        throw new ContentIOException("Failed to copy content to output stream: \n" +
+                                "   accessor: " + reader, e);
+                    }
+                    finally
+                    {
+                        os.close();
+                    }
+                }
             }
         }
     }
@@ -398,5 +398,7 @@ public interface Nodes
 
     String PARAM_ISPRIMARY = "isPrimary";
     String PARAM_ASSOC_TYPE = "assocType";
+
+    String PARAM_CONTINUATION_TOKEN = "continuationToken"; // keyset paging of children (empty for first page)
 }
 
@@ -63,6 +63,7 @@ import org.alfresco.repo.model.filefolder.FileFolderServiceImpl;
 import org.alfresco.repo.node.getchildren.FilterProp;
 import org.alfresco.repo.node.getchildren.FilterPropBoolean;
 import org.alfresco.repo.node.getchildren.GetChildrenCannedQuery;
+import org.alfresco.repo.node.getchildren.GetChildrenKeyset;
 import org.alfresco.repo.node.integrity.IntegrityException;
 import org.alfresco.repo.policy.BehaviourFilter;
 import org.alfresco.repo.rendition2.RenditionDefinition2;
@@ -1308,6 +1309,14 @@ public class NodesImpl implements Nodes
 
         PagingRequest pagingRequest = Util.getPagingRequest(paging);
 
+        // keyset paging - each page continues after the token returned with the previous page (rather than skipping)
+        String continuationToken = parameters.getParameter(PARAM_CONTINUATION_TOKEN);
+        boolean keysetPaging = (continuationToken != null);
+        if (keysetPaging)
+        {
+            pagingRequest = getListChildrenKeysetPagingRequest(paging, sortProps, continuationToken);
+        }
+
         final PagingResults<FileInfo> pagingResults;
 
         Pair<Set<QName>, Set<QName>> pair = buildSearchTypesAndIgnoreAspects(parameters);
@@ -1398,9 +1407,65 @@ public class NodesImpl implements Nodes
             sourceEntity = getFolderOrDocumentFullInfo(parentNodeRef, null, null, null, mapUserInfo);
         }
  
+        if (keysetPaging)
+        {
+            // note: total count is not available with keyset paging
+            String nextContinuationToken = null;
+            if (pagingResults.hasMoreItems() && (page.size() > 0))
+            {
+                nextContinuationToken = getListChildrenContinuationToken(page.get(page.size() - 1), sortProps);
+            }
+            return CollectionWithPagingInfo.asPaged(paging, nodes, pagingResults.hasMoreItems(), null, sourceEntity, null, nextContinuationToken);
+        }
+
         return CollectionWithPagingInfo.asPaged(paging, nodes, pagingResults.hasMoreItems(), pagingResults.getTotalResultCount().getFirst(), sourceEntity);
     }
 
+    private PagingRequest getListChildrenKeysetPagingRequest(Paging paging, List<Pair<QName, Boolean>> sortProps, String continuationToken)
+    {
+        if (paging.getSkipCount() > 0)
+        {
+            throw new InvalidArgumentException("skipCount cannot be used with " + PARAM_CONTINUATION_TOKEN);
+        }
+        if (! GetChildrenKeyset.isSupportedSort(sortProps))
+        {
+            throw new InvalidArgumentException(PARAM_CONTINUATION_TOKEN + " is only supported when ordered by isFolder and/or name");
+        }
+
+        PagingRequest pagingRequest = new PagingRequest(0, paging.getMaxItems());
+        pagingRequest.setKeysetPaging(true);
+        if (! continuationToken.isEmpty())
+        {
+            try
+            {
+                GetChildrenKeyset.decode(continuationToken);
+            }
+            catch (IllegalArgumentException iae)
+            {
+                throw new InvalidArgumentException("Invalid " + PARAM_CONTINUATION_TOKEN + ": " + continuationToken);
+            }
+            pagingRequest.setContinuationToken(continuationToken);
+        }
+        return pagingRequest;
+    }
+
+    private String getListChildrenContinuationToken(FileInfo lastInfo, List<Pair<QName, Boolean>> sortProps)
+    {
+        // note: must match the sort key used by the DB query (see GetChildrenKeyset)
+        Boolean isFolder = null;
+        for (Pair<QName, Boolean> sortProp : sortProps)
+        {
+            if (GetChildrenCannedQuery.SORT_QNAME_NODE_IS_FOLDER.equals(sortProp.getFirst()))
+            {
+                isFolder = dictionaryService.isSubClass(lastInfo.getType(), ContentModel.TYPE_FOLDER);
+            }
+        }
+        // note: the name is only used to resume if the last child has since been removed
+        String name = (lastInfo.getName() != null ? lastInfo.getName() : "");
+        Long nodeId = (Long) nodeService.getProperty(lastInfo.getNodeRef(), ContentModel.PROP_NODE_DBID);
+        return new GetChildrenKeyset(nodeId, isFolder, name).encode();
+    }
+
     /**
      * Create query walker for <code>listChildren</code>.
      *
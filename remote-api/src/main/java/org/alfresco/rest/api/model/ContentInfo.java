@@ -37,6 +37,7 @@ public class ContentInfo
     private String mimeTypeName;
 	private Long sizeInBytes;
 	private String encoding;
+	private String contentDigest;
 
 	public ContentInfo()
 	{
@@ -50,6 +51,12 @@ public class ContentInfo
 		this.encoding = encoding;
 	}
 
+	public ContentInfo(String mimeType, String mimeTypeName, Long sizeInBytes, String encoding, String contentDigest)
+	{
+		this(mimeType, mimeTypeName, sizeInBytes, encoding);
+		this.contentDigest = contentDigest;
+	}
+
     public String getMimeType() {
         return mimeType;
     }
@@ -70,10 +77,17 @@ public class ContentInfo
         return encoding;
     }
 
+    /**
+     * @return the digest of the content in the form <code>algorithm:hex</code>, or null if it was not computed
+     */
+    public String getContentDigest() {
+        return contentDigest;
+    }
+
     @Override
 	public String toString()
 	{
 		return "ContentInfo [mimeType=" + mimeType + ", mimeTypeName=" + mimeTypeName
-				+ ", encoding=" + encoding + ", sizeInBytes=" + sizeInBytes + "]";
+				+ ", encoding=" + encoding + ", sizeInBytes=" + sizeInBytes + ", contentDigest=" + contentDigest + "]";
 	}
 }
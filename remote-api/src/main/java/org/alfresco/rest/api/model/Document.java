@@ -59,7 +59,7 @@ public class Document extends Node
             ContentData cd = (ContentData)val;
             String mimeType = cd.getMimetype();
             String mimeTypeName = sr.getMimetypeService().getDisplaysByMimetype().get(mimeType);
-            contentInfo = new ContentInfo(mimeType, mimeTypeName, cd.getSize(), cd.getEncoding());
+            contentInfo = new ContentInfo(mimeType, mimeTypeName, cd.getSize(), cd.getEncoding(), cd.getContentDigest());
         }
 
         setIsFolder(false);
@@ -71,4 +71,9 @@ public interface SerializablePagedCollection<T>
      * The search context for the collection
      */
     SearchContext getContext();
+
+    /**
+     * The opaque token to pass back to continue after the last item of this page (keyset paging only)
+     */
+    String getContinuationToken();
 }
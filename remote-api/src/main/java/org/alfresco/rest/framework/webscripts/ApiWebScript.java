@@ -31,6 +31,7 @@ import java.util.Map;
 
 import org.alfresco.repo.web.scripts.BufferedRequest;
 import org.alfresco.repo.web.scripts.BufferedResponse;
+import org.alfresco.repo.web.scripts.TempBufferPool;
 import org.alfresco.repo.web.scripts.TempOutputStreamFactory;
 import org.alfresco.rest.framework.Api;
 import org.alfresco.rest.framework.tools.ApiAssistant;
@@ -57,6 +58,7 @@ public abstract class ApiWebScript extends AbstractWebScript
     protected int memoryThreshold = 4 * 1024 * 1024; // 4mb
     protected long maxContentSize = (long) 4 * 1024 * 1024 * 1024; // 4gb
     protected TempOutputStreamFactory streamFactory = null;
+    protected TempBufferPool bufferPool = null;
     protected TransactionService transactionService;
 
     public void setTransactionService(TransactionService transactionService)
@@ -93,10 +95,15 @@ public abstract class ApiWebScript extends AbstractWebScript
         this.streamFactory = streamFactory;
     }
 
+    public void setBufferPool(TempBufferPool bufferPool)
+    {
+        this.bufferPool = bufferPool;
+    }
+
     public void init()
     {
         File tempDirectory = TempFileProvider.getTempDir(tempDirectoryName);
-        this.streamFactory = new TempOutputStreamFactory(tempDirectory, memoryThreshold, maxContentSize, false, false);
+        this.streamFactory = new TempOutputStreamFactory(tempDirectory, memoryThreshold, maxContentSize, false, false, bufferPool);
     }
 
     @Override
@@ -30,6 +30,8 @@ import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.when;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
 
 import javax.servlet.http.HttpServletResponse;
 
@@ -85,7 +87,43 @@ public class HttpRangeProcessorTest
         testRange("20000-", HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
     }
     
-    protected void testRange(String range, int expectedStatus) throws IOException
+    @Test
+    public void testSuffixRange() throws IOException
+    {
+        MockHttpServletResponse response = testRange("-100", HttpServletResponse.SC_PARTIAL_CONTENT);
+        assertEquals("bytes 19033-19132/19133", response.getHeader("Content-Range"));
+        assertTrue(Arrays.equals(getBytes(19033, 100), response.getContentAsByteArray()));
+    }
+    
+    @Test
+    public void testMultiRangeOverlapping() throws IOException
+    {
+        // overlapping and adjacent ranges are merged into a single part response
+        MockHttpServletResponse response = testRange("700-800,750-900,901-1000", HttpServletResponse.SC_PARTIAL_CONTENT);
+        assertEquals("bytes 700-1000/19133", response.getHeader("Content-Range"));
+        assertEquals(301, response.getContentLength());
+        assertTrue(Arrays.equals(getBytes(700, 301), response.getContentAsByteArray()));
+    }
+    
+    @Test
+    public void testMultiRange() throws IOException
+    {
+        // ranges are sorted and streamed as a multipart/byteranges response
+        MockHttpServletResponse response = testRange("19000-19009,0-9,100-109", HttpServletResponse.SC_PARTIAL_CONTENT);
+        assertTrue(response.getContentType().startsWith("multipart/byteranges"));
+        byte[] body = response.getContentAsByteArray();
+        assertEquals(body.length, response.getContentLength());
+        
+        String text = new String(body, "ISO-8859-1");
+        int first = text.indexOf("Content-Range: bytes 0-9/19133");
+        int second = text.indexOf("Content-Range: bytes 100-109/19133");
+        int third = text.indexOf("Content-Range: bytes 19000-19009/19133");
+        assertTrue(first != -1 && first < second && second < third);
+        assertEquals(new String(getBytes(100, 10), "ISO-8859-1"), text.substring(text.indexOf("\r\n\r\n", second) + 4).substring(0, 10));
+        assertTrue(text.endsWith("--\r\n"));
+    }
+    
+    protected MockHttpServletResponse testRange(String range, int expectedStatus) throws IOException
     {
         MockHttpServletResponse response = new MockHttpServletResponse();
         
@@ -94,6 +132,16 @@ public class HttpRangeProcessorTest
         assertTrue(result);
         assertEquals(expectedStatus, response.getStatus());
         reader.getContentInputStream().close();
+        return response;
+    }
+    
+    private byte[] getBytes(int offset, int length) throws IOException
+    {
+        try (InputStream is = this.getClass().getResourceAsStream("/test.jpg"))
+        {
+            byte[] all = is.readAllBytes();
+            return Arrays.copyOfRange(all, offset, offset + length);
+        }
     }
     
 }
@@ -0,0 +1,145 @@
+/*
+ * #%L
+ * Alfresco Remote API
+ * %%
+ * Copyright (C) 2005 - 2016 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.web.util;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.alfresco.repo.content.filestore.FileContentReader;
+import org.alfresco.service.cmr.repository.ContentReader;
+import org.alfresco.util.TempFileProvider;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+/**
+ * Tests for the ZeroCopyTransfer class.
+ */
+public class ZeroCopyTransferTest
+{
+    private static final int SIZE = 200 * 1024;
+    
+    private byte[] content;
+    private File file;
+    
+    @Before
+    public void setUp() throws Exception
+    {
+        content = new byte[SIZE];
+        new Random(42L).nextBytes(content);
+        file = TempFileProvider.createTempFile(getClass().getSimpleName(), ".bin");
+        Files.write(file.toPath(), content);
+    }
+    
+    @After
+    public void tearDown()
+    {
+        file.delete();
+    }
+    
+    @Test
+    public void testFileTransfer() throws IOException
+    {
+        assertTransfer(new FileContentReader(file), 0, SIZE);
+        assertTransfer(new FileContentReader(file), 1000, 5000);
+        assertTransfer(new FileContentReader(file), SIZE - 1, 1);
+    }
+    
+    @Test
+    public void testStreamTransfer() throws IOException
+    {
+        assertTransfer(streamReader(), 0, SIZE);
+        assertTransfer(streamReader(), 12345, 150000);
+    }
+    
+    @Test
+    public void testTransferBeyondEnd() throws IOException
+    {
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        assertEquals(100, ZeroCopyTransfer.transfer(new FileContentReader(file), SIZE - 100, 1000, os));
+        assertEquals(100, os.size());
+        
+        os = new ByteArrayOutputStream();
+        assertEquals(100, ZeroCopyTransfer.transfer(streamReader(), SIZE - 100, 1000, os));
+        assertEquals(100, os.size());
+    }
+    
+    @Test
+    public void testSendfile()
+    {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setAttribute(ZeroCopyTransfer.ATTR_SENDFILE_SUPPORT, Boolean.TRUE);
+        
+        assertTrue(ZeroCopyTransfer.sendfile(request, new FileContentReader(file), 100L, 900L));
+        assertEquals(file.getAbsolutePath(), request.getAttribute(ZeroCopyTransfer.ATTR_SENDFILE_FILENAME));
+        assertEquals(100L, request.getAttribute(ZeroCopyTransfer.ATTR_SENDFILE_START));
+        assertEquals(1000L, request.getAttribute(ZeroCopyTransfer.ATTR_SENDFILE_END));
+    }
+    
+    @Test
+    public void testSendfileNotAvailable()
+    {
+        // container does not support sendfile
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        assertFalse(ZeroCopyTransfer.sendfile(request, new FileContentReader(file), 0L, SIZE));
+        assertFalse(ZeroCopyTransfer.sendfile(null, new FileContentReader(file), 0L, SIZE));
+        
+        // content is not file backed or range is out of bounds
+        request.setAttribute(ZeroCopyTransfer.ATTR_SENDFILE_SUPPORT, Boolean.TRUE);
+        assertFalse(ZeroCopyTransfer.sendfile(request, mock(ContentReader.class), 0L, SIZE));
+        assertFalse(ZeroCopyTransfer.sendfile(request, new FileContentReader(file), 1L, SIZE));
+        assertNull(request.getAttribute(ZeroCopyTransfer.ATTR_SENDFILE_FILENAME));
+    }
+    
+    private ContentReader streamReader()
+    {
+        ContentReader reader = mock(ContentReader.class);
+        when(reader.getContentInputStream()).thenReturn(new ByteArrayInputStream(content));
+        return reader;
+    }
+    
+    private void assertTransfer(ContentReader reader, int start, int count) throws IOException
+    {
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        long transferred = ZeroCopyTransfer.transfer(reader, start, count, os);
+        assertEquals(count, transferred);
+        assertArrayEquals(Arrays.copyOfRange(content, start, start + count), os.toByteArray());
+    }
+}
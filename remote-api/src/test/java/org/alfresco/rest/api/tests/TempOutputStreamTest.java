@@ -30,14 +30,17 @@ import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.RandomAccessFile;
 import java.nio.charset.Charset;
 import java.util.Arrays;
 import java.util.stream.Stream;
 
 import org.alfresco.repo.content.ContentLimitViolationException;
+import org.alfresco.repo.web.scripts.TempBufferPool;
 import org.alfresco.repo.web.scripts.TempOutputStream;
 import org.alfresco.repo.web.scripts.TempOutputStreamFactory;
+import org.alfresco.repo.web.scripts.TempOutputStreamStatistics;
 import org.alfresco.util.TempFileProvider;
 import org.junit.Assert;
 import org.junit.Test;
@@ -232,6 +235,90 @@ public class TempOutputStreamTest
         file.delete();
     }
 
+    @Test
+    public void testPooledStream() throws IOException
+    {
+        TempBufferPool bufferPool = new TempBufferPool(MEMORY_THRESHOLD);
+        TempOutputStreamFactory streamFactory = new TempOutputStreamFactory(bufferTempDirectory, MEMORY_THRESHOLD, MAX_CONTENT_SIZE, false, false, bufferPool);
+
+        File file = createTextFileWithRandomContent(TempBufferPool.DEFAULT_BUFFER_SIZE * 3 + 10L);
+        TempOutputStream outputStream = streamFactory.createOutputStream();
+        StreamUtils.copy(new BufferedInputStream(new FileInputStream(file)), outputStream);
+        outputStream.close();
+
+        // Closing keeps the content, so that it can be read more than once
+        String contentWriten = StreamUtils.copyToString(new BufferedInputStream(new FileInputStream(file)), Charset.defaultCharset());
+        Assert.assertEquals(contentWriten, StreamUtils.copyToString(outputStream.getInputStream(), Charset.defaultCharset()));
+        Assert.assertEquals(contentWriten, StreamUtils.copyToString(outputStream.getInputStream(), Charset.defaultCharset()));
+        Assert.assertEquals(0, bufferPool.getPooledBytes());
+
+        // Destroying the stream returns its buffers to the pool and invalidates any input stream still open
+        InputStream openInputStream = outputStream.getInputStream();
+        Assert.assertTrue(openInputStream.read() != -1);
+        outputStream.destroy();
+        Assert.assertEquals(TempBufferPool.DEFAULT_BUFFER_SIZE * 4L, bufferPool.getPooledBytes());
+        try
+        {
+            openInputStream.read(new byte[16]);
+            Assert.fail("An input stream of a destroyed stream can't be read");
+        }
+        catch (IOException e)
+        {
+            // Expected
+        }
+        try
+        {
+            outputStream.getInputStream();
+            Assert.fail("A destroyed stream can't be read");
+        }
+        catch (IOException e)
+        {
+            // Expected
+        }
+
+        // The next stream takes its buffers from the pool
+        outputStream = streamFactory.createOutputStream();
+        StreamUtils.copy(new BufferedInputStream(new FileInputStream(file)), outputStream);
+        Assert.assertEquals(0, bufferPool.getPooledBytes());
+        outputStream.destroy();
+        Assert.assertEquals(TempBufferPool.DEFAULT_BUFFER_SIZE * 4L, bufferPool.getPooledBytes());
+
+        file.delete();
+    }
+
+    @Test
+    public void testStatistics() throws IOException
+    {
+        TempBufferPool bufferPool = new TempBufferPool(MEMORY_THRESHOLD);
+        TempOutputStreamFactory streamFactory = new TempOutputStreamFactory(bufferTempDirectory, MEMORY_THRESHOLD, MAX_CONTENT_SIZE, false, true, bufferPool);
+        TempOutputStreamStatistics statistics = streamFactory.getStatistics();
+
+        File small = createTextFileWithRandomContent(1024L);
+        TempOutputStream outputStream = streamFactory.createOutputStream();
+        StreamUtils.copy(new BufferedInputStream(new FileInputStream(small)), outputStream);
+        outputStream.destroy();
+
+        Assert.assertEquals(1, statistics.getStreams());
+        Assert.assertEquals(0, statistics.getSpilledStreams());
+        Assert.assertEquals(1024L, statistics.getBytesBuffered());
+        Assert.assertEquals(0, statistics.getBytesSpilled());
+
+        File large = createTextFileWithRandomContent(MEMORY_THRESHOLD + 1024L);
+        outputStream = streamFactory.createOutputStream();
+        StreamUtils.copy(new BufferedInputStream(new FileInputStream(large)), outputStream);
+        outputStream.destroy();
+
+        Assert.assertEquals(2, statistics.getStreams());
+        Assert.assertEquals(1, statistics.getSpilledStreams());
+        // Everything that went to the temp file counts as spilled, including what was first held in memory
+        long bytesInMemory = statistics.getBytesBuffered() - 1024L;
+        Assert.assertTrue(bytesInMemory > 0 && bytesInMemory <= MEMORY_THRESHOLD);
+        Assert.assertEquals(MEMORY_THRESHOLD + 1024L, statistics.getBytesSpilled());
+
+        small.delete();
+        large.delete();
+    }
+
     private File createTextFileWithRandomContent(long contentSize) throws IOException
     {
         File txtFile = TempFileProvider.createTempFile(getClass().getSimpleName(), ".txt");
@@ -0,0 +1,78 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2020 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.admin.patch.impl;
+
+import org.alfresco.repo.admin.patch.AbstractPatch;
+import org.alfresco.repo.security.authority.AuthorityBridgeDAO;
+import org.springframework.extensions.surf.util.I18NUtil;
+
+/**
+ * Fills the authority closure table from the existing group memberships.  Later membership changes keep the
+ * table up to date themselves, but only while it is in use, so nothing is written when it is not.  The patch
+ * is forced to run again when the table is brought back into use.
+ *
+ * @since 7.1
+ */
+public class RebuildAuthorityClosurePatch extends AbstractPatch
+{
+    private static final String MSG_RESULT = "patch.rebuildAuthorityClosure.result";
+    private static final String MSG_SKIPPED = "patch.rebuildAuthorityClosure.skipped";
+
+    private AuthorityBridgeDAO authorityBridgeDAO;
+
+    private boolean useClosureTable;
+
+    public void setAuthorityBridgeDAO(AuthorityBridgeDAO authorityBridgeDAO)
+    {
+        this.authorityBridgeDAO = authorityBridgeDAO;
+    }
+
+    /**
+     * @param useClosureTable       <tt>true</tt> if the authority closure table is read and maintained
+     */
+    public void setUseClosureTable(boolean useClosureTable)
+    {
+        this.useClosureTable = useClosureTable;
+    }
+
+    @Override
+    protected void checkProperties()
+    {
+        super.checkProperties();
+        checkPropertyNotNull(authorityBridgeDAO, "authorityBridgeDAO");
+    }
+
+    @Override
+    protected String applyInternal() throws Exception
+    {
+        if (!useClosureTable)
+        {
+            return I18NUtil.getMessage(MSG_SKIPPED);
+        }
+        int count = authorityBridgeDAO.rebuildAuthorityClosure();
+        return I18NUtil.getMessage(MSG_RESULT, count);
+    }
+}
@@ -0,0 +1,50 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2020 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.cache;
+
+/**
+ * Implemented by caches that can defer side-effects of changes, such as notifying other members of
+ * a cluster, until a series of changes is complete.  Batches are bound to the calling thread and may
+ * be nested: the changes are only acted upon when the outermost batch ends.
+ * <p>
+ * The {@link TransactionalCache} uses a batch to apply all the changes made by a transaction to
+ * its shared cache.
+ * 
+ * @since 7.1
+ */
+public interface BatchingCache
+{
+    /**
+     * Start, or nest, a batch of changes on the current thread
+     */
+    void beginBatch();
+    
+    /**
+     * End the current batch of changes on the current thread.  When the outermost batch ends,
+     * the side-effects of all the changes made during the batch are applied.
+     */
+    void endBatch();
+}
@@ -0,0 +1,46 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2020 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.cache;
+
+/**
+ * Estimates the heap retained by a cache entry so that caches can be bounded by weight rather
+ * than by item count.
+ * <p>
+ * Implementations must be thread-safe, cheap to call and must always return the same weight
+ * for the same entry.
+ * 
+ * @see DefaultCacheEntryWeigher
+ * @since 7.1
+ */
+public interface CacheEntryWeigher<K, V>
+{
+    /**
+     * @param key           the cache key
+     * @param value         the cache value (may be <tt>null</tt>)
+     * @return              the estimated number of bytes retained by the entry (never negative)
+     */
+    int weigh(K key, V value);
+}
@@ -0,0 +1,101 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2020 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.cache;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * An immutable message telling other members of a cluster to drop keys, or all entries,
+ * from their local copy of a cache.
+ * 
+ * @since 7.1
+ */
+public final class CacheInvalidation implements Serializable
+{
+    private static final long serialVersionUID = -4407233546094838721L;
+    
+    private static final Serializable[] NO_KEYS = new Serializable[0];
+    
+    private final String sourceId;
+    private final String cacheName;
+    private final boolean clear;
+    private final Serializable[] keys;
+    
+    /**
+     * @param sourceId          the identifier of the cluster member that made the change
+     * @param cacheName         the name of the cache that changed
+     * @param clear             <tt>true</tt> if the whole cache must be cleared, in which case the keys are ignored
+     * @param keys              the keys that were changed or removed
+     */
+    public CacheInvalidation(String sourceId, String cacheName, boolean clear, Collection<? extends Serializable> keys)
+    {
+        this.sourceId = sourceId;
+        this.cacheName = cacheName;
+        this.clear = clear;
+        this.keys = (clear || keys == null) ? NO_KEYS : keys.toArray(new Serializable[keys.size()]);
+    }
+    
+    /**
+     * @return              the identifier of the cluster member that made the change
+     */
+    public String getSourceId()
+    {
+        return sourceId;
+    }
+    
+    /**
+     * @return              the name of the cache that changed
+     */
+    public String getCacheName()
+    {
+        return cacheName;
+    }
+    
+    /**
+     * @return              <tt>true</tt> if the whole cache must be cleared
+     */
+    public boolean isClear()
+    {
+        return clear;
+    }
+    
+    /**
+     * @return              the keys to drop (empty if the whole cache must be cleared)
+     */
+    public Collection<Serializable> getKeys()
+    {
+        return Arrays.asList(keys);
+    }
+    
+    @Override
+    public String toString()
+    {
+        return "CacheInvalidation [sourceId=" + sourceId + ", cacheName=" + cacheName +
+                (clear ? ", clear" : ", keys=" + keys.length) + "]";
+    }
+}
@@ -0,0 +1,52 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2020 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.cache;
+
+/**
+ * Delivers {@link CacheInvalidation invalidations} between the members of a cluster.
+ * <p>
+ * Implementations adapt a messaging system.  Delivery is expected to be asynchronous with respect to
+ * the receivers, but the order of invalidations published by a single thread should be preserved.
+ * 
+ * @see LoopbackCacheInvalidationTransport
+ * @since 7.1
+ */
+public interface CacheInvalidationTransport
+{
+    /**
+     * Send an invalidation to all members of the cluster, possibly including the sender
+     * 
+     * @param invalidation          the invalidation to send
+     */
+    void publish(CacheInvalidation invalidation);
+    
+    /**
+     * Register a listener for invalidations published by any member of the cluster
+     * 
+     * @param listener              the listener to notify
+     */
+    void addListener(CacheInvalidationListener listener);
+}
@@ -93,4 +93,23 @@ public interface CacheStatistics
      * @return Map of OpType to OperationStats
      */
     Map<OpType, OperationStats> allStats(String cacheName);
+    
+    /**
+     * Record the number of bytes that a cache currently holds, for caches that
+     * are bounded by size in bytes rather than by number of entries.
+     * 
+     * @param cacheName  The cache name.
+     * @param usedBytes  The number of bytes in use.
+     * @since 7.1
+     */
+    void setUsedBytes(String cacheName, long usedBytes);
+    
+    /**
+     * Retrieve the number of bytes that a cache last reported as in use.
+     * 
+     * @param cacheName  The cache name.
+     * @return Bytes in use or -1 if the cache does not report its size in bytes.
+     * @since 7.1
+     */
+    long usedBytes(String cacheName);
 }
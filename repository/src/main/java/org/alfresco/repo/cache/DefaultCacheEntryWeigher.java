@@ -0,0 +1,163 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2020 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.cache;
+
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.Date;
+import java.util.Locale;
+import java.util.Map;
+
+import org.alfresco.repo.cache.TransactionalCache.ValueHolder;
+import org.alfresco.repo.cache.lookup.CacheRegionKey;
+import org.alfresco.repo.cache.lookup.CacheRegionValueKey;
+import org.alfresco.service.namespace.QName;
+import org.alfresco.util.Pair;
+
+/**
+ * {@link CacheEntryWeigher} that makes a rough, conservative estimate of the heap retained by common
+ * JDK and Alfresco types.  The values and tenant-aware keys wrapped by the {@link TransactionalCache}
+ * and the keys used by {@link org.alfresco.repo.cache.lookup.EntityLookupCache entity lookup caches}
+ * are unwrapped.
+ * <p>
+ * Instances that are normally shared, such as {@link QName QNames}, enums and locales, only count
+ * as a reference.  Subclasses can override {@link #estimate(Object, int)} to weigh specific entity
+ * types and defer to this implementation for everything else.
+ * 
+ * @since 7.1
+ */
+public class DefaultCacheEntryWeigher implements CacheEntryWeigher<Serializable, Object>
+{
+    /** The size of an object header plus padding */
+    protected static final int OBJECT_HEADER = 16;
+    /** The size of a reference */
+    protected static final int REFERENCE = 8;
+    /** The weight given to objects of unknown type */
+    protected static final int UNKNOWN_OBJECT = 64;
+    /** The overhead of an entry in the underlying cache */
+    protected static final int CACHE_ENTRY = 64;
+    /** Beyond this depth of nested objects, objects are given the unknown weight */
+    private static final int MAX_DEPTH = 8;
+    
+    @Override
+    public int weigh(Serializable key, Object value)
+    {
+        long bytes = CACHE_ENTRY + estimate(key, 0) + estimate(value, 0);
+        return (int) Math.min(Integer.MAX_VALUE, bytes);
+    }
+    
+    /**
+     * Estimate the heap retained by an object
+     * 
+     * @param obj           the object to weigh (may be <tt>null</tt>)
+     * @param depth         the nesting depth of the object, to be incremented when weighing the objects it references
+     * @return              the estimated number of bytes
+     */
+    protected long estimate(Object obj, int depth)
+    {
+        if (obj == null)
+        {
+            return 0L;
+        }
+        else if (depth > MAX_DEPTH)
+        {
+            return UNKNOWN_OBJECT;
+        }
+        else if (obj instanceof String)
+        {
+            return OBJECT_HEADER + 24 + 2L * ((String) obj).length();
+        }
+        else if (obj instanceof Number || obj instanceof Boolean || obj instanceof Character)
+        {
+            return OBJECT_HEADER + 8;
+        }
+        else if (obj instanceof Date)
+        {
+            return OBJECT_HEADER + 8;
+        }
+        else if (obj instanceof Enum || obj instanceof QName || obj instanceof Locale || obj instanceof Class)
+        {
+            return REFERENCE;
+        }
+        else if (obj instanceof ValueHolder)
+        {
+            return OBJECT_HEADER + 8 + estimate(((ValueHolder<?>) obj).getValue(), depth + 1);
+        }
+        else if (obj instanceof TransactionalCache.CacheRegionKey)
+        {
+            // The keys of tenant-aware transactional caches
+            return OBJECT_HEADER + 16 + estimate(((TransactionalCache.CacheRegionKey) obj).getCacheKey(), depth + 1);
+        }
+        else if (obj instanceof CacheRegionKey)
+        {
+            return OBJECT_HEADER + 16 + estimate(((CacheRegionKey) obj).getCacheKey(), depth + 1);
+        }
+        else if (obj instanceof CacheRegionValueKey)
+        {
+            return OBJECT_HEADER + 16 + estimate(((CacheRegionValueKey) obj).getCacheValueKey(), depth + 1);
+        }
+        else if (obj instanceof Pair)
+        {
+            Pair<?, ?> pair = (Pair<?, ?>) obj;
+            return OBJECT_HEADER + 2 * REFERENCE + estimate(pair.getFirst(), depth + 1) + estimate(pair.getSecond(), depth + 1);
+        }
+        else if (obj instanceof Map)
+        {
+            long bytes = OBJECT_HEADER + 48;
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) obj).entrySet())
+            {
+                bytes += 32 + REFERENCE + estimate(entry.getKey(), depth + 1) + estimate(entry.getValue(), depth + 1);
+            }
+            return bytes;
+        }
+        else if (obj instanceof Collection)
+        {
+            long bytes = OBJECT_HEADER + 32;
+            for (Object element : (Collection<?>) obj)
+            {
+                bytes += 2 * REFERENCE + estimate(element, depth + 1);
+            }
+            return bytes;
+        }
+        else if (obj instanceof byte[])
+        {
+            return OBJECT_HEADER + ((byte[]) obj).length;
+        }
+        else if (obj instanceof Object[])
+        {
+            long bytes = OBJECT_HEADER;
+            for (Object element : (Object[]) obj)
+            {
+                bytes += REFERENCE + estimate(element, depth + 1);
+            }
+            return bytes;
+        }
+        else
+        {
+            return UNKNOWN_OBJECT;
+        }
+    }
+}
@@ -27,6 +27,11 @@ package org.alfresco.repo.cache;
 
 import java.io.Serializable;
 
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+
+import org.alfresco.error.AlfrescoRuntimeException;
+import org.alfresco.repo.management.DynamicMBeanExportOperations;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
@@ -35,6 +40,16 @@ import org.apache.commons.logging.LogFactory;
  * The caches are created with a capacity specified by the property {name}.maxItems.
  * For example, a cache named <tt>cache.ticketsCache</tt> would have a capacity specified
  * by the property <tt>cache.ticketsCache.maxItems</tt>
+ * <p>
+ * Setting the property {name}.storage to <tt>off-heap</tt> creates an {@link OffHeapSimpleCache}
+ * instead, bounded by {name}.offHeap.maxBytes rather than by item count.
+ * <p>
+ * When {name}.maxWeight is set, the cache is bounded by the total weight of its entries as estimated by
+ * the {@link CacheEntryWeigher} named by {name}.weigher (by default a {@link DefaultCacheEntryWeigher}).
+ * <p>
+ * If an MBean exporter is provided, the caches that have {name}.jmx.enabled set, or all caches when
+ * {@link #setJmxEnabled(boolean) JMX is enabled} for the factory, are registered as
+ * <tt>Alfresco:Type=Cache,Name={name}</tt>.
  * 
  * @author Matt Ward
  */
@@ -42,21 +57,107 @@ public class DefaultCacheFactory<K extends Serializable, V> extends AbstractCach
 {
     private static final Log log = LogFactory.getLog(DefaultCacheFactory.class);
     private static final String EVICT_NONE = "NONE";
+    private static final String STORAGE_HEAP = "heap";
+    private static final String STORAGE_OFF_HEAP = "off-heap";
+    
+    private CacheStatistics cacheStats;
+    private DynamicMBeanExportOperations mbeanExporter;
+    private boolean jmxEnabled;
+    
+    /**
+     * @param cacheStats    the service that off-heap caches publish their statistics to
+     */
+    public void setCacheStats(CacheStatistics cacheStats)
+    {
+        this.cacheStats = cacheStats;
+    }
+    
+    /**
+     * @param mbeanExporter the exporter used to register each cache for monitoring over JMX (optional)
+     */
+    public void setMbeanExporter(DynamicMBeanExportOperations mbeanExporter)
+    {
+        this.mbeanExporter = mbeanExporter;
+    }
     
+    /**
+     * @param jmxEnabled    <tt>true</tt> to register every cache for monitoring over JMX, rather than only those
+     *                      that have {name}.jmx.enabled set (optional, default <tt>false</tt>)
+     */
+    public void setJmxEnabled(boolean jmxEnabled)
+    {
+        this.jmxEnabled = jmxEnabled;
+    }
     
     @Override
     public SimpleCache<K, V> createCache(String cacheName)
     {
-        return createLocalCache(cacheName);
+        SimpleCache<K, V> cache = createLocalCache(cacheName);
+        if (mbeanExporter != null && Boolean.parseBoolean(getProperty(cacheName, "jmx.enabled", Boolean.toString(jmxEnabled))))
+        {
+            registerMBean(cacheName, cache);
+        }
+        return cache;
+    }
+    
+    private void registerMBean(String cacheName, SimpleCache<K, V> cache)
+    {
+        try
+        {
+            ObjectName objectName = new ObjectName("Alfresco:Type=Cache,Name=" + cacheName);
+            mbeanExporter.registerMBean(cache, objectName);
+        }
+        catch (MalformedObjectNameException | RuntimeException e)
+        {
+            // Monitoring is optional: a duplicate or rejected registration must not prevent the cache being used
+            log.warn("Unable to register cache for JMX monitoring: " + cacheName, e);
+        }
     }
     
-    private SimpleCache<K, V> createLocalCache(String cacheName)
+    /**
+     * Create the cache that holds values in this JVM, as configured by the cache properties
+     * 
+     * @param cacheName     the name of the cache and prefix of its properties
+     * @return              a new, empty cache
+     */
+    protected SimpleCache<K, V> createLocalCache(String cacheName)
     {
+        String storage = getProperty(cacheName, "storage", STORAGE_HEAP);
+        if (storage.equals(STORAGE_OFF_HEAP))
+        {
+            return createOffHeapCache(cacheName);
+        }
+        else if (!storage.equals(STORAGE_HEAP))
+        {
+            throw new IllegalArgumentException("Unknown storage '" + storage + "' for cache " + cacheName);
+        }
         int maxItems = maxItems(cacheName);
         boolean useMaxItems = useMaxItems(cacheName);
         int ttlSecs = ttlSeconds(cacheName);
         int maxIdleSeconds = maxIdleSeconds(cacheName);
-        DefaultSimpleCache<K, V> cache = new DefaultSimpleCache<K, V>(maxItems, useMaxItems, ttlSecs, maxIdleSeconds, cacheName);
+        long maxWeight = maxWeight(cacheName);
+        CacheEntryWeigher<? super K, ? super V> weigher = weigher(cacheName);
+        DefaultSimpleCache<K, V> cache = new DefaultSimpleCache<K, V>(
+                maxItems, useMaxItems, maxWeight, weigher, ttlSecs, maxIdleSeconds, cacheName);
+        if (log.isDebugEnabled())
+        {
+            log.debug("Creating cache: " + cache);
+        }
+        return cache;
+    }
+
+    private SimpleCache<K, V> createOffHeapCache(String cacheName)
+    {
+        long maxBytes = Long.parseLong(getProperty(cacheName, "offHeap.maxBytes", "0"));
+        int slabBytes = Integer.parseInt(getProperty(cacheName, "offHeap.slabBytes", "0"));
+        int ttlSecs = ttlSeconds(cacheName);
+        if (maxIdleSeconds(cacheName) > 0)
+        {
+            log.warn("maxIdleSeconds is not supported by off-heap caches and will be ignored for cache: " + cacheName);
+        }
+        OffHeapSimpleCache<K, V> cache = new OffHeapSimpleCache<K, V>(maxBytes, slabBytes, ttlSecs, cacheName);
+        cache.setCacheStats(cacheStats);
+        cache.setCacheStatsEnabled(Boolean.parseBoolean(getProperty(cacheName, "offHeap.statsEnabled", "false")));
         if (log.isDebugEnabled())
         {
             log.debug("Creating cache: " + cache);
@@ -71,6 +172,31 @@ public class DefaultCacheFactory<K extends Serializable, V> extends AbstractCach
         return maxItems.intValue();
     }
     
+    private long maxWeight(String cacheName)
+    {
+        String maxWeightStr = getProperty(cacheName, "maxWeight", "0");
+        return Long.parseLong(maxWeightStr);
+    }
+    
+    @SuppressWarnings("unchecked")
+    private CacheEntryWeigher<? super K, ? super V> weigher(String cacheName)
+    {
+        String weigherClassName = getProperty(cacheName, "weigher", null);
+        if (weigherClassName == null)
+        {
+            return null;
+        }
+        try
+        {
+            Class<?> weigherClass = Class.forName(weigherClassName);
+            return (CacheEntryWeigher<? super K, ? super V>) weigherClass.getDeclaredConstructor().newInstance();
+        }
+        catch (ReflectiveOperationException | ClassCastException e)
+        {
+            throw new AlfrescoRuntimeException("Unable to create weigher " + weigherClassName + " for cache " + cacheName, e);
+        }
+    }
+    
     private boolean useMaxItems(String cacheName)
     {
         String evictionPolicy = getProperty(cacheName, "eviction-policy", EVICT_NONE);
@@ -28,26 +28,41 @@ package org.alfresco.repo.cache;
 import java.io.Serializable;
 import java.util.AbstractMap;
 import java.util.Collection;
+import java.util.Iterator;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.springframework.beans.factory.BeanNameAware;
 
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalListener;
+import com.google.common.cache.RemovalNotification;
+import com.google.common.cache.Weigher;
 
 /**
  * {@link SimpleCache} implementation backed by a Google {@link Cache} implementation.
+ * <p>
+ * The cache can be bounded by item count or, when a maximum weight is given, by the total weight
+ * of its entries as estimated by a {@link CacheEntryWeigher}.  Entries are only weighed as they are
+ * put when there is a maximum weight, in which case the total is kept as entries are added and removed.
+ * Otherwise the estimate is worked out from a sample of the entries when it is asked for.
  * 
  * @author Matt Ward
  */
 public final class DefaultSimpleCache<K extends Serializable, V extends Object>
-    implements SimpleCache<K, V>, BeanNameAware
+    implements SimpleCache<K, V>, BeanNameAware, DefaultSimpleCacheMBean
 {
     private static final int DEFAULT_CAPACITY = Integer.MAX_VALUE;
-    private Cache<K, AbstractMap.SimpleImmutableEntry<K, V>> cache;
+    /** The number of entries weighed to estimate the size of a cache that is not bounded by weight */
+    private static final int ESTIMATE_SAMPLE_SIZE = 100;
+    private Cache<K, WeighedEntry<K, V>> cache;
     private String cacheName;
     private final int maxItems;
     private final boolean useMaxItems;
+    private final long maxWeight;
+    private final CacheEntryWeigher<? super K, ? super V> weigher;
+    private final AtomicLong estimatedBytes = new AtomicLong();
     private final int ttlSecs;
     private final int maxIdleSecs;
     
@@ -58,8 +73,27 @@ public final class DefaultSimpleCache<K extends Serializable, V extends Object>
      * @param useMaxItems Whether the maxItems value should be applied as a size-cap for the cache.
      * @param cacheName An arbitrary cache name.
      */
-    @SuppressWarnings("unchecked")
     public DefaultSimpleCache(int maxItems, boolean useMaxItems, int ttlSecs, int maxIdleSecs, String cacheName)
+    {
+        this(maxItems, useMaxItems, 0L, null, ttlSecs, maxIdleSecs, cacheName);
+    }
+    
+    /**
+     * Construct a cache using the specified capacity, weight limit and name.
+     * 
+     * @param maxItems The cache capacity. 0 = use {@link #DEFAULT_CAPACITY}
+     * @param useMaxItems Whether the maxItems value should be applied as a size-cap for the cache.
+     *                    Ignored if a maximum weight is given.
+     * @param maxWeight The maximum total weight of the cache entries. 0 = the cache is not bounded by weight
+     * @param weigher Used to weigh entries when bounding the cache by weight and when estimating the
+     *                retained bytes. <tt>null</tt> = use a {@link DefaultCacheEntryWeigher}
+     * @param cacheName An arbitrary cache name.
+     */
+    @SuppressWarnings("unchecked")
+    public DefaultSimpleCache(
+            int maxItems, boolean useMaxItems,
+            long maxWeight, CacheEntryWeigher<? super K, ? super V> weigher,
+            int ttlSecs, int maxIdleSecs, String cacheName)
     {
         if (maxItems == 0)
         {
@@ -69,8 +103,18 @@ public final class DefaultSimpleCache<K extends Serializable, V extends Object>
         {
             throw new IllegalArgumentException("maxItems may not be negative, but was " + maxItems);
         }
+        if (maxWeight < 0)
+        {
+            throw new IllegalArgumentException("maxWeight may not be negative, but was " + maxWeight);
+        }
+        if (weigher == null)
+        {
+            weigher = new DefaultCacheEntryWeigher();
+        }
         this.maxItems = maxItems;
         this.useMaxItems = useMaxItems;
+        this.maxWeight = maxWeight;
+        this.weigher = weigher;
         this.ttlSecs = ttlSecs;
         this.maxIdleSecs = maxIdleSecs;
         setBeanName(cacheName);
@@ -79,7 +123,19 @@ public final class DefaultSimpleCache<K extends Serializable, V extends Object>
         @SuppressWarnings("rawtypes")
         CacheBuilder builder = CacheBuilder.newBuilder();
         
-        if (useMaxItems)
+        if (maxWeight > 0)
+        {
+            builder.maximumWeight(maxWeight);
+            builder.weigher(new Weigher<K, WeighedEntry<K, V>>()
+            {
+                @Override
+                public int weigh(K key, WeighedEntry<K, V> kvp)
+                {
+                    return kvp.weight;
+                }
+            });
+        }
+        else if (useMaxItems)
         {
             builder.maximumSize(maxItems);
         }
@@ -92,8 +148,23 @@ public final class DefaultSimpleCache<K extends Serializable, V extends Object>
             builder.expireAfterAccess(maxIdleSecs, TimeUnit.SECONDS);
         }
         builder.concurrencyLevel(32);
+        if (maxWeight > 0)
+        {
+            builder.removalListener(new RemovalListener<K, WeighedEntry<K, V>>()
+            {
+                @Override
+                public void onRemoval(RemovalNotification<K, WeighedEntry<K, V>> notification)
+                {
+                    WeighedEntry<K, V> kvp = notification.getValue();
+                    if (kvp != null)
+                    {
+                        estimatedBytes.addAndGet(-kvp.weight);
+                    }
+                }
+            });
+        }
         
-        cache = (Cache<K, AbstractMap.SimpleImmutableEntry<K, V>>) builder.build();
+        cache = (Cache<K, WeighedEntry<K, V>>) builder.build();
     }
     
     /**
@@ -130,7 +201,7 @@ public final class DefaultSimpleCache<K extends Serializable, V extends Object>
     @Override
     public V get(K key)
     {
-        AbstractMap.SimpleImmutableEntry<K, V> kvp = cache.getIfPresent(key);
+        WeighedEntry<K, V> kvp = cache.getIfPresent(key);
         if (kvp == null)
         {
             return null;
@@ -151,8 +222,18 @@ public final class DefaultSimpleCache<K extends Serializable, V extends Object>
      */
     public boolean putAndCheckUpdate(K key, V value)
     {
-        AbstractMap.SimpleImmutableEntry<K, V> kvp = new AbstractMap.SimpleImmutableEntry<K, V>(key, value);
-        AbstractMap.SimpleImmutableEntry<K, V> priorKVP = cache.asMap().put(key, kvp);
+        WeighedEntry<K, V> kvp;
+        if (maxWeight > 0)
+        {
+            kvp = new WeighedEntry<K, V>(key, value, weigher.weigh(key, value));
+            // Added before the put, as the replaced or evicted entries are subtracted during it
+            estimatedBytes.addAndGet(kvp.weight);
+        }
+        else
+        {
+            kvp = new WeighedEntry<K, V>(key, value, 0);
+        }
+        WeighedEntry<K, V> priorKVP = cache.asMap().put(key, kvp);
         return (priorKVP != null && (!priorKVP.equals(kvp)));
     }
     
@@ -171,7 +252,7 @@ public final class DefaultSimpleCache<K extends Serializable, V extends Object>
     @Override
     public String toString()
     {
-        return "DefaultSimpleCache[maxItems=" + maxItems + ", useMaxItems=" + useMaxItems + ", cacheName=" + cacheName + "]";
+        return "DefaultSimpleCache[maxItems=" + maxItems + ", useMaxItems=" + useMaxItems + ", maxWeight=" + maxWeight + ", cacheName=" + cacheName + "]";
     }
     
     /**
@@ -179,11 +260,60 @@ public final class DefaultSimpleCache<K extends Serializable, V extends Object>
      * 
      * @return maxItems
      */
+    @Override
     public int getMaxItems()
     {
         return maxItems;
     }
     
+    /**
+     * Gets the maximum total weight of the entries that the cache will hold.
+     * 
+     * @return maxWeight, or 0 if the cache is not bounded by weight
+     */
+    @Override
+    public long getMaxWeight()
+    {
+        return maxWeight;
+    }
+    
+    @Override
+    public long getSize()
+    {
+        return cache.size();
+    }
+    
+    /**
+     * Get the heap retained by the cache entries.  A cache bounded by weight gives the total of the weights
+     * taken when the entries were put.  Any other cache weighs up to {@value #ESTIMATE_SAMPLE_SIZE} entries
+     * now and scales their average weight by the number of entries.
+     * 
+     * @return the estimated number of bytes
+     */
+    @Override
+    public long getEstimatedBytes()
+    {
+        if (maxWeight > 0)
+        {
+            return estimatedBytes.get();
+        }
+        long sampleBytes = 0L;
+        int sampleSize = 0;
+        Iterator<WeighedEntry<K, V>> entries = cache.asMap().values().iterator();
+        while (sampleSize < ESTIMATE_SAMPLE_SIZE && entries.hasNext())
+        {
+            WeighedEntry<K, V> kvp = entries.next();
+            sampleBytes += weigher.weigh(kvp.getKey(), kvp.getValue());
+            sampleSize++;
+        }
+        if (sampleSize == 0)
+        {
+            return 0L;
+        }
+        long size = cache.size();
+        return (sampleSize == size) ? sampleBytes : sampleBytes * size / sampleSize;
+    }
+    
     /**
      * Is a size-cap in use?
      * 
@@ -220,6 +350,7 @@ public final class DefaultSimpleCache<K extends Serializable, V extends Object>
      * @see #setCacheName(String)
      * @return the cacheName
      */
+    @Override
     public String getCacheName()
     {
         return this.cacheName;
@@ -248,4 +379,20 @@ public final class DefaultSimpleCache<K extends Serializable, V extends Object>
     {
         this.cacheName = cacheName;
     }
+    
+    /**
+     * A cache entry that remembers its weight, so that it is only weighed once
+     */
+    private static final class WeighedEntry<K, V> extends AbstractMap.SimpleImmutableEntry<K, V>
+    {
+        private static final long serialVersionUID = 3407285163926781341L;
+        
+        private final int weight;
+        
+        private WeighedEntry(K key, V value, int weight)
+        {
+            super(key, value);
+            this.weight = weight;
+        }
+    }
 }
@@ -0,0 +1,60 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2020 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.cache;
+
+/**
+ * Management interface for {@link DefaultSimpleCache}, allowing the size and estimated heap usage
+ * of each cache to be monitored over JMX.
+ * 
+ * @since 7.1
+ */
+public interface DefaultSimpleCacheMBean
+{
+    /**
+     * @return the name of the cache
+     */
+    String getCacheName();
+    
+    /**
+     * @return the approximate number of entries in the cache
+     */
+    long getSize();
+    
+    /**
+     * @return the maximum number of items that the cache will hold
+     */
+    int getMaxItems();
+    
+    /**
+     * @return the maximum total weight of the entries, or 0 if the cache is not bounded by weight
+     */
+    long getMaxWeight();
+    
+    /**
+     * @return the estimated number of bytes of heap retained by the cache entries
+     */
+    long getEstimatedBytes();
+}
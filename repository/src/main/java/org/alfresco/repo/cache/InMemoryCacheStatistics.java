@@ -51,6 +51,7 @@ public class InMemoryCacheStatistics implements CacheStatistics, ApplicationCont
     /** Read/Write locks by cache name */
     private final ConcurrentMap<String, ReentrantReadWriteLock> locks = new ConcurrentHashMap<>();
     private Map<String, Map<OpType, OperationStats>> cacheToStatsMap = new HashMap<>();
+    private final ConcurrentMap<String, Long> cacheToUsedBytesMap = new ConcurrentHashMap<>();
     private ApplicationContext applicationContext;
     
     
@@ -209,6 +210,19 @@ public class InMemoryCacheStatistics implements CacheStatistics, ApplicationCont
         }
     }
 
+    @Override
+    public void setUsedBytes(String cacheName, long usedBytes)
+    {
+        cacheToUsedBytesMap.put(cacheName, usedBytes);
+    }
+    
+    @Override
+    public long usedBytes(String cacheName)
+    {
+        Long usedBytes = cacheToUsedBytesMap.get(cacheName);
+        return usedBytes == null ? -1L : usedBytes;
+    }
+
     @Override
     public void setApplicationContext(ApplicationContext applicationContext) throws BeansException
     {
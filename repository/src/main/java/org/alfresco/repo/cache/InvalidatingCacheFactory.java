@@ -0,0 +1,135 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2020 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.cache;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.alfresco.util.GUID;
+import org.alfresco.util.PropertyCheck;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.InitializingBean;
+
+/**
+ * {@link DefaultCacheFactory} for clusters: caches with one of the configured cluster types
+ * (by default only <tt>invalidating</tt>) are created as {@link InvalidatingSimpleCache near caches}
+ * that publish invalidations through a {@link CacheInvalidationTransport}.  Other caches are local,
+ * as created by the {@link DefaultCacheFactory}.
+ * <p>
+ * Every factory instance is a member of the cluster; all members must share a transport and create
+ * caches with the same names.  Invalidations published by this member are ignored when received.
+ * 
+ * @since 7.1
+ */
+public class InvalidatingCacheFactory<K extends Serializable, V> extends DefaultCacheFactory<K, V>
+    implements CacheInvalidationListener, InitializingBean
+{
+    private static final Log log = LogFactory.getLog(InvalidatingCacheFactory.class);
+    private static final String CLUSTER_TYPE_LOCAL = "local";
+    private static final String CLUSTER_TYPE_INVALIDATING = "invalidating";
+    
+    private final String memberId = GUID.generate();
+    /** The near caches by name; normally there is only one cache per name */
+    private final ConcurrentMap<String, List<InvalidatingSimpleCache<K, V>>> invalidatingCaches =
+            new ConcurrentHashMap<String, List<InvalidatingSimpleCache<K, V>>>();
+    private CacheInvalidationTransport transport;
+    private Set<String> clusterTypes = Collections.singleton(CLUSTER_TYPE_INVALIDATING);
+    
+    /**
+     * @param transport         the transport shared by all members of the cluster
+     */
+    public void setTransport(CacheInvalidationTransport transport)
+    {
+        this.transport = transport;
+    }
+    
+    /**
+     * @param clusterTypes      the values of the <tt>{name}.cluster.type</tt> property for which
+     *                          near caches are created (default: <tt>invalidating</tt>)
+     */
+    public void setClusterTypes(Set<String> clusterTypes)
+    {
+        this.clusterTypes = new HashSet<String>(clusterTypes);
+    }
+    
+    @Override
+    public void afterPropertiesSet() throws Exception
+    {
+        PropertyCheck.mandatory(this, "transport", transport);
+        transport.addListener(this);
+    }
+    
+    /**
+     * @return                  the identifier of this member of the cluster
+     */
+    public String getMemberId()
+    {
+        return memberId;
+    }
+    
+    @Override
+    protected SimpleCache<K, V> createLocalCache(String cacheName)
+    {
+        SimpleCache<K, V> nearCache = super.createLocalCache(cacheName);
+        String clusterType = getProperty(cacheName, "cluster.type", CLUSTER_TYPE_LOCAL);
+        if (!clusterTypes.contains(clusterType))
+        {
+            return nearCache;
+        }
+        InvalidatingSimpleCache<K, V> cache = new InvalidatingSimpleCache<K, V>(nearCache, cacheName, memberId, transport);
+        invalidatingCaches.computeIfAbsent(cacheName, name -> new CopyOnWriteArrayList<InvalidatingSimpleCache<K, V>>()).add(cache);
+        if (log.isDebugEnabled())
+        {
+            log.debug("Creating near cache: " + cache);
+        }
+        return cache;
+    }
+    
+    @Override
+    public void onInvalidation(CacheInvalidation invalidation)
+    {
+        if (memberId.equals(invalidation.getSourceId()))
+        {
+            // Our own change
+            return;
+        }
+        List<InvalidatingSimpleCache<K, V>> caches = invalidatingCaches.get(invalidation.getCacheName());
+        if (caches != null)
+        {
+            for (InvalidatingSimpleCache<K, V> cache : caches)
+            {
+                cache.invalidateLocal(invalidation);
+            }
+        }
+    }
+}
@@ -0,0 +1,263 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2020 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.cache;
+
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * A near cache: values are held in a cache local to this JVM and every change is published as an
+ * {@link CacheInvalidation invalidation} so that other members of the cluster drop their own, now stale,
+ * copies of the same keys.  Values themselves are never sent between members.
+ * <p>
+ * Changes made within a {@link BatchingCache#beginBatch() batch} are coalesced and published as a single
+ * invalidation when the batch ends; a clear supersedes any keys.  Changes made outside of a batch are
+ * published immediately.
+ * 
+ * @see InvalidatingCacheFactory
+ * @since 7.1
+ */
+public final class InvalidatingSimpleCache<K extends Serializable, V extends Object>
+    implements SimpleCache<K, V>, BatchingCache, InvalidatingSimpleCacheMBean
+{
+    private static final Log logger = LogFactory.getLog(InvalidatingSimpleCache.class);
+    
+    private final SimpleCache<K, V> nearCache;
+    private final String cacheName;
+    private final String memberId;
+    private final CacheInvalidationTransport transport;
+    private final ThreadLocal<Batch> batches = new ThreadLocal<Batch>();
+    private final AtomicLong invalidationsPublished = new AtomicLong();
+    private final AtomicLong invalidationsReceived = new AtomicLong();
+    
+    /**
+     * @param nearCache         the cache holding values in this JVM
+     * @param cacheName         the name of the cache, which must be the same on all members of the cluster
+     * @param memberId          identifies this member of the cluster as the source of invalidations
+     * @param transport         the transport used to publish invalidations
+     */
+    public InvalidatingSimpleCache(SimpleCache<K, V> nearCache, String cacheName, String memberId, CacheInvalidationTransport transport)
+    {
+        this.nearCache = nearCache;
+        this.cacheName = cacheName;
+        this.memberId = memberId;
+        this.transport = transport;
+    }
+    
+    @Override
+    public boolean contains(K key)
+    {
+        return nearCache.contains(key);
+    }
+    
+    @Override
+    public Collection<K> getKeys()
+    {
+        return nearCache.getKeys();
+    }
+    
+    @Override
+    public V get(K key)
+    {
+        return nearCache.get(key);
+    }
+    
+    @Override
+    public void put(K key, V value)
+    {
+        nearCache.put(key, value);
+        invalidate(key);
+    }
+    
+    @Override
+    public void remove(K key)
+    {
+        nearCache.remove(key);
+        invalidate(key);
+    }
+    
+    @Override
+    public void clear()
+    {
+        nearCache.clear();
+        Batch batch = batches.get();
+        if (batch != null)
+        {
+            batch.clear = true;
+            batch.keys.clear();
+        }
+        else
+        {
+            publish(new CacheInvalidation(memberId, cacheName, true, null));
+        }
+    }
+    
+    @Override
+    public void beginBatch()
+    {
+        Batch batch = batches.get();
+        if (batch == null)
+        {
+            batch = new Batch();
+            batches.set(batch);
+        }
+        batch.depth++;
+    }
+    
+    @Override
+    public void endBatch()
+    {
+        Batch batch = batches.get();
+        if (batch == null)
+        {
+            throw new IllegalStateException("No batch has been started for cache " + cacheName);
+        }
+        if (--batch.depth > 0)
+        {
+            // Still nested
+            return;
+        }
+        batches.remove();
+        if (batch.clear || !batch.keys.isEmpty())
+        {
+            publish(new CacheInvalidation(memberId, cacheName, batch.clear, batch.keys));
+        }
+    }
+    
+    /**
+     * Apply an invalidation published by another member of the cluster to the local cache.
+     * The change is not published again.
+     * 
+     * @param invalidation      the invalidation to apply
+     */
+    @SuppressWarnings("unchecked")
+    public void invalidateLocal(CacheInvalidation invalidation)
+    {
+        invalidationsReceived.incrementAndGet();
+        if (invalidation.isClear())
+        {
+            nearCache.clear();
+        }
+        else
+        {
+            for (Serializable key : invalidation.getKeys())
+            {
+                nearCache.remove((K) key);
+            }
+        }
+    }
+    
+    private void invalidate(K key)
+    {
+        Batch batch = batches.get();
+        if (batch == null)
+        {
+            publish(new CacheInvalidation(memberId, cacheName, false, Collections.singleton(key)));
+        }
+        else if (!batch.clear)
+        {
+            batch.keys.add(key);
+        }
+    }
+    
+    private void publish(CacheInvalidation invalidation)
+    {
+        try
+        {
+            transport.publish(invalidation);
+            invalidationsPublished.incrementAndGet();
+        }
+        catch (RuntimeException e)
+        {
+            // The change has been made locally and cannot be undone
+            logger.error("Failed to publish invalidation; other cluster members may hold stale values: " + invalidation, e);
+        }
+    }
+    
+    @Override
+    public String getCacheName()
+    {
+        return cacheName;
+    }
+    
+    @Override
+    public long getSize()
+    {
+        if (nearCache instanceof DefaultSimpleCache)
+        {
+            return ((DefaultSimpleCache<K, V>) nearCache).getSize();
+        }
+        else if (nearCache instanceof OffHeapSimpleCache)
+        {
+            return ((OffHeapSimpleCache<K, V>) nearCache).getSize();
+        }
+        else
+        {
+            return nearCache.getKeys().size();
+        }
+    }
+    
+    @Override
+    public long getInvalidationsPublished()
+    {
+        return invalidationsPublished.get();
+    }
+    
+    @Override
+    public long getInvalidationsReceived()
+    {
+        return invalidationsReceived.get();
+    }
+    
+    /**
+     * @return              the cache holding values in this JVM
+     */
+    public SimpleCache<K, V> getNearCache()
+    {
+        return nearCache;
+    }
+    
+    @Override
+    public String toString()
+    {
+        return "InvalidatingSimpleCache [cacheName=" + cacheName + ", nearCache=" + nearCache + "]";
+    }
+    
+    /** Changes recorded by a thread during a batch */
+    private static class Batch
+    {
+        private int depth;
+        private boolean clear;
+        private final Set<Serializable> keys = new LinkedHashSet<Serializable>();
+    }
+}
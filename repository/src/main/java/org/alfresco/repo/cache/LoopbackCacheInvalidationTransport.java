@@ -0,0 +1,65 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2020 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.cache;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * {@link CacheInvalidationTransport} that delivers invalidations to listeners in the same JVM, on the
+ * publishing thread.  Several {@link InvalidatingCacheFactory cache factories} sharing an instance
+ * behave as members of a cluster, which is useful for testing.
+ * 
+ * @since 7.1
+ */
+public class LoopbackCacheInvalidationTransport implements CacheInvalidationTransport
+{
+    private static final Log logger = LogFactory.getLog(LoopbackCacheInvalidationTransport.class);
+    
+    private final List<CacheInvalidationListener> listeners = new CopyOnWriteArrayList<CacheInvalidationListener>();
+    
+    @Override
+    public void publish(CacheInvalidation invalidation)
+    {
+        if (logger.isDebugEnabled())
+        {
+            logger.debug("Publishing " + invalidation + " to " + listeners.size() + " listeners");
+        }
+        for (CacheInvalidationListener listener : listeners)
+        {
+            listener.onInvalidation(invalidation);
+        }
+    }
+    
+    @Override
+    public void addListener(CacheInvalidationListener listener)
+    {
+        listeners.add(listener);
+    }
+}
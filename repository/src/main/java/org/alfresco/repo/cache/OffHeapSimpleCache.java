@@ -0,0 +1,572 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2020 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.cache;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.alfresco.repo.cache.TransactionStats.OpType;
+import org.alfresco.repo.transaction.AlfrescoTransactionSupport;
+import org.alfresco.util.transaction.TransactionListenerAdapter;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.BeanNameAware;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * {@link SimpleCache} implementation that keeps its values, in serialized form, outside of the Java heap.
+ * <p>
+ * Values are appended to fixed-size slabs of direct memory.  Once the maximum number of bytes is in use,
+ * the oldest slab is recycled and all the entries that it holds are evicted i.e. eviction is first-in,
+ * first-out at the granularity of a slab.  Only the keys and a small index entry per key are kept on the heap.
+ * <p>
+ * Values that cannot be serialized or that do not fit into a single slab are not cached; a warning is
+ * logged the first time a value of a class that cannot be serialized is put.  Every <code>get</code>
+ * returns a freshly deserialized copy of the value.
+ * <p>
+ * When statistics are enabled, cache operations are published to the {@link CacheStatistics} service
+ * under the cache name, together with the number of bytes in use.  Operations made within a transaction
+ * are published when the transaction completes; any others are published straight away.
+ * 
+ * @since 7.1
+ */
+public final class OffHeapSimpleCache<K extends Serializable, V extends Object>
+    implements SimpleCache<K, V>, BeanNameAware, OffHeapSimpleCacheMBean
+{
+    private static final Log logger = LogFactory.getLog(OffHeapSimpleCache.class);
+    
+    /** The default size of each slab of direct memory: 4MB */
+    public static final int DEFAULT_SLAB_BYTES = 4 * 1024 * 1024;
+    
+    private final ConcurrentMap<K, Entry> index = new ConcurrentHashMap<K, Entry>();
+    /** Guards the slabs: the write lock is held to append values or recycle slabs */
+    private final ReentrantReadWriteLock slabLock = new ReentrantReadWriteLock();
+    /** Slabs in order of age; the last slab is the one being written to */
+    private final Deque<Slab> slabs = new ArrayDeque<Slab>();
+    private final long maxBytes;
+    private final int slabBytes;
+    private final int maxSlabs;
+    private final int ttlSecs;
+    private final AtomicLong usedBytes = new AtomicLong();
+    private final AtomicLong evictionCount = new AtomicLong();
+    private String cacheName;
+    private CacheStatistics cacheStats;
+    private boolean cacheStatsEnabled = false;
+    private String resourceKeyTxnStats;
+    /** The classes of values that could not be serialized and have been warned about */
+    private final Map<Class<?>, Boolean> unserializableClasses = new ConcurrentHashMap<Class<?>, Boolean>();
+    
+    /**
+     * Construct a cache using the specified size limits and name.
+     * 
+     * @param maxBytes The maximum number of bytes of direct memory to use for values.
+     * @param slabBytes The size of each slab of direct memory.  0 = use {@link #DEFAULT_SLAB_BYTES}
+     * @param ttlSecs Cache items will expire once this time has passed after creation.  0 = no expiry
+     * @param cacheName An arbitrary cache name.
+     */
+    public OffHeapSimpleCache(long maxBytes, int slabBytes, int ttlSecs, String cacheName)
+    {
+        if (slabBytes == 0)
+        {
+            slabBytes = DEFAULT_SLAB_BYTES;
+        }
+        else if (slabBytes < 0)
+        {
+            throw new IllegalArgumentException("slabBytes may not be negative, but was " + slabBytes);
+        }
+        if (maxBytes < slabBytes)
+        {
+            throw new IllegalArgumentException("maxBytes must allow for at least one slab of " + slabBytes + " bytes, but was " + maxBytes);
+        }
+        this.maxBytes = maxBytes;
+        this.slabBytes = slabBytes;
+        this.maxSlabs = (int) Math.min(Integer.MAX_VALUE, maxBytes / slabBytes);
+        this.ttlSecs = ttlSecs;
+        setBeanName(cacheName);
+    }
+    
+    /**
+     * @param cacheStats the service that cache operations are published to
+     */
+    public void setCacheStats(CacheStatistics cacheStats)
+    {
+        this.cacheStats = cacheStats;
+    }
+    
+    /**
+     * @param cacheStatsEnabled <tt>true</tt> to publish cache operations to the {@link CacheStatistics} service
+     */
+    public void setCacheStatsEnabled(boolean cacheStatsEnabled)
+    {
+        this.cacheStatsEnabled = cacheStatsEnabled;
+    }
+
+    @Override
+    public boolean contains(K key)
+    {
+        Entry entry = index.get(key);
+        return entry != null && isLive(key, entry);
+    }
+
+    @Override
+    public Collection<K> getKeys()
+    {
+        List<K> keys = new ArrayList<K>(index.size());
+        for (Map.Entry<K, Entry> mapEntry : index.entrySet())
+        {
+            if (isLive(mapEntry.getKey(), mapEntry.getValue()))
+            {
+                keys.add(mapEntry.getKey());
+            }
+        }
+        return keys;
+    }
+
+    @Override
+    public V get(K key)
+    {
+        final long startNanos = cacheStatsEnabled ? System.nanoTime() : 0;
+        byte[] bytes = null;
+        Entry entry = index.get(key);
+        if (entry != null && isLive(key, entry))
+        {
+            slabLock.readLock().lock();
+            try
+            {
+                // The slab might have been recycled while we were waiting
+                if (!entry.slab.recycled)
+                {
+                    bytes = entry.read();
+                }
+            }
+            finally
+            {
+                slabLock.readLock().unlock();
+            }
+        }
+        V value = (bytes == null) ? null : deserialize(key, bytes);
+        if (cacheStatsEnabled)
+        {
+            recordStats(startNanos, System.nanoTime(), (bytes == null) ? OpType.GET_MISS : OpType.GET_HIT);
+        }
+        return value;
+    }
+
+    @Override
+    public void put(K key, V value)
+    {
+        final long startNanos = cacheStatsEnabled ? System.nanoTime() : 0;
+        byte[] bytes = serialize(key, value);
+        if (bytes == null || bytes.length > slabBytes)
+        {
+            // Can't be stored, so make sure that no stale value is left behind
+            index.remove(key);
+        }
+        else
+        {
+            int evicted = 0;
+            slabLock.writeLock().lock();
+            try
+            {
+                Slab slab = slabs.peekLast();
+                if (slab == null || slab.remaining() < bytes.length)
+                {
+                    ByteBuffer buffer;
+                    if (slabs.size() >= maxSlabs)
+                    {
+                        // Reuse the direct memory of the oldest slab
+                        buffer = slabs.peekFirst().buffer;
+                        evicted = recycleOldestSlab();
+                        buffer.clear();
+                    }
+                    else
+                    {
+                        buffer = ByteBuffer.allocateDirect(slabBytes);
+                    }
+                    slab = new Slab(buffer);
+                    slabs.addLast(slab);
+                }
+                long expiresAt = (ttlSecs > 0) ? System.currentTimeMillis() + ttlSecs * 1000L : 0L;
+                index.put(key, slab.append(key, bytes, expiresAt));
+                usedBytes.addAndGet(bytes.length);
+            }
+            finally
+            {
+                slabLock.writeLock().unlock();
+            }
+            evictionCount.addAndGet(evicted);
+            if (cacheStatsEnabled)
+            {
+                for (int i = 0; i < evicted; i++)
+                {
+                    recordStats(startNanos, startNanos, OpType.EVICT);
+                }
+            }
+        }
+        if (cacheStatsEnabled)
+        {
+            recordStats(startNanos, System.nanoTime(), OpType.PUT);
+        }
+    }
+
+    @Override
+    public void remove(K key)
+    {
+        final long startNanos = cacheStatsEnabled ? System.nanoTime() : 0;
+        // The value bytes are reclaimed when the slab is recycled
+        index.remove(key);
+        if (cacheStatsEnabled)
+        {
+            recordStats(startNanos, System.nanoTime(), OpType.REMOVE);
+        }
+    }
+
+    @Override
+    public void clear()
+    {
+        final long startNanos = cacheStatsEnabled ? System.nanoTime() : 0;
+        slabLock.writeLock().lock();
+        try
+        {
+            index.clear();
+            for (Slab slab : slabs)
+            {
+                slab.recycled = true;
+            }
+            slabs.clear();
+            usedBytes.set(0L);
+        }
+        finally
+        {
+            slabLock.writeLock().unlock();
+        }
+        if (cacheStatsEnabled)
+        {
+            recordStats(startNanos, System.nanoTime(), OpType.CLEAR);
+        }
+    }
+    
+    /**
+     * Drop the oldest slab and evict the entries that still reference it.
+     * The write lock must be held.
+     * 
+     * @return the number of entries evicted
+     */
+    private int recycleOldestSlab()
+    {
+        Slab oldest = slabs.pollFirst();
+        oldest.recycled = true;
+        int evicted = 0;
+        for (int i = 0; i < oldest.keys.size(); i++)
+        {
+            K key = oldest.keys.get(i);
+            Entry entry = index.get(key);
+            if (entry != null && entry.slab == oldest && index.remove(key, entry))
+            {
+                evicted++;
+            }
+        }
+        usedBytes.addAndGet(-oldest.position);
+        if (logger.isDebugEnabled())
+        {
+            logger.debug("Recycled slab of cache " + cacheName + ", evicting " + evicted + " entries.");
+        }
+        return evicted;
+    }
+    
+    /**
+     * Checks the expiry of an entry, removing it if it has expired.
+     */
+    private boolean isLive(K key, Entry entry)
+    {
+        if (entry.expiresAt > 0L && entry.expiresAt < System.currentTimeMillis())
+        {
+            index.remove(key, entry);
+            return false;
+        }
+        return !entry.slab.recycled;
+    }
+    
+    private byte[] serialize(K key, V value)
+    {
+        try
+        {
+            ByteArrayOutputStream bos = new ByteArrayOutputStream(256);
+            ObjectOutputStream oos = new ObjectOutputStream(bos);
+            oos.writeObject(value);
+            oos.close();
+            return bos.toByteArray();
+        }
+        catch (IOException e)
+        {
+            Class<?> valueClass = value.getClass();
+            if (unserializableClasses.put(valueClass, Boolean.TRUE) == null)
+            {
+                logger.warn("Values of " + valueClass.getName() + " cannot be serialized and will not be cached in " + cacheName + ": " + e.getMessage());
+            }
+            if (logger.isDebugEnabled())
+            {
+                logger.debug("Value for key " + key + " could not be serialized and will not be cached in " + cacheName, e);
+            }
+            return null;
+        }
+    }
+    
+    @SuppressWarnings("unchecked")
+    private V deserialize(K key, byte[] bytes)
+    {
+        try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(bytes)))
+        {
+            return (V) ois.readObject();
+        }
+        catch (IOException | ClassNotFoundException e)
+        {
+            throw new IllegalStateException("Failed to deserialize value for key " + key + " in cache " + cacheName, e);
+        }
+    }
+    
+    /**
+     * Record an operation against the current transaction's statistics, which are published when the
+     * transaction completes.  Outside of a transaction, or once it has completed, the operation is
+     * published immediately.
+     */
+    private void recordStats(long startNanos, long endNanos, OpType opType)
+    {
+        if (cacheStats == null)
+        {
+            return;
+        }
+        // The synchronizations are not available after the txn is committed/rolled back
+        if (!TransactionSynchronizationManager.isSynchronizationActive())
+        {
+            TransactionStats stats = new TransactionStats();
+            stats.record(startNanos, endNanos, opType);
+            publishStats(stats);
+            return;
+        }
+        TransactionStats stats = AlfrescoTransactionSupport.getResource(resourceKeyTxnStats);
+        if (stats == null)
+        {
+            stats = new TransactionStats();
+            AlfrescoTransactionSupport.bindResource(resourceKeyTxnStats, stats);
+            AlfrescoTransactionSupport.bindListener(new StatsPublisher(stats));
+        }
+        stats.record(startNanos, endNanos, opType);
+    }
+    
+    private void publishStats(TransactionStats stats)
+    {
+        cacheStats.add(cacheName, stats);
+        cacheStats.setUsedBytes(cacheName, usedBytes.get());
+    }
+
+    @Override
+    public String toString()
+    {
+        return "OffHeapSimpleCache[maxBytes=" + maxBytes + ", slabBytes=" + slabBytes + ", usedBytes=" + usedBytes.get() + ", cacheName=" + cacheName + "]";
+    }
+    
+    @Override
+    public long getSize()
+    {
+        return index.size();
+    }
+    
+    /**
+     * @return the maximum number of bytes of direct memory that will be used for values
+     */
+    @Override
+    public long getMaxBytes()
+    {
+        return maxBytes;
+    }
+    
+    /**
+     * @return the size of each slab of direct memory
+     */
+    public int getSlabBytes()
+    {
+        return slabBytes;
+    }
+    
+    /**
+     * Get the number of bytes written to slabs that are still in use.  This includes the space taken
+     * by values that have been replaced or removed but whose slab has not yet been recycled.
+     * 
+     * @return the used bytes
+     */
+    @Override
+    public long getUsedBytes()
+    {
+        return usedBytes.get();
+    }
+    
+    /**
+     * @return the number of entries evicted to make room for new values
+     */
+    @Override
+    public long getEvictionCount()
+    {
+        return evictionCount.get();
+    }
+    
+    /**
+     * Get the time-to-live setting in seconds.
+     * 
+     * @return ttlSecs
+     */
+    public int getTTLSecs()
+    {
+        return this.ttlSecs;
+    }
+
+    /**
+     * Retrieve the name of this cache.
+     * 
+     * @return the cacheName
+     */
+    @Override
+    public String getCacheName()
+    {
+        return this.cacheName;
+    }
+
+    /**
+     * @param cacheName Set automatically by Spring, but can be set manually if required.
+     */
+    @Override
+    public void setBeanName(String cacheName)
+    {
+        this.cacheName = cacheName;
+        this.resourceKeyTxnStats = OffHeapSimpleCache.class.getName() + ".TxnStats." + cacheName;
+    }
+    
+    /**
+     * Publishes the statistics gathered by a transaction once it has completed
+     */
+    private final class StatsPublisher extends TransactionListenerAdapter
+    {
+        private final TransactionStats stats;
+        
+        private StatsPublisher(TransactionStats stats)
+        {
+            this.stats = stats;
+        }
+        
+        @Override
+        public void afterCommit()
+        {
+            publishStats(stats);
+        }
+        
+        @Override
+        public void afterRollback()
+        {
+            publishStats(stats);
+        }
+    }
+    
+    /**
+     * The location of a serialized value
+     */
+    private final class Entry
+    {
+        private final Slab slab;
+        private final int offset;
+        private final int length;
+        private final long expiresAt;
+        
+        private Entry(Slab slab, int offset, int length, long expiresAt)
+        {
+            this.slab = slab;
+            this.offset = offset;
+            this.length = length;
+            this.expiresAt = expiresAt;
+        }
+        
+        /**
+         * Copy the value bytes out of the slab.  The read lock must be held.
+         */
+        private byte[] read()
+        {
+            byte[] bytes = new byte[length];
+            ByteBuffer buffer = slab.buffer.duplicate();
+            buffer.position(offset);
+            buffer.get(bytes);
+            return bytes;
+        }
+    }
+    
+    /**
+     * A block of direct memory that values are appended to.  The keys written are tracked so that
+     * their entries can be evicted when the slab is recycled.
+     */
+    private final class Slab
+    {
+        private final ByteBuffer buffer;
+        private final List<K> keys = new ArrayList<K>();
+        private int position = 0;
+        private volatile boolean recycled = false;
+        
+        private Slab(ByteBuffer buffer)
+        {
+            this.buffer = buffer;
+        }
+        
+        private int remaining()
+        {
+            return buffer.capacity() - position;
+        }
+        
+        /**
+         * Append a value.  The write lock must be held.
+         */
+        private Entry append(K key, byte[] bytes, long expiresAt)
+        {
+            Entry entry = new Entry(this, position, bytes.length, expiresAt);
+            buffer.position(position);
+            buffer.put(bytes);
+            position += bytes.length;
+            keys.add(key);
+            return entry;
+        }
+    }
+}
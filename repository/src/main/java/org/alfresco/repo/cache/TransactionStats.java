@@ -49,7 +49,9 @@ public class TransactionStats
         GET_MISS,
         PUT,
         REMOVE,
-        CLEAR
+        CLEAR,
+        /** An entry was dropped by a size-bounded cache to make room for others */
+        EVICT
     }
     
     public long getCount(OpType op)
@@ -28,10 +28,12 @@ package org.alfresco.repo.cache;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
 
 import org.alfresco.error.AlfrescoRuntimeException;
 import org.alfresco.repo.cache.TransactionStats.OpType;
@@ -76,6 +78,14 @@ import org.springframework.transaction.support.TransactionSynchronizationManager
  * the shared cache will not have stale data in the event of the transaction-local
  * caches dropping items.  It is therefore important to size the transactional caches
  * correctly.
+ * <p>
+ * The transaction-local collections are only created when first used.  Values read from the
+ * shared cache are kept for the rest of the transaction, read-only or not, so repeated reads
+ * see the same value, but they are never transferred at commit time.  Transactions that made
+ * no changes skip the commit phase altogether.
+ * <p>
+ * If the shared cache is a {@link BatchingCache}, the changes made by a transaction are applied
+ * to it in a single batch, from before the commit until after completion.
  * 
  * @author Derek Hulley
  */
@@ -265,10 +275,10 @@ public class TransactionalCache<K extends Serializable, V extends Object>
         if (data == null)
         {
             data = new TransactionData();
-            // create and initialize caches
-            data.updatedItemsCache = new LRULinkedHashMap<Serializable, CacheBucket<V>>(23);
-            data.removedItemsCache = new HashSet<Serializable>(13);
-            data.lockedItemsCache = new HashSet<Serializable>(13);
+            // The caches are created on first write; until then they are empty and immutable
+            data.updatedItemsCache = null;
+            data.removedItemsCache = Collections.emptySet();
+            data.lockedItemsCache = Collections.emptySet();
             data.isReadOnly = AlfrescoTransactionSupport.getTransactionReadState() == TxnReadState.TXN_READ_ONLY;
             data.stats = new TransactionStats();
 
@@ -322,6 +332,11 @@ public class TransactionalCache<K extends Serializable, V extends Object>
         if (noSharedCacheRead && !txnData.noSharedCacheRead)
         {
             txnData.noSharedCacheRead = noSharedCacheRead;
+            if (txnData.updatedItemsCache == null)
+            {
+                // Nothing read or written yet
+                return;
+            }
             String currentCacheRegion = TenantUtil.getCurrentDomain();
             for (Map.Entry<Serializable, CacheBucket<V>> entry : new ArrayList<Map.Entry<Serializable, CacheBucket<V>>>(
                     txnData.updatedItemsCache.entrySet()))
@@ -401,7 +416,10 @@ public class TransactionalCache<K extends Serializable, V extends Object>
                 keys.addAll(backingCacheKeys);
             }
             // add keys
-            keys.addAll(txnData.updatedItemsCache.keySet());
+            if (txnData.updatedItemsCache != null)
+            {
+                keys.addAll(txnData.updatedItemsCache.keySet());
+            }
             // remove keys
             keys.removeAll(txnData.removedItemsCache);
         }
@@ -498,9 +516,9 @@ public class TransactionalCache<K extends Serializable, V extends Object>
     public static <KEY extends Serializable, VAL> void putSharedCacheValue(SimpleCache<KEY, ValueHolder<VAL>> sharedCache, KEY key, VAL value, TransactionStats stats)
     {
         ValueHolder<VAL> wrapper = new ValueHolder<VAL>(value);
-        final long startNanos = System.nanoTime(); // TODO: enabled?
+        final long startNanos = stats != null ? System.nanoTime() : 0;
         sharedCache.put(key, wrapper);
-        final long endNanos = System.nanoTime();
+        final long endNanos = stats != null ? System.nanoTime() : 0;
         if (stats != null)
         {
             stats.record(startNanos, endNanos, OpType.PUT);
@@ -549,6 +567,10 @@ public class TransactionalCache<K extends Serializable, V extends Object>
         {
             final Serializable key = getTenantAwareCacheKey(keyIn);
             TransactionData txnData = getTransactionData();
+            if (txnData.lockedItemsCache.isEmpty())
+            {
+                txnData.lockedItemsCache = new HashSet<Serializable>(13);
+            }
             txnData.lockedItemsCache.add(key);
             return;
         }
@@ -613,7 +635,7 @@ public class TransactionalCache<K extends Serializable, V extends Object>
                 }
                 
                 // check for the item in the transaction's new/updated items
-                CacheBucket<V> bucket = (CacheBucket<V>) txnData.updatedItemsCache.get(key);
+                CacheBucket<V> bucket = txnData.updatedItemsCache == null ? null : txnData.updatedItemsCache.get(key);
                 if (bucket != null)
                 {
                     V value = bucket.getValue();
@@ -651,8 +673,9 @@ public class TransactionalCache<K extends Serializable, V extends Object>
                         // No stats tracking, pass in null TransactionStats
                         value = TransactionalCache.getSharedCacheValue(sharedCache, key, null);
                     }
-                    bucket = new ReadCacheBucket<V>(value);
-                    txnData.updatedItemsCache.put(key, bucket);
+                    // Keep the value, so that later reads in the transaction see the same one
+                    bucket = (value == null) ? ReadCacheBucket.<V>nullBucket() : new ReadCacheBucket<V>(value);
+                    txnData.getUpdatedItemsCache().put(key, bucket);
                     return value;
                 }
             }
@@ -738,7 +761,7 @@ public class TransactionalCache<K extends Serializable, V extends Object>
             {
                 // we have an active transaction - add the item into the updated cache for this transaction
                 // are we in an overflow condition?
-                if (txnData.updatedItemsCache.hasHitSize())
+                if (txnData.updatedItemsCache != null && txnData.updatedItemsCache.hasHitSize())
                 {
                     // overflow about to occur or has occured - we can only guarantee non-stale
                     // data by clearing the shared cache after the transaction.  Also, the
@@ -775,7 +798,8 @@ public class TransactionalCache<K extends Serializable, V extends Object>
                     // Record the existing value as is
                     bucket = new UpdateCacheBucket<V>(existingValueHolder, value);
                 }
-                txnData.updatedItemsCache.put(key, bucket);
+                txnData.getUpdatedItemsCache().put(key, bucket);
+                txnData.isModified = true;
                 // remove the item from the removed cache, if present
                 txnData.removedItemsCache.remove(key);
                 // done
@@ -871,11 +895,19 @@ public class TransactionalCache<K extends Serializable, V extends Object>
                     else
                     {
                         // Create a bucket to remove the value from the shared cache
+                        if (txnData.removedItemsCache.isEmpty())
+                        {
+                            txnData.removedItemsCache = new HashSet<Serializable>(13);
+                        }
                         txnData.removedItemsCache.add(key);
                     }
                 }
                 // remove the item from the udpated cache, if present
-                txnData.updatedItemsCache.remove(key);
+                if (txnData.updatedItemsCache != null)
+                {
+                    txnData.updatedItemsCache.remove(key);
+                }
+                txnData.isModified = true;
                 // done
                 if (isDebugEnabled)
                 {
@@ -920,8 +952,8 @@ public class TransactionalCache<K extends Serializable, V extends Object>
                 // for the remainder of the transaction.
                 // We do, however, keep all locked values locked.
                 txnData.isClearOn = true;
-                txnData.updatedItemsCache.clear();
-                txnData.removedItemsCache.clear();
+                txnData.updatedItemsCache = null;
+                txnData.removedItemsCache = Collections.emptySet();
             }
         }
         else            // no transaction
@@ -962,53 +994,30 @@ public class TransactionalCache<K extends Serializable, V extends Object>
         TransactionData txnData = getTransactionData();
         try
         {
-            if (txnData.isClearOn)
+            if (!txnData.isModified && !txnData.isClearOn)
             {
-                // clear shared cache
-                final long startNanos = cacheStatsEnabled ? System.nanoTime() : 0;
-                sharedCache.clear();
-                final long endNanos = cacheStatsEnabled ? System.nanoTime() : 0;
-                if (cacheStatsEnabled)
-                {
-                    TransactionStats stats = txnData.stats;
-                    stats.record(startNanos, endNanos, OpType.CLEAR);
-                }
-                if (isDebugEnabled)
-                {
-                    logger.debug("Clear notification recieved in commit - clearing shared cache");
-                }
+                // Nothing was written in the transaction
+                return;
             }
-            else
+            beginSharedCacheBatch(txnData);
+            applyClearOrRemovals(txnData, "commit");
+            
+            // transfer updates
+            if (txnData.updatedItemsCache != null)
             {
-                // transfer any removed items
-                for (Serializable key : txnData.removedItemsCache)
+                for (Map.Entry<Serializable, CacheBucket<V>> entry : txnData.updatedItemsCache.entrySet())
                 {
-                    final long startNanos = System.nanoTime();
-                    sharedCache.remove(key);
-                    final long endNanos = System.nanoTime();
-                    TransactionStats stats = txnData.stats;
-                    stats.record(startNanos, endNanos, OpType.REMOVE);
+                    Serializable key = entry.getKey();
+                    CacheBucket<V> bucket = entry.getValue();
+                    bucket.doPreCommit(
+                            sharedCache,
+                            key, this.isMutable, this.allowEqualsChecks, txnData.isReadOnly);
                 }
                 if (isDebugEnabled)
                 {
-                    logger.debug("Removed " + txnData.removedItemsCache.size() + " values from shared cache in commit");
+                    logger.debug("Pre-commit called for " + txnData.updatedItemsCache.size() + " values.");
                 }
             }
-            
-            // transfer updates
-            Set<Serializable> keys = (Set<Serializable>) txnData.updatedItemsCache.keySet();
-            for (Map.Entry<Serializable, CacheBucket<V>> entry : (Set<Map.Entry<Serializable, CacheBucket<V>>>) txnData.updatedItemsCache.entrySet())
-            {
-                Serializable key = entry.getKey();
-                CacheBucket<V> bucket = entry.getValue();
-                bucket.doPreCommit(
-                        sharedCache,
-                        key, this.isMutable, this.allowEqualsChecks, txnData.isReadOnly);
-            }
-            if (isDebugEnabled)
-            {
-                logger.debug("Pre-commit called for " + keys.size() + " values.");
-            }
         }
         catch (Throwable e)
         {
@@ -1034,70 +1043,55 @@ public class TransactionalCache<K extends Serializable, V extends Object>
         TransactionData txnData = getTransactionData();
         try
         {
-            if (txnData.isClearOn)
+            if (!txnData.isModified && !txnData.isClearOn)
             {
-                // clear shared cache
-                final long startNanos = cacheStatsEnabled ? System.nanoTime() : 0;
-                sharedCache.clear();
-                final long endNanos = cacheStatsEnabled ? System.nanoTime() : 0;
-                if (cacheStatsEnabled)
-                {
-                    TransactionStats stats = txnData.stats;
-                    stats.record(startNanos, endNanos, OpType.CLEAR);
-                }
-                if (isDebugEnabled)
-                {
-                    logger.debug("Clear notification recieved in commit - clearing shared cache");
-                }
-            }
-            else
-            {
-                // transfer any removed items
-                for (Serializable key : txnData.removedItemsCache)
-                {
-                    final long startNanos = System.nanoTime();
-                    sharedCache.remove(key);
-                    final long endNanos = System.nanoTime();
-                    TransactionStats stats = txnData.stats;
-                    stats.record(startNanos, endNanos, OpType.REMOVE);
-                }
-                if (isDebugEnabled)
-                {
-                    logger.debug("Removed " + txnData.removedItemsCache.size() + " values from shared cache in commit");
-                }
+                // Nothing was written in the transaction
+                return;
             }
+            beginSharedCacheBatch(txnData);
+            applyClearOrRemovals(txnData, "commit");
             
             // transfer updates
-            Set<Serializable> keys = (Set<Serializable>) txnData.updatedItemsCache.keySet();
-            for (Map.Entry<Serializable, CacheBucket<V>> entry : (Set<Map.Entry<Serializable, CacheBucket<V>>>) txnData.updatedItemsCache.entrySet())
+            if (txnData.updatedItemsCache != null)
             {
-                Serializable key = entry.getKey();
-                CacheBucket<V> bucket = entry.getValue();
-                try
+                TransactionStats stats = cacheStatsEnabled ? txnData.stats : null;
+                int transferred = 0;
+                for (Map.Entry<Serializable, CacheBucket<V>> entry : txnData.updatedItemsCache.entrySet())
                 {
-                    bucket.doPostCommit(
-                            sharedCache,
-                            key, this.isMutable, this.allowEqualsChecks, txnData.isReadOnly, txnData.stats);
+                    CacheBucket<V> bucket = entry.getValue();
+                    if (bucket instanceof ReadCacheBucket)
+                    {
+                        // Values that were only read have nothing to transfer
+                        continue;
+                    }
+                    Serializable key = entry.getKey();
+                    try
+                    {
+                        bucket.doPostCommit(
+                                sharedCache,
+                                key, this.isMutable, this.allowEqualsChecks, txnData.isReadOnly, stats);
+                        transferred++;
+                    }
+                    catch (Exception e)
+                    {
+                        // MNT-10486: NPE in NodeEntity during post-commit write through to shared cache
+                        //              This try-catch is diagnostic in nature.  We need to know the names of the caches
+                        //              and details of the values involved.
+                        //              The causal exception will be rethrown.
+                        throw new AlfrescoRuntimeException(
+                                "CacheBucket postCommit transfer to shared cache failed: \n" +
+                                "   Cache:      " + sharedCache + "\n" +
+                                "   Key:        " + key + "\n" +
+                                "   New Value:  " + bucket.getValue() + "\n" +
+                                "   Cache Value:" + sharedCache.get(key),
+                                e);
+                    }
                 }
-                catch (Exception e)
+                if (isDebugEnabled)
                 {
-                    // MNT-10486: NPE in NodeEntity during post-commit write through to shared cache
-                    //              This try-catch is diagnostic in nature.  We need to know the names of the caches
-                    //              and details of the values involved.
-                    //              The causal exception will be rethrown.
-                    throw new AlfrescoRuntimeException(
-                            "CacheBucket postCommit transfer to shared cache failed: \n" +
-                            "   Cache:      " + sharedCache + "\n" +
-                            "   Key:        " + key + "\n" +
-                            "   New Value:  " + bucket.getValue() + "\n" +
-                            "   Cache Value:" + sharedCache.get(key),
-                            e);
+                    logger.debug("Post-commit called for " + transferred + " values.");
                 }
             }
-            if (isDebugEnabled)
-            {
-                logger.debug("Post-commit called for " + keys.size() + " values.");
-            }
         }
         catch (Throwable e)
         {
@@ -1105,6 +1099,7 @@ public class TransactionalCache<K extends Serializable, V extends Object>
         }
         finally
         {
+            endSharedCacheBatch(txnData);
             removeCaches(txnData);
             // Aggregate this transaction's stats with centralised cache stats.
             if (cacheStatsEnabled)
@@ -1124,37 +1119,10 @@ public class TransactionalCache<K extends Serializable, V extends Object>
         TransactionData txnData = getTransactionData();
         try
         {
-            if (txnData.isClearOn)
+            if (txnData.isModified || txnData.isClearOn)
             {
-                // clear shared cache
-                final long startNanos = cacheStatsEnabled ? System.nanoTime() : 0;
-                sharedCache.clear();
-                final long endNanos = cacheStatsEnabled ? System.nanoTime() : 0;
-                if (cacheStatsEnabled)
-                {
-                    TransactionStats stats = txnData.stats;
-                    stats.record(startNanos, endNanos, OpType.CLEAR);
-                }
-                if (isDebugEnabled)
-                {
-                    logger.debug("Clear notification recieved in rollback - clearing shared cache");
-                }
-            }
-            else
-            {
-                // transfer any removed items
-                for (Serializable key : txnData.removedItemsCache)
-                {
-                    final long startNanos = System.nanoTime();
-                    sharedCache.remove(key);
-                    final long endNanos = System.nanoTime();
-                    TransactionStats stats = txnData.stats;
-                    stats.record(startNanos, endNanos, OpType.REMOVE);
-                }
-                if (isDebugEnabled)
-                {
-                    logger.debug("Removed " + txnData.removedItemsCache.size() + " values from shared cache in rollback");
-                }
+                beginSharedCacheBatch(txnData);
+                applyClearOrRemovals(txnData, "rollback");
             }
         }
         catch (Throwable e)
@@ -1163,6 +1131,7 @@ public class TransactionalCache<K extends Serializable, V extends Object>
         }
         finally
         {
+            endSharedCacheBatch(txnData);
             removeCaches(txnData);
             // Aggregate this transaction's stats with centralised cache stats.
             if (cacheStatsEnabled)
@@ -1172,6 +1141,76 @@ public class TransactionalCache<K extends Serializable, V extends Object>
         }
     }
     
+    /**
+     * Start a batch of changes to the shared cache, if it supports batches and one is not already open
+     * for the transaction.
+     */
+    private void beginSharedCacheBatch(TransactionData txnData)
+    {
+        if (!txnData.isBatchOpen && sharedCache instanceof BatchingCache)
+        {
+            ((BatchingCache) sharedCache).beginBatch();
+            txnData.isBatchOpen = true;
+        }
+    }
+    
+    /**
+     * End the transaction's batch of changes to the shared cache, if one is open.
+     */
+    private void endSharedCacheBatch(TransactionData txnData)
+    {
+        if (txnData.isBatchOpen)
+        {
+            txnData.isBatchOpen = false;
+            ((BatchingCache) sharedCache).endBatch();
+        }
+    }
+    
+    /**
+     * Clears the shared cache if the transaction cleared the cache or else removes the values
+     * that the transaction removed from it.  Timings are only taken when statistics are enabled.
+     * 
+     * @param txnData       the data associated with the transaction
+     * @param phase         the transaction phase, for logging
+     */
+    private void applyClearOrRemovals(TransactionData txnData, String phase)
+    {
+        TransactionStats stats = cacheStatsEnabled ? txnData.stats : null;
+        if (txnData.isClearOn)
+        {
+            // clear shared cache
+            final long startNanos = stats != null ? System.nanoTime() : 0;
+            sharedCache.clear();
+            final long endNanos = stats != null ? System.nanoTime() : 0;
+            if (stats != null)
+            {
+                stats.record(startNanos, endNanos, OpType.CLEAR);
+            }
+            if (isDebugEnabled)
+            {
+                logger.debug("Clear notification recieved in " + phase + " - clearing shared cache");
+            }
+        }
+        else if (!txnData.removedItemsCache.isEmpty())
+        {
+            // transfer any removed items
+            for (Serializable key : txnData.removedItemsCache)
+            {
+                final long startNanos = stats != null ? System.nanoTime() : 0;
+                sharedCache.remove(key);
+                final long endNanos = stats != null ? System.nanoTime() : 0;
+                if (stats != null)
+                {
+                    stats.record(startNanos, endNanos, OpType.REMOVE);
+                }
+            }
+            if (isDebugEnabled)
+            {
+                logger.debug("Removed " + txnData.removedItemsCache.size() + " values from shared cache in " + phase);
+            }
+        }
+    }
+    
     /**
      * Ensures that the transactional caches are removed from the common cache manager.
      * 
@@ -1350,6 +1389,16 @@ public class TransactionalCache<K extends Serializable, V extends Object>
     {
         private static final long serialVersionUID = 7885689778259779578L;
         
+        /** Shared by all misses, as there is nothing to distinguish them */
+        @SuppressWarnings("rawtypes")
+        private static final ReadCacheBucket NULL_BUCKET = new ReadCacheBucket<Object>(null);
+        
+        @SuppressWarnings("unchecked")
+        public static <BV> ReadCacheBucket<BV> nullBucket()
+        {
+            return (ReadCacheBucket<BV>) NULL_BUCKET;
+        }
+        
         private final BV value;
         public ReadCacheBucket(BV value)
         {
@@ -1376,6 +1425,7 @@ public class TransactionalCache<K extends Serializable, V extends Object>
     /** Data holder to bind data to the transaction */
     private class TransactionData
     {
+        /** Created on first use: <tt>null</tt> until a value is put or read in a read-write transaction */
         private LRULinkedHashMap<Serializable, CacheBucket<V>> updatedItemsCache;
         private Set<Serializable> removedItemsCache;
         private Set<Serializable> lockedItemsCache;
@@ -1383,8 +1433,21 @@ public class TransactionalCache<K extends Serializable, V extends Object>
         private boolean isClearOn;
         private boolean isClosed;
         private boolean isReadOnly;
+        /** Set when a value is put or removed i.e. there is something to transfer to the shared cache */
+        private boolean isModified;
+        /** Set while changes are being applied to a {@link BatchingCache batching} shared cache */
+        private boolean isBatchOpen;
         private boolean noSharedCacheRead;
         private TransactionStats stats;
+        
+        private LRULinkedHashMap<Serializable, CacheBucket<V>> getUpdatedItemsCache()
+        {
+            if (updatedItemsCache == null)
+            {
+                updatedItemsCache = new LRULinkedHashMap<Serializable, CacheBucket<V>>(23);
+            }
+            return updatedItemsCache;
+        }
     }
     
     /**
@@ -1510,7 +1573,8 @@ public class TransactionalCache<K extends Serializable, V extends Object>
         private ValueHolder(V2 value)
         {
             
-            this.rand = (int) (Math.random() * Integer.MAX_VALUE);
+            // Math.random() shares a single generator between all threads
+            this.rand = ThreadLocalRandom.current().nextInt(Integer.MAX_VALUE);
             this.value = value;
         }
         public final V2 getValue()
@@ -46,6 +46,14 @@ public class CacheRegionValueKey implements Serializable
         this.cacheValueKey = cacheValueKey;
         this.hashCode = cacheRegion.hashCode() + cacheValueKey.hashCode();
     }
+    public String getCacheRegion()
+    {
+        return cacheRegion;
+    }
+    public Serializable getCacheValueKey()
+    {
+        return cacheValueKey;
+    }
     @Override
     public String toString()
     {
@@ -27,6 +27,7 @@ package org.alfresco.repo.cache.lookup;
 
 import java.io.Serializable;
 import java.sql.Savepoint;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.alfresco.repo.cache.SimpleCache;
 import org.alfresco.repo.domain.control.ControlDAO;
@@ -46,6 +47,13 @@ import org.springframework.extensions.surf.util.ParameterCheck;
  * All keys will be unique to the given cache region, allowing the cache to be shared
  * between instances of this class.
  * <p>
+ * An optional <b>negative cache</b> can be supplied to record keys and value keys that are known
+ * <u>not</u> to exist.  Without it, "not found" markers are stored in the main cache where they
+ * compete with real entities for space.  With it, the markers are kept in the (usually much smaller)
+ * negative cache and are removed whenever the entity is created or its value is updated.  The
+ * negative cache should be transactional so that markers recorded by a transaction that rolls back
+ * are never shared and removals made on create are only visible once the creating transaction commits.
+ * <p>
  * Generics:
  * <ul>
  *   <li>K:  The database unique identifier.</li>
@@ -236,8 +244,13 @@ public class EntityLookupCache<K extends Serializable, V extends Object, VK exte
     private static final String CACHE_REGION_DEFAULT = "DEFAULT";
     
     private final SimpleCache<Serializable, Object> cache;
+    private final SimpleCache<Serializable, Object> negativeCache;
     private final EntityLookupCallbackDAO<K, V, VK> entityLookup;
     private final String cacheRegion;
+    
+    private final AtomicLong negativeHitCount = new AtomicLong();
+    private final AtomicLong negativePutCount = new AtomicLong();
+    private final AtomicLong negativeRemoveCount = new AtomicLong();
 
     /**
      * Construct the lookup cache <b>without any cache</b>.  All calls are passed directly to the
@@ -273,16 +286,91 @@ public class EntityLookupCache<K extends Serializable, V extends Object, VK exte
      * @param cacheRegion           the region within the cache to use.
      * @param entityLookup          the instance that is able to find and persist entities
      */
-    @SuppressWarnings({ "rawtypes", "unchecked" })
+    @SuppressWarnings("rawtypes")
     public EntityLookupCache(SimpleCache cache, String cacheRegion, EntityLookupCallbackDAO<K, V, VK> entityLookup)
+    {
+        this(cache, null, cacheRegion, entityLookup);
+    }
+    
+    /**
+     * Construct the lookup cache, using the given cache region and a separate cache for entities
+     * that are known not to exist.
+     * <p>
+     * The negative cache is only used when a main cache is supplied.  It may be shared between
+     * instances of this class in the same way as the main cache.
+     * 
+     * @param cache                 the cache that will back the two-way lookups; <tt>null</tt> to have no backing
+     *                              in a cache.
+     * @param negativeCache         the cache that records keys and value keys for which no entity exists;
+     *                              <tt>null</tt> to keep the "not found" markers in the main cache
+     * @param cacheRegion           the region within the cache to use.
+     * @param entityLookup          the instance that is able to find and persist entities
+     * 
+     * @since 7.1
+     */
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    public EntityLookupCache(
+            SimpleCache cache,
+            SimpleCache negativeCache,
+            String cacheRegion,
+            EntityLookupCallbackDAO<K, V, VK> entityLookup)
     {
         ParameterCheck.mandatory("cacheRegion", cacheRegion);
         ParameterCheck.mandatory("entityLookup", entityLookup);
         this.cache = cache;
+        this.negativeCache = negativeCache;
         this.cacheRegion = cacheRegion;
         this.entityLookup = entityLookup;
     }
     
+    /**
+     * Create a copy of this lookup cache that shares the main cache, region and DAO callback
+     * but uses the given negative cache.
+     * 
+     * @param negativeCache         the cache that records keys and value keys for which no entity exists
+     *                              (<tt>null</tt> to disable negative caching)
+     * @return                      Returns a new lookup cache
+     * 
+     * @since 7.1
+     */
+    @SuppressWarnings("rawtypes")
+    public EntityLookupCache<K, V, VK> withNegativeCache(SimpleCache negativeCache)
+    {
+        return new EntityLookupCache<K, V, VK>(cache, negativeCache, cacheRegion, entityLookup);
+    }
+    
+    /**
+     * @return                      Returns the number of lookups that were answered by the negative cache
+     *                              without calling the DAO
+     * 
+     * @since 7.1
+     */
+    public long getNegativeHitCount()
+    {
+        return negativeHitCount.get();
+    }
+    
+    /**
+     * @return                      Returns the number of "not found" markers recorded in the negative cache
+     * 
+     * @since 7.1
+     */
+    public long getNegativePutCount()
+    {
+        return negativePutCount.get();
+    }
+    
+    /**
+     * @return                      Returns the number of removals sent to the negative cache because an
+     *                              entity was created, updated or removed
+     * 
+     * @since 7.1
+     */
+    public long getNegativeRemoveCount()
+    {
+        return negativeRemoveCount.get();
+    }
+    
     /**
      * Find the entity associated with the given key.
      * The {@link EntityLookupCallbackDAO#findByKey(Serializable) entity callback} will be used if necessary.
@@ -326,12 +414,17 @@ public class EntityLookupCache<K extends Serializable, V extends Object, VK exte
                 return new Pair<K, V>(key, value);
             }
         }
+        // Check for a known absence
+        if (isNegative(keyCacheKey))
+        {
+            return null;
+        }
         // Resolve it
         Pair<K, V> entityPair = entityLookup.findByKey(key);
         if (entityPair == null)
         {
             // Cache "not found"
-            cache.put(keyCacheKey, VALUE_NOT_FOUND);
+            putNotFound(keyCacheKey);
         }
         else
         {
@@ -401,12 +494,17 @@ public class EntityLookupCache<K extends Serializable, V extends Object, VK exte
                 return getByKey(key);
             }
         }
+        // Check for a known absence
+        if (isNegative(valueCacheKey))
+        {
+            return null;
+        }
         // Resolve it
         Pair<K, V> entityPair = entityLookup.findByValue(value);
         if (entityPair == null)
         {
             // Cache "not found"
-            cache.put(valueCacheKey, VALUE_NOT_FOUND);
+            putNotFound(valueCacheKey);
         }
         else
         {
@@ -448,9 +546,13 @@ public class EntityLookupCache<K extends Serializable, V extends Object, VK exte
             // Cache it
             if (cache != null)
             {
+                CacheRegionKey keyCacheKey = new CacheRegionKey(cacheRegion, entityPair.getFirst());
                 cache.put(
-                        new CacheRegionKey(cacheRegion, entityPair.getFirst()),
+                        keyCacheKey,
                         (entityPair.getSecond() == null ? VALUE_NULL : entityPair.getSecond()));
+                // It exists now
+                removeNotFound(keyCacheKey);
+                removeNotFoundByValue(value);
             }
             // It's been created and cached
             return entityPair;
@@ -497,9 +599,11 @@ public class EntityLookupCache<K extends Serializable, V extends Object, VK exte
             {
                 entityPair = entityLookup.createValue(value);
                 // Cache the value
+                CacheRegionKey keyCacheKey = new CacheRegionKey(cacheRegion, entityPair.getFirst());
                 cache.put(
-                        new CacheRegionKey(cacheRegion, entityPair.getFirst()),
+                        keyCacheKey,
                         (entityPair.getSecond() == null ? VALUE_NULL : entityPair.getSecond()));
+                removeNotFound(keyCacheKey);
             }
             return entityPair;
         }
@@ -512,7 +616,8 @@ public class EntityLookupCache<K extends Serializable, V extends Object, VK exte
         {
             return getByKey(key);
         }
-        // Resolve it
+        // Resolve it.  A negative cache entry is deliberately not trusted here: the entity
+        // might have been created by a transaction that committed after the entry was recorded.
         Pair<K, V> entityPair = entityLookup.findByValue(value);
         if (entityPair == null)
         {
@@ -520,11 +625,15 @@ public class EntityLookupCache<K extends Serializable, V extends Object, VK exte
             entityPair = entityLookup.createValue(value);
         }
         key = entityPair.getFirst();
+        CacheRegionKey keyCacheKey = new CacheRegionKey(cacheRegion, key);
         // Cache the key and value
         cache.put(valueCacheKey, key);
         cache.put(
-                new CacheRegionKey(cacheRegion, key),
+                keyCacheKey,
                 (value == null ? VALUE_NULL : value));
+        // Remove any (possibly stale) record of its absence
+        removeNotFound(valueCacheKey);
+        removeNotFound(keyCacheKey);
         // Done
         return entityPair;
     }
@@ -571,11 +680,14 @@ public class EntityLookupCache<K extends Serializable, V extends Object, VK exte
             // There is a good value key, cache by value
             CacheRegionValueKey valueCacheKey = new CacheRegionValueKey(cacheRegion, valueKey);
             cache.put(valueCacheKey, key);
+            removeNotFound(valueCacheKey);
         }
         // Cache by key
+        CacheRegionKey keyCacheKey = new CacheRegionKey(cacheRegion, key);
         cache.put(
-                new CacheRegionKey(cacheRegion, key),
+                keyCacheKey,
                 (value == null ? VALUE_NULL : value));
+        removeNotFound(keyCacheKey);
         // Done
         return updateCount;
     }
@@ -658,11 +770,14 @@ public class EntityLookupCache<K extends Serializable, V extends Object, VK exte
             // There is a good value key, cache by value
             CacheRegionValueKey valueCacheKey = new CacheRegionValueKey(cacheRegion, valueKey);
             cache.put(valueCacheKey, key);
+            removeNotFound(valueCacheKey);
         }
         // Cache by key
+        CacheRegionKey keyCacheKey = new CacheRegionKey(cacheRegion, key);
         cache.put(
-                new CacheRegionKey(cacheRegion, key),
+                keyCacheKey,
                 (value == null ? VALUE_NULL : value));
+        removeNotFound(keyCacheKey);
         // Done
     }
     
@@ -755,6 +870,7 @@ public class EntityLookupCache<K extends Serializable, V extends Object, VK exte
         if (removeKey)
         {
             cache.remove(keyCacheKey);
+            removeNotFound(keyCacheKey);
         }
     }
     
@@ -789,6 +905,7 @@ public class EntityLookupCache<K extends Serializable, V extends Object, VK exte
             cache.remove(keyCacheKey);
         }
         cache.remove(valueCacheKey);
+        removeNotFound(valueCacheKey);
     }
     
     /**
@@ -804,5 +921,78 @@ public class EntityLookupCache<K extends Serializable, V extends Object, VK exte
             return;
         }
         cache.clear();
+        if (negativeCache != null)
+        {
+            negativeCache.clear();
+        }
+    }
+    
+    /**
+     * Check if the negative cache records the absence of the entity
+     * 
+     * @param cacheKey              the region-specific key or value key
+     * @return                      <tt>true</tt> if the entity is known not to exist
+     */
+    private boolean isNegative(Serializable cacheKey)
+    {
+        if (negativeCache == null || negativeCache.get(cacheKey) == null)
+        {
+            return false;
+        }
+        negativeHitCount.incrementAndGet();
+        return true;
+    }
+    
+    /**
+     * Record the absence of an entity, either in the negative cache or, if there is none,
+     * in the main cache.
+     * 
+     * @param cacheKey              the region-specific key or value key
+     */
+    private void putNotFound(Serializable cacheKey)
+    {
+        if (negativeCache == null)
+        {
+            cache.put(cacheKey, VALUE_NOT_FOUND);
+        }
+        else
+        {
+            negativeCache.put(cacheKey, VALUE_NOT_FOUND);
+            negativePutCount.incrementAndGet();
+        }
+    }
+    
+    /**
+     * Remove any record of the absence of an entity from the negative cache
+     * 
+     * @param cacheKey              the region-specific key or value key
+     */
+    private void removeNotFound(Serializable cacheKey)
+    {
+        if (negativeCache == null)
+        {
+            return;
+        }
+        negativeCache.remove(cacheKey);
+        negativeRemoveCount.incrementAndGet();
+    }
+    
+    /**
+     * Remove any record of the absence of an entity with the given value from the negative cache
+     * 
+     * @param value                 the entity value (<tt>null</tt> is allowed)
+     */
+    @SuppressWarnings("unchecked")
+    private void removeNotFoundByValue(V value)
+    {
+        if (negativeCache == null)
+        {
+            return;
+        }
+        VK valueKey = (value == null) ? (VK)VALUE_NULL : entityLookup.getValueKey(value);
+        if (valueKey != null)
+        {
+            removeNotFound(new CacheRegionValueKey(cacheRegion, valueKey));
+        }
     }
 }
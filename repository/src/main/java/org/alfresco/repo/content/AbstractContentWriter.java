@@ -32,11 +32,14 @@ import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
 import java.nio.channels.Channels;
 import java.nio.channels.FileChannel;
 import java.nio.channels.ReadableByteChannel;
 import java.nio.channels.WritableByteChannel;
 import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -46,6 +49,7 @@ import org.alfresco.repo.content.ContentLimitProvider.NoLimitProvider;
 import org.alfresco.repo.content.encoding.ContentCharsetFinder;
 import org.alfresco.repo.content.filestore.FileContentWriter;
 import org.alfresco.service.cmr.repository.ContentAccessor;
+import org.alfresco.service.cmr.repository.ContentData;
 import org.alfresco.service.cmr.repository.ContentIOException;
 import org.alfresco.service.cmr.repository.ContentReader;
 import org.alfresco.service.cmr.repository.ContentStreamListener;
@@ -53,6 +57,7 @@ import org.alfresco.service.cmr.repository.ContentWriter;
 import org.alfresco.service.cmr.repository.MimetypeService;
 import org.alfresco.service.cmr.repository.MimetypeServiceAware;
 import org.alfresco.util.TempFileProvider;
+import org.apache.commons.codec.binary.Hex;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.springframework.aop.framework.ProxyFactory;
@@ -77,6 +82,8 @@ public abstract class AbstractContentWriter extends AbstractContentAccessor impl
     private ContentReader existingContentReader;
     private MimetypeService mimetypeService;
     private DoGuessingOnCloseListener guessingOnCloseListener;
+    private String contentDigestAlgorithm;
+    private String contentDigest;
     
     /**
      * This object provides a maximum size limit for content.
@@ -108,6 +115,45 @@ public abstract class AbstractContentWriter extends AbstractContentAccessor impl
         this.limitProvider = limitProvider;
     }
     
+    /**
+     * Sets the {@link MessageDigest} algorithm used to digest the content as it is written,
+     * e.g. <b>SHA-256</b>.  The digest is then given by {@link #getContentData()}.
+     * <p>
+     * The content has to be written sequentially to be digested, so random access to the
+     * content is spoofed using a temporary file.
+     * 
+     * @param contentDigestAlgorithm    the digest algorithm, or <tt>null</tt> to not digest the content
+     * @since 7.1
+     */
+    public void setContentDigestAlgorithm(String contentDigestAlgorithm)
+    {
+        this.contentDigestAlgorithm = contentDigestAlgorithm;
+    }
+    
+    /**
+     * @return          Returns the digest of the content in the form <code>algorithm:hex</code>, or
+     *                  <tt>null</tt> if the content is not digested or the channel is still open
+     * @since 7.1
+     */
+    public String getContentDigest()
+    {
+        return contentDigest;
+    }
+    
+    /**
+     * Adds the {@link #getContentDigest() content digest}, once there is one.
+     */
+    @Override
+    public ContentData getContentData()
+    {
+        ContentData contentData = super.getContentData();
+        if (contentDigest != null)
+        {
+            contentData = ContentData.setContentDigest(contentData, contentDigest);
+        }
+        return contentData;
+    }
+    
     /**
      * Supplies the Mimetype Service to be used when guessing
      *  encoding and mimetype information. 
@@ -273,6 +319,34 @@ public abstract class AbstractContentWriter extends AbstractContentAccessor impl
         return callbackChannel;
     }
 
+    /**
+     * Create a sequential channel that digests the content written through it.
+     * 
+     * @param directChannel the result of {@link #getDirectWritableChannel()}
+     * @return Returns a channel that sets the {@link #getContentDigest() content digest} when it is closed
+     * @throws ContentIOException if the digest algorithm is not available
+     */
+    private WritableByteChannel getDigestingChannel(WritableByteChannel directChannel) throws ContentIOException
+    {
+        try
+        {
+            MessageDigest digest = MessageDigest.getInstance(contentDigestAlgorithm);
+            return new DigestingChannel(directChannel, digest);
+        }
+        catch (NoSuchAlgorithmException e)
+        {
+            try
+            {
+                directChannel.close();
+            }
+            catch (IOException ee)
+            {
+                // Ignore, we are already failing
+            }
+            throw new ContentIOException("Content digest algorithm not available: " + contentDigestAlgorithm, e);
+        }
+    }
+
     /**
      * @see #getDirectWritableChannel()
      * @see #getCallbackWritableChannel(java.nio.channels.WritableByteChannel, List)
@@ -285,6 +359,10 @@ public abstract class AbstractContentWriter extends AbstractContentAccessor impl
             throw new ContentIOException("A channel has already been opened");
         }
         WritableByteChannel directChannel = getDirectWritableChannel();
+        if (contentDigestAlgorithm != null)
+        {
+            directChannel = getDigestingChannel(directChannel);
+        }
         channel = getCallbackWritableChannel(directChannel, listeners);
 
         // notify that the channel was opened
@@ -659,4 +737,47 @@ public abstract class AbstractContentWriter extends AbstractContentAccessor impl
             }
         }
     }
+    
+    /**
+     * Sequential channel that digests the bytes written through it.  The digest is
+     * completed when the channel is closed, before any listeners are called.
+     */
+    private class DigestingChannel implements WritableByteChannel
+    {
+        private final WritableByteChannel channel;
+        private final MessageDigest digest;
+        
+        private DigestingChannel(WritableByteChannel channel, MessageDigest digest)
+        {
+            this.channel = channel;
+            this.digest = digest;
+        }
+        
+        @Override
+        public int write(ByteBuffer src) throws IOException
+        {
+            ByteBuffer written = src.duplicate();
+            int count = channel.write(src);
+            written.limit(written.position() + count);
+            digest.update(written);
+            return count;
+        }
+        
+        @Override
+        public boolean isOpen()
+        {
+            return channel.isOpen();
+        }
+        
+        @Override
+        public void close() throws IOException
+        {
+            if (!channel.isOpen())
+            {
+                return;
+            }
+            channel.close();
+            contentDigest = digest.getAlgorithm() + ":" + Hex.encodeHexString(digest.digest());
+        }
+    }
 }
@@ -25,13 +25,24 @@
  */
 package org.alfresco.repo.content.caching;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.Date;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock.ReadLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock.WriteLock;
 
 import org.alfresco.repo.content.ContentContext;
 import org.alfresco.repo.content.ContentStore;
+import org.alfresco.repo.content.caching.quota.CacheAccessTracker;
 import org.alfresco.repo.content.caching.quota.QuotaManagerStrategy;
 import org.alfresco.repo.content.caching.quota.UnlimitedQuotaStrategy;
 import org.alfresco.repo.content.filestore.FileContentStore;
@@ -41,6 +52,7 @@ import org.alfresco.service.cmr.repository.ContentReader;
 import org.alfresco.service.cmr.repository.ContentStreamListener;
 import org.alfresco.service.cmr.repository.ContentWriter;
 import org.alfresco.service.cmr.repository.DirectAccessUrl;
+import org.alfresco.util.TempFileProvider;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.springframework.beans.factory.BeanNameAware;
@@ -59,10 +71,18 @@ import org.springframework.context.ApplicationEventPublisherAware;
  * <p>
  * This store handles the {@link FileContentStore#SPOOF_PROTOCOL} and can be used to wrap stores
  * that do not handle the protocol out of the box e.g. the S3 connector's store.
+ * <p>
+ * Cache fills are coalesced per content URL: readers that miss while another thread is copying the same
+ * content into the cache wait for that copy and then read the cached file, rather than each reading the
+ * backing store.  A reader that has waited for {@link #setFillWaitTimeout(long) fillWaitTimeout} reads the
+ * backing store after all.  If {@link #setStreamingFill(boolean) streamingFill} is set, the first reader of uncached
+ * content is not held up until the cache file is complete; it reads straight from the backing store while the
+ * bytes are copied into the cache, and the cache entry is only recorded once the content has been read in full.
+ * Content can also be {@link #prefetch(String) prefetched} into the cache in the background.
  * 
  * @author Matt Ward
  */
-public class CachingContentStore implements ContentStore, ApplicationEventPublisherAware, BeanNameAware
+public class CachingContentStore implements ContentStore, ContentPrefetcher, ApplicationEventPublisherAware, BeanNameAware
 {
     private final static Log log = LogFactory.getLog(CachingContentStore.class);
     // NUM_LOCKS absolutely must be a power of 2 for the use of locks to be evenly balanced
@@ -73,6 +93,11 @@ public class CachingContentStore implements ContentStore, ApplicationEventPublis
     private QuotaManagerStrategy quota = new UnlimitedQuotaStrategy();
     private boolean cacheOnInbound;
     private int maxCacheTries = 2;
+    private boolean streamingFill;
+    private long fillWaitTimeout = 30000L;
+    private Executor prefetchExecutor;
+    private final ConcurrentMap<String, CacheFill> fills = new ConcurrentHashMap<>();
+    private final ContentCacheStatistics statistics = new ContentCacheStatistics();
     private ApplicationEventPublisher eventPublisher;
     private String beanName;
     
@@ -166,17 +191,20 @@ public class CachingContentStore implements ContentStore, ApplicationEventPublis
         {
             return new SpoofedTextContentReader(contentUrl);
         }
+        recordAccess(contentUrl);
 
         // Use pool of locks - which one is determined by a hash of the URL.
-        // This will stop the content from being read/cached multiple times from the backing store
-        // when it should only be read once - cached versions should be returned after that.
+        // Reads and cache fills share the read lock so that they only exclude a concurrent delete; the
+        // fills map stops the content from being read/cached multiple times from the backing store.
         ReadLock readLock = readWriteLock(contentUrl).readLock();
         readLock.lock();
         try
         {
             if (cache.contains(contentUrl))
             {
-                return cache.getReader(contentUrl);
+                ContentReader reader = cache.getReader(contentUrl);
+                statistics.recordHit();
+                return reader;
             }
         }
         catch(CacheMissException e)
@@ -188,14 +216,98 @@ public class CachingContentStore implements ContentStore, ApplicationEventPublis
             readLock.unlock();
         }
         
-        return cacheAndRead(contentUrl);
+        statistics.recordMiss();
+        CacheFill inFlight = fills.get(contentUrl);
+        if (inFlight != null)
+        {
+            return readAfterFill(contentUrl, inFlight);
+        }
+        if (streamingFill)
+        {
+            return new ReadThroughCacheReader(this, backingStore.getReader(contentUrl));
+        }
+        return fillAndRead(contentUrl);
     }    
     
+    /**
+     * Copy content into the cache unless another thread is already doing so, in which case wait for it.
+     * 
+     * @param url URL to cache.
+     * @return A reader onto the cached content, or onto the backing store if the content could not be cached.
+     */
+    private ContentReader fillAndRead(String url)
+    {
+        CacheFill fill = new CacheFill(false);
+        CacheFill inFlight = fills.putIfAbsent(url, fill);
+        if (inFlight != null)
+        {
+            return readAfterFill(url, inFlight);
+        }
+        
+        try
+        {
+            return cacheAndRead(url, fill);
+        }
+        finally
+        {
+            completeFill(url, fill);
+        }
+    }
     
-    private ContentReader cacheAndRead(String url)
+    /**
+     * Read content that another thread has been filling into the cache.
+     * <p>
+     * Streaming fills are not waited for; they only finish once their reader has consumed the content, so
+     * the backing store is read directly instead.
+     */
+    private ContentReader readAfterFill(String url, CacheFill inFlight)
     {
-        WriteLock writeLock = readWriteLock(url).writeLock();
-        writeLock.lock();
+        if (inFlight.isStreaming())
+        {
+            return backingStore.getReader(url);
+        }
+        
+        statistics.recordCoalescedRead();
+        if (inFlight.await(fillWaitTimeout))
+        {
+            ReadLock readLock = readWriteLock(url).readLock();
+            readLock.lock();
+            try
+            {
+                return cache.getReader(url);
+            }
+            catch (CacheMissException e)
+            {
+                // Removed again since the fill, e.g. by the quota manager or a delete
+            }
+            finally
+            {
+                readLock.unlock();
+            }
+        }
+        else if (log.isDebugEnabled())
+        {
+            log.debug("Cache fill did not complete in " + fillWaitTimeout + "ms, reading the backing store: " + url);
+        }
+        return backingStore.getReader(url);
+    }
+    
+    private void completeFill(String url, CacheFill fill)
+    {
+        fills.remove(url, fill);
+        statistics.recordFill(fill.getElapsedNanos(), fill.isCached());
+        fill.complete();
+        if (log.isDebugEnabled())
+        {
+            log.debug("Finished " + (fill.isStreaming() ? "streaming " : "") + "cache fill of " + url + 
+                        " [cached=" + fill.isCached() + ", " + statistics + "]");
+        }
+    }
+    
+    private ContentReader cacheAndRead(String url, CacheFill fill)
+    {
+        ReadLock readLock = readWriteLock(url).readLock();
+        readLock.lock();
         try
         {
             for (int i = 0; i < maxCacheTries; i++)
@@ -203,7 +315,7 @@ public class CachingContentStore implements ContentStore, ApplicationEventPublis
                 ContentReader backingStoreReader = backingStore.getReader(url);
                 long contentSize = backingStoreReader.getSize();
                 
-                if (!quota.beforeWritingCacheFile(contentSize))
+                if (!allowCacheFile(url, contentSize))
                 {
                     return backingStoreReader;
                 }
@@ -215,6 +327,7 @@ public class CachingContentStore implements ContentStore, ApplicationEventPublis
                     boolean keepCacheFile = quota.afterWritingCacheFile(contentSize);
                     if (keepCacheFile)
                     {
+                        fill.setCached();
                         return reader;
                     }
                     else
@@ -240,14 +353,34 @@ public class CachingContentStore implements ContentStore, ApplicationEventPublis
         }
         finally
         {
-            writeLock.unlock();
+            readLock.unlock();
         }
     }
     
     
+    private void recordAccess(String url)
+    {
+        if (quota instanceof CacheAccessTracker)
+        {
+            ((CacheAccessTracker) quota).recordAccess(url);
+        }
+    }
+    
+    /**
+     * Ask the quota strategy whether content read from the backing store may be cached.
+     */
+    private boolean allowCacheFile(String url, long contentSize)
+    {
+        if (quota instanceof CacheAccessTracker && !((CacheAccessTracker) quota).admit(url, contentSize))
+        {
+            return false;
+        }
+        return quota.beforeWritingCacheFile(contentSize);
+    }
+    
     /**
      * Attempt to read content into a cached file and return a reader onto it. If the content is
-     * already in the cache (possibly due to a race condition between the read/write locks) then
+     * already in the cache (possibly due to a race with a fill that has just finished) then
      * a reader onto that content is returned.
      * <p>
      * If it is not possible to cache the content and/or get a reader onto the cached content then
@@ -281,6 +414,155 @@ public class CachingContentStore implements ContentStore, ApplicationEventPublis
         return reader;
     }
     
+    /**
+     * Start copying content into the cache as it is read by a {@link ReadThroughCacheReader}.
+     * 
+     * @param url           the content URL being read
+     * @param contentSize   the size of the content
+     * @return              the registered fill, or <tt>null</tt> if the content should not be copied into the cache
+     */
+    CacheFill beginStreamingFill(String url, long contentSize)
+    {
+        if (contentSize <= 0L || cache.contains(url) || !allowCacheFile(url, contentSize))
+        {
+            return null;
+        }
+        CacheFill fill = new CacheFill(true);
+        return fills.putIfAbsent(url, fill) == null ? fill : null;
+    }
+    
+    /**
+     * Finish a fill started by {@link #beginStreamingFill(String, long)}, recording the copied content in the
+     * cache if it was read in full.  The temporary file is always deleted.
+     * 
+     * @param url           the content URL that was read
+     * @param fill          the fill returned by {@link #beginStreamingFill(String, long)}
+     * @param tempFile      the copy of the content, may be <tt>null</tt> if no copy was made
+     * @param complete      <tt>true</tt> if the whole of the content was copied
+     */
+    void endStreamingFill(String url, CacheFill fill, File tempFile, boolean complete)
+    {
+        try
+        {
+            if (complete && cacheFile(url, tempFile))
+            {
+                fill.setCached();
+            }
+        }
+        catch (RuntimeException e)
+        {
+            if (log.isWarnEnabled())
+            {
+                log.warn("Failed to cache content read from the backing store: " + url, e);
+            }
+        }
+        finally
+        {
+            if (tempFile != null)
+            {
+                tempFile.delete();
+            }
+            completeFill(url, fill);
+        }
+    }
+    
+    /**
+     * Create the file that a streaming fill copies content into.  It is created in the cache directory, where
+     * the cleaner does not look at it, so that it is renamed into the cache rather than copied again.
+     */
+    File createFillFile() throws IOException
+    {
+        File cacheRoot = cache.getCacheRoot();
+        if (cacheRoot == null)
+        {
+            return TempFileProvider.createTempFile("CachingContentStore-", ".tmp");
+        }
+        cacheRoot.mkdirs();
+        return File.createTempFile("CachingContentStore-", ".tmp", cacheRoot);
+    }
+    
+    private boolean cacheFile(String url, File file)
+    {
+        ReadLock readLock = readWriteLock(url).readLock();
+        readLock.lock();
+        try
+        {
+            if (cache.contains(url))
+            {
+                return true;
+            }
+            long contentSize = file.length();
+            if (!cache.putFile(url, file))
+            {
+                return false;
+            }
+            if (quota.afterWritingCacheFile(contentSize))
+            {
+                return true;
+            }
+            // Quota strategy has requested cache file not to be kept.
+            cache.deleteFile(url);
+            cache.remove(url);
+            return false;
+        }
+        finally
+        {
+            readLock.unlock();
+        }
+    }
+    
+    /**
+     * Copy content into the cache in the background, e.g. ahead of a queued rendition.  Nothing is done unless
+     * a {@link #setPrefetchExecutor(Executor) prefetchExecutor} has been set, and content that is already cached
+     * or being cached is ignored.
+     * 
+     * @param contentUrl    the content URL to cache
+     * @return              <tt>true</tt> if the content was queued for caching
+     */
+    @Override
+    public boolean prefetch(final String contentUrl)
+    {
+        if (prefetchExecutor == null || contentUrl == null || contentUrl.startsWith(FileContentStore.SPOOF_PROTOCOL)
+                    || fills.containsKey(contentUrl) || cache.contains(contentUrl))
+        {
+            return false;
+        }
+        // A prefetch is a read that is known to be coming
+        recordAccess(contentUrl);
+        try
+        {
+            prefetchExecutor.execute(() -> prefetchNow(contentUrl));
+        }
+        catch (RejectedExecutionException e)
+        {
+            if (log.isDebugEnabled())
+            {
+                log.debug("Prefetch queue is full, not prefetching: " + contentUrl);
+            }
+            return false;
+        }
+        statistics.recordPrefetch();
+        return true;
+    }
+    
+    private void prefetchNow(String contentUrl)
+    {
+        try
+        {
+            if (!fills.containsKey(contentUrl) && !cache.contains(contentUrl))
+            {
+                fillAndRead(contentUrl);
+            }
+        }
+        catch (RuntimeException e)
+        {
+            if (log.isDebugEnabled())
+            {
+                log.debug("Failed to prefetch content: " + contentUrl, e);
+            }
+        }
+    }
+    
     @Override
     public ContentWriter getWriter(final ContentContext context)
     {
@@ -435,6 +717,51 @@ public class CachingContentStore implements ContentStore, ApplicationEventPublis
         return this.cacheOnInbound;
     }
 
+    /**
+     * Let the first reader of uncached content read from the backing store while the content is copied into
+     * the cache, rather than waiting for the cache file to be written.  Defaults to <tt>false</tt>.
+     * 
+     * @param streamingFill boolean
+     */
+    public void setStreamingFill(boolean streamingFill)
+    {
+        this.streamingFill = streamingFill;
+    }
+
+    public boolean isStreamingFill()
+    {
+        return this.streamingFill;
+    }
+
+    /**
+     * Sets how long a reader waits for another thread's fill of the same content before it reads the backing
+     * store itself.  Defaults to 30 seconds.
+     * 
+     * @param fillWaitTimeout the time to wait, in milliseconds
+     */
+    public void setFillWaitTimeout(long fillWaitTimeout)
+    {
+        this.fillWaitTimeout = fillWaitTimeout;
+    }
+
+    /**
+     * Sets the executor used to {@link #prefetch(String) prefetch} content.  If not set, prefetching is disabled.
+     * 
+     * @param prefetchExecutor Executor
+     */
+    public void setPrefetchExecutor(Executor prefetchExecutor)
+    {
+        this.prefetchExecutor = prefetchExecutor;
+    }
+
+    /**
+     * @return the hit, miss and fill counters for this store
+     */
+    public ContentCacheStatistics getStatistics()
+    {
+        return this.statistics;
+    }
+
     public int getMaxCacheTries()
     {
         return this.maxCacheTries;
@@ -487,4 +814,67 @@ public class CachingContentStore implements ContentStore, ApplicationEventPublis
     {
         return backingStore.getDirectAccessUrl(contentUrl, expiresAt);
     }
+
+    /**
+     * A copy of one content item from the backing store into the cache, shared by the readers that wait for it.
+     */
+    static final class CacheFill
+    {
+        private final CompletableFuture<Boolean> result = new CompletableFuture<>();
+        private final boolean streaming;
+        private final long startNanos = System.nanoTime();
+        private volatile boolean cached;
+        
+        CacheFill(boolean streaming)
+        {
+            this.streaming = streaming;
+        }
+        
+        boolean isStreaming()
+        {
+            return streaming;
+        }
+        
+        boolean isCached()
+        {
+            return cached;
+        }
+        
+        void setCached()
+        {
+            cached = true;
+        }
+        
+        long getElapsedNanos()
+        {
+            return System.nanoTime() - startNanos;
+        }
+        
+        void complete()
+        {
+            result.complete(cached);
+        }
+        
+        /**
+         * @param timeoutMillis the longest time to wait for the fill
+         * @return <tt>true</tt> if the fill left the content in the cache, <tt>false</tt> if it did not or did not
+         *         complete in time
+         */
+        boolean await(long timeoutMillis)
+        {
+            try
+            {
+                return result.get(timeoutMillis, TimeUnit.MILLISECONDS);
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+            catch (ExecutionException | TimeoutException e)
+            {
+                return false;
+            }
+        }
+    }
 }
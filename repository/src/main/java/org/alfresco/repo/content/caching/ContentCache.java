@@ -81,6 +81,19 @@ public interface ContentCache
      */
     boolean put(String contentUrl, ContentReader reader);
 
+    /**
+     * Put a file of complete content into the cache by moving it, rather than copying it as
+     * {@link #put(String, ContentReader)} does.  The move is a rename if the file is on the same file
+     * system as the cache.
+     * 
+     * Empty content will NOT be cached - in which case false is returned and the file is left where it is.
+     * 
+     * @param contentUrl String
+     * @param file the content, which is no longer at that location if it was cached
+     * @return true if the content was cached, false otherwise.
+     */
+    boolean putFile(String contentUrl, File file);
+
     /**
      * Remove a cached item from the in-memory lookup table. Implementation should not remove
      * the actual cached content (file) - this should be left to the clean-up process or can
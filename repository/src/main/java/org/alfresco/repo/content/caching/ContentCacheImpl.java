@@ -26,6 +26,8 @@
 package org.alfresco.repo.content.caching;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Collections;
@@ -153,6 +155,28 @@ public class ContentCacheImpl implements ContentCache
         return false;
     }
 
+    @Override
+    public boolean putFile(String contentUrl, File file)
+    {
+        if (file.length() > 0L)
+        {
+            File cacheFile = new File(cacheRoot, createNewCacheFilePath());
+            cacheFile.getParentFile().mkdirs();
+            try
+            {
+                Files.move(file.toPath(), cacheFile.toPath());
+            }
+            catch (IOException e)
+            {
+                throw new ContentIOException("Failed to move file into the cache: " + file, e);
+            }
+            recordCacheEntries(contentUrl, cacheFile);
+            return true;
+        }
+        
+        return false;
+    }
+
     private void recordCacheEntries(String contentUrl, File cacheFile)
     {
         memoryStore.put(Key.forUrl(contentUrl), cacheFile.getAbsolutePath());
@@ -0,0 +1,174 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2020 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.content.caching;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Running counters describing how well a {@link CachingContentStore} is serving reads from its cache.
+ * <p>
+ * A <i>fill</i> is a copy of content from the backing store into the cache.  Readers that arrive while
+ * another thread is filling the same URL wait for that fill rather than starting their own; those reads
+ * are counted as <i>coalesced</i>.
+ * 
+ * @since 7.1
+ */
+public class ContentCacheStatistics
+{
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder coalescedReads = new LongAdder();
+    private final LongAdder fills = new LongAdder();
+    private final LongAdder failedFills = new LongAdder();
+    private final LongAdder fillNanos = new LongAdder();
+    private final LongAdder prefetches = new LongAdder();
+    private final LongAccumulator maxFillNanos = new LongAccumulator(Math::max, 0L);
+    
+    void recordHit()
+    {
+        hits.increment();
+    }
+    
+    void recordMiss()
+    {
+        misses.increment();
+    }
+    
+    void recordCoalescedRead()
+    {
+        coalescedReads.increment();
+    }
+    
+    void recordPrefetch()
+    {
+        prefetches.increment();
+    }
+    
+    void recordFill(long nanos, boolean cached)
+    {
+        if (cached)
+        {
+            fills.increment();
+            fillNanos.add(nanos);
+            maxFillNanos.accumulate(nanos);
+        }
+        else
+        {
+            failedFills.increment();
+        }
+    }
+    
+    /**
+     * @return          the number of reads served from the cache
+     */
+    public long getHits()
+    {
+        return hits.sum();
+    }
+    
+    /**
+     * @return          the number of reads that found nothing in the cache
+     */
+    public long getMisses()
+    {
+        return misses.sum();
+    }
+    
+    /**
+     * @return          the fraction of reads served from the cache, or 0 if there have been no reads
+     */
+    public double getHitRatio()
+    {
+        long hitCount = getHits();
+        long total = hitCount + getMisses();
+        return total == 0L ? 0.0 : (double) hitCount / total;
+    }
+    
+    /**
+     * @return          the number of missed reads that waited for another thread's fill
+     */
+    public long getCoalescedReads()
+    {
+        return coalescedReads.sum();
+    }
+    
+    /**
+     * @return          the number of content items copied into the cache
+     */
+    public long getFills()
+    {
+        return fills.sum();
+    }
+    
+    /**
+     * @return          the number of fills that did not leave the content in the cache
+     */
+    public long getFailedFills()
+    {
+        return failedFills.sum();
+    }
+    
+    /**
+     * @return          the mean time taken by a successful fill, in milliseconds
+     */
+    public double getAverageFillTimeMillis()
+    {
+        long count = getFills();
+        return count == 0L ? 0.0 : (double) fillNanos.sum() / count / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+    
+    /**
+     * @return          the longest time taken by a successful fill, in milliseconds
+     */
+    public long getMaxFillTimeMillis()
+    {
+        return TimeUnit.NANOSECONDS.toMillis(maxFillNanos.get());
+    }
+    
+    /**
+     * @return          the number of prefetches accepted for background filling
+     */
+    public long getPrefetches()
+    {
+        return prefetches.sum();
+    }
+    
+    @Override
+    public String toString()
+    {
+        return "ContentCacheStatistics[hits=" + getHits() +
+               ", misses=" + getMisses() +
+               ", coalescedReads=" + getCoalescedReads() +
+               ", fills=" + getFills() +
+               ", failedFills=" + getFailedFills() +
+               ", averageFillTimeMillis=" + getAverageFillTimeMillis() +
+               ", maxFillTimeMillis=" + getMaxFillTimeMillis() +
+               ", prefetches=" + getPrefetches() +
+               "]";
+    }
+}
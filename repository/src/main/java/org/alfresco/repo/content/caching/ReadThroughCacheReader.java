@@ -0,0 +1,212 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2020 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.content.caching;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.StandardOpenOption;
+
+import org.alfresco.repo.content.AbstractContentReader;
+import org.alfresco.repo.content.caching.CachingContentStore.CacheFill;
+import org.alfresco.service.cmr.repository.ContentIOException;
+import org.alfresco.service.cmr.repository.ContentReader;
+
+/**
+ * Reader onto uncached content that copies the content into the cache of a {@link CachingContentStore} as it is
+ * read from the backing store.  The copy is only added to the cache once the whole of the content has been read;
+ * a reader that is closed early leaves nothing behind.
+ * 
+ * @since 7.1
+ */
+class ReadThroughCacheReader extends AbstractContentReader
+{
+    private final CachingContentStore store;
+    private final ContentReader backingReader;
+    
+    ReadThroughCacheReader(CachingContentStore store, ContentReader backingReader)
+    {
+        super(backingReader.getContentUrl());
+        this.store = store;
+        this.backingReader = backingReader;
+    }
+    
+    @Override
+    public String toString()
+    {
+        return "ReadThroughCacheReader[" + backingReader + "]";
+    }
+    
+    @Override
+    public boolean exists()
+    {
+        return backingReader.exists();
+    }
+    
+    @Override
+    public long getLastModified()
+    {
+        return backingReader.getLastModified();
+    }
+    
+    @Override
+    public long getSize()
+    {
+        return backingReader.getSize();
+    }
+    
+    @Override
+    protected ContentReader createReader() throws ContentIOException
+    {
+        return new ReadThroughCacheReader(store, backingReader.getReader());
+    }
+    
+    @Override
+    protected ReadableByteChannel getDirectReadableChannel() throws ContentIOException
+    {
+        ReadableByteChannel channel = backingReader.getReadableChannel();
+        long size = backingReader.getSize();
+        CacheFill fill = store.beginStreamingFill(getContentUrl(), size);
+        if (fill == null)
+        {
+            return channel;
+        }
+        
+        File tempFile = null;
+        try
+        {
+            tempFile = store.createFillFile();
+            FileChannel copy = FileChannel.open(tempFile.toPath(), StandardOpenOption.WRITE);
+            return new CopyingChannel(channel, copy, tempFile, fill, size);
+        }
+        catch (IOException | RuntimeException e)
+        {
+            // Just read the backing store without caching
+            store.endStreamingFill(getContentUrl(), fill, tempFile, false);
+            return channel;
+        }
+    }
+    
+    /**
+     * Passes through reads from the backing store, writing everything read to the cache copy.
+     */
+    private class CopyingChannel implements ReadableByteChannel
+    {
+        private final ReadableByteChannel channel;
+        private final File tempFile;
+        private final CacheFill fill;
+        private final long size;
+        private FileChannel copy;
+        private long copied;
+        private boolean open = true;
+        
+        private CopyingChannel(ReadableByteChannel channel, FileChannel copy, File tempFile, CacheFill fill, long size)
+        {
+            this.channel = channel;
+            this.copy = copy;
+            this.tempFile = tempFile;
+            this.fill = fill;
+            this.size = size;
+        }
+        
+        @Override
+        public int read(ByteBuffer dst) throws IOException
+        {
+            int start = dst.position();
+            int read = channel.read(dst);
+            if (read > 0 && copy != null)
+            {
+                ByteBuffer bytes = dst.duplicate();
+                bytes.limit(dst.position()).position(start);
+                try
+                {
+                    while (bytes.hasRemaining())
+                    {
+                        copy.write(bytes);
+                    }
+                    copied += read;
+                }
+                catch (IOException e)
+                {
+                    // Failing to cache must not fail the read
+                    abandonCopy();
+                }
+            }
+            return read;
+        }
+        
+        @Override
+        public boolean isOpen()
+        {
+            return open;
+        }
+        
+        @Override
+        public void close() throws IOException
+        {
+            if (!open)
+            {
+                return;
+            }
+            open = false;
+            try
+            {
+                channel.close();
+            }
+            finally
+            {
+                boolean complete = copy != null && copied == size;
+                try
+                {
+                    if (copy != null)
+                    {
+                        copy.close();
+                    }
+                }
+                catch (IOException e)
+                {
+                    complete = false;
+                }
+                store.endStreamingFill(getContentUrl(), fill, tempFile, complete);
+            }
+        }
+        
+        private void abandonCopy()
+        {
+            try
+            {
+                copy.close();
+            }
+            catch (IOException e)
+            {
+                // Already abandoning
+            }
+            copy = null;
+        }
+    }
+}
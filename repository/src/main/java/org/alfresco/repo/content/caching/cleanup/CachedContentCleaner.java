@@ -26,11 +26,15 @@
 package org.alfresco.repo.content.caching.cleanup;
 
 import java.io.File;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
 
 import org.alfresco.repo.content.caching.CacheFileProps;
 import org.alfresco.repo.content.caching.ContentCacheImpl;
 import org.alfresco.repo.content.caching.FileHandler;
+import org.alfresco.repo.content.caching.quota.CacheAccessTracker;
+import org.alfresco.repo.content.caching.quota.FrequencySketch;
 import org.alfresco.repo.content.caching.quota.UsageTracker;
 import org.alfresco.util.Deleter;
 import org.apache.commons.io.FileUtils;
@@ -43,6 +47,11 @@ import org.springframework.context.ApplicationEventPublisherAware;
 /**
  * Cleans up redundant cache files from the cached content file store. Once references to cache files are
  * no longer in the in-memory cache, the binary content files can be removed.
+ * <p>
+ * When an aggressive clean is requested, files are removed oldest first until the target reduction is reached.
+ * If the usage tracker is a {@link CacheAccessTracker} the files are instead visited in several passes, each
+ * removing only files read at most a given number of times recently, so that frequently read content is removed
+ * last.  Only the first pass scans the cache, the later passes revisit the files that the first pass kept.
  * 
  * @author Matt Ward
  */
@@ -64,6 +73,9 @@ public class CachedContentCleaner extends Thread implements FileHandler, Applica
     private ApplicationEventPublisher eventPublisher;
     private long targetReductionBytes;
     private String reasonMessage;
+    private CacheAccessTracker accessTracker;
+    private int maxEvictionFrequency;
+    private List<File> frequentlyReadFiles = new ArrayList<File>();
    
     
     public CachedContentCleaner()
@@ -123,7 +135,23 @@ public class CachedContentCleaner extends Thread implements FileHandler, Applica
         }
         resetStats();
         timeStarted = new Date();
+        accessTracker = (usageTracker instanceof CacheAccessTracker) ? (CacheAccessTracker) usageTracker : null;
+        maxEvictionFrequency = (accessTracker == null) ? FrequencySketch.MAX_FREQUENCY : 0;
+        frequentlyReadFiles.clear();
         cache.processFiles(this);
+        while (targetReductionBytes > 0 && sizeFilesDeleted < targetReductionBytes &&
+                    maxEvictionFrequency < FrequencySketch.MAX_FREQUENCY)
+        {
+            // Target not reached by removing rarely read files, allow more frequently read files to go.
+            maxEvictionFrequency = maxEvictionFrequency * 2 + 1;
+            if (log.isDebugEnabled())
+            {
+                log.debug("Target reduction " + targetReductionBytes + " bytes not yet reached, removing files read up to " +
+                            maxEvictionFrequency + " times. Deleted so far: " + sizeFilesDeleted);
+            }
+            deleteRarelyReadFiles();
+        }
+        frequentlyReadFiles.clear();
         timeFinished = new Date(); 
         
         if (usageTracker != null)
@@ -187,7 +215,15 @@ public class CachedContentCleaner extends Thread implements FileHandler, Applica
                            " bytes not yet reached. Deleted so far: " + sizeFilesDeleted);
             }
             // Aggressive clean mode, delete file straight away.
-            deleted = deleteFilesNow(cachedContentFile);
+            if (rarelyRead(cachedContentFile))
+            {
+                deleted = deleteFilesNow(cachedContentFile);
+            }
+            else
+            {
+                // Revisited by the later passes, if the target is not reached
+                frequentlyReadFiles.add(cachedContentFile);
+            }
         }
         else
         {
@@ -237,6 +273,46 @@ public class CachedContentCleaner extends Thread implements FileHandler, Applica
 
     
 
+    /**
+     * Run a later pass of an aggressive clean over the files kept by the earlier passes, rather than scanning
+     * the cache again.
+     */
+    private void deleteRarelyReadFiles()
+    {
+        List<File> keptFiles = new ArrayList<File>(frequentlyReadFiles.size());
+        for (File file : frequentlyReadFiles)
+        {
+            if (sizeFilesDeleted < targetReductionBytes && rarelyRead(file))
+            {
+                long size = file.length() + new CacheFileProps(file).fileSize();
+                if (deleteFilesNow(file))
+                {
+                    newDiskUsage -= size;
+                }
+            }
+            else
+            {
+                keptFiles.add(file);
+            }
+        }
+        frequentlyReadFiles = keptFiles;
+    }
+
+    /**
+     * Can the file be removed by the current pass of an aggressive clean? Without an access tracker
+     * all files can be removed.
+     */
+    private boolean rarelyRead(File file)
+    {
+        if (maxEvictionFrequency >= FrequencySketch.MAX_FREQUENCY)
+        {
+            return true;
+        }
+        // Files no longer in the in-memory cache have no URL and are removed first.
+        String url = cache.getContentUrl(file);
+        return accessTracker.getFrequency(url) <= maxEvictionFrequency;
+    }
+
     /**
      * Is the file old enough to be considered for cleanup/deletion? The file must be older than minFileAgeMillis
      * to be considered for deletion - the state of the cache and the file's associated properties file will not
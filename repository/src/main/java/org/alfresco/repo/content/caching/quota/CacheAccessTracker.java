@@ -0,0 +1,61 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2020 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.content.caching.quota;
+
+/**
+ * Implemented by quota strategies that take into account how often cached content is read.  The
+ * CachingContentStore reports every read of a content URL and asks for the strategy's agreement before caching
+ * content that is read from the backing store, and the CachedContentCleaner prefers to remove rarely read content
+ * when it has to free space aggressively.
+ * 
+ * @since 7.1
+ */
+public interface CacheAccessTracker
+{
+    /**
+     * Called each time content is read, whether or not it is cached.
+     * 
+     * @param contentUrl The URL of the content read.
+     */
+    void recordAccess(String contentUrl);
+    
+    /**
+     * Called before {@link QuotaManagerStrategy#beforeWritingCacheFile(long)} when content read from the backing
+     * store is about to be cached, so that the strategy may make room for content that it wants cached.  The
+     * cache file is only written if both agree.
+     * 
+     * @param contentUrl The URL of the content about to be cached.
+     * @param contentSize The size of the content.
+     * @return true to allow the cache file to be written, false to veto.
+     */
+    boolean admit(String contentUrl, long contentSize);
+    
+    /**
+     * @param contentUrl The URL of cached content, or null if it is not known.
+     * @return The approximate number of recent reads of the content, from 0 to {@link FrequencySketch#MAX_FREQUENCY}.
+     */
+    int getFrequency(String contentUrl);
+}
@@ -0,0 +1,161 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2020 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.content.caching.quota;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Scan resistant quota manager for the CachingContentStore.  In addition to the disk usage limits of the
+ * {@link StandardQuotaStrategy}, reads of content are counted in a {@link FrequencySketch} so that:
+ * <ul>
+ *   <li>once usage has reached admissionThresholdPct (default 80%), content is only cached if it has been read
+ *       at least admissionFrequency times recently.  Content read once by a bulk export or a crawler is served
+ *       from the backing store instead of replacing content that is read repeatedly.</li>
+ *   <li>when the cleaner has to free space aggressively, it removes rarely read files before frequently
+ *       read ones, rather than simply the oldest first.</li>
+ *   <li>when frequently read content cannot be cached because usage has reached panicThresholdPct, the cleaner
+ *       is asked to bring usage down to targetUsagePct by removing rarely read files.  The StandardQuotaStrategy
+ *       only starts a normal clean at that point, which removes nothing while the in-memory lookup table holds
+ *       more entries than fit on disk, so the cached content stays the same however the reads change.</li>
+ * </ul>
+ * The sketch is held in memory only and starts empty, so after a restart content is admitted and evicted by age
+ * until enough reads have been seen.
+ * <p>
+ * Cached files are also removed once their entries are evicted from the ContentCacheImpl's in-memory lookup
+ * table, which is usually full long before the disk is.  In that case set admissionThresholdPct to 0, so that
+ * content is only ever cached once it has been read more than once and scans cannot push frequently read
+ * entries out of the lookup table.
+ * 
+ * @since 7.1
+ */
+public class FrequencyAwareQuotaStrategy extends StandardQuotaStrategy implements CacheAccessTracker
+{
+    private final static Log log = LogFactory.getLog(FrequencyAwareQuotaStrategy.class);
+    private int expectedEntries = 100000;
+    private int admissionFrequency = 2;
+    private int admissionThresholdPct = 80;
+    private FrequencySketch sketch = new FrequencySketch(expectedEntries);
+    
+    @Override
+    public void recordAccess(String contentUrl)
+    {
+        sketch.increment(contentUrl);
+    }
+    
+    @Override
+    public boolean admit(String contentUrl, long contentSize)
+    {
+        int frequency = sketch.frequency(contentUrl);
+        if (frequency >= admissionFrequency && usageWillReach(getPanicThresholdPct(), contentSize))
+        {
+            // beforeWritingCacheFile will veto this write, and a normal clean only removes files that have left the
+            // lookup table.  Make room for content read this often by removing rarely read files instead.
+            if (log.isDebugEnabled())
+            {
+                log.debug("Panic threshold reached for content read " + frequency +
+                            " times recently - removing rarely read files: " + contentUrl);
+            }
+            signalCleanerToTargetUsage("quota (panic threshold, frequently read content)");
+            return true;
+        }
+        if (admissionThresholdPct > 0 && !usageHasReached(admissionThresholdPct))
+        {
+            // Still plenty of space, cache everything
+            return true;
+        }
+        if (frequency < admissionFrequency)
+        {
+            if (log.isDebugEnabled())
+            {
+                log.debug("Content read " + frequency + " times recently, not caching while usage is above " +
+                            admissionThresholdPct + "%: " + contentUrl);
+            }
+            return false;
+        }
+        return true;
+    }
+    
+    @Override
+    public int getFrequency(String contentUrl)
+    {
+        return contentUrl == null ? 0 : sketch.frequency(contentUrl);
+    }
+    
+    /**
+     * Sets the number of distinct content URLs whose reads are tracked, which should be about the number of
+     * files that fit in the cache.  Larger values make the counts more accurate and use 8 bytes of memory for
+     * every 16 entries.
+     * 
+     * @param expectedEntries int
+     */
+    public void setExpectedEntries(int expectedEntries)
+    {
+        this.expectedEntries = expectedEntries;
+        this.sketch = new FrequencySketch(expectedEntries);
+    }
+    
+    public int getExpectedEntries()
+    {
+        return this.expectedEntries;
+    }
+    
+    /**
+     * Sets the disk usage, as a percentage of maxUsageBytes, from which content is only cached if it is read
+     * frequently.  0 applies the admissionFrequency to all content.
+     * 
+     * @param admissionThresholdPct int
+     */
+    public void setAdmissionThresholdPct(int admissionThresholdPct)
+    {
+        this.admissionThresholdPct = admissionThresholdPct;
+    }
+    
+    public int getAdmissionThresholdPct()
+    {
+        return this.admissionThresholdPct;
+    }
+    
+    /**
+     * Sets the number of recent reads needed before content is cached once usage has reached admissionThresholdPct.
+     * 
+     * @param admissionFrequency int
+     */
+    public void setAdmissionFrequency(int admissionFrequency)
+    {
+        if (admissionFrequency < 0 || admissionFrequency > FrequencySketch.MAX_FREQUENCY)
+        {
+            throw new IllegalArgumentException("admissionFrequency must be between 0 and " +
+                        FrequencySketch.MAX_FREQUENCY + " [value=" + admissionFrequency + "]");
+        }
+        this.admissionFrequency = admissionFrequency;
+    }
+    
+    public int getAdmissionFrequency()
+    {
+        return this.admissionFrequency;
+    }
+}
@@ -0,0 +1,202 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2020 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.content.caching.quota;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Compact, approximate count of how often keys have been seen recently: a count-min sketch of 4-bit counters
+ * packed sixteen to a <tt>long</tt>.  Each key is counted in four counters and its frequency is the smallest of
+ * them, so collisions can only make a key look more popular, never less.
+ * <p>
+ * Counts saturate at {@link #MAX_FREQUENCY}.  Once ten times as many increments as the table has slots have been
+ * counted, every counter is halved, so frequencies describe recent popularity rather than all-time totals.  This
+ * is the frequency estimate used by TinyLFU cache admission policies.
+ * <p>
+ * The sketch is thread safe without locking: counters are updated with compare-and-set, so it can be counted on
+ * every read of the cache.  Concurrent updates may make the ageing slightly early or late, which only affects the
+ * estimate.
+ * 
+ * @since 7.1
+ */
+public class FrequencySketch
+{
+    /** The largest frequency that can be reported */
+    public static final int MAX_FREQUENCY = 15;
+    
+    private static final long[] SEEDS = new long[] {
+        0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L };
+    private static final long RESET_MASK = 0x7777777777777777L;
+    private static final long ONE_MASK = 0x1111111111111111L;
+    
+    private final AtomicLongArray table;
+    private final int tableMask;
+    private final int sampleSize;
+    private final AtomicInteger size = new AtomicInteger();
+    private final AtomicBoolean resetting = new AtomicBoolean();
+    
+    /**
+     * @param expectedEntries       the number of distinct keys that are expected to be tracked, e.g. the number
+     *                              of files that fit in the cache
+     */
+    public FrequencySketch(int expectedEntries)
+    {
+        if (expectedEntries < 1)
+        {
+            throw new IllegalArgumentException("expectedEntries must be positive: " + expectedEntries);
+        }
+        int capacity = Integer.highestOneBit(Math.min(Math.max(expectedEntries, 16), 1 << 30) - 1) << 1;
+        table = new AtomicLongArray(capacity);
+        tableMask = capacity - 1;
+        sampleSize = (capacity > Integer.MAX_VALUE / 10) ? Integer.MAX_VALUE : capacity * 10;
+    }
+    
+    /**
+     * @return          the estimated number of recent occurrences of the key, from 0 to {@link #MAX_FREQUENCY}
+     */
+    public int frequency(Object key)
+    {
+        int hash = spread(key.hashCode());
+        int start = (hash & 3) << 2;
+        int frequency = MAX_FREQUENCY;
+        for (int i = 0; i < 4; i++)
+        {
+            int index = indexOf(hash, i);
+            int count = (int) ((table.get(index) >>> ((start + i) << 2)) & 0xfL);
+            frequency = Math.min(frequency, count);
+        }
+        return frequency;
+    }
+    
+    /**
+     * Count an occurrence of the key, ageing all counts if the sample period has been reached.
+     */
+    public void increment(Object key)
+    {
+        int hash = spread(key.hashCode());
+        int start = (hash & 3) << 2;
+        boolean added = false;
+        for (int i = 0; i < 4; i++)
+        {
+            added |= incrementAt(indexOf(hash, i), start + i);
+        }
+        if (added && size.incrementAndGet() >= sampleSize)
+        {
+            // Only one thread ages the counts, the others carry on counting
+            if (resetting.compareAndSet(false, true))
+            {
+                try
+                {
+                    reset();
+                }
+                finally
+                {
+                    resetting.set(false);
+                }
+            }
+        }
+    }
+    
+    /**
+     * Forget all counts
+     */
+    public void clear()
+    {
+        for (int i = 0; i < table.length(); i++)
+        {
+            table.set(i, 0L);
+        }
+        size.set(0);
+    }
+    
+    /**
+     * Increment the j-th counter of the i-th word, unless it is saturated
+     */
+    private boolean incrementAt(int i, int j)
+    {
+        int offset = j << 2;
+        long mask = 0xfL << offset;
+        while (true)
+        {
+            long current = table.get(i);
+            if ((current & mask) == mask)
+            {
+                return false;
+            }
+            if (table.compareAndSet(i, current, current + (1L << offset)))
+            {
+                return true;
+            }
+        }
+    }
+    
+    /**
+     * Halve every counter
+     */
+    private void reset()
+    {
+        int odd = 0;
+        for (int i = 0; i < table.length(); i++)
+        {
+            while (true)
+            {
+                long current = table.get(i);
+                if (table.compareAndSet(i, current, (current >>> 1) & RESET_MASK))
+                {
+                    odd += Long.bitCount(current & ONE_MASK);
+                    break;
+                }
+            }
+        }
+        while (true)
+        {
+            int current = size.get();
+            if (size.compareAndSet(current, Math.max(0, (current >>> 1) - (odd >>> 2))))
+            {
+                break;
+            }
+        }
+    }
+    
+    private int indexOf(int hash, int i)
+    {
+        long h = (hash + SEEDS[i]) * SEEDS[i];
+        h += (h >>> 32);
+        return ((int) h) & tableMask;
+    }
+    
+    /**
+     * Improve the distribution of weak hash codes, e.g. of similar strings
+     */
+    private static int spread(int x)
+    {
+        x = ((x >>> 16) ^ x) * 0x45d9f3b;
+        x = ((x >>> 16) ^ x) * 0x45d9f3b;
+        return (x >>> 16) ^ x;
+    }
+}
@@ -273,6 +273,23 @@ public class StandardQuotaStrategy implements QuotaManagerStrategy, UsageTracker
     {
        signalCleanerStart(reason, true); 
     }
+    
+    /**
+     * Run an aggressive clean up job in a new thread that removes enough content to bring usage down to
+     * targetUsagePct of maxUsageBytes.
+     * 
+     * @param reason String
+     * @since 7.1
+     */
+    protected void signalCleanerToTargetUsage(final String reason)
+    {
+        long targetUsageBytes = (long) (((double) targetUsagePct / 100) * maxUsageBytes);
+        long targetReductionBytes = getCurrentUsageBytes() - targetUsageBytes;
+        if (targetReductionBytes > 0)
+        {
+            cleaner.executeAggressive(reason, targetReductionBytes);
+        }
+    }
 
     
     /**
@@ -283,14 +300,14 @@ public class StandardQuotaStrategy implements QuotaManagerStrategy, UsageTracker
      * @param contentSize long
      * @return true if additional content will reach <code>threshold</code>.
      */
-    private boolean usageWillReach(int threshold, long contentSize)
+    protected boolean usageWillReach(int threshold, long contentSize)
     {
         long potentialUsage = getCurrentUsageBytes() + contentSize;
         double pctOfMaxAllowed = ((double) potentialUsage / maxUsageBytes) * 100;        
         return pctOfMaxAllowed >= threshold;
     }
     
-    private boolean usageHasReached(int threshold)
+    protected boolean usageHasReached(int threshold)
     {
         return usageWillReach(threshold, 0);
     }
@@ -311,6 +328,11 @@ public class StandardQuotaStrategy implements QuotaManagerStrategy, UsageTracker
     {
         this.panicThresholdPct = panicThresholdPct;
     }
+    
+    public int getPanicThresholdPct()
+    {
+        return this.panicThresholdPct;
+    }
 
 
     public void setCleanThresholdPct(int cleanThresholdPct)
@@ -318,6 +340,11 @@ public class StandardQuotaStrategy implements QuotaManagerStrategy, UsageTracker
         this.cleanThresholdPct = cleanThresholdPct;
     }
 
+    public int getCleanThresholdPct()
+    {
+        return this.cleanThresholdPct;
+    }
+
     public void setTargetUsagePct(int targetUsagePct)
     {
         this.targetUsagePct = targetUsagePct;
@@ -29,7 +29,16 @@ import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
 
 import org.alfresco.error.AlfrescoRuntimeException;
 import org.alfresco.repo.domain.contentdata.ContentDataDAO;
@@ -37,13 +46,16 @@ import org.alfresco.repo.domain.contentdata.ContentDataDAO.ContentUrlHandler;
 import org.alfresco.repo.lock.JobLockService;
 import org.alfresco.repo.lock.JobLockService.JobLockRefreshCallback;
 import org.alfresco.repo.lock.LockAcquisitionException;
+import org.alfresco.repo.management.DynamicMBeanExportOperations;
 import org.alfresco.repo.transaction.RetryingTransactionHelper.RetryingTransactionCallback;
+import org.alfresco.service.cmr.attributes.AttributeService;
 import org.alfresco.service.cmr.dictionary.DictionaryService;
 import org.alfresco.service.cmr.repository.ContentService;
 import org.alfresco.service.namespace.NamespaceService;
 import org.alfresco.service.namespace.QName;
 import org.alfresco.service.transaction.TransactionService;
 import org.alfresco.util.PropertyCheck;
+import org.alfresco.util.TraceableThreadFactory;
 import org.alfresco.util.VmShutdownListener;
 import org.alfresco.util.VmShutdownListener.VmShutdownException;
 import org.apache.commons.logging.Log;
@@ -77,10 +89,18 @@ import org.apache.commons.logging.LogFactory;
  * Lazy cleanup protects the content for a given period (e.g. 7 days) giving plenty of
  * time for a backup to be taken; this allows hot backup without needing metadata-content
  * consistency to be enforced.
+ * <p/>
+ * <u><b>Parallel and resumable cleanup:</b></u> (since 7.1)<p/>
+ * Orphaned URLs are paged in ascending ID order.  Each of the <i>workerThreads</i> claims the
+ * next range of IDs and cleans it in its own transaction, so that the database work for one
+ * batch overlaps with the binary deletion of the others.  If an {@link AttributeService} is
+ * provided, the ID up to which every range has been committed is recorded after each batch and
+ * a run that is interrupted, for example by a restart, resumes from there.  Progress is exposed
+ * through the {@link ContentStoreCleanerMBean} interface.
  * 
  * @author Derek Hulley
  */
-public class ContentStoreCleaner
+public class ContentStoreCleaner implements ContentStoreCleanerMBean
 {
     /*
      * TODO: Use the ScheduledJobLockExecuter, which borrows (and fixes) some of the code use here
@@ -113,6 +133,10 @@ public class ContentStoreCleaner
     private static final QName LOCK_QNAME = QName.createQName(NamespaceService.SYSTEM_MODEL_1_0_URI, "ContentStoreCleaner"); 
     private static final long LOCK_TTL = 30000L;
     
+    private static final String ATTR_KEY_CHECKPOINT = ".ContentStoreCleaner";
+    private static final String ATTR_KEY_LAST_ID = "lastId";
+    private static final String ATTR_KEY_MAX_ORPHAN_TIME = "maxOrphanTime";
+    
     private static Log logger = LogFactory.getLog(ContentStoreCleaner.class);
     
     /** kept to notify the thread that it should quit */
@@ -127,12 +151,19 @@ public class ContentStoreCleaner
     private int protectDays;
     private int batchSize;
     private DeleteFailureAction deletionFailureAction;
+    private int workerThreads;
+    private AttributeService attributeService;
+    private DynamicMBeanExportOperations mbeanExporter;
+    
+    /** the current or last run, for monitoring */
+    private volatile CleanRun lastRun;
     
     public ContentStoreCleaner()
     {
         this.batchSize = 1000;
         this.protectDays = 7;
         this.deletionFailureAction = DeleteFailureAction.IGNORE;
+        this.workerThreads = 1;
     }
 
     /**
@@ -215,12 +246,51 @@ public class ContentStoreCleaner
         this.deletionFailureAction = deletionFailureAction;
     }
 
+    /**
+     * Set the number of threads that clean batches of orphaned content in parallel.  The default is 1,
+     * which cleans the batches one after the other in the thread that runs the job.
+     * 
+     * @param workerThreads     the number of batches to clean at once
+     */
+    public void setWorkerThreads(int workerThreads)
+    {
+        this.workerThreads = workerThreads;
+    }
+
+    /**
+     * @param attributeService  used to record progress so that an interrupted run can resume (optional)
+     */
+    public void setAttributeService(AttributeService attributeService)
+    {
+        this.attributeService = attributeService;
+    }
+
+    /**
+     * @param mbeanExporter     the exporter used to register the cleaner for monitoring over JMX (optional)
+     */
+    public void setMbeanExporter(DynamicMBeanExportOperations mbeanExporter)
+    {
+        this.mbeanExporter = mbeanExporter;
+    }
+
     /**
      * Initializes the cleaner.
      */
     public void init()
     {
         checkProperties();
+        if (mbeanExporter != null)
+        {
+            try
+            {
+                mbeanExporter.registerMBean(this, new ObjectName("Alfresco:Name=ContentStoreCleaner"));
+            }
+            catch (MalformedObjectNameException | RuntimeException e)
+            {
+                // Monitoring is optional
+                logger.warn("Unable to register the content store cleaner for JMX monitoring", e);
+            }
+        }
     }
     
     /**
@@ -240,6 +310,10 @@ public class ContentStoreCleaner
         {
             throw new AlfrescoRuntimeException("Property 'protectDays' must be 0 or greater (0 is not recommended)");
         }
+        if (workerThreads < 1)
+        {
+            throw new AlfrescoRuntimeException("Property 'workerThreads' must be 1 or greater");
+        }
         else if (protectDays == 0)
         {
             logger.warn(
@@ -335,18 +409,140 @@ public class ContentStoreCleaner
     
     private void executeInternal()
     {
-        final long maxOrphanTime = System.currentTimeMillis() - (protectDays * 24 * 3600 * 1000L);
-        // execute in READ-WRITE txn
-        RetryingTransactionCallback<Long> getAndDeleteWork = new RetryingTransactionCallback<Long>()
+        CleanRun run = startRun();
+        lastRun = run;
+        try
+        {
+            if (workerThreads == 1)
+            {
+                cleanBatches(run);
+            }
+            else
+            {
+                cleanBatchesInParallel(run);
+            }
+            // Every range has been committed, so the next run starts from the beginning
+            clearCheckpoint();
+            run.checkpointId = null;
+        }
+        finally
+        {
+            run.endTime = System.currentTimeMillis();
+        }
+    }
+    
+    /**
+     * Start a new run or resume the one recorded by the last checkpoint.  A resumed run keeps its
+     * original orphan time so that no URL below the checkpoint is left for longer than one run.
+     */
+    private CleanRun startRun()
+    {
+        final long now = System.currentTimeMillis();
+        long maxOrphanTime = now - (protectDays * 24 * 3600 * 1000L);
+        long lastId = 0L;
+        if (attributeService != null)
+        {
+            final long newMaxOrphanTime = maxOrphanTime;
+            Long[] checkpoint = transactionService.getRetryingTransactionHelper().doInTransaction(new RetryingTransactionCallback<Long[]>()
+            {
+                public Long[] execute() throws Exception
+                {
+                    Long savedMaxOrphanTime = (Long) attributeService.getAttribute(ATTR_KEY_CHECKPOINT, ATTR_KEY_MAX_ORPHAN_TIME);
+                    Long savedLastId = (Long) attributeService.getAttribute(ATTR_KEY_CHECKPOINT, ATTR_KEY_LAST_ID);
+                    if (savedMaxOrphanTime != null && savedLastId != null)
+                    {
+                        return new Long[] {savedMaxOrphanTime, savedLastId};
+                    }
+                    attributeService.setAttribute(Long.valueOf(newMaxOrphanTime), ATTR_KEY_CHECKPOINT, ATTR_KEY_MAX_ORPHAN_TIME);
+                    attributeService.setAttribute(Long.valueOf(0L), ATTR_KEY_CHECKPOINT, ATTR_KEY_LAST_ID);
+                    return null;
+                }
+            }, false, true);
+            if (checkpoint != null)
+            {
+                maxOrphanTime = checkpoint[0];
+                lastId = checkpoint[1];
+                if (logger.isInfoEnabled())
+                {
+                    logger.info(
+                            "Resuming content store cleanup after content URL ID " + lastId +
+                            " for content orphaned before " + new Date(maxOrphanTime));
+                }
+            }
+        }
+        final CleanRun run = new CleanRun(maxOrphanTime, lastId);
+        run.backlog = transactionService.getRetryingTransactionHelper().doInTransaction(new RetryingTransactionCallback<Long>()
         {
             public Long execute() throws Exception
             {
-                return cleanBatch(maxOrphanTime, batchSize);
-            };
-        };
-        while (true)
+                return contentDataDAO.countContentUrlsOrphaned(run.maxOrphanTime);
+            }
+        }, true, true);
+        if (logger.isDebugEnabled())
+        {
+            logger.debug("   Found " + run.backlog + " orphaned content URLs to clean up.");
+        }
+        return run;
+    }
+    
+    /**
+     * Record the ID up to which all ranges have been committed
+     */
+    private void saveCheckpoint(CleanRun run)
+    {
+        if (attributeService == null)
+        {
+            return;
+        }
+        synchronized (run.checkpointLock)
+        {
+            // Read under the lock so that a later checkpoint is never overwritten by an earlier one
+            final Long checkpointId = run.checkpointId;
+            transactionService.getRetryingTransactionHelper().doInTransaction(new RetryingTransactionCallback<Void>()
+            {
+                public Void execute() throws Exception
+                {
+                    attributeService.setAttribute(checkpointId, ATTR_KEY_CHECKPOINT, ATTR_KEY_LAST_ID);
+                    return null;
+                }
+            }, false, true);
+        }
+    }
+    
+    private void clearCheckpoint()
+    {
+        if (attributeService == null)
+        {
+            return;
+        }
+        transactionService.getRetryingTransactionHelper().doInTransaction(new RetryingTransactionCallback<Void>()
         {
+            public Void execute() throws Exception
+            {
+                attributeService.removeAttribute(ATTR_KEY_CHECKPOINT, ATTR_KEY_MAX_ORPHAN_TIME);
+                attributeService.removeAttribute(ATTR_KEY_CHECKPOINT, ATTR_KEY_LAST_ID);
+                return null;
+            }
+        }, false, true);
+    }
+    
+    /**
+     * Clean batches, each in its own transaction, until there are no more orphans to claim
+     */
+    private void cleanBatches(CleanRun run)
+    {
+        while (!run.aborted)
+        {
+            CleanBatchCallback getAndDeleteWork = new CleanBatchCallback(run);
+            // execute in READ-WRITE txn
             Long lastProcessedOrphanId = transactionService.getRetryingTransactionHelper().doInTransaction(getAndDeleteWork);
+            if (lastProcessedOrphanId != null)
+            {
+                run.deleted.addAndGet(getAndDeleteWork.deletedCount);
+                run.failed.addAndGet(getAndDeleteWork.failedCount);
+                run.completeRange(getAndDeleteWork.fromId);
+                saveCheckpoint(run);
+            }
             if (vmShutdownListener.isVmShuttingDown())
             {
                 throw new VmShutdownException();
@@ -359,10 +555,77 @@ public class ContentStoreCleaner
             // There is still more to delete, so continue
             if (logger.isDebugEnabled())
             {
-                logger.debug("   Removed orphaned content URLs up orphan time " + new Date(lastProcessedOrphanId));
+                logger.debug("   Removed orphaned content URLs up to ID " + lastProcessedOrphanId);
+            }
+        }
+    }
+    
+    /**
+     * Clean batches in the worker threads, rethrowing the first failure once they have all stopped
+     */
+    private void cleanBatchesInParallel(final CleanRun run)
+    {
+        TraceableThreadFactory threadFactory = new TraceableThreadFactory();
+        threadFactory.setNamePrefix("ContentStoreCleaner");
+        threadFactory.setThreadDaemon(true);
+        ExecutorService executor = Executors.newFixedThreadPool(workerThreads, threadFactory);
+        try
+        {
+            List<Future<?>> workers = new ArrayList<Future<?>>(workerThreads);
+            for (int i = 0; i < workerThreads; i++)
+            {
+                workers.add(executor.submit(new Runnable()
+                {
+                    @Override
+                    public void run()
+                    {
+                        try
+                        {
+                            cleanBatches(run);
+                        }
+                        catch (RuntimeException | Error e)
+                        {
+                            // Stop the other workers claiming further ranges
+                            run.aborted = true;
+                            throw e;
+                        }
+                    }
+                }));
+            }
+            Throwable failure = null;
+            for (Future<?> worker : workers)
+            {
+                try
+                {
+                    worker.get();
+                }
+                catch (ExecutionException e)
+                {
+                    if (failure == null)
+                    {
+                        failure = e.getCause();
+                    }
+                }
+                catch (InterruptedException e)
+                {
+                    run.aborted = true;
+                    Thread.currentThread().interrupt();
+                    throw new AlfrescoRuntimeException("Interrupted while cleaning up orphaned content", e);
+                }
+            }
+            if (failure instanceof RuntimeException)
+            {
+                throw (RuntimeException) failure;
+            }
+            else if (failure instanceof Error)
+            {
+                throw (Error) failure;
             }
         }
-        // Done
+        finally
+        {
+            executor.shutdown();
+        }
     }
     
     private class LockCallback implements JobLockRefreshCallback
@@ -387,14 +650,145 @@ public class ContentStoreCleaner
     }
     
     /**
-     * 
+     * The state of a cleanup run, shared by the worker threads.  Each batch claims the next range of
+     * orphan IDs, so that no two batches process the same URLs, and the checkpoint only moves past a
+     * range once it has been committed.
+     */
+    private static class CleanRun
+    {
+        private final long maxOrphanTime;
+        private final long startTime = System.currentTimeMillis();
+        private final AtomicLong deleted = new AtomicLong();
+        private final AtomicLong failed = new AtomicLong();
+        private final Object checkpointLock = new Object();
+        /** the (exclusive) start IDs of the ranges that are claimed but not yet committed */
+        private final TreeSet<Long> activeRanges = new TreeSet<Long>();
+        /** the highest ID claimed so far */
+        private long lastClaimedId;
+        private boolean exhausted;
+        private volatile boolean aborted;
+        private volatile long backlog = -1L;
+        private volatile long endTime;
+        private volatile Long checkpointId;
+        
+        private CleanRun(long maxOrphanTime, long lastId)
+        {
+            this.maxOrphanTime = maxOrphanTime;
+            this.lastClaimedId = lastId;
+            this.checkpointId = lastId;
+        }
+        
+        private synchronized void completeRange(Long fromId)
+        {
+            activeRanges.remove(fromId);
+            checkpointId = activeRanges.isEmpty() ? lastClaimedId : activeRanges.first();
+        }
+    }
+    
+    /**
+     * Cleans one range of orphans.  The first attempt claims the next range; a retry cleans whatever
+     * remains of the range it claimed.
+     */
+    private class CleanBatchCallback implements RetryingTransactionCallback<Long>
+    {
+        private final CleanRun run;
+        private Long fromId;
+        private Long toId;
+        private int deletedCount;
+        private int failedCount;
+        
+        private CleanBatchCallback(CleanRun run)
+        {
+            this.run = run;
+        }
+        
+        @Override
+        public Long execute() throws Throwable
+        {
+            deletedCount = 0;
+            failedCount = 0;
+            TreeMap<Long, String> urlsById;
+            if (toId == null)
+            {
+                // Claim the next range.  Only the query is serialized between the workers.
+                synchronized (run)
+                {
+                    if (run.exhausted || run.aborted)
+                    {
+                        return null;
+                    }
+                    urlsById = getOrphans(run.maxOrphanTime, run.lastClaimedId, null);
+                    if (urlsById.size() == 0)
+                    {
+                        run.exhausted = true;
+                        return null;
+                    }
+                    fromId = run.lastClaimedId;
+                    toId = urlsById.lastKey();
+                    run.lastClaimedId = toId;
+                    run.activeRanges.add(fromId);
+                }
+            }
+            else
+            {
+                urlsById = getOrphans(run.maxOrphanTime, fromId, toId);
+            }
+            cleanBatch(urlsById);
+            return toId;
+        }
+        
+        /**
+         * Delete the content URL entities and then the binaries of a batch of orphans
+         */
+        private void cleanBatch(TreeMap<Long, String> urlsById)
+        {
+            // Shortcut, if necessary
+            if (urlsById.size() == 0)
+            {
+                return;
+            }
+            
+            // Compile list of IDs and do a mass delete
+            List<Long> ids = new ArrayList<Long>(urlsById.keySet());
+            contentDataDAO.deleteContentUrls(ids);
+            // No problems, so far (ALF-1998: contentStoreCleanerJob leads to foreign key exception)
+
+            // Now attempt to physically delete the URLs
+            for (Long id : ids)
+            {
+                String contentUrl = urlsById.get(id);
+                // Handle failures
+                boolean deleted = eagerContentStoreCleaner.deleteFromStores(contentUrl);
+                if (deleted)
+                {
+                    deletedCount++;
+                }
+                else
+                {
+                    failedCount++;
+                    switch (deletionFailureAction)
+                    {
+                        case KEEP_URL:
+                            // Keep the URL, but with an orphan time of 0 so that it is recorded
+                            contentDataDAO.createContentUrlOrphaned(contentUrl, new Date(0L));
+                        case IGNORE:
+                            break;
+                        default:
+                            throw new IllegalStateException("Unknown deletion failure action: " + deletionFailureAction);
+                    }
+                }
+            }
+        }
+    }
+    
+    /**
      * @param maxTimeExclusive      the max orphan time (exclusive)
-     * @param batchSize             the maximum number of orphans to process
-     * @return                      Returns the last processed orphan ID or <tt>null</tt> if nothing was processed
+     * @param minIdExclusive        the ID after which to look for orphans
+     * @param maxIdInclusive        the last ID to consider or <tt>null</tt> to take the next full batch
+     * @return                      the orphaned URLs, by ID
      */
-    private Long cleanBatch(final long maxTimeExclusive, final int batchSize)
+    private TreeMap<Long, String> getOrphans(long maxTimeExclusive, Long minIdExclusive, Long maxIdInclusive)
     {
-        // Get a bunch of cleanable URLs
         final TreeMap<Long, String> urlsById = new TreeMap<Long, String>();
         ContentUrlHandler contentUrlHandler = new ContentUrlHandler()
         {
@@ -405,42 +799,65 @@ public class ContentStoreCleaner
             }
         };
         // Get a bunch of cleanable URLs
-        contentDataDAO.getContentUrlsOrphaned(contentUrlHandler, maxTimeExclusive, batchSize);
-        
-        // Shortcut, if necessary
-        if (urlsById.size() == 0)
+        contentDataDAO.getContentUrlsOrphaned(contentUrlHandler, maxTimeExclusive, minIdExclusive, maxIdInclusive, batchSize);
+        return urlsById;
+    }
+    
+    @Override
+    public boolean isRunning()
+    {
+        CleanRun run = lastRun;
+        return run != null && run.endTime == 0L;
+    }
+    
+    @Override
+    public int getWorkerThreads()
+    {
+        return workerThreads;
+    }
+    
+    @Override
+    public long getDeletedCount()
+    {
+        CleanRun run = lastRun;
+        return run == null ? 0L : run.deleted.get();
+    }
+    
+    @Override
+    public long getFailedCount()
+    {
+        CleanRun run = lastRun;
+        return run == null ? 0L : run.failed.get();
+    }
+    
+    @Override
+    public double getDeleteRatePerSecond()
+    {
+        CleanRun run = lastRun;
+        if (run == null)
         {
-            return null;
+            return 0.0;
         }
-        
-        // Compile list of IDs and do a mass delete, recording the IDs to find the largest
-        Long lastId = urlsById.lastKey();
-        List<Long> ids = new ArrayList<Long>(urlsById.keySet());
-        contentDataDAO.deleteContentUrls(ids);
-        // No problems, so far (ALF-1998: contentStoreCleanerJob leads to foreign key exception)
-
-        // Now attempt to physically delete the URLs
-        for (Long id : ids)
+        long endTime = run.endTime == 0L ? System.currentTimeMillis() : run.endTime;
+        long elapsedMs = Math.max(endTime - run.startTime, 1L);
+        return (run.deleted.get() + run.failed.get()) * 1000.0 / elapsedMs;
+    }
+    
+    @Override
+    public long getBacklog()
+    {
+        CleanRun run = lastRun;
+        if (run == null || run.backlog < 0L)
         {
-            String contentUrl = urlsById.get(id);
-            // Handle failures
-            boolean deleted = eagerContentStoreCleaner.deleteFromStores(contentUrl);
-            if (!deleted)
-            {
-                switch (deletionFailureAction)
-                {
-                    case KEEP_URL:
-                        // Keep the URL, but with an orphan time of 0 so that it is recorded
-                        contentDataDAO.createContentUrlOrphaned(contentUrl, new Date(0L));
-                    case IGNORE:
-                        break;
-                    default:
-                        throw new IllegalStateException("Unknown deletion failure action: " + deletionFailureAction);
-                }
-            }
+            return -1L;
         }
-        
-        // Done
-        return lastId;
+        return Math.max(run.backlog - run.deleted.get() - run.failed.get(), 0L);
+    }
+    
+    @Override
+    public Long getCheckpointId()
+    {
+        CleanRun run = lastRun;
+        return run == null ? null : run.checkpointId;
     }
 }
@@ -0,0 +1,73 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2020 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.content.cleanup;
+
+/**
+ * Management interface for the {@link ContentStoreCleaner}, allowing the progress of
+ * orphaned content cleanup to be monitored over JMX.  The counts are for the current
+ * run or, if the cleaner is idle, the last run since the server started.
+ * 
+ * @since 7.1
+ */
+public interface ContentStoreCleanerMBean
+{
+    /**
+     * @return <tt>true</tt> if a cleanup run is in progress on this server
+     */
+    boolean isRunning();
+    
+    /**
+     * @return the number of threads that delete orphaned content in parallel
+     */
+    int getWorkerThreads();
+    
+    /**
+     * @return the number of orphaned content URLs deleted
+     */
+    long getDeletedCount();
+    
+    /**
+     * @return the number of orphaned content URLs whose binaries could not be deleted
+     */
+    long getFailedCount();
+    
+    /**
+     * @return the number of content URLs processed per second
+     */
+    double getDeleteRatePerSecond();
+    
+    /**
+     * @return the estimated number of orphaned content URLs still to be processed,
+     *         or -1 if it is not known
+     */
+    long getBacklog();
+    
+    /**
+     * @return the content URL ID up to which all orphans have been processed, from which
+     *         an interrupted run will resume, or <tt>null</tt> if there is no checkpoint
+     */
+    Long getCheckpointId();
+}
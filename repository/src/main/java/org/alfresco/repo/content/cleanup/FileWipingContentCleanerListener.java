@@ -32,6 +32,7 @@ import java.io.IOException;
 import java.io.OutputStream;
 
 import org.alfresco.repo.content.ContentStore;
+import org.alfresco.repo.content.filestore.DeduplicatingFileContentStore;
 import org.alfresco.repo.content.filestore.FileContentReader;
 import org.alfresco.service.cmr.repository.ContentIOException;
 import org.alfresco.service.cmr.repository.ContentReader;
@@ -111,6 +112,15 @@ public class FileWipingContentCleanerListener implements ContentStoreCleanerList
         {
             FileContentReader fileReader = (FileContentReader) reader;
             File file = fileReader.getFile();
+            if (DeduplicatingFileContentStore.getReferenceCount(file) > 1)
+            {
+                // the content is shared with other content URLs and only this URL is being deleted
+                if (logger.isDebugEnabled())
+                {
+                    logger.debug("Not shredding content that is still used by other content URLs: " + reader);
+                }
+                return;
+            }
             shred(file);
         }
     }
@@ -0,0 +1,274 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2020 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.content.compression;
+
+import static org.alfresco.repo.content.compression.BlockCompressedOutputChannel.BLOCK_DEFLATED;
+import static org.alfresco.repo.content.compression.BlockCompressedOutputChannel.BLOCK_HEADER_SIZE;
+import static org.alfresco.repo.content.compression.BlockCompressedOutputChannel.BLOCK_STORED;
+import static org.alfresco.repo.content.compression.BlockCompressedOutputChannel.HEADER_SIZE;
+import static org.alfresco.repo.content.compression.BlockCompressedOutputChannel.MAGIC;
+import static org.alfresco.repo.content.compression.BlockCompressedOutputChannel.TRAILER_SIZE;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.NonWritableChannelException;
+import java.nio.channels.SeekableByteChannel;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Read-only, seekable channel onto content written by a {@link BlockCompressedOutputChannel}.
+ * <p>
+ * The channel presents the uncompressed content: {@link #size()} and {@link #position(long)} work with uncompressed
+ * offsets, and only the block holding the current position is read and inflated.
+ * 
+ * @since 7.1
+ */
+public class BlockCompressedInputChannel implements SeekableByteChannel
+{
+    private final SeekableByteChannel channel;
+    private final int blockSize;
+    private final long size;
+    private final long[] blockOffsets;
+    private final Inflater inflater = new Inflater(true);
+    private final byte[] blockData;
+    private byte[] storedData;
+    private int currentBlock = -1;
+    private int currentBlockLength;
+    private long position;
+    private boolean open = true;
+    
+    /**
+     * @param channel       the channel onto the compressed content
+     * @throws IOException  if the content is not in the block-compressed format
+     */
+    public BlockCompressedInputChannel(SeekableByteChannel channel) throws IOException
+    {
+        this.channel = channel;
+        
+        ByteBuffer header = readAt(0L, HEADER_SIZE);
+        checkMagic(header);
+        blockSize = header.getInt();
+        
+        long length = channel.size();
+        ByteBuffer trailer = readAt(length - TRAILER_SIZE, TRAILER_SIZE);
+        size = trailer.getLong();
+        int blockCount = trailer.getInt();
+        long indexOffset = trailer.getLong();
+        checkMagic(trailer);
+        if (blockSize <= 0 || blockCount < 0 || size < 0L ||
+                indexOffset + (long) blockCount * 8L + TRAILER_SIZE != length ||
+                (size + blockSize - 1) / blockSize != blockCount)
+        {
+            throw new IOException("Corrupt block-compressed content index");
+        }
+        
+        ByteBuffer index = readAt(indexOffset, blockCount * 8);
+        blockOffsets = new long[blockCount];
+        for (int i = 0; i < blockCount; i++)
+        {
+            blockOffsets[i] = index.getLong();
+        }
+        blockData = new byte[blockSize];
+    }
+    
+    private static void checkMagic(ByteBuffer buffer) throws IOException
+    {
+        byte[] magic = new byte[MAGIC.length];
+        buffer.get(magic);
+        if (!Arrays.equals(MAGIC, magic))
+        {
+            throw new IOException("Content is not block-compressed");
+        }
+    }
+    
+    private ByteBuffer readAt(long offset, int length) throws IOException
+    {
+        if (offset < 0L)
+        {
+            throw new IOException("Content is not block-compressed");
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        channel.position(offset);
+        while (buffer.hasRemaining())
+        {
+            if (channel.read(buffer) < 0)
+            {
+                throw new EOFException("Unexpected end of block-compressed content");
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+    
+    private void loadBlock(int index) throws IOException
+    {
+        if (index == currentBlock)
+        {
+            return;
+        }
+        currentBlock = -1;
+        ByteBuffer blockHeader = readAt(blockOffsets[index], BLOCK_HEADER_SIZE);
+        byte type = blockHeader.get();
+        int storedLength = blockHeader.getInt();
+        int length = blockHeader.getInt();
+        if (length <= 0 || length > blockSize || storedLength <= 0 || storedLength > blockSize)
+        {
+            throw new IOException("Corrupt block " + index + " in block-compressed content");
+        }
+        if (type == BLOCK_STORED)
+        {
+            ByteBuffer.wrap(blockData, 0, length).put(readAt(blockOffsets[index] + BLOCK_HEADER_SIZE, length));
+        }
+        else if (type == BLOCK_DEFLATED)
+        {
+            if (storedData == null)
+            {
+                storedData = new byte[blockSize];
+            }
+            readAt(blockOffsets[index] + BLOCK_HEADER_SIZE, storedLength).get(storedData, 0, storedLength);
+            inflater.reset();
+            inflater.setInput(storedData, 0, storedLength);
+            try
+            {
+                if (inflater.inflate(blockData, 0, length) != length)
+                {
+                    throw new IOException("Corrupt block " + index + " in block-compressed content");
+                }
+            }
+            catch (DataFormatException e)
+            {
+                throw new IOException("Corrupt block " + index + " in block-compressed content", e);
+            }
+        }
+        else
+        {
+            throw new IOException("Unknown type of block " + index + " in block-compressed content: " + type);
+        }
+        currentBlock = index;
+        currentBlockLength = length;
+    }
+    
+    @Override
+    public int read(ByteBuffer dst) throws IOException
+    {
+        if (!open)
+        {
+            throw new ClosedChannelException();
+        }
+        if (position >= size)
+        {
+            return -1;
+        }
+        int total = 0;
+        while (dst.hasRemaining() && position < size)
+        {
+            int index = (int) (position / blockSize);
+            loadBlock(index);
+            int offset = (int) (position - (long) index * blockSize);
+            int n = Math.min(dst.remaining(), currentBlockLength - offset);
+            if (n <= 0)
+            {
+                throw new IOException("Corrupt block " + index + " in block-compressed content");
+            }
+            dst.put(blockData, offset, n);
+            position += n;
+            total += n;
+        }
+        return total;
+    }
+    
+    @Override
+    public int write(ByteBuffer src)
+    {
+        throw new NonWritableChannelException();
+    }
+    
+    @Override
+    public long position() throws IOException
+    {
+        if (!open)
+        {
+            throw new ClosedChannelException();
+        }
+        return position;
+    }
+    
+    @Override
+    public SeekableByteChannel position(long newPosition) throws IOException
+    {
+        if (!open)
+        {
+            throw new ClosedChannelException();
+        }
+        if (newPosition < 0L)
+        {
+            throw new IllegalArgumentException("Negative position: " + newPosition);
+        }
+        this.position = newPosition;
+        return this;
+    }
+    
+    /**
+     * @return          the uncompressed size of the content
+     */
+    @Override
+    public long size() throws IOException
+    {
+        if (!open)
+        {
+            throw new ClosedChannelException();
+        }
+        return size;
+    }
+    
+    @Override
+    public SeekableByteChannel truncate(long size)
+    {
+        throw new NonWritableChannelException();
+    }
+    
+    @Override
+    public boolean isOpen()
+    {
+        return open;
+    }
+    
+    @Override
+    public void close() throws IOException
+    {
+        if (!open)
+        {
+            return;
+        }
+        open = false;
+        inflater.end();
+        channel.close();
+    }
+}
@@ -0,0 +1,207 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2020 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.content.compression;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.WritableByteChannel;
+import java.util.zip.Deflater;
+
+import org.alfresco.util.collections.LongArrayList;
+
+/**
+ * Channel that writes content in the seekable block-compressed format read by {@link BlockCompressedInputChannel}.
+ * <p>
+ * The content is split into blocks of a fixed (uncompressed) size and each block is deflated on its own, so that
+ * any byte can be read by decompressing a single block:
+ * <pre>
+ * header:  magic (8 bytes) | block size (int)
+ * blocks:  type (byte: stored or deflated) | stored length (int) | uncompressed length (int) | data
+ * index:   offset of each block (long)
+ * trailer: uncompressed size (long) | block count (int) | index offset (long) | magic (8 bytes)
+ * </pre>
+ * Blocks that do not get smaller when deflated are stored as they are.
+ * 
+ * @since 7.1
+ */
+public class BlockCompressedOutputChannel implements WritableByteChannel
+{
+    static final byte[] MAGIC = {(byte) 0x89, 'A', 'L', 'F', 'Z', '\r', '\n', 0x1A};
+    static final int HEADER_SIZE = MAGIC.length + 4;
+    static final int BLOCK_HEADER_SIZE = 1 + 4 + 4;
+    static final int TRAILER_SIZE = 8 + 4 + 8 + MAGIC.length;
+    static final byte BLOCK_STORED = 0;
+    static final byte BLOCK_DEFLATED = 1;
+    
+    private final WritableByteChannel channel;
+    private final Deflater deflater;
+    private final ByteBuffer block;
+    private final byte[] compressed;
+    private final LongArrayList blockOffsets = new LongArrayList();
+    private long position;
+    private long size;
+    private boolean open = true;
+    
+    /**
+     * @param channel           the channel to write the compressed content to
+     * @param blockSize         the uncompressed size of each block
+     * @param compressionLevel  the {@link Deflater} compression level, or {@link Deflater#NO_COMPRESSION} to store
+     *                          the blocks without trying to compress them
+     */
+    public BlockCompressedOutputChannel(WritableByteChannel channel, int blockSize, int compressionLevel) throws IOException
+    {
+        if (blockSize <= 0)
+        {
+            throw new IllegalArgumentException("Block size must be positive: " + blockSize);
+        }
+        this.channel = channel;
+        this.deflater = (compressionLevel == Deflater.NO_COMPRESSION) ? null : new Deflater(compressionLevel, true);
+        this.block = ByteBuffer.allocate(blockSize);
+        this.compressed = new byte[blockSize];
+        
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.put(MAGIC).putInt(blockSize).flip();
+        writeFully(header);
+    }
+    
+    /**
+     * @return          the number of uncompressed bytes written so far
+     */
+    public long getSize()
+    {
+        return size;
+    }
+    
+    /**
+     * @return          the number of compressed bytes written to the underlying channel so far
+     */
+    public long getCompressedSize()
+    {
+        return position;
+    }
+    
+    @Override
+    public int write(ByteBuffer src) throws IOException
+    {
+        if (!open)
+        {
+            throw new ClosedChannelException();
+        }
+        int count = src.remaining();
+        while (src.hasRemaining())
+        {
+            int n = Math.min(src.remaining(), block.remaining());
+            ByteBuffer slice = src.duplicate();
+            slice.limit(slice.position() + n);
+            block.put(slice);
+            src.position(src.position() + n);
+            if (!block.hasRemaining())
+            {
+                writeBlock();
+            }
+        }
+        size += count;
+        return count;
+    }
+    
+    private void writeBlock() throws IOException
+    {
+        block.flip();
+        int length = block.remaining();
+        byte type = BLOCK_STORED;
+        int storedLength = length;
+        if (deflater != null)
+        {
+            deflater.reset();
+            deflater.setInput(block.array(), 0, length);
+            deflater.finish();
+            int deflated = deflater.deflate(compressed, 0, compressed.length);
+            if (deflater.finished() && deflated < length)
+            {
+                type = BLOCK_DEFLATED;
+                storedLength = deflated;
+            }
+        }
+        
+        blockOffsets.add(position);
+        ByteBuffer blockHeader = ByteBuffer.allocate(BLOCK_HEADER_SIZE);
+        blockHeader.put(type).putInt(storedLength).putInt(length).flip();
+        writeFully(blockHeader);
+        writeFully(type == BLOCK_DEFLATED ? ByteBuffer.wrap(compressed, 0, storedLength) : block);
+        block.clear();
+    }
+    
+    private void writeFully(ByteBuffer buffer) throws IOException
+    {
+        while (buffer.hasRemaining())
+        {
+            position += channel.write(buffer);
+        }
+    }
+    
+    @Override
+    public boolean isOpen()
+    {
+        return open;
+    }
+    
+    /**
+     * Writes the last block, the block index and the trailer, then closes the underlying channel.
+     */
+    @Override
+    public void close() throws IOException
+    {
+        if (!open)
+        {
+            return;
+        }
+        open = false;
+        try
+        {
+            if (block.position() > 0)
+            {
+                writeBlock();
+            }
+            long indexOffset = position;
+            ByteBuffer index = ByteBuffer.allocate(blockOffsets.size() * 8 + TRAILER_SIZE);
+            for (int i = 0; i < blockOffsets.size(); i++)
+            {
+                index.putLong(blockOffsets.get(i));
+            }
+            index.putLong(size).putInt(blockOffsets.size()).putLong(indexOffset).put(MAGIC).flip();
+            writeFully(index);
+        }
+        finally
+        {
+            if (deflater != null)
+            {
+                deflater.end();
+            }
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2020 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.content.compression;
+
+import java.io.IOException;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SeekableByteChannel;
+
+import org.alfresco.repo.content.AbstractContentReader;
+import org.alfresco.service.cmr.repository.ContentIOException;
+import org.alfresco.service.cmr.repository.ContentReader;
+
+/**
+ * Reader of content stored by the {@link CompressingContentStore}.  The reader presents the uncompressed content
+ * and its channels support random access, so {@link ContentReader#getFileChannel()} and byte-range reads only
+ * inflate the blocks that are actually read.
+ * 
+ * @since 7.1
+ */
+public class CompressedContentReader extends AbstractContentReader
+{
+    private final ContentReader backingReader;
+    private long size = -1L;
+    
+    /**
+     * @param contentUrl        the URL of the content in the compressing store
+     * @param backingReader     reader onto the compressed content
+     */
+    public CompressedContentReader(String contentUrl, ContentReader backingReader)
+    {
+        super(contentUrl);
+        this.backingReader = backingReader;
+    }
+    
+    @Override
+    public String toString()
+    {
+        return "CompressedContentReader[" + backingReader + "]";
+    }
+    
+    @Override
+    public boolean exists()
+    {
+        return backingReader.exists();
+    }
+    
+    @Override
+    public long getLastModified()
+    {
+        return backingReader.getLastModified();
+    }
+    
+    /**
+     * @return          the uncompressed size of the content
+     */
+    @Override
+    public synchronized long getSize()
+    {
+        if (size < 0L)
+        {
+            if (!exists())
+            {
+                return 0L;
+            }
+            try (BlockCompressedInputChannel channel = openChannel(backingReader.getReader()))
+            {
+                size = channel.size();
+            }
+            catch (IOException e)
+            {
+                throw new ContentIOException("Failed to read the size of compressed content: " + this, e);
+            }
+        }
+        return size;
+    }
+    
+    @Override
+    protected ContentReader createReader() throws ContentIOException
+    {
+        return new CompressedContentReader(getContentUrl(), backingReader.getReader());
+    }
+    
+    @Override
+    protected ReadableByteChannel getDirectReadableChannel() throws ContentIOException
+    {
+        try
+        {
+            BlockCompressedInputChannel channel = openChannel(backingReader);
+            synchronized (this)
+            {
+                size = channel.size();
+            }
+            return channel;
+        }
+        catch (IOException e)
+        {
+            throw new ContentIOException("Failed to open channel onto compressed content: " + this, e);
+        }
+    }
+    
+    /**
+     * Open the compressed content for random access, spoofing it if the backing store cannot provide it.
+     */
+    private static BlockCompressedInputChannel openChannel(ContentReader reader) throws IOException
+    {
+        ReadableByteChannel channel = reader.getReadableChannel();
+        if (!(channel instanceof SeekableByteChannel))
+        {
+            channel.close();
+            channel = reader.getReader().getFileChannel();
+        }
+        try
+        {
+            return new BlockCompressedInputChannel((SeekableByteChannel) channel);
+        }
+        catch (IOException | RuntimeException e)
+        {
+            channel.close();
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2020 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.content.compression;
+
+import java.io.IOException;
+import java.nio.channels.WritableByteChannel;
+
+import org.alfresco.repo.content.AbstractContentWriter;
+import org.alfresco.service.cmr.repository.ContentIOException;
+import org.alfresco.service.cmr.repository.ContentReader;
+import org.alfresco.service.cmr.repository.ContentWriter;
+
+/**
+ * Writer for the {@link CompressingContentStore}.  Whether the content is compressed is decided from the mimetype
+ * when the channel is opened.  Compressed content is written to the backing store's writer in the block-compressed
+ * format and its URL is given the {@link CompressingContentStore#COMPRESSED_URL_SUFFIX suffix}; other content is
+ * written to the backing store's writer as it is.
+ * 
+ * @since 7.1
+ */
+public class CompressedContentWriter extends AbstractContentWriter
+{
+    private final ContentWriter backingWriter;
+    private final CompressingContentStore store;
+    private BlockCompressedOutputChannel channel;
+    private boolean compressed;
+    
+    /**
+     * @param backingWriter             writer onto the backing store
+     * @param existingContentReader     reader of a previous version of the content
+     * @param store                     the store providing the compression settings
+     */
+    public CompressedContentWriter(ContentWriter backingWriter, ContentReader existingContentReader, CompressingContentStore store)
+    {
+        super(backingWriter.getContentUrl(), existingContentReader);
+        this.backingWriter = backingWriter;
+        this.store = store;
+    }
+    
+    @Override
+    public String toString()
+    {
+        return "CompressedContentWriter[" + backingWriter + "]";
+    }
+    
+    /**
+     * @return          the number of uncompressed bytes written
+     */
+    @Override
+    public long getSize()
+    {
+        if (!compressed)
+        {
+            return backingWriter.getSize();
+        }
+        return (channel == null) ? 0L : channel.getSize();
+    }
+    
+    @Override
+    protected ContentReader createReader() throws ContentIOException
+    {
+        if (!compressed)
+        {
+            return backingWriter.getReader();
+        }
+        return new CompressedContentReader(getContentUrl(), backingWriter.getReader());
+    }
+    
+    @Override
+    protected WritableByteChannel getDirectWritableChannel() throws ContentIOException
+    {
+        if (!store.isCompressible(getMimetype()))
+        {
+            return backingWriter.getWritableChannel();
+        }
+        try
+        {
+            channel = new BlockCompressedOutputChannel(
+                    backingWriter.getWritableChannel(),
+                    store.getBlockSize(),
+                    store.getCompressionLevel());
+            compressed = true;
+            setContentUrl(backingWriter.getContentUrl() + CompressingContentStore.COMPRESSED_URL_SUFFIX);
+            return channel;
+        }
+        catch (IOException e)
+        {
+            throw new ContentIOException("Failed to open channel onto compressed content: " + this, e);
+        }
+    }
+}
@@ -0,0 +1,289 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2020 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.content.compression;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.Deflater;
+
+import org.alfresco.repo.content.ContentContext;
+import org.alfresco.repo.content.ContentStore;
+import org.alfresco.repo.content.filestore.FileContentStore;
+import org.alfresco.service.cmr.repository.ContentReader;
+import org.alfresco.service.cmr.repository.ContentWriter;
+import org.alfresco.service.cmr.repository.MimetypeService;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Content store wrapper that compresses content transparently.
+ * <p>
+ * Content is written to the backing store in a seekable block-compressed format (see
+ * {@link BlockCompressedOutputChannel}) and read back through {@link CompressedContentReader}s, which present the
+ * uncompressed content, sizes and offsets.  Random access and byte-range reads only inflate the blocks they touch.
+ * <p>
+ * Content whose mimetype is already compressed (images, audio, video, archives, Office Open XML and
+ * OpenDocument files, ...) is written to the backing store as it is, and read through the backing store's own
+ * readers, so that file readers keep their zero-copy transfers.  The mimetype is matched against
+ * {@link #setUncompressedMimetypes(List) mimetype patterns} and, through the {@link MimetypeService}, against
+ * {@link #setUncompressedExtensions(List) file extensions}.  Text mimetypes are always compressed.
+ * <p>
+ * The URL of compressed content is the backing store's URL followed by {@link #COMPRESSED_URL_SUFFIX}, so the
+ * format is known without reading the content.  The suffix is removed before the backing store is called.
+ * Content written before the store was put in place has no suffix and is read as it is, so the store can wrap
+ * an existing store.  The backing store's files are no longer readable without this wrapper once compressed
+ * content has been written.
+ * 
+ * @since 7.1
+ */
+public class CompressingContentStore implements ContentStore
+{
+    public static final int DEFAULT_BLOCK_SIZE = 64 * 1024;
+    /** Marks the URLs of content stored in the block-compressed format */
+    public static final String COMPRESSED_URL_SUFFIX = ".bcz";
+    
+    private static final Log logger = LogFactory.getLog(CompressingContentStore.class);
+    
+    private ContentStore backingStore;
+    private MimetypeService mimetypeService;
+    private int blockSize = DEFAULT_BLOCK_SIZE;
+    private int compressionLevel = Deflater.BEST_SPEED;
+    private List<String> uncompressedMimetypes = Arrays.asList(
+            "image/*", "audio/*", "video/*",
+            "application/zip", "application/x-gzip", "application/gzip", "application/x-bzip2", "application/x-xz",
+            "application/x-7z-compressed", "application/x-rar-compressed", "application/java-archive",
+            "application/vnd.openxmlformats-officedocument.*", "application/vnd.oasis.opendocument.*",
+            "application/epub+zip");
+    private Set<String> uncompressedExtensions = new HashSet<>(Arrays.asList(
+            "zip", "gz", "tgz", "bz2", "xz", "7z", "rar", "jar", "war", "jpg", "jpeg", "png", "gif", "webp",
+            "mp3", "mp4", "m4a", "mov", "avi", "mkv", "docx", "xlsx", "pptx", "odt", "ods", "odp", "epub"));
+    
+    public CompressingContentStore()
+    {
+    }
+    
+    public CompressingContentStore(ContentStore backingStore, MimetypeService mimetypeService)
+    {
+        this.backingStore = backingStore;
+        this.mimetypeService = mimetypeService;
+    }
+    
+    public void setBackingStore(ContentStore backingStore)
+    {
+        this.backingStore = backingStore;
+    }
+    
+    public void setMimetypeService(MimetypeService mimetypeService)
+    {
+        this.mimetypeService = mimetypeService;
+    }
+    
+    /**
+     * @param blockSize         the uncompressed size of the blocks, i.e. the most that has to be inflated
+     *                          to read any byte (default {@value #DEFAULT_BLOCK_SIZE})
+     */
+    public void setBlockSize(int blockSize)
+    {
+        if (blockSize <= 0)
+        {
+            throw new IllegalArgumentException("Block size must be positive: " + blockSize);
+        }
+        this.blockSize = blockSize;
+    }
+    
+    public int getBlockSize()
+    {
+        return blockSize;
+    }
+    
+    /**
+     * @param compressionLevel  the {@link Deflater} compression level, 1 (fastest) to 9 (smallest)
+     */
+    public void setCompressionLevel(int compressionLevel)
+    {
+        if (compressionLevel < Deflater.BEST_SPEED || compressionLevel > Deflater.BEST_COMPRESSION)
+        {
+            throw new IllegalArgumentException("Invalid compression level: " + compressionLevel);
+        }
+        this.compressionLevel = compressionLevel;
+    }
+    
+    /**
+     * @param uncompressedMimetypes     mimetypes that are not compressed; a pattern ending in <b>*</b> matches
+     *                                  all mimetypes starting with the pattern
+     */
+    public void setUncompressedMimetypes(List<String> uncompressedMimetypes)
+    {
+        this.uncompressedMimetypes = (uncompressedMimetypes == null) ? Collections.<String>emptyList() : uncompressedMimetypes;
+    }
+    
+    /**
+     * @param uncompressedExtensions    file extensions of mimetypes that are not compressed
+     */
+    public void setUncompressedExtensions(List<String> uncompressedExtensions)
+    {
+        this.uncompressedExtensions = (uncompressedExtensions == null) ? Collections.<String>emptySet() : new HashSet<>(uncompressedExtensions);
+    }
+    
+    /**
+     * @param mimetype      the mimetype of the content (may be <tt>null</tt>)
+     * @return              <tt>true</tt> if content of the mimetype should be compressed
+     */
+    public boolean isCompressible(String mimetype)
+    {
+        if (mimetype == null)
+        {
+            return true;
+        }
+        if (mimetypeService != null && mimetypeService.isText(mimetype))
+        {
+            return true;
+        }
+        for (String pattern : uncompressedMimetypes)
+        {
+            if (pattern.endsWith("*") ? mimetype.startsWith(pattern.substring(0, pattern.length() - 1)) : mimetype.equals(pattern))
+            {
+                return false;
+            }
+        }
+        if (mimetypeService != null)
+        {
+            String extension = mimetypeService.getExtension(mimetype);
+            if (extension != null && uncompressedExtensions.contains(extension.toLowerCase()))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /*package*/ int getCompressionLevel()
+    {
+        return compressionLevel;
+    }
+    
+    /**
+     * @return              <tt>true</tt> if the URL is of content stored in the block-compressed format
+     */
+    public static boolean isCompressedUrl(String contentUrl)
+    {
+        return contentUrl.endsWith(COMPRESSED_URL_SUFFIX);
+    }
+    
+    /**
+     * @return              the URL of the content in the backing store
+     */
+    /*package*/ static String getBackingUrl(String contentUrl)
+    {
+        return isCompressedUrl(contentUrl) ? contentUrl.substring(0, contentUrl.length() - COMPRESSED_URL_SUFFIX.length()) : contentUrl;
+    }
+    
+    @Override
+    public boolean isContentUrlSupported(String contentUrl)
+    {
+        return backingStore.isContentUrlSupported(getBackingUrl(contentUrl));
+    }
+    
+    @Override
+    public boolean isWriteSupported()
+    {
+        return backingStore.isWriteSupported();
+    }
+    
+    @Override
+    public long getSpaceFree()
+    {
+        return backingStore.getSpaceFree();
+    }
+    
+    @Override
+    public long getSpaceTotal()
+    {
+        return backingStore.getSpaceTotal();
+    }
+    
+    @Override
+    public String getRootLocation()
+    {
+        return backingStore.getRootLocation();
+    }
+    
+    @Override
+    public boolean exists(String contentUrl)
+    {
+        return backingStore.exists(getBackingUrl(contentUrl));
+    }
+    
+    /**
+     * Returns a reader that uncompresses the content, if its URL shows that it was stored compressed.
+     */
+    @Override
+    public ContentReader getReader(String contentUrl)
+    {
+        if (contentUrl.startsWith(FileContentStore.SPOOF_PROTOCOL) || !isCompressedUrl(contentUrl))
+        {
+            return backingStore.getReader(contentUrl);
+        }
+        return new CompressedContentReader(contentUrl, backingStore.getReader(getBackingUrl(contentUrl)));
+    }
+    
+    @Override
+    public ContentWriter getWriter(ContentContext context)
+    {
+        if (context.getContentUrl() != null && isCompressedUrl(context.getContentUrl()))
+        {
+            // The suffix is added again if the content is compressed
+            context = new ContentContext(context.getExistingContentReader(), getBackingUrl(context.getContentUrl()));
+        }
+        ContentWriter backingWriter = backingStore.getWriter(context);
+        final CompressedContentWriter writer = new CompressedContentWriter(backingWriter, context.getExistingContentReader(), this);
+        if (logger.isDebugEnabled())
+        {
+            final ContentWriter compressedWriter = backingWriter;
+            writer.addListener(() -> logger.debug("Wrote content: \n" +
+                    "   url: " + writer.getContentUrl() + "\n" +
+                    "   mimetype: " + writer.getMimetype() + "\n" +
+                    "   size: " + writer.getSize() + "\n" +
+                    "   stored: " + compressedWriter.getSize()));
+        }
+        return writer;
+    }
+    
+    @Override
+    public boolean delete(String contentUrl)
+    {
+        return backingStore.delete(getBackingUrl(contentUrl));
+    }
+    
+    @Override
+    public String toString()
+    {
+        return "CompressingContentStore[ backingStore=" + backingStore + ", blockSize=" + blockSize + "]";
+    }
+}
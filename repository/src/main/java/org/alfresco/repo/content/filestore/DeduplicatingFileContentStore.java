@@ -0,0 +1,424 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2020 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.content.filestore;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileStore;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.UserDefinedFileAttributeView;
+import java.util.Map;
+
+import org.alfresco.service.cmr.repository.ContentReader;
+import org.alfresco.util.Deleter;
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.context.ApplicationContext;
+
+/**
+ * A {@link FileContentStore} that stores identical content only once.
+ * <p>
+ * Every write still gets its own, unique content URL.  The content is hashed (SHA-256) as it is written and,
+ * when the writer is closed, the file is linked to a content-addressed blob:
+ * <ul>
+ *   <li>if a blob with the same digest already exists, the new file is replaced by a hard link to the blob and
+ *       the newly written bytes are released</li>
+ *   <li>otherwise a hard link named after the digest is added to the new file, which then becomes the blob</li>
+ * </ul>
+ * The blobs live under the <b>{@value #BLOBS_DIRECTORY}</b> directory of the store root.  The file system's link
+ * count is the reference count of a blob: deleting a content URL only removes that URL's link, so the orphan
+ * cleanup done by the {@link org.alfresco.repo.content.cleanup.ContentStoreCleaner ContentStoreCleaner} and the
+ * {@link org.alfresco.repo.content.cleanup.EagerContentStoreCleaner EagerContentStoreCleaner} can never remove
+ * content that is still used by another URL.  The blob itself is removed with the last content URL that uses it.
+ * The digest is kept in a user-defined attribute of the file so that it can be found when a URL is deleted.
+ * <p>
+ * Content URLs and files are the same as those of the {@link FileContentStore}, so the store can be swapped for a
+ * plain {@link FileContentStore} at any time.  If the file system does not support hard links, link counts or
+ * user-defined file attributes, the store behaves like a plain {@link FileContentStore}.
+ * <p>
+ * The locks that guard the blobs are held in memory and only serialize the writes and deletes of one JVM.  The
+ * nodes of a cluster that share a content store are not serialized against each other, so the store should only
+ * be used where a single node writes to, and cleans, a given content store.
+ * 
+ * @since 7.1
+ */
+public class DeduplicatingFileContentStore extends FileContentStore
+{
+    /** The directory, relative to the store root, holding the content-addressed blobs */
+    public static final String BLOBS_DIRECTORY = "blobs";
+    /** The user-defined file attribute holding the content digest */
+    public static final String ATTR_DIGEST = "alfresco.sha256";
+    /** The algorithm used to digest the content */
+    public static final String DIGEST_ALGORITHM = "SHA-256";
+    
+    private static final Log logger = LogFactory.getLog(DeduplicatingFileContentStore.class);
+    
+    /** Locks guarding the creation and removal of blobs, striped by digest.  They are local to this JVM. */
+    private final Object[] locks = new Object[64];
+    private File blobsDirectory;
+    private boolean deduplicationSupported;
+    
+    /**
+     * Public constructor for programmatic use.
+     * 
+     * @param context
+     *            application context through which events can be published
+     * @param rootDirectoryStr
+     *            the root under which files will be stored. The directory will be created if it does not exist.
+     */
+    public DeduplicatingFileContentStore(ApplicationContext context, String rootDirectoryStr)
+    {
+        this(context, new File(rootDirectoryStr));
+    }
+    
+    /**
+     * Public constructor for programmatic use.
+     * 
+     * @param context
+     *            application context through which events can be published
+     * @param rootDirectory
+     *            the root under which files will be stored. The directory will be created if it does not exist.
+     */
+    public DeduplicatingFileContentStore(ApplicationContext context, File rootDirectory)
+    {
+        super(context, rootDirectory);
+        init(rootDirectory);
+    }
+    
+    public DeduplicatingFileContentStore(ApplicationContext context, File rootDirectory, Map<String, Serializable> extendedEventParams)
+    {
+        super(context, rootDirectory, extendedEventParams);
+        init(rootDirectory);
+    }
+    
+    private void init(File rootDirectory)
+    {
+        for (int i = 0; i < locks.length; i++)
+        {
+            locks[i] = new Object();
+        }
+        this.blobsDirectory = new File(rootDirectory.getAbsoluteFile(), BLOBS_DIRECTORY);
+        this.deduplicationSupported = checkDeduplicationSupported(rootDirectory.getAbsoluteFile());
+    }
+    
+    @Override
+    public String toString()
+    {
+        StringBuilder sb = new StringBuilder(36);
+        sb.append("DeduplicatingFileContentStore")
+          .append("[ root=").append(getRootLocation())
+          .append(", deduplicationSupported=").append(deduplicationSupported)
+          .append("]");
+        return sb.toString();
+    }
+    
+    /**
+     * Volumes are not supported as shared content is hard-linked, which cannot span file systems.
+     * 
+     * @throws UnsupportedOperationException if volumes are given
+     */
+    @Override
+    public void setVolumes(FileContentVolumes volumes)
+    {
+        if (volumes != null)
+        {
+            throw new UnsupportedOperationException("Content volumes cannot be used with a deduplicating store: " + this);
+        }
+    }
+    
+    /**
+     * @return      Returns <tt>true</tt> if the file system allows content to be deduplicated
+     */
+    public boolean isDeduplicationSupported()
+    {
+        return deduplicationSupported;
+    }
+    
+    /**
+     * Check that the file system holding the store supports hard links, link counts and user-defined attributes.
+     */
+    private static boolean checkDeduplicationSupported(File rootDirectory)
+    {
+        Path probe = null;
+        Path link = null;
+        try
+        {
+            FileStore fileStore = Files.getFileStore(rootDirectory.toPath());
+            if (!fileStore.supportsFileAttributeView("unix") ||
+                    !fileStore.supportsFileAttributeView(UserDefinedFileAttributeView.class))
+            {
+                logger.warn("Content will not be deduplicated as the file system does not support link counts or user-defined attributes: " + rootDirectory);
+                return false;
+            }
+            probe = Files.createTempFile(rootDirectory.toPath(), "dedup", ".tmp");
+            setDigest(probe, "probe");
+            link = probe.resolveSibling(probe.getFileName() + ".link");
+            Files.createLink(link, probe);
+            return getLinkCount(probe) == 2 && "probe".equals(getDigest(link));
+        }
+        catch (IOException | UnsupportedOperationException | SecurityException e)
+        {
+            logger.warn("Content will not be deduplicated as the file system does not support hard links: " + rootDirectory, e);
+            return false;
+        }
+        finally
+        {
+            deleteQuietly(link);
+            deleteQuietly(probe);
+        }
+    }
+    
+    /**
+     * Creates writers that digest the content as it is written and deduplicate it when they are closed.
+     */
+    @Override
+    protected FileContentWriter createWriter(File file, String contentUrl, ContentReader existingContentReader)
+    {
+        if (!deduplicationSupported)
+        {
+            return super.createWriter(file, contentUrl, existingContentReader);
+        }
+        return new DeduplicatingFileContentWriter(this, file, contentUrl, existingContentReader);
+    }
+    
+    /**
+     * Deletes the link of the content URL and, if no other content URL uses the same content, the blob.
+     */
+    @Override
+    public boolean delete(String contentUrl)
+    {
+        String digest = null;
+        if (deduplicationSupported && !contentUrl.startsWith(SPOOF_PROTOCOL))
+        {
+            File file = makeFile(contentUrl);
+            if (file.exists())
+            {
+                digest = getDigestQuietly(file.toPath());
+            }
+        }
+        boolean deleted = super.delete(contentUrl);
+        if (deleted && digest != null)
+        {
+            releaseBlob(digest);
+        }
+        return deleted;
+    }
+    
+    /**
+     * Link a newly written file to the blob with the same content.  Failures are logged and leave the file as
+     * it is, i.e. not deduplicated.
+     * 
+     * @param file          the file that has just been written and closed
+     * @param digestBytes   the digest of the file's content
+     */
+    /*package*/ void deduplicate(File file, byte[] digestBytes)
+    {
+        if (file.length() == 0L)
+        {
+            return;
+        }
+        String digest = Hex.encodeHexString(digestBytes);
+        File blob = getBlobFile(digest);
+        Path path = file.toPath();
+        try
+        {
+            synchronized (getLock(digest))
+            {
+                if (blob.exists())
+                {
+                    if (blob.length() != file.length())
+                    {
+                        logger.error("Content blob size does not match the content written with the same digest: \n" +
+                                "   blob: " + blob + "\n" +
+                                "   file: " + file);
+                        return;
+                    }
+                    // replace the new file with a link to the existing blob
+                    Path tmp = path.resolveSibling(path.getFileName() + ".dedup");
+                    Files.createLink(tmp, blob.toPath());
+                    Files.move(tmp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                    if (logger.isDebugEnabled())
+                    {
+                        logger.debug("Deduplicated content: \n" +
+                                "   file: " + file + "\n" +
+                                "   blob: " + blob + "\n" +
+                                "   saved: " + file.length());
+                    }
+                }
+                else
+                {
+                    // the new file becomes the blob
+                    setDigest(path, digest);
+                    Files.createDirectories(blob.getParentFile().toPath());
+                    Files.createLink(blob.toPath(), path);
+                    if (logger.isDebugEnabled())
+                    {
+                        logger.debug("Created content blob: \n" +
+                                "   file: " + file + "\n" +
+                                "   blob: " + blob);
+                    }
+                }
+            }
+        }
+        catch (NoSuchFileException e)
+        {
+            // the blob was removed by another server sharing the store - the content remains unique
+            if (logger.isDebugEnabled())
+            {
+                logger.debug("Content blob removed concurrently - content not deduplicated: " + file);
+            }
+        }
+        catch (IOException | UnsupportedOperationException e)
+        {
+            logger.warn("Failed to deduplicate content: " + file, e);
+        }
+    }
+    
+    /**
+     * Remove the blob if it is no longer used by any content URL.
+     */
+    private void releaseBlob(String digest)
+    {
+        File blob = getBlobFile(digest);
+        synchronized (getLock(digest))
+        {
+            try
+            {
+                if (blob.exists() && getLinkCount(blob.toPath()) == 1)
+                {
+                    Files.delete(blob.toPath());
+                    Deleter.deleteEmptyParents(blob, blobsDirectory.getPath());
+                    if (logger.isDebugEnabled())
+                    {
+                        logger.debug("Deleted unused content blob: " + blob);
+                    }
+                }
+            }
+            catch (IOException e)
+            {
+                logger.warn("Failed to delete unused content blob: " + blob, e);
+            }
+        }
+    }
+    
+    /**
+     * Get the number of content URLs that use the content of the given file.
+     * 
+     * @param file          a file in a content store
+     * @return              the number of content URLs sharing the file's content; <tt>1</tt> if the file is not
+     *                      deduplicated or the file system does not support link counts
+     */
+    public static int getReferenceCount(File file)
+    {
+        Path path = file.toPath();
+        try
+        {
+            int links = getLinkCount(path);
+            if (links > 1 && getDigestQuietly(path) != null)
+            {
+                // one of the links is the blob itself
+                links--;
+            }
+            return Math.max(links, 1);
+        }
+        catch (IOException | UnsupportedOperationException e)
+        {
+            return 1;
+        }
+    }
+    
+    /**
+     * @return          the blob file for the digest: <b>blobs/ab/cd/abcd...</b>
+     */
+    private File getBlobFile(String digest)
+    {
+        String relativePath = digest.substring(0, 2) + File.separatorChar + digest.substring(2, 4) + File.separatorChar + digest;
+        return new File(blobsDirectory, relativePath);
+    }
+    
+    private Object getLock(String digest)
+    {
+        return locks[(digest.hashCode() & 0x7FFFFFFF) % locks.length];
+    }
+    
+    private static int getLinkCount(Path path) throws IOException
+    {
+        return ((Number) Files.getAttribute(path, "unix:nlink")).intValue();
+    }
+    
+    private static void setDigest(Path path, String digest) throws IOException
+    {
+        UserDefinedFileAttributeView view = Files.getFileAttributeView(path, UserDefinedFileAttributeView.class);
+        view.write(ATTR_DIGEST, ByteBuffer.wrap(digest.getBytes(StandardCharsets.US_ASCII)));
+    }
+    
+    private static String getDigest(Path path) throws IOException
+    {
+        UserDefinedFileAttributeView view = Files.getFileAttributeView(path, UserDefinedFileAttributeView.class);
+        if (view == null || !view.list().contains(ATTR_DIGEST))
+        {
+            return null;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(view.size(ATTR_DIGEST));
+        view.read(ATTR_DIGEST, buffer);
+        buffer.flip();
+        return StandardCharsets.US_ASCII.decode(buffer).toString();
+    }
+    
+    private static String getDigestQuietly(Path path)
+    {
+        try
+        {
+            return getDigest(path);
+        }
+        catch (IOException | UnsupportedOperationException e)
+        {
+            return null;
+        }
+    }
+    
+    private static void deleteQuietly(Path path)
+    {
+        if (path != null)
+        {
+            try
+            {
+                Files.deleteIfExists(path);
+            }
+            catch (IOException e)
+            {
+                // ignore
+            }
+        }
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2020 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.content.filestore;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import org.alfresco.service.cmr.repository.ContentIOException;
+import org.alfresco.service.cmr.repository.ContentReader;
+
+/**
+ * Writer for the {@link DeduplicatingFileContentStore}.  The content is digested as it is written, so the writer
+ * only provides sequential channels; random access is spoofed by the {@link org.alfresco.repo.content.AbstractContentWriter}.
+ * When the channel is closed the file is handed to the store for deduplication.
+ * 
+ * @since 7.1
+ */
+class DeduplicatingFileContentWriter extends FileContentWriter
+{
+    private final DeduplicatingFileContentStore store;
+    
+    DeduplicatingFileContentWriter(DeduplicatingFileContentStore store, File file, String url, ContentReader existingContentReader)
+    {
+        super(file, url, existingContentReader);
+        this.store = store;
+    }
+    
+    @Override
+    protected WritableByteChannel getDirectWritableChannel() throws ContentIOException
+    {
+        File file = getFile();
+        try
+        {
+            // we may not write to an existing file - EVER!!
+            if (file.exists() && file.length() > 0)
+            {
+                throw new IOException("File exists - overwriting not allowed");
+            }
+            MessageDigest digest = MessageDigest.getInstance(DeduplicatingFileContentStore.DIGEST_ALGORITHM);
+            return new DigestingChannel(new FileOutputStream(file).getChannel(), digest);
+        }
+        catch (IOException | NoSuchAlgorithmException e)
+        {
+            throw new ContentIOException("Failed to open file channel: " + this, e);
+        }
+    }
+    
+    /**
+     * Sequential channel that digests the bytes written through it.
+     */
+    private class DigestingChannel implements WritableByteChannel
+    {
+        private final WritableByteChannel channel;
+        private final MessageDigest digest;
+        
+        private DigestingChannel(WritableByteChannel channel, MessageDigest digest)
+        {
+            this.channel = channel;
+            this.digest = digest;
+        }
+        
+        @Override
+        public int write(ByteBuffer src) throws IOException
+        {
+            ByteBuffer written = src.duplicate();
+            int count = channel.write(src);
+            written.limit(written.position() + count);
+            digest.update(written);
+            return count;
+        }
+        
+        @Override
+        public boolean isOpen()
+        {
+            return channel.isOpen();
+        }
+        
+        @Override
+        public void close() throws IOException
+        {
+            if (!channel.isOpen())
+            {
+                return;
+            }
+            channel.close();
+            store.deduplicate(getFile(), digest.digest());
+        }
+    }
+}
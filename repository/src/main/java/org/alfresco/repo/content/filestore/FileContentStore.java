@@ -28,6 +28,8 @@ package org.alfresco.repo.content.filestore;
 import java.io.File;
 import java.io.IOException;
 import java.io.Serializable;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Collections;
 import java.util.Map;
 
@@ -79,16 +81,24 @@ public class FileContentStore
      */
     public static final String STORE_PROTOCOL = "store";
     public static final String SPOOF_PROTOCOL = "spoof";
+    /**
+     * Marks the first segment of a content URL as the name of a {@link #setVolumes(FileContentVolumes) volume},
+     * e.g. <b>store://~vol1/2021/...</b>, so that it is not mistaken for a directory below the root, such as
+     * the volume names in the URLs of a {@link VolumeAwareContentUrlProvider}.
+     */
+    public static final String VOLUME_MARKER = "~";
     
     private static final Log logger = LogFactory.getLog(FileContentStore.class);
     
     private File rootDirectory;
     private String rootAbsolutePath;
     private boolean allowRandomAccess;
+    private String contentDigestAlgorithm;
     private boolean readOnly;
     private ApplicationContext applicationContext;
     private boolean deleteEmptyDirs = true;
     private FileContentUrlProvider fileContentUrlProvider = new TimeBasedFileContentUrlProvider();
+    private FileContentVolumes volumes;
 
     /**
      * Private: for Spring-constructed instances only.
@@ -169,6 +179,7 @@ public class FileContentStore
           .append("[ root=").append(rootDirectory)
           .append(", allowRandomAccess=").append(allowRandomAccess)
           .append(", readOnly=").append(readOnly)
+          .append(volumes == null ? "" : ", volumes=" + volumes)
           .append("]");
         return sb.toString();
     }
@@ -194,6 +205,33 @@ public class FileContentStore
         this.allowRandomAccess = allowRandomAccess;
     }
 
+    /**
+     * Sets the {@link MessageDigest} algorithm, e.g. <b>SHA-256</b>, used to digest content as it is written
+     * so that the digest can be kept with the content URL.  Writers that digest their content only provide
+     * sequential channels, so random access is faked.
+     * 
+     * @param contentDigestAlgorithm the digest algorithm, or <tt>null</tt> or empty to not digest content
+     * @throws IllegalArgumentException if the algorithm is not available
+     * @since 7.1
+     */
+    public void setContentDigestAlgorithm(String contentDigestAlgorithm)
+    {
+        if (contentDigestAlgorithm == null || contentDigestAlgorithm.trim().length() == 0)
+        {
+            this.contentDigestAlgorithm = null;
+            return;
+        }
+        try
+        {
+            MessageDigest.getInstance(contentDigestAlgorithm.trim());
+        }
+        catch (NoSuchAlgorithmException e)
+        {
+            throw new IllegalArgumentException("Content digest algorithm not available: " + contentDigestAlgorithm, e);
+        }
+        this.contentDigestAlgorithm = contentDigestAlgorithm.trim();
+    }
+
     /**
      * File stores may optionally be declared read-only.  This is useful when configuring
      * a store, possibly temporarily, to act as a source of data but to preserve it against
@@ -211,6 +249,20 @@ public class FileContentStore
         this.fileContentUrlProvider = fileContentUrlProvider;
     }
 
+    /**
+     * Spreads new content across several volumes, typically separate mount points, instead of
+     * writing it all below the root directory.  The volume name, after the {@link #VOLUME_MARKER},
+     * becomes the first segment of the content URL so that content is found directly.  Content already below the root directory
+     * remains readable.
+     * 
+     * @param volumes       the volumes for new content or <tt>null</tt> to write below the root directory
+     * @since 7.1
+     */
+    public void setVolumes(FileContentVolumes volumes)
+    {
+        this.volumes = volumes;
+    }
+
     /**
      * Generates a new URL and file appropriate to it.
      * 
@@ -220,7 +272,32 @@ public class FileContentStore
     /*package*/ File createNewFile() throws IOException
     {
         String contentUrl = fileContentUrlProvider.createNewFileStoreUrl();
-        return createNewFile(contentUrl);
+        if (volumes == null)
+        {
+            return createNewFile(contentUrl);
+        }
+        // Place the content on a volume, moving on to another if a volume fails
+        String relativePath = getContentUrlParts(contentUrl).getSecond();
+        for (int attempt = 1; ; attempt++)
+        {
+            String volume = volumes.chooseVolume();
+            try
+            {
+                return createNewFile(STORE_PROTOCOL + PROTOCOL_DELIMITER + VOLUME_MARKER + volume + "/" + relativePath);
+            }
+            catch (IOException | ContentIOException e)
+            {
+                volumes.volumeFailed(volume);
+                if (attempt >= volumes.size())
+                {
+                    throw e;
+                }
+                if (logger.isDebugEnabled())
+                {
+                    logger.debug("Failed to create new content on volume " + volume + ", trying another", e);
+                }
+            }
+        }
     }
     
     /**
@@ -319,6 +396,15 @@ public class FileContentStore
     /*package*/ String makeContentUrl(File file)
     {
         String path = file.getAbsolutePath();
+        // check if it belongs to one of the volumes
+        String volume = (volumes == null) ? null : volumes.getVolumeName(file);
+        if (volume != null)
+        {
+            String volumePath = volumes.getRoot(volume).getAbsolutePath();
+            String url = FileContentStore.STORE_PROTOCOL + ContentStore.PROTOCOL_DELIMITER + VOLUME_MARKER + volume + "/" +
+                    path.substring(volumePath.length() + 1);
+            return url.replace('\\', '/');
+        }
         // check if it belongs to this store
         if (!path.startsWith(rootAbsolutePath))
         {
@@ -362,7 +448,14 @@ public class FileContentStore
         {
             throw new UnsupportedContentUrlException(this, protocol + PROTOCOL_DELIMITER + relativePath);
         }
-        // get the file
+        // get the file, going straight to the volume named by the first path segment
+        File volumeRoot = getVolumeRoot(relativePath);
+        if (volumeRoot != null)
+        {
+            File file = new File(volumeRoot, relativePath.substring(relativePath.indexOf('/') + 1));
+            ensureFileInDirectory(file, volumeRoot.getAbsolutePath());
+            return file;
+        }
         File file = new File(rootDirectory, relativePath);
         
         ensureFileInContentStore(file);
@@ -371,6 +464,21 @@ public class FileContentStore
         return file;
     }
 
+    /**
+     * @param relativePath  the content URL path after the protocol
+     * @return              Returns the root of the volume named by the path or <tt>null</tt> if the
+     *                      content is below the root directory
+     */
+    private File getVolumeRoot(String relativePath)
+    {
+        if (volumes == null || !relativePath.startsWith(VOLUME_MARKER))
+        {
+            return null;
+        }
+        int index = relativePath.indexOf('/');
+        return (index <= VOLUME_MARKER.length()) ? null : volumes.getRoot(relativePath.substring(VOLUME_MARKER.length(), index));
+    }
+
     /**
      * @return Returns <tt>true</tt> always
      */
@@ -401,22 +509,24 @@ public class FileContentStore
      * Get the filesystem's free space.
      * 
      * @return          Returns the root directory partition's {@link File#getFreeSpace() free space}
+     *                  or the sum over the volumes, if there are any
      */
     @Override
     public long getSpaceFree()
     {
-        return rootDirectory.getFreeSpace();
+        return (volumes == null) ? rootDirectory.getFreeSpace() : volumes.getSpaceFree();
     }
 
     /**
      * Get the filesystem's total space.
      * 
      * @return          Returns the root directory partition's {@link File#getTotalSpace() total space}
+     *                  or the sum over the volumes, if there are any
      */
     @Override
     public long getSpaceTotal()
     {
-        return rootDirectory.getTotalSpace();
+        return (volumes == null) ? rootDirectory.getTotalSpace() : volumes.getSpaceTotal();
     }
 
     /**
@@ -512,13 +622,14 @@ public class FileContentStore
                 contentUrl = newContentUrl;
             }
             // create the writer
-            FileContentWriter writer = new FileContentWriter(file, contentUrl, existingContentReader);
+            FileContentWriter writer = createWriter(file, contentUrl, existingContentReader);
             
             if (contentLimitProvider != null)
             {
                 writer.setContentLimitProvider(contentLimitProvider);
             }
             writer.setAllowRandomAccess(allowRandomAccess);
+            writer.setContentDigestAlgorithm(contentDigestAlgorithm);
             
             // done
             if (logger.isDebugEnabled())
@@ -534,6 +645,21 @@ public class FileContentStore
         }
     }
     
+    /**
+     * Creates the writer onto a new, empty file.  Subclasses may override this to provide writers
+     * with additional behaviour.
+     * 
+     * @param file                  the new file
+     * @param contentUrl            the URL of the new file
+     * @param existingContentReader the existing content reader
+     * @return Returns a writer onto the file
+     * @since 7.1
+     */
+    protected FileContentWriter createWriter(File file, String contentUrl, ContentReader existingContentReader)
+    {
+        return new FileContentWriter(file, contentUrl, existingContentReader);
+    }
+    
     /**
      * Attempts to delete the content.  The actual deletion is optional on the interface
      * so it just returns the success or failure of the underlying delete.
@@ -569,7 +695,15 @@ public class FileContentStore
         // Delete empty parents regardless of whether the file was ignore above.
         if (deleteEmptyDirs && deleted)
         {
-            Deleter.deleteEmptyParents(file, getRootLocation());
+            String volume = (volumes == null) ? null : volumes.getVolumeName(file);
+            if (volume == null)
+            {
+                Deleter.deleteEmptyParents(file, getRootLocation());
+            }
+            else
+            {
+                Deleter.deleteEmptyParents(file, volumes.getRoot(volume));
+            }
         }
 
         // done
@@ -630,9 +764,14 @@ public class FileContentStore
      * Added as fix for MNT-12301, we should ensure that content store accesses content only inside of store root
      */
     private void ensureFileInContentStore(File file)
+    {
+        ensureFileInDirectory(file, rootAbsolutePath);
+    }
+
+    private void ensureFileInDirectory(File file, String directoryAbsolutePath)
     {
         String fileNormalizedAbsoultePath = FilenameUtils.normalize(file.getAbsolutePath());
-        String rootNormalizedAbsolutePath = FilenameUtils.normalize(rootAbsolutePath);
+        String rootNormalizedAbsolutePath = FilenameUtils.normalize(directoryAbsolutePath);
         
         if (!fileNormalizedAbsoultePath.startsWith(rootNormalizedAbsolutePath))
         {
@@ -0,0 +1,384 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2020 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.content.filestore;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.alfresco.service.cmr.repository.ContentIOException;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * A set of independent directories, typically separate mount points, across which a
+ * {@link FileContentStore} spreads new content.
+ * <p>
+ * Each volume has a name, which, after the {@link FileContentStore#VOLUME_MARKER}, becomes the first
+ * segment of the content URLs written to it, and a relative weight that sets the share of new content it receives.  Readers resolve a URL
+ * straight to its volume from that first segment, so no directories are ever scanned.
+ * <p>
+ * Volumes are checked lazily: a volume is only offered for new content while its directory is
+ * writable and has at least {@link #setMinFreeSpace(long) the minimum free space}.  A volume that
+ * fails a write is taken out of rotation until the next {@link #setHealthCheckInterval(long) check}.
+ * Existing content on an unhealthy volume remains readable.
+ * 
+ * @since 7.1
+ */
+public class FileContentVolumes
+{
+    private static final Log logger = LogFactory.getLog(FileContentVolumes.class);
+
+    private final Map<String, Volume> volumes;
+    private long minFreeSpace = 0L;
+    private long healthCheckInterval = 30000L;
+
+    /**
+     * @param roots         the volume root directories keyed by volume name
+     * @param weights       the relative weights keyed by volume name; volumes not present get a weight of 1
+     */
+    public FileContentVolumes(Map<String, File> roots, Map<String, Integer> weights)
+    {
+        if (roots == null || roots.isEmpty())
+        {
+            throw new IllegalArgumentException("At least one content volume is required");
+        }
+        Map<String, Volume> volumes = new LinkedHashMap<>();
+        for (Map.Entry<String, File> entry : roots.entrySet())
+        {
+            String name = entry.getKey();
+            checkName(name);
+            Integer weight = (weights == null) ? null : weights.get(name);
+            if (weight != null && weight < 0)
+            {
+                throw new IllegalArgumentException("Content volume weight may not be negative: " + name + "=" + weight);
+            }
+            volumes.put(name, new Volume(name, entry.getValue(), (weight == null) ? 1 : weight));
+        }
+        if (weights != null)
+        {
+            for (String name : weights.keySet())
+            {
+                if (!volumes.containsKey(name))
+                {
+                    throw new IllegalArgumentException("Weight given for unknown content volume: " + name);
+                }
+            }
+        }
+        this.volumes = Collections.unmodifiableMap(volumes);
+    }
+
+    /**
+     * Builds the volumes from their configuration properties.
+     * 
+     * @param volumes       comma-separated <b>name=path</b> pairs, e.g. <b>vol1=/mnt/a,vol2=/mnt/b</b>
+     * @param weights       comma-separated <b>name=weight</b> pairs, or <tt>null</tt> or empty to weight evenly
+     * @return              Returns the volumes or <tt>null</tt> if none are configured
+     */
+    public static FileContentVolumes parse(String volumes, String weights)
+    {
+        if (volumes == null || volumes.trim().length() == 0)
+        {
+            return null;
+        }
+        Map<String, File> roots = new LinkedHashMap<>();
+        for (Map.Entry<String, String> entry : parsePairs(volumes).entrySet())
+        {
+            roots.put(entry.getKey(), new File(entry.getValue()));
+        }
+        Map<String, Integer> weightsByName = new LinkedHashMap<>();
+        if (weights != null && weights.trim().length() > 0)
+        {
+            for (Map.Entry<String, String> entry : parsePairs(weights).entrySet())
+            {
+                try
+                {
+                    weightsByName.put(entry.getKey(), Integer.valueOf(entry.getValue()));
+                }
+                catch (NumberFormatException e)
+                {
+                    throw new IllegalArgumentException("Invalid content volume weight: " + entry.getKey() + "=" + entry.getValue());
+                }
+            }
+        }
+        return new FileContentVolumes(roots, weightsByName);
+    }
+
+    private static Map<String, String> parsePairs(String pairs)
+    {
+        Map<String, String> result = new LinkedHashMap<>();
+        for (String pair : pairs.split(","))
+        {
+            pair = pair.trim();
+            if (pair.length() == 0)
+            {
+                continue;
+            }
+            int index = pair.indexOf('=');
+            if (index < 1 || index == pair.length() - 1)
+            {
+                throw new IllegalArgumentException("Expected name=value but got: " + pair);
+            }
+            String name = pair.substring(0, index).trim();
+            if (result.put(name, pair.substring(index + 1).trim()) != null)
+            {
+                throw new IllegalArgumentException("Content volume given more than once: " + name);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Volume names form the first segment of content URLs, after a marker that keeps them apart from the
+     * directories of content written before volumes were configured.
+     */
+    private static void checkName(String name)
+    {
+        if (name == null || !name.matches("[A-Za-z][A-Za-z0-9_\\-]*"))
+        {
+            throw new IllegalArgumentException(
+                    "Content volume names must start with a letter and contain only letters, digits, '_' or '-': " + name);
+        }
+    }
+
+    /**
+     * @param minFreeSpace  the usable space, in bytes, below which a volume receives no new content
+     */
+    public void setMinFreeSpace(long minFreeSpace)
+    {
+        this.minFreeSpace = minFreeSpace;
+    }
+
+    /**
+     * @param healthCheckInterval   the time, in milliseconds, for which the health of a volume is trusted
+     */
+    public void setHealthCheckInterval(long healthCheckInterval)
+    {
+        this.healthCheckInterval = healthCheckInterval;
+    }
+
+    /**
+     * @return              Returns the number of volumes
+     */
+    public int size()
+    {
+        return volumes.size();
+    }
+
+    /**
+     * @param name          the volume name
+     * @return              Returns <tt>true</tt> if the name is that of a volume
+     */
+    public boolean contains(String name)
+    {
+        return volumes.containsKey(name);
+    }
+
+    /**
+     * @param name          the volume name
+     * @return              Returns the volume's root directory or <tt>null</tt> if there is no such volume
+     */
+    public File getRoot(String name)
+    {
+        Volume volume = volumes.get(name);
+        return (volume == null) ? null : volume.root;
+    }
+
+    /**
+     * Finds the volume holding a file.
+     * 
+     * @param file          the file
+     * @return              Returns the name of the volume whose root contains the file or <tt>null</tt>
+     */
+    public String getVolumeName(File file)
+    {
+        String path = file.getAbsolutePath();
+        for (Volume volume : volumes.values())
+        {
+            if (path.startsWith(volume.rootPath + File.separator))
+            {
+                return volume.name;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Picks the volume for new content.  Healthy volumes are chosen at random in proportion to their weights.
+     * 
+     * @return              Returns the name of the chosen volume
+     * @throws ContentIOException if no volume is currently able to take new content
+     */
+    public String chooseVolume()
+    {
+        List<Volume> healthy = new ArrayList<>(volumes.size());
+        long totalWeight = 0L;
+        for (Volume volume : volumes.values())
+        {
+            if (volume.weight > 0 && volume.isHealthy())
+            {
+                healthy.add(volume);
+                totalWeight += volume.weight;
+            }
+        }
+        if (totalWeight == 0L)
+        {
+            throw new ContentIOException("No content volume is able to take new content: " + this);
+        }
+        long pick = ThreadLocalRandom.current().nextLong(totalWeight);
+        for (Volume volume : healthy)
+        {
+            pick -= volume.weight;
+            if (pick < 0)
+            {
+                return volume.name;
+            }
+        }
+        // Unreachable
+        return healthy.get(healthy.size() - 1).name;
+    }
+
+    /**
+     * Takes a volume out of rotation until its next health check, e.g. after a write to it failed.
+     * 
+     * @param name          the volume name
+     */
+    public void volumeFailed(String name)
+    {
+        Volume volume = volumes.get(name);
+        if (volume != null)
+        {
+            volume.markUnhealthy();
+        }
+    }
+
+    /**
+     * @return              Returns the free space summed over the volumes
+     */
+    public long getSpaceFree()
+    {
+        long total = 0L;
+        for (Volume volume : volumes.values())
+        {
+            total += volume.root.getFreeSpace();
+        }
+        return total;
+    }
+
+    /**
+     * @return              Returns the total space summed over the volumes
+     */
+    public long getSpaceTotal()
+    {
+        long total = 0L;
+        for (Volume volume : volumes.values())
+        {
+            total += volume.root.getTotalSpace();
+        }
+        return total;
+    }
+
+    @Override
+    public String toString()
+    {
+        StringBuilder sb = new StringBuilder(64);
+        sb.append("FileContentVolumes[");
+        boolean first = true;
+        for (Volume volume : volumes.values())
+        {
+            if (!first)
+            {
+                sb.append(", ");
+            }
+            sb.append(volume.name).append("=").append(volume.root)
+              .append(" (weight=").append(volume.weight)
+              .append(volume.healthy ? "" : ", unhealthy").append(")");
+            first = false;
+        }
+        sb.append("]");
+        return sb.toString();
+    }
+
+    /**
+     * A single volume and its last known health
+     */
+    private class Volume
+    {
+        private final String name;
+        private final File root;
+        private final String rootPath;
+        private final int weight;
+        private volatile boolean healthy = true;
+        private volatile long lastChecked = 0L;
+
+        private Volume(String name, File root, int weight)
+        {
+            this.name = name;
+            this.root = root.getAbsoluteFile();
+            this.rootPath = this.root.getAbsolutePath();
+            this.weight = weight;
+        }
+
+        private boolean isHealthy()
+        {
+            long now = System.currentTimeMillis();
+            if (now - lastChecked >= healthCheckInterval)
+            {
+                lastChecked = now;
+                boolean wasHealthy = healthy;
+                healthy = check();
+                if (wasHealthy != healthy && logger.isWarnEnabled())
+                {
+                    logger.warn("Content volume " + name + " (" + root + ") is now " + (healthy ? "healthy" : "unhealthy"));
+                }
+            }
+            return healthy;
+        }
+
+        private boolean check()
+        {
+            if (!root.isDirectory() && !root.mkdirs())
+            {
+                return false;
+            }
+            return root.canWrite() && root.getUsableSpace() >= minFreeSpace;
+        }
+
+        private void markUnhealthy()
+        {
+            lastChecked = System.currentTimeMillis();
+            if (healthy)
+            {
+                healthy = false;
+                logger.warn("Content volume " + name + " (" + root + ") failed and is out of rotation for " + healthCheckInterval + "ms");
+            }
+        }
+    }
+}
@@ -364,7 +364,7 @@ public abstract class AbstractContentDataDAOImpl implements ContentDataDAO
 
         public Pair<Long, ContentUrlEntity> createValue(ContentUrlEntity value)
         {
-            ContentUrlEntity contentUrlEntity = createContentUrlEntity(value.getContentUrl(), value.getSize(), value.getContentUrlKey());
+            ContentUrlEntity contentUrlEntity = createContentUrlEntity(value.getContentUrl(), value.getSize(), value.getContentUrlKey(), value.getContentDigest());
             // Done
             return new Pair<Long, ContentUrlEntity>(contentUrlEntity.getId(), contentUrlEntity);
         }
@@ -406,6 +406,7 @@ public abstract class AbstractContentDataDAOImpl implements ContentDataDAO
         // Decode content URL
         Long contentUrlId = contentDataEntity.getContentUrlId();
         String contentUrl = null;
+        String contentDigest = null;
         if(contentUrlId != null)
         {
             Pair<Long, ContentUrlEntity> entityPair = contentUrlCache.getByKey(contentUrlId);
@@ -415,6 +416,7 @@ public abstract class AbstractContentDataDAOImpl implements ContentDataDAO
             }
             ContentUrlEntity contentUrlEntity = entityPair.getSecond();
             contentUrl = contentUrlEntity.getContentUrl();
+            contentDigest = contentUrlEntity.getContentDigest();
         }
 
         long size = contentDataEntity.getSize() == null ? 0L : contentDataEntity.getSize().longValue();
@@ -444,7 +446,7 @@ public abstract class AbstractContentDataDAOImpl implements ContentDataDAO
         }
 
         // Build the ContentData
-        ContentData contentData = new ContentData(contentUrl, mimetype, size, encoding, locale);
+        ContentData contentData = new ContentData(contentUrl, mimetype, size, encoding, locale, contentDigest);
         // Done
         return contentData;
     }
@@ -463,6 +465,7 @@ public abstract class AbstractContentDataDAOImpl implements ContentDataDAO
             ContentUrlEntity contentUrlEntity = new ContentUrlEntity();
             contentUrlEntity.setContentUrl(contentUrl);
             contentUrlEntity.setSize(size);
+            contentUrlEntity.setContentDigest(contentData.getContentDigest());
             Pair<Long, ContentUrlEntity> pair = contentUrlCache.createOrGetByValue(contentUrlEntity, controlDAO);
             contentUrlId = pair.getFirst();
         }
@@ -528,6 +531,7 @@ public abstract class AbstractContentDataDAOImpl implements ContentDataDAO
                 {
                     contentUrlEntity = new ContentUrlEntity();
                     contentUrlEntity.setContentUrl(newContentUrl);
+                    contentUrlEntity.setContentDigest(contentData.getContentDigest());
                 }
                 Pair<Long, ContentUrlEntity> pair = contentUrlCache.getOrCreateByValue(contentUrlEntity);
                 Long newContentUrlId = pair.getFirst();
@@ -633,7 +637,7 @@ public abstract class AbstractContentDataDAOImpl implements ContentDataDAO
     /**
      * @param contentUrl    the content URL to create or search for
      */
-    protected abstract ContentUrlEntity createContentUrlEntity(String contentUrl, long size, ContentUrlKeyEntity contentUrlKey);
+    protected abstract ContentUrlEntity createContentUrlEntity(String contentUrl, long size, ContentUrlKeyEntity contentUrlKey, String contentDigest);
 
     /**
      * @param id            the ID of the <b>content url</b> entity
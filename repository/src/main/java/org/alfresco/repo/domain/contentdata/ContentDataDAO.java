@@ -122,6 +122,36 @@ public interface ContentDataDAO
             Long maxOrphanTimeExclusive,
             int maxResults);
     
+    /**
+     * Enumerate, in ascending ID order, the content URLs within an ID range that were orphaned
+     * on or before the given time.  Ranges allow several cleaners to page through the orphans
+     * without processing the same URLs.
+     * 
+     * @param contentUrlHandler         the callback object to process the rows
+     * @param maxOrphanTimeExclusive    the maximum orphan time (exclusive)
+     * @param minIdExclusive            the content URL ID after which to start (exclusive)
+     * @param maxIdInclusive            the last content URL ID to consider (inclusive) or <tt>null</tt> for no upper limit
+     * @param maxResults                the maximum number of results (1 or greater)
+     * 
+     * @since 7.1
+     */
+    void getContentUrlsOrphaned(
+            ContentUrlHandler contentUrlHandler,
+            Long maxOrphanTimeExclusive,
+            Long minIdExclusive,
+            Long maxIdInclusive,
+            int maxResults);
+    
+    /**
+     * Count the content URLs that were orphaned on or before the given time
+     * 
+     * @param maxOrphanTimeExclusive    the maximum orphan time (exclusive)
+     * @return                          the number of orphaned content URLs awaiting cleanup
+     * 
+     * @since 7.1
+     */
+    long countContentUrlsOrphaned(Long maxOrphanTimeExclusive);
+    
     /**
      * Enumerate all available content URLs that were orphaned and cleanup for these urls failed
      * 
@@ -55,6 +55,7 @@ public class ContentUrlEntity implements Serializable
     private long contentUrlCrc;
     private long size;
     private Long orphanTime;
+    private String contentDigest;
 
     private ContentUrlKeyEntity contentUrlKey;
 
@@ -97,6 +98,7 @@ public class ContentUrlEntity implements Serializable
           .append(", contentUrl=").append(contentUrl)
           .append(", size=").append(size)
           .append(", orphanTime=").append(orphanTime)
+          .append(", contentDigest=").append(contentDigest)
           .append("]");
         return sb.toString();
     }
@@ -145,6 +147,7 @@ public class ContentUrlEntity implements Serializable
         ret.setOrphanTime(existing == null ? null : existing.getOrphanTime());
         ret.setSize(existing == null ? null : existing.getSize());
         ret.setId(existing == null ? null : existing.getId());
+        ret.setContentDigest(existing == null ? null : existing.getContentDigest());
         // done
         return ret;
     }
@@ -230,4 +233,18 @@ public class ContentUrlEntity implements Serializable
     {
         this.orphanTime = orphanTime;
     }
+
+    /**
+     * @return              Returns the digest of the binary, in the form <code>algorithm:hex</code>, or <tt>null</tt> if it is not known
+     * @since 7.1
+     */
+    public String getContentDigest()
+    {
+        return contentDigest;
+    }
+
+    public void setContentDigest(String contentDigest)
+    {
+        this.contentDigest = contentDigest;
+    }
 }
@@ -34,6 +34,8 @@ package org.alfresco.repo.domain.contentdata;
 public class ContentUrlOrphanQuery
 {
     private Long maxOrphanTimeExclusive;
+    private Long minIdExclusive;
+    private Long maxIdInclusive;
     private Long maxRecords;
     
     @Override
@@ -42,6 +44,8 @@ public class ContentUrlOrphanQuery
         StringBuilder sb = new StringBuilder(512);
         sb.append("ContentUrlOrphanQuery")
           .append("[ maxOrphanTimeExclusive=").append(maxOrphanTimeExclusive)
+          .append(", minIdExclusive=").append(minIdExclusive)
+          .append(", maxIdInclusive=").append(maxIdInclusive)
           .append(", maxRecords=").append(maxRecords)
           .append("]");
         return sb.toString();
@@ -57,6 +61,26 @@ public class ContentUrlOrphanQuery
         this.maxOrphanTimeExclusive = maxOrphanTimeExclusive;
     }
 
+    public Long getMinIdExclusive()
+    {
+        return minIdExclusive;
+    }
+
+    public void setMinIdExclusive(Long minIdExclusive)
+    {
+        this.minIdExclusive = minIdExclusive;
+    }
+
+    public Long getMaxIdInclusive()
+    {
+        return maxIdInclusive;
+    }
+
+    public void setMaxIdInclusive(Long maxIdInclusive)
+    {
+        this.maxIdInclusive = maxIdInclusive;
+    }
+
     public Long getMaxRecords()
     {
         return maxRecords;
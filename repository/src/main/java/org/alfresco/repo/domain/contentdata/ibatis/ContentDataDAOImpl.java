@@ -64,6 +64,8 @@ public class ContentDataDAOImpl extends AbstractContentDataDAOImpl
     private static final String SELECT_CONTENT_URL_BY_KEY = "alfresco.content.select_ContentUrlByKey";
     private static final String SELECT_CONTENT_URL_BY_KEY_UNREFERENCED = "alfresco.content.select_ContentUrlByKeyUnreferenced";
     private static final String SELECT_CONTENT_URLS_ORPHANED = "alfresco.content.select.select_ContentUrlsOrphaned";
+    private static final String SELECT_CONTENT_URLS_ORPHANED_IN_RANGE = "alfresco.content.select.select_ContentUrlsOrphanedInRange";
+    private static final String SELECT_COUNT_CONTENT_URLS_ORPHANED = "alfresco.content.select_CountContentUrlsOrphaned";
     private static final String SELECT_CONTENT_URLS_KEEP_ORPHANED = "alfresco.content.select_ContentUrlsKeepOrphaned";
     private static final String SELECT_CONTENT_DATA_BY_ID = "alfresco.content.select_ContentDataById";
     private static final String SELECT_CONTENT_DATA_BY_NODE_AND_QNAME = "alfresco.content.select_ContentDataByNodeAndQName";
@@ -103,12 +105,13 @@ public class ContentDataDAOImpl extends AbstractContentDataDAOImpl
     }
 
     @Override
-    protected ContentUrlEntity createContentUrlEntity(String contentUrl, long size, ContentUrlKeyEntity contentUrlKeyEntity)
+    protected ContentUrlEntity createContentUrlEntity(String contentUrl, long size, ContentUrlKeyEntity contentUrlKeyEntity, String contentDigest)
     {
         ContentUrlEntity contentUrlEntity = new ContentUrlEntity();
         contentUrlEntity.setContentUrl(contentUrl);
         contentUrlEntity.setSize(size);
         contentUrlEntity.setOrphanTime(null);
+        contentUrlEntity.setContentDigest(contentDigest);
         /* Long id = (Long) */ template.insert(INSERT_CONTENT_URL, contentUrlEntity);
         /*contentUrlEntity.setId(id);*/
 
@@ -169,6 +172,46 @@ public class ContentDataDAOImpl extends AbstractContentDataDAOImpl
         }
     }
     
+    @Override
+    public void getContentUrlsOrphaned(
+            final ContentUrlHandler contentUrlHandler,
+            final Long maxOrphanTimeExclusive,
+            final Long minIdExclusive,
+            final Long maxIdInclusive,
+            final int maxResults)
+    {
+        ParameterCheck.mandatory("maxOrphanTimeExclusive", maxOrphanTimeExclusive);
+        ParameterCheck.mandatory("minIdExclusive", minIdExclusive);
+        
+        ContentUrlOrphanQuery query = new ContentUrlOrphanQuery();
+        query.setMaxOrphanTimeExclusive(maxOrphanTimeExclusive);
+        query.setMinIdExclusive(minIdExclusive);
+        query.setMaxIdInclusive(maxIdInclusive);
+        query.setMaxRecords((long) maxResults);
+        List<ContentUrlEntity> results = template.selectList(SELECT_CONTENT_URLS_ORPHANED_IN_RANGE, 
+                                                                                      query, 
+                                                                                      new RowBounds(0, maxResults));
+        // Pass the result to the callback
+        for (ContentUrlEntity result : results)
+        {
+            contentUrlHandler.handle(
+                    result.getId(),
+                    result.getContentUrl(),
+                    result.getOrphanTime());
+        }
+    }
+    
+    @Override
+    public long countContentUrlsOrphaned(final Long maxOrphanTimeExclusive)
+    {
+        ParameterCheck.mandatory("maxOrphanTimeExclusive", maxOrphanTimeExclusive);
+        
+        ContentUrlOrphanQuery query = new ContentUrlOrphanQuery();
+        query.setMaxOrphanTimeExclusive(maxOrphanTimeExclusive);
+        Long count = template.selectOne(SELECT_COUNT_CONTENT_URLS_ORPHANED, query);
+        return count == null ? 0L : count;
+    }
+    
     @Override
     public void getContentUrlsKeepOrphaned(
             final ContentUrlHandler contentUrlHandler,
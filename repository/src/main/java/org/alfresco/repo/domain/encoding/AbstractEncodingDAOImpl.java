@@ -25,6 +25,8 @@
  */
 package org.alfresco.repo.domain.encoding;
 
+import java.io.Serializable;
+
 import org.alfresco.repo.cache.SimpleCache;
 import org.alfresco.util.Pair;
 import org.alfresco.repo.cache.lookup.EntityLookupCache;
@@ -51,6 +53,7 @@ public abstract class AbstractEncodingDAOImpl implements EncodingDAO
      * VALUE KEY: String<br/>
      */
     private EntityLookupCache<Long, String, String> encodingEntityCache;
+    private SimpleCache<Serializable, Object> encodingEntityNegativeCache;
     
     /**
      * Set the cache that maintains the ID-Encoding mappings and vice-versa (bi-directional)
@@ -61,10 +64,27 @@ public abstract class AbstractEncodingDAOImpl implements EncodingDAO
     {
         this.encodingEntityCache = new EntityLookupCache<Long, String, String>(
                 encodingEntityCache,
+                encodingEntityNegativeCache,
                 CACHE_REGION_ENCODING,
                 new EncodingEntityCallbackDAO());
     }
     
+    /**
+     * Set the cache that records encodings that are known not to exist
+     * 
+     * @param encodingEntityNegativeCache   the cache of missing encodings
+     * 
+     * @since 7.1
+     */
+    public void setEncodingEntityNegativeCache(SimpleCache<Serializable, Object> encodingEntityNegativeCache)
+    {
+        this.encodingEntityNegativeCache = encodingEntityNegativeCache;
+        if (encodingEntityCache != null)
+        {
+            this.encodingEntityCache = encodingEntityCache.withNegativeCache(encodingEntityNegativeCache);
+        }
+    }
+    
     public Pair<Long, String> getEncoding(Long id)
     {
         return encodingEntityCache.getByKey(id);
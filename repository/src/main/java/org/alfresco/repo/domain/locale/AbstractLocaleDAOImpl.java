@@ -25,6 +25,7 @@
  */
 package org.alfresco.repo.domain.locale;
 
+import java.io.Serializable;
 import java.util.Locale;
 
 import org.alfresco.repo.cache.SimpleCache;
@@ -57,6 +58,7 @@ public abstract class AbstractLocaleDAOImpl implements LocaleDAO
      * VALUE KEY: Locale<br/>
      */
     private EntityLookupCache<Long, String, String> localeEntityCache;
+    private SimpleCache<Serializable, Object> localeEntityNegativeCache;
     
     /**
      * Set the cache that maintains the ID-Locale mappings and vice-versa (bi-directional)
@@ -67,10 +69,24 @@ public abstract class AbstractLocaleDAOImpl implements LocaleDAO
     {
         this.localeEntityCache = new EntityLookupCache<Long, String, String>(
                 localeEntityCache,
+                localeEntityNegativeCache,
                 CACHE_REGION_LOCALE,
                 new LocaleEntityCallbackDAO());
     }
     
+    /**
+     * Set the cache that records locales that are known not to exist
+     * 
+     * @param localeEntityNegativeCache     the cache of missing locales
+     * 
+     * @since 7.1
+     */
+    public void setLocaleEntityNegativeCache(SimpleCache<Serializable, Object> localeEntityNegativeCache)
+    {
+        this.localeEntityNegativeCache = localeEntityNegativeCache;
+        this.localeEntityCache = localeEntityCache.withNegativeCache(localeEntityNegativeCache);
+    }
+    
     /**
      * Default constructor.
      * <p>
@@ -29,6 +29,8 @@ import java.io.Serializable;
 
 import org.alfresco.error.AlfrescoRuntimeException;
 import org.alfresco.repo.cache.SimpleCache;
+import org.alfresco.repo.cache.lookup.EntityLookupCache;
+import org.alfresco.repo.cache.lookup.EntityLookupCache.EntityLookupCallbackDAOAdaptor;
 import org.alfresco.util.Pair;
 import org.springframework.dao.ConcurrencyFailureException;
 import org.springframework.extensions.surf.util.ParameterCheck;
@@ -44,9 +46,27 @@ import org.springframework.extensions.surf.util.ParameterCheck;
  */
 public abstract class AbstractMimetypeDAOImpl implements MimetypeDAO
 {
-    private static final Long CACHE_NULL_LONG = Long.MIN_VALUE;
-    private static final String NULL_SAFE_STRING = ".null";
-    private SimpleCache<Serializable, Serializable> mimetypeEntityCache;
+    private static final String CACHE_REGION_MIMETYPE = "Mimetype";
+    
+    /**
+     * Cache for the Mimetype values:<br/>
+     * KEY: ID<br/>
+     * VALUE: Mimetype<br/>
+     * VALUE KEY: Mimetype<br/>
+     */
+    private EntityLookupCache<Long, String, String> mimetypeEntityCache;
+    private SimpleCache<Serializable, Object> mimetypeEntityNegativeCache;
+
+    /**
+     * Default constructor.
+     * <p>
+     * This sets up the DAO accessors to bypass any caching to handle the case where the caches are not
+     * supplied in the setters.
+     */
+    protected AbstractMimetypeDAOImpl()
+    {
+        this.mimetypeEntityCache = new EntityLookupCache<Long, String, String>(new MimetypeEntityCallbackDAO());
+    }
 
     /**
      * 
@@ -54,29 +74,34 @@ public abstract class AbstractMimetypeDAOImpl implements MimetypeDAO
      */
     public void setMimetypeEntityCache(SimpleCache<Serializable, Serializable> mimetypeEntityCache)
     {
-        this.mimetypeEntityCache = mimetypeEntityCache;
+        this.mimetypeEntityCache = new EntityLookupCache<Long, String, String>(
+                mimetypeEntityCache,
+                mimetypeEntityNegativeCache,
+                CACHE_REGION_MIMETYPE,
+                new MimetypeEntityCallbackDAO());
+    }
+
+    /**
+     * Set the cache that records mimetypes that are known not to exist
+     * 
+     * @param mimetypeEntityNegativeCache   the cache of missing mimetypes
+     * 
+     * @since 7.1
+     */
+    public void setMimetypeEntityNegativeCache(SimpleCache<Serializable, Object> mimetypeEntityNegativeCache)
+    {
+        this.mimetypeEntityNegativeCache = mimetypeEntityNegativeCache;
+        this.mimetypeEntityCache = mimetypeEntityCache.withNegativeCache(mimetypeEntityNegativeCache);
     }
 
     public Pair<Long, String> getMimetype(Long id)
     {
-        // Check the cache
-        String mimetype = (String) mimetypeEntityCache.get(id);
-        if (mimetype != null)
-        {
-            return new Pair<Long, String>(id, mimetype);
-        }
-        // Get it from the DB
-        MimetypeEntity mimetypeEntity = getMimetypeEntity(id);
-        if (mimetypeEntity == null)
+        Pair<Long, String> entityPair = mimetypeEntityCache.getByKey(id);
+        if (entityPair == null)
         {
             throw new AlfrescoRuntimeException("The MimetypeEntity ID " + id + " doesn't exist.");
         }
-        mimetype = mimetypeEntity.getMimetype();
-        // Cache it
-        mimetypeEntityCache.put(mimetype, id);
-        mimetypeEntityCache.put(id, mimetype);
-        // Done
-        return new Pair<Long, String>(id, mimetype);
+        return entityPair;
     }
 
     public Pair<Long, String> getMimetype(String mimetype)
@@ -84,37 +109,7 @@ public abstract class AbstractMimetypeDAOImpl implements MimetypeDAO
         ParameterCheck.mandatory("mimetype", mimetype);
         mimetype = sanitizeMimetype(mimetype);
         
-        // Check the cache
-        Long id = (Long) mimetypeEntityCache.get(mimetype);
-        if (id != null)
-        {
-            if (id.equals(CACHE_NULL_LONG))
-            {
-                return null;
-            }
-            else
-            {
-                return new Pair<Long, String>(id, mimetype);
-            }
-        }
-        // It's not in the cache, so query
-        MimetypeEntity result = getMimetypeEntity(mimetype);
-        if (result == null)
-        {
-            // Cache it
-            mimetypeEntityCache.put(mimetype, CACHE_NULL_LONG);
-            // Done
-            return null;
-        }
-        else
-        {
-            id = result.getId();
-            // Cache it
-            mimetypeEntityCache.put(id, mimetype);
-            mimetypeEntityCache.put(mimetype, id);
-            // Done
-            return new Pair<Long, String>(id, mimetype);
-        }
+        return mimetypeEntityCache.getByValue(mimetype);
     }
 
     public Pair<Long, String> getOrCreateMimetype(String mimetype)
@@ -122,17 +117,7 @@ public abstract class AbstractMimetypeDAOImpl implements MimetypeDAO
         ParameterCheck.mandatory("mimetype", mimetype);
         mimetype = sanitizeMimetype(mimetype);
         
-        Pair<Long, String> result = getMimetype(mimetype);
-        if (result == null)
-        {
-            MimetypeEntity mimetypeEntity = createMimetypeEntity(mimetype);
-            Long id = mimetypeEntity.getId();
-            result = new Pair<Long, String>(id, mimetype);
-            // Cache it
-            mimetypeEntityCache.put(id, mimetype);
-            mimetypeEntityCache.put(mimetype, id);
-        }
-        return result;
+        return mimetypeEntityCache.getOrCreateByValue(mimetype);
     }
     
     public int updateMimetype(String oldMimetype, String newMimetype)
@@ -154,19 +139,66 @@ public abstract class AbstractMimetypeDAOImpl implements MimetypeDAO
         }
         // The ID will remain the same
         Long id = oldMimetypePair.getFirst();
-        // We have to update it
-        int count = updateMimetypeEntity(id, newMimetype);
+        // We have to update it; the cache entries are updated as well
+        int count = mimetypeEntityCache.updateValue(id, newMimetype);
         if (count != 1)
         {
             throw new ConcurrencyFailureException("Concurrent update of mimetype: " + oldMimetype);
         }
-        // Cache it
-        mimetypeEntityCache.remove(oldMimetype);
-        mimetypeEntityCache.put(id, newMimetype);
-        mimetypeEntityCache.put(newMimetype, id);
         // Done
         return count;
     }
+    
+    /**
+     * Callback for <b>alf_mimetype</b> DAO
+     */
+    private class MimetypeEntityCallbackDAO extends EntityLookupCallbackDAOAdaptor<Long, String, String>
+    {
+        @Override
+        public String getValueKey(String value)
+        {
+            return value;
+        }
+
+        public Pair<Long, String> findByKey(Long id)
+        {
+            MimetypeEntity entity = getMimetypeEntity(id);
+            if (entity == null)
+            {
+                return null;
+            }
+            else
+            {
+                return new Pair<Long, String>(id, entity.getMimetype());
+            }
+        }
+        
+        @Override
+        public Pair<Long, String> findByValue(String mimetype)
+        {
+            MimetypeEntity entity = getMimetypeEntity(mimetype);
+            if (entity == null)
+            {
+                return null;
+            }
+            else
+            {
+                return new Pair<Long, String>(entity.getId(), mimetype);
+            }
+        }
+        
+        public Pair<Long, String> createValue(String mimetype)
+        {
+            MimetypeEntity entity = createMimetypeEntity(mimetype);
+            return new Pair<Long, String>(entity.getId(), mimetype);
+        }
+
+        @Override
+        public int updateValue(Long id, String mimetype)
+        {
+            return updateMimetypeEntity(id, mimetype);
+        }
+    }
 
     protected String sanitizeMimetype(String mimetype)
     {
@@ -35,6 +35,8 @@ import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Locale;
@@ -98,6 +100,9 @@ import org.alfresco.util.Pair;
 import org.alfresco.util.PropertyCheck;
 import org.alfresco.util.ReadWriteLockExecuter;
 import org.alfresco.util.ValueProtectingMap;
+import org.alfresco.util.collections.LongArrayList;
+import org.alfresco.util.collections.LongHashSet;
+import org.alfresco.util.collections.LongIterator;
 import org.alfresco.util.transaction.TransactionListenerAdapter;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -144,6 +149,7 @@ public abstract class AbstractNodeDAOImpl implements NodeDAO, BatchingDAO
     private UsageDAO usageDAO;
 
     private int cachingThreshold = 10;
+    private int bulkReadBatchSize = 256;
 
     /**
      * Cache for the Store root nodes by StoreRef:<br/>
@@ -237,6 +243,14 @@ public abstract class AbstractNodeDAOImpl implements NodeDAO, BatchingDAO
 		this.cachingThreshold = cachingThreshold;
 	}
 
+    /**
+     * @param bulkReadBatchSize         the maximum number of node IDs used in a single bulk-loading query
+     */
+    public void setBulkReadBatchSize(int bulkReadBatchSize)
+    {
+        this.bulkReadBatchSize = bulkReadBatchSize;
+    }
+
     /**
      * @param policyBehaviourFilter     the service to determine the behaviour for <b>cm:auditable</b> and
      *                                  other inherent capabilities.
@@ -2053,16 +2067,63 @@ public abstract class AbstractNodeDAOImpl implements NodeDAO, BatchingDAO
     public Map<QName, Serializable> getNodeProperties(Long nodeId)
     {
         Map<QName, Serializable> props = getNodePropertiesCached(nodeId);
+        Node node = getNodeNotNull(nodeId, false);
+        boolean auditable = hasNodeAspect(nodeId, ContentModel.ASPECT_AUDITABLE);
+        props = makeNodeProperties(node, props, auditable);
+        
+        // Done
+        if (isDebugEnabled)
+        {
+            logger.debug("Fetched properties for Node: \n" +
+                    "   Node:  " + nodeId + "\n" +
+                    "   Props: " + props);
+        }
+        return props;
+    }
+
+    @Override
+    public Map<Long, Map<QName, Serializable>> getNodeProperties(Collection<Long> nodeIds)
+    {
+        Map<Long, Node> nodes = getNodesCached(nodeIds);
+        Map<Long, Map<QName, Serializable>> cachedPropsByNodeId = getNodePropertiesCached(nodes);
+        Map<Long, Set<QName>> cachedAspectsByNodeId = getNodeAspectsCached(nodes);
+        
+        Map<Long, Map<QName, Serializable>> propsByNodeId = new HashMap<Long, Map<QName, Serializable>>(nodes.size() * 2);
+        for (Node node : nodes.values())
+        {
+            Long nodeId = node.getId();
+            boolean auditable = cachedAspectsByNodeId.get(nodeId).contains(ContentModel.ASPECT_AUDITABLE);
+            Map<QName, Serializable> props = makeNodeProperties(node, cachedPropsByNodeId.get(nodeId), auditable);
+            propsByNodeId.put(nodeId, props);
+        }
+        // Done
+        if (isDebugEnabled)
+        {
+            logger.debug("Fetched properties for " + propsByNodeId.size() + " of " + nodeIds.size() + " nodes.");
+        }
+        return propsByNodeId;
+    }
+    
+    /**
+     * Build the client-facing properties for a node by adding the <b>sys:referenceable</b>,
+     * <b>sys:localized</b> and (if required) <b>cm:auditable</b> properties to the cached properties.
+     * 
+     * @param node              the node that the properties belong to
+     * @param cachedProps       the read-only cached property map
+     * @param auditable         <tt>true</tt> if the node has the <b>cm:auditable</b> aspect
+     * @return                  Returns a map that only clones values when they are modified or are mutable
+     */
+    private Map<QName, Serializable> makeNodeProperties(Node node, Map<QName, Serializable> cachedProps, boolean auditable)
+    {
         // Create a shallow copy to allow additions
-        props = new HashMap<QName, Serializable>(props);
+        Map<QName, Serializable> props = new HashMap<QName, Serializable>(cachedProps);
         
-        Node node = getNodeNotNull(nodeId, false);
         // Handle sys:referenceable
         ReferenceablePropertiesEntity.addReferenceableProperties(node, props);
         // Handle sys:localized
         LocalizedPropertiesEntity.addLocalizedProperties(localeDAO, node, props);
         // Handle cm:auditable
-        if (hasNodeAspect(nodeId, ContentModel.ASPECT_AUDITABLE))
+        if (auditable)
         {
             AuditablePropertiesEntity auditableProperties = node.getAuditableProperties();
             if (auditableProperties == null)
@@ -2074,16 +2135,7 @@ public abstract class AbstractNodeDAOImpl implements NodeDAO, BatchingDAO
         
         // Wrap to ensure that we only clone values if the client attempts to modify
         // the map or retrieve values that might, themselves, be mutable
-        props = new ValueProtectingMap<QName, Serializable>(props, NodePropertyValue.IMMUTABLE_CLASSES);
-        
-        // Done
-        if (isDebugEnabled)
-        {
-            logger.debug("Fetched properties for Node: \n" +
-                    "   Node:  " + nodeId + "\n" +
-                    "   Props: " + props);
-        }
-        return props;
+        return new ValueProtectingMap<QName, Serializable>(props, NodePropertyValue.IMMUTABLE_CLASSES);
     }
 
     @Override
@@ -2523,6 +2575,79 @@ public abstract class AbstractNodeDAOImpl implements NodeDAO, BatchingDAO
         return cachedProperties;
     }
     
+    /**
+     * Bulk version of {@link #getNodePropertiesCached(Long)}.  Cache misses are loaded in batches
+     * and put into the cache.
+     * 
+     * @param nodes         the nodes to get properties for, keyed by node ID
+     * @return              Returns the read-only cached property maps, keyed by node ID
+     */
+    private Map<Long, Map<QName, Serializable>> getNodePropertiesCached(Map<Long, Node> nodes)
+    {
+        Map<Long, Map<QName, Serializable>> propsByNodeId = new HashMap<Long, Map<QName, Serializable>>(nodes.size() * 2);
+        SortedSet<Long> missingNodeIds = new TreeSet<Long>();
+        for (Node node : nodes.values())
+        {
+            Map<QName, Serializable> props = propertiesCache.getValue(node.getNodeVersionKey());
+            if (props == null)
+            {
+                missingNodeIds.add(node.getId());
+            }
+            else
+            {
+                propsByNodeId.put(node.getId(), props);
+            }
+        }
+        if (missingNodeIds.isEmpty())
+        {
+            return propsByNodeId;
+        }
+        
+        Set<Long> staleNodeIds = new HashSet<Long>();
+        SortedSet<Long> batch = new TreeSet<Long>();
+        Iterator<Long> missingNodeIdsIterator = missingNodeIds.iterator();
+        while (missingNodeIdsIterator.hasNext())
+        {
+            batch.add(missingNodeIdsIterator.next());
+            if (batch.size() < bulkReadBatchSize && missingNodeIdsIterator.hasNext())
+            {
+                continue;
+            }
+            // First ensure all content data are pre-cached, so we don't have to load them individually when converting properties
+            contentDataDAO.cacheContentDataForNodes(batch);
+            Map<NodeVersionKey, Map<NodePropertyKey, NodePropertyValue>> propsRawByNodeVersionKey = selectNodeProperties(batch);
+            for (Map.Entry<NodeVersionKey, Map<NodePropertyKey, NodePropertyValue>> entry : propsRawByNodeVersionKey.entrySet())
+            {
+                NodeVersionKey nodeVersionKeyFromDb = entry.getKey();
+                Long nodeId = nodeVersionKeyFromDb.getNodeId();
+                batch.remove(nodeId);
+                if (!nodeVersionKeyFromDb.equals(nodes.get(nodeId).getNodeVersionKey()))
+                {
+                    // Leave it to the single-node lookup to deal with the stale entry
+                    staleNodeIds.add(nodeId);
+                    continue;
+                }
+                Map<QName, Serializable> props = nodePropertyHelper.convertToPublicProperties(entry.getValue());
+                props = Collections.unmodifiableMap(props);
+                propertiesCache.setValue(nodeVersionKeyFromDb, props);
+                propsByNodeId.put(nodeId, props);
+            }
+            // Cache the absence of properties too!
+            for (Long nodeId : batch)
+            {
+                Map<QName, Serializable> props = Collections.emptyMap();
+                propertiesCache.setValue(nodes.get(nodeId).getNodeVersionKey(), props);
+                propsByNodeId.put(nodeId, props);
+            }
+            batch.clear();
+        }
+        for (Long nodeId : staleNodeIds)
+        {
+            propsByNodeId.put(nodeId, getNodePropertiesCached(nodeId));
+        }
+        return propsByNodeId;
+    }
+    
     /**
      * Update the node properties cache.  The incoming properties will be wrapped to be
      * unmodifiable.
@@ -2604,6 +2729,21 @@ public abstract class AbstractNodeDAOImpl implements NodeDAO, BatchingDAO
         return nodeAspects;
     }
 
+    @Override
+    public Map<Long, Set<QName>> getNodeAspects(Collection<Long> nodeIds)
+    {
+        Map<Long, Node> nodes = getNodesCached(nodeIds);
+        Map<Long, Set<QName>> aspectsByNodeId = getNodeAspectsCached(nodes);
+        for (Set<QName> nodeAspects : aspectsByNodeId.values())
+        {
+            // Nodes are always referenceable
+            nodeAspects.add(ContentModel.ASPECT_REFERENCEABLE);
+            // Nodes are always localized
+            nodeAspects.add(ContentModel.ASPECT_LOCALIZED);
+        }
+        return aspectsByNodeId;
+    }
+
     @Override
     public boolean hasNodeAspect(Long nodeId, QName aspectQName)
     {
@@ -2799,6 +2939,75 @@ public abstract class AbstractNodeDAOImpl implements NodeDAO, BatchingDAO
         return new HashSet<QName>(cacheEntry.getSecond());
     }
     
+    /**
+     * Bulk version of {@link #getNodeAspectsCached(Long)}.  Cache misses are loaded in batches
+     * and put into the cache.
+     * 
+     * @param nodes         the nodes to get aspects for, keyed by node ID
+     * @return              Returns writable copies of the cached aspects sets, keyed by node ID
+     */
+    private Map<Long, Set<QName>> getNodeAspectsCached(Map<Long, Node> nodes)
+    {
+        Map<Long, Set<QName>> aspectsByNodeId = new HashMap<Long, Set<QName>>(nodes.size() * 2);
+        SortedSet<Long> missingNodeIds = new TreeSet<Long>();
+        for (Node node : nodes.values())
+        {
+            Set<QName> nodeAspects = aspectsCache.getValue(node.getNodeVersionKey());
+            if (nodeAspects == null)
+            {
+                missingNodeIds.add(node.getId());
+            }
+            else
+            {
+                aspectsByNodeId.put(node.getId(), new HashSet<QName>(nodeAspects));
+            }
+        }
+        if (missingNodeIds.isEmpty())
+        {
+            return aspectsByNodeId;
+        }
+        
+        Set<Long> staleNodeIds = new HashSet<Long>();
+        SortedSet<Long> batch = new TreeSet<Long>();
+        Iterator<Long> missingNodeIdsIterator = missingNodeIds.iterator();
+        while (missingNodeIdsIterator.hasNext())
+        {
+            batch.add(missingNodeIdsIterator.next());
+            if (batch.size() < bulkReadBatchSize && missingNodeIdsIterator.hasNext())
+            {
+                continue;
+            }
+            Map<NodeVersionKey, Set<QName>> nodeAspectsByNodeVersionKey = selectNodeAspects(batch);
+            for (Map.Entry<NodeVersionKey, Set<QName>> entry : nodeAspectsByNodeVersionKey.entrySet())
+            {
+                NodeVersionKey nodeVersionKeyFromDb = entry.getKey();
+                Long nodeId = nodeVersionKeyFromDb.getNodeId();
+                batch.remove(nodeId);
+                if (!nodeVersionKeyFromDb.equals(nodes.get(nodeId).getNodeVersionKey()))
+                {
+                    // Leave it to the single-node lookup to deal with the stale entry
+                    staleNodeIds.add(nodeId);
+                    continue;
+                }
+                Set<QName> nodeAspects = entry.getValue();
+                aspectsCache.setValue(nodeVersionKeyFromDb, Collections.unmodifiableSet(nodeAspects));
+                aspectsByNodeId.put(nodeId, new HashSet<QName>(nodeAspects));
+            }
+            // Cache the absence of aspects too!
+            for (Long nodeId : batch)
+            {
+                aspectsCache.setValue(nodes.get(nodeId).getNodeVersionKey(), Collections.<QName>emptySet());
+                aspectsByNodeId.put(nodeId, new HashSet<QName>());
+            }
+            batch.clear();
+        }
+        for (Long nodeId : staleNodeIds)
+        {
+            aspectsByNodeId.put(nodeId, getNodeAspectsCached(nodeId));
+        }
+        return aspectsByNodeId;
+    }
+    
     /**
      * Update the node aspects cache.  The incoming set will be wrapped to be unmodifiable.
      */
@@ -3532,6 +3741,65 @@ public abstract class AbstractNodeDAOImpl implements NodeDAO, BatchingDAO
                 new ChildAssocRefBatchingQueryCallback(resultsCallback));
     }
 
+    @Override
+    public void streamChildAssocs(
+            Long parentNodeId,
+            QName assocTypeQName,
+            Boolean isPrimary,
+            Long minChildNodeIdInclusive,
+            int pageSize,
+            ChildAssocRefQueryCallback resultsCallback)
+    {
+        if (pageSize < 1)
+        {
+            throw new IllegalArgumentException("Page size must be at least 1: " + pageSize);
+        }
+        boolean preload = resultsCallback.preLoadNodes();
+        Long fromChildNodeId = minChildNodeIdInclusive;
+        Long afterAssocId = null;
+        boolean more = true;
+        while (more)
+        {
+            // The page is read in full, releasing the connection's result set before any callbacks
+            List<ChildAssocEntity> page = selectChildAssocsByChildNodeId(
+                    parentNodeId, assocTypeQName, isPrimary,
+                    fromChildNodeId, afterAssocId, pageSize);
+            if (page.isEmpty())
+            {
+                break;
+            }
+            if (preload)
+            {
+                LongArrayList childNodeIds = new LongArrayList(page.size());
+                for (ChildAssocEntity assoc : page)
+                {
+                    childNodeIds.add(assoc.getChildNode().getId());
+                }
+                cacheNodesById(childNodeIds);
+            }
+            for (ChildAssocEntity assoc : page)
+            {
+                Pair<Long, ChildAssociationRef> childAssocPair = assoc.getPair(qnameDAO);
+                Pair<Long, NodeRef> parentNodePair = assoc.getParentNode().getNodePair();
+                Pair<Long, NodeRef> childNodePair = assoc.getChildNode().getNodePair();
+                if (!resultsCallback.handle(childAssocPair, parentNodePair, childNodePair))
+                {
+                    more = false;
+                    break;
+                }
+            }
+            if (page.size() < pageSize)
+            {
+                break;
+            }
+            // Continue after the last association seen; the same child can appear in several associations
+            ChildAssocEntity last = page.get(page.size() - 1);
+            fromChildNodeId = last.getChildNode().getId();
+            afterAssocId = last.getId();
+        }
+        resultsCallback.done();
+    }
+
     @Override
     public void getChildAssocs(Long parentNodeId, Set<QName> assocTypeQNames, ChildAssocRefQueryCallback resultsCallback)
     {
@@ -4476,35 +4744,52 @@ public abstract class AbstractNodeDAOImpl implements NodeDAO, BatchingDAO
     
     @Override
     public Set<Long> getCachedAncestors(List<Long> nodeIds)
+    {
+        LongHashSet ancestors = getCachedAncestors(LongArrayList.of(nodeIds));
+        Set<Long> result = new TreeSet<Long>();
+        ancestors.forEach(result::add);
+        return result;
+    }
+
+    @Override
+    public LongHashSet getCachedAncestors(LongArrayList nodeIds)
     {
         // First, make sure 'level 1' nodes and their parents are in the cache
         cacheNodesById(nodeIds);
-        for (Long nodeId : nodeIds)
+        LongIterator nodeIdIterator = nodeIds.iterator();
+        while (nodeIdIterator.hasNext())
         {
+            long nodeId = nodeIdIterator.nextLong();
             // Filter out deleted nodes
             if (exists(nodeId))
             {
                 getParentAssocsCached(nodeId);
             }
         }
-        // Now recurse on all ancestors in the cache
-        Set<Long> ancestors = new TreeSet<Long>();
-        for (Long nodeId : nodeIds)
+        // Now walk all ancestors in the cache
+        LongHashSet ancestors = new LongHashSet(nodeIds.size() * 2);
+        LongArrayList toVisit = new LongArrayList(nodeIds.size());
+        toVisit.addAll(nodeIds);
+        while (!toVisit.isEmpty())
         {
-            findCachedAncestors(nodeId, ancestors);
+            // Depth-first, using the list as a stack
+            long nodeId = toVisit.removeLast();
+            if (ancestors.add(nodeId))
+            {
+                findCachedParents(nodeId, toVisit);
+            }
         }
         return ancestors;
     }
 
     /**
-     * Uses the node and parent assocs cache content to recursively find the set of currently cached ancestor node IDs
+     * Uses the node and parent assocs cache content to find the currently cached parent node IDs
+     * 
+     * @param nodeId            the node to examine
+     * @param parentIds         the list to add the parent IDs to
      */
-    private void findCachedAncestors(Long nodeId, Set<Long> ancestors)
+    private void findCachedParents(long nodeId, LongArrayList parentIds)
     {
-        if (!ancestors.add(nodeId))
-        {
-            return; // Already visited
-        }
         Node node = nodesCache.getValue(nodeId);
         if (node == null)
         {
@@ -4518,12 +4803,18 @@ public abstract class AbstractNodeDAOImpl implements NodeDAO, BatchingDAO
         }
         for (ChildAssocEntity childAssoc : value.getParentAssocs().values())
         {
-            findCachedAncestors(childAssoc.getParentNode().getId(), ancestors);
+            parentIds.add(childAssoc.getParentNode().getId());
         }
     }
 
     @Override
     public void cacheNodesById(List<Long> nodeIds)
+    {
+        cacheNodesById(LongArrayList.of(nodeIds));
+    }
+
+    @Override
+    public void cacheNodesById(LongArrayList nodeIds)
     {
         /*
          * ALF-2712: Performance degradation from 3.1.0 to 3.1.2
@@ -4558,9 +4849,11 @@ public abstract class AbstractNodeDAOImpl implements NodeDAO, BatchingDAO
         int missingCacheEntryCount = 0;
         boolean forceBatch = false;
         
-        List<Long> batchLoadNodeIds = new ArrayList<Long>(nodeIds.size());
-        for (Long nodeId : nodeIds)
+        LongArrayList batchLoadNodeIds = new LongArrayList(nodeIds.size());
+        LongIterator nodeIdIterator = nodeIds.iterator();
+        while (nodeIdIterator.hasNext())
         {
+            long nodeId = nodeIdIterator.nextLong();
             if (!forceBatch)
             {
                 // Is this node in the cache?
@@ -4592,6 +4885,41 @@ public abstract class AbstractNodeDAOImpl implements NodeDAO, BatchingDAO
         }
     }
 
+    /**
+     * Get the nodes for a bulk read, batch-loading any nodes that are not already in the cache.
+     * 
+     * @param nodeIds       the IDs of the nodes (live or deleted) to fetch
+     * @return              Returns the nodes keyed by ID, in the order given.  IDs that do not
+     *                      reference a node are not present in the results.
+     */
+    private Map<Long, Node> getNodesCached(Collection<Long> nodeIds)
+    {
+        List<Long> batchLoadNodeIds = new ArrayList<Long>(nodeIds.size());
+        for (Long nodeId : nodeIds)
+        {
+            if (nodesCache.getValue(nodeId) == null)
+            {
+                batchLoadNodeIds.add(nodeId);
+            }
+        }
+        if (batchLoadNodeIds.size() > 0)
+        {
+            // This also pre-loads the properties and aspects of the nodes
+            cacheNodesBatch(batchLoadNodeIds);
+        }
+        
+        Map<Long, Node> nodes = new LinkedHashMap<Long, Node>(nodeIds.size() * 2);
+        for (Long nodeId : nodeIds)
+        {
+            Pair<Long, Node> nodePair = nodesCache.getByKey(nodeId);
+            if (nodePair != null)
+            {
+                nodes.put(nodeId, nodePair.getSecond());
+            }
+        }
+        return nodes;
+    }
+
 	/**
      * {@inheritDoc}
      * <p/>
@@ -4701,9 +5029,38 @@ public abstract class AbstractNodeDAOImpl implements NodeDAO, BatchingDAO
         }
     }
     
+    /**
+     * Batch-load the given nodes in ascending ID order, so that each query covers a
+     * contiguous range of IDs
+     */
+    private void cacheNodesBatch(LongArrayList nodeIds)
+    {
+        LongArrayList sortedIds = nodeIds.subList(0, nodeIds.size());
+        sortedIds.sortAndDeduplicate();
+        int batchSize = bulkReadBatchSize;
+        SortedSet<Long> batch = new TreeSet<Long>();
+        for (int i = 0; i < sortedIds.size(); i++)
+        {
+            batch.add(sortedIds.get(i));
+            if (batch.size() >= batchSize)
+            {
+                // Preload
+                List<Node> nodes = selectNodesByIds(batch);
+                cacheNodesNoBatch(nodes);
+                batch.clear();
+            }
+        }
+        // Load any remaining nodes
+        if (batch.size() > 0)
+        {
+            List<Node> nodes = selectNodesByIds(batch);
+            cacheNodesNoBatch(nodes);
+        }
+    }
+
     private void cacheNodesBatch(List<Long> nodeIds)
     {
-        int batchSize = 256;
+        int batchSize = bulkReadBatchSize;
         SortedSet<Long> batch = new TreeSet<Long>();
         for (Long nodeId : nodeIds)
         {
@@ -5012,6 +5369,20 @@ public abstract class AbstractNodeDAOImpl implements NodeDAO, BatchingDAO
             Long parentNodeId,
             Set<QName> assocTypeQNames,
             ChildAssocRefQueryCallback resultsCallback);
+    /**
+     * Select a page of child associations ordered by child node ID and association ID.
+     * 
+     * @param fromChildNodeId       the child node ID to start from (inclusive) or <tt>null</tt>
+     * @param afterAssocId          if not <tt>null</tt>, associations to <tt>fromChildNodeId</tt> with
+     *                              an ID less than or equal to this are skipped
+     */
+    protected abstract List<ChildAssocEntity> selectChildAssocsByChildNodeId(
+            Long parentNodeId,
+            QName assocTypeQName,
+            Boolean isPrimary,
+            Long fromChildNodeId,
+            Long afterAssocId,
+            int maxResults);
     protected abstract ChildAssocEntity selectChildAssoc(
             Long parentNodeId,
             QName assocTypeQName,
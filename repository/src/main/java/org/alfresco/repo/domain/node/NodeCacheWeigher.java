@@ -0,0 +1,91 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2020 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.domain.node;
+
+import org.alfresco.repo.cache.DefaultCacheEntryWeigher;
+import org.alfresco.service.cmr.repository.ContentData;
+import org.alfresco.service.cmr.repository.MLText;
+
+/**
+ * Weighs the entries of the node, aspect and property caches, i.e. {@link Node nodes},
+ * {@link NodeVersionKey node version keys} and property maps containing
+ * {@link ContentData content} and {@link MLText multilingual text} values.
+ * 
+ * @since 7.1
+ */
+public class NodeCacheWeigher extends DefaultCacheEntryWeigher
+{
+    @Override
+    protected long estimate(Object obj, int depth)
+    {
+        if (obj instanceof Node)
+        {
+            Node node = (Node) obj;
+            // The store is shared between nodes
+            long bytes = OBJECT_HEADER + 12 * REFERENCE
+                    + estimate(node.getId(), depth + 1)
+                    + estimate(node.getVersion(), depth + 1)
+                    + estimate(node.getUuid(), depth + 1)
+                    + estimate(node.getTypeQNameId(), depth + 1)
+                    + estimate(node.getLocaleId(), depth + 1)
+                    + estimate(node.getShardKey(), depth + 1)
+                    + estimate(node.getExplicitShardId(), depth + 1);
+            TransactionEntity txn = node.getTransaction();
+            if (txn != null)
+            {
+                bytes += OBJECT_HEADER + 4 * REFERENCE + 3 * (OBJECT_HEADER + 8) + estimate(txn.getChangeTxnId(), depth + 1);
+            }
+            AuditablePropertiesEntity auditableProps = node.getAuditableProperties();
+            if (auditableProps != null)
+            {
+                bytes += OBJECT_HEADER + 5 * REFERENCE
+                        + estimate(auditableProps.getAuditCreator(), depth + 1)
+                        + estimate(auditableProps.getAuditCreated(), depth + 1)
+                        + estimate(auditableProps.getAuditModifier(), depth + 1)
+                        + estimate(auditableProps.getAuditModified(), depth + 1)
+                        + estimate(auditableProps.getAuditAccessed(), depth + 1);
+            }
+            return bytes;
+        }
+        else if (obj instanceof NodeVersionKey)
+        {
+            return OBJECT_HEADER + 2 * REFERENCE + 2 * (OBJECT_HEADER + 8);
+        }
+        else if (obj instanceof ContentData)
+        {
+            ContentData contentData = (ContentData) obj;
+            return OBJECT_HEADER + 5 * REFERENCE + 8
+                    + estimate(contentData.getContentUrl(), depth + 1)
+                    + estimate(contentData.getMimetype(), depth + 1)
+                    + estimate(contentData.getEncoding(), depth + 1);
+        }
+        else
+        {
+            // MLText is a map and is weighed as such
+            return super.estimate(obj, depth);
+        }
+    }
+}
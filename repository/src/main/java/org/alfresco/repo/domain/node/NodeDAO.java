@@ -353,6 +353,19 @@ public interface NodeDAO extends NodeBulkLoader
 
     public Map<QName, Serializable> getNodeProperties(Long nodeId);
     
+    /**
+     * Bulk-fetch the properties of several nodes.  Properties already present in the cache are
+     * used directly and all the misses are fetched using batched <b>IN</b>-list queries, after
+     * which the cache is back-filled.
+     * <p/>
+     * The maps returned are the same as those returned by {@link #getNodeProperties(Long)}.
+     * 
+     * @param nodeIds           the IDs of the nodes (live or deleted) to fetch properties for
+     * @return                  Returns the node properties keyed by node ID.  IDs that do not
+     *                          reference a node are not present in the results.
+     */
+    public Map<Long, Map<QName, Serializable>> getNodeProperties(Collection<Long> nodeIds);
+    
     public boolean setNodeProperties(Long nodeId, Map<QName, Serializable> properties);
     
     public boolean addNodeProperty(Long nodeId, QName qname, Serializable value);
@@ -391,6 +404,19 @@ public interface NodeDAO extends NodeBulkLoader
     
     public Set<QName> getNodeAspects(Long nodeId);
     
+    /**
+     * Bulk-fetch the aspects of several nodes.  Aspects already present in the cache are
+     * used directly and all the misses are fetched using batched <b>IN</b>-list queries, after
+     * which the cache is back-filled.
+     * <p/>
+     * The sets returned are the same as those returned by {@link #getNodeAspects(Long)}.
+     * 
+     * @param nodeIds           the IDs of the nodes (live or deleted) to fetch aspects for
+     * @return                  Returns the node aspects keyed by node ID.  IDs that do not
+     *                          reference a node are not present in the results.
+     */
+    public Map<Long, Set<QName>> getNodeAspects(Collection<Long> nodeIds);
+    
     public boolean hasNodeAspect(Long nodeId, QName aspectQName);
     
     public boolean addNodeAspects(Long nodeId, Set<QName> aspectQNames);
@@ -675,6 +701,39 @@ public interface NodeDAO extends NodeBulkLoader
             Set<QName> assocTypeQNames,
             ChildAssocRefQueryCallback resultsCallback);
 
+    /**
+     * Stream the child associations of a given parent node, optionally filtering on association type
+     * <tt>QName</tt> and on primary or secondary associations.
+     * <p/>
+     * Unlike the other <tt>getChildAssocs</tt> variants, the results are fetched in pages of
+     * <tt>pageSize</tt> associations, keyed on the child node ID, so that memory use does not depend
+     * on the number of children.  No query is open while the callback is invoked: the callback may
+     * make further DAO calls and the next page is only fetched once the current one has been handled.
+     * Return <tt>false</tt> from the callback to stop fetching pages.
+     * <p/>
+     * Results are ordered by child node ID and then association ID; {@link ChildAssocRefQueryCallback#orderResults()}
+     * is ignored.  If {@link ChildAssocRefQueryCallback#preLoadNodes()} is <tt>true</tt>, the child nodes of each
+     * page are bulk-loaded before the page is handed to the callback.
+     * 
+     * @param parentNodeId              the parent node ID
+     * @param assocTypeQName            the association type qname to filter on; <tt>null</tt> for no filtering
+     * @param isPrimary                 filter for primary (<tt>true</tt>) or secondary associations;
+     *                                  <tt>null</tt> for no filtering.
+     * @param minChildNodeIdInclusive   the child node ID to start from, allowing a previous iteration to be
+     *                                  resumed; <tt>null</tt> to start at the beginning
+     * @param pageSize                  the number of associations to fetch per query
+     * @param resultsCallback           the callback that will be called with the results
+     * 
+     * @since 7.1
+     */
+    public void streamChildAssocs(
+            Long parentNodeId,
+            QName assocTypeQName,
+            Boolean isPrimary,
+            Long minChildNodeIdInclusive,
+            int pageSize,
+            ChildAssocRefQueryCallback resultsCallback);
+
     /**
      * Get a child association for given parent node, association type and child node name (<b>cm:name</b>).
      * 
@@ -134,6 +134,7 @@ public class NodeDAOImpl extends AbstractNodeDAOImpl
     private static final String SELECT_CHILD_ASSOCS_BY_PROPERTY_VALUE = "alfresco.node.select_ChildAssocsByPropertyValue";
     private static final String SELECT_CHILD_ASSOCS_OF_PARENT = "alfresco.node.select_ChildAssocsOfParent";
     private static final String SELECT_CHILD_ASSOCS_OF_PARENT_LIMITED = "alfresco.node.select.children.select_ChildAssocsOfParent_Limited";
+    private static final String SELECT_CHILD_ASSOCS_OF_PARENT_BY_CHILD_NODE_ID = "alfresco.node.select.children.select_ChildAssocsOfParent_ByChildNodeId";
     private static final String SELECT_CHILD_ASSOC_OF_PARENT_BY_NAME = "alfresco.node.select_ChildAssocOfParentByName";
     private static final String SELECT_CHILD_ASSOCS_OF_PARENT_WITHOUT_PARENT_ASSOCS_OF_TYPE =
             "alfresco.node.select_ChildAssocsOfParentWithoutParentAssocsOfType";
@@ -1047,6 +1048,37 @@ public class NodeDAOImpl extends AbstractNodeDAOImpl
         return template.selectList(SELECT_CHILD_ASSOCS_OF_PARENT, assoc);
     }
 
+    @Override
+    protected List<ChildAssocEntity> selectChildAssocsByChildNodeId(
+            Long parentNodeId,
+            QName assocTypeQName,
+            Boolean isPrimary,
+            Long fromChildNodeId,
+            Long afterAssocId,
+            int maxResults)
+    {
+        Map<String, Object> params = new HashMap<String, Object>(11);
+        params.put("parentNodeId", parentNodeId);
+        // Type QName
+        if (assocTypeQName != null)
+        {
+            Pair<Long, QName> assocTypeQNamePair = qnameDAO.getQName(assocTypeQName);
+            if (assocTypeQNamePair == null)
+            {
+                return Collections.emptyList();     // Shortcut
+            }
+            params.put("typeQNameId", assocTypeQNamePair.getFirst());
+        }
+        params.put("isPrimary", isPrimary);
+        // Keyset position
+        params.put("fromChildNodeId", fromChildNodeId);
+        params.put("afterAssocId", fromChildNodeId == null ? null : afterAssocId);
+        // The limit is applied in SQL so that a streaming result set is never abandoned part-way through
+        params.put("maxResults", maxResults);
+        
+        return template.selectList(SELECT_CHILD_ASSOCS_OF_PARENT_BY_CHILD_NODE_ID, params);
+    }
+
     /**
      * Filter to allow the {@link ChildAssocResultHandler} to filter results.
      * 
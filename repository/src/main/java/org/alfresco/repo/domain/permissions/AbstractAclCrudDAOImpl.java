@@ -44,6 +44,7 @@ import org.alfresco.repo.security.permissions.impl.SimplePermissionReference;
 import org.alfresco.service.cmr.security.AccessStatus;
 import org.alfresco.service.namespace.QName;
 import org.alfresco.util.Pair;
+import org.alfresco.util.collections.LongArrayList;
 import org.springframework.dao.ConcurrencyFailureException;
 import org.springframework.extensions.surf.util.ParameterCheck;
 
@@ -268,6 +269,11 @@ public abstract class AbstractAclCrudDAOImpl implements AclCrudDAO
         return getADMNodeEntityIdsByAcl(aclEntityId, maxResults);
     }
     
+    public LongArrayList getADMNodeIdsByAcl(long aclEntityId, int maxResults)
+    {
+        return getADMNodeEntityIdListByAcl(aclEntityId, maxResults);
+    }
+    
     public void updateAcl(AclUpdateEntity entity)
     {
         ParameterCheck.mandatory("entity", entity);
@@ -367,6 +373,7 @@ public abstract class AbstractAclCrudDAOImpl implements AclCrudDAO
     protected abstract int deleteAclEntity(long id);
     
     protected abstract List<Long> getADMNodeEntityIdsByAcl(long aclEntityId, int maxResults);
+    protected abstract LongArrayList getADMNodeEntityIdListByAcl(long aclEntityId, int maxResults);
     
     //
     // ACL Member
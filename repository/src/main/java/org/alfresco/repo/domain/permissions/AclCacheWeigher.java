@@ -0,0 +1,79 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2020 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.domain.permissions;
+
+import java.util.List;
+
+import org.alfresco.repo.cache.DefaultCacheEntryWeigher;
+import org.alfresco.repo.security.permissions.AccessControlEntry;
+import org.alfresco.repo.security.permissions.AccessControlList;
+import org.alfresco.repo.security.permissions.AccessControlListProperties;
+
+/**
+ * Weighs the entries of the ACL caches, i.e. {@link AccessControlList access control lists}
+ * and {@link AclEntity ACL entities}.
+ * <p>
+ * Permission references and entry contexts are shared between ACLs and only count as a reference.
+ * 
+ * @since 7.1
+ */
+public class AclCacheWeigher extends DefaultCacheEntryWeigher
+{
+    @Override
+    protected long estimate(Object obj, int depth)
+    {
+        if (obj instanceof AccessControlList)
+        {
+            AccessControlList acl = (AccessControlList) obj;
+            long bytes = OBJECT_HEADER + 3 * REFERENCE + estimate(acl.getProperties(), depth + 1);
+            List<AccessControlEntry> entries = acl.getEntries();
+            if (entries != null)
+            {
+                bytes += OBJECT_HEADER + 32;
+                for (AccessControlEntry entry : entries)
+                {
+                    bytes += REFERENCE + estimate(entry, depth + 1);
+                }
+            }
+            return bytes;
+        }
+        else if (obj instanceof AccessControlEntry)
+        {
+            AccessControlEntry entry = (AccessControlEntry) obj;
+            return OBJECT_HEADER + 7 * REFERENCE + (OBJECT_HEADER + 8) + estimate(entry.getAuthority(), depth + 1);
+        }
+        else if (obj instanceof AccessControlListProperties)
+        {
+            // Also covers AclEntity
+            AccessControlListProperties properties = (AccessControlListProperties) obj;
+            return OBJECT_HEADER + 10 * REFERENCE + 5 * (OBJECT_HEADER + 8) + estimate(properties.getAclId(), depth + 1);
+        }
+        else
+        {
+            return super.estimate(obj, depth);
+        }
+    }
+}
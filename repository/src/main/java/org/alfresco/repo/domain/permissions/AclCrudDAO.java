@@ -33,6 +33,7 @@ import org.alfresco.repo.security.permissions.PermissionReference;
 import org.alfresco.service.cmr.security.AccessStatus;
 import org.alfresco.service.namespace.QName;
 import org.alfresco.util.Pair;
+import org.alfresco.util.collections.LongArrayList;
 
 /**
  * This provides basic services such as caching, but defers to the underlying implementation
@@ -70,6 +71,7 @@ public interface AclCrudDAO
     public void updateAcl(AclUpdateEntity entity);
     public void deleteAcl(long aclEntityId);
     public List<Long> getADMNodesByAcl(long aclEntityId, int maxResults);
+    public LongArrayList getADMNodeIdsByAcl(long aclEntityId, int maxResults);
     //
     // Access Control Entry (ACE)
     //
@@ -32,6 +32,7 @@ import org.alfresco.repo.security.permissions.AccessControlEntry;
 import org.alfresco.repo.security.permissions.AccessControlList;
 import org.alfresco.repo.security.permissions.AccessControlListProperties;
 import org.alfresco.repo.security.permissions.impl.AclChange;
+import org.alfresco.util.collections.LongArrayList;
 
 /**
  * Provides data access support for persistence in <b>alf_access_control_list</b>.
@@ -160,6 +161,17 @@ public interface AclDAO
     
     public List<Long> getADMNodesByAcl(long aclEntityId, int maxResults);
     
+    /**
+     * Get the IDs of the nodes using the ACL, without boxing each ID
+     * 
+     * @param aclEntityId       the ACL
+     * @param maxResults        the maximum number of IDs to return or <tt>-1</tt> for no limit
+     * @return                  the node IDs
+     * 
+     * @since 7.1
+     */
+    public LongArrayList getADMNodeIdsByAcl(long aclEntityId, int maxResults);
+    
     public Acl createLayeredAcl(Long indirectedAcl);
     
     public void renameAuthority(String before, String after);
@@ -189,4 +201,10 @@ public interface AclDAO
     */
     public Long getCurrentChangeSetCommitTime();
 
+    /**
+     * @return                 <tt>true</tt> if ACLs have been modified in the current transaction
+     * @since 7.1
+     */
+    public boolean hasCurrentChangeSet();
+
 }
@@ -60,6 +60,7 @@ import org.alfresco.service.namespace.QName;
 import org.alfresco.util.GUID;
 import org.alfresco.util.Pair;
 import org.alfresco.util.ParameterCheck;
+import org.alfresco.util.collections.LongArrayList;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
@@ -80,6 +81,7 @@ public class AclDAOImpl implements AclDAO
     private NodeDAO nodeDAO;
     private TenantService tenantService;
     private SimpleCache<Serializable, AccessControlList> aclCache;
+    private SimpleCache<Serializable, ?> readableAclsCache;
     
     private enum WriteMode
     {
@@ -142,6 +144,17 @@ public class AclDAOImpl implements AclDAO
         this.aclCache = aclCache;
     }
 
+    /**
+     * Set the optional cache of read decisions.  Decisions are keyed by the ACL version, so ACL changes
+     * need no invalidation, but the cache is cleared when an authority is renamed.
+     * 
+     * @since 7.1
+     */
+    public void setReadableAclsCache(SimpleCache<Serializable, ?> readableAclsCache)
+    {
+        this.readableAclsCache = readableAclsCache;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -772,12 +785,13 @@ public class AclDAOImpl implements AclDAO
                     // ALF-3563
                     
                     // Retrieve dependent nodes
-                    List<Long> nodeIds = aclCrudDAO.getADMNodesByAcl(aclId, -1);
+                    LongArrayList nodeIds = aclCrudDAO.getADMNodeIdsByAcl(aclId, -1);
                     
                     if (nodeIds.size() > 0)
                     {
-                        for (Long nodeId : nodeIds)
+                        for (int i = 0; i < nodeIds.size(); i++)
                         {
+                            long nodeId = nodeIds.get(i);
                             Pair<Long, NodeRef> nodePair = nodeDAO.getNodePair(nodeId);
                             if (nodePair == null)
                             {
@@ -874,7 +888,7 @@ public class AclDAOImpl implements AclDAO
             if (aclCrudDAO.getAcl(defining) == null)
             {
                 // ADM
-                if (getADMNodesByAcl(aclId, 1).size() == 0)
+                if (getADMNodeIdsByAcl(aclId, 1).isEmpty())
                 {
                     // delete acl members & acl
                     aclCrudDAO.deleteAclMembersByAcl(aclId);
@@ -1551,6 +1565,15 @@ public class AclDAOImpl implements AclDAO
         return aclCrudDAO.getADMNodesByAcl(aclEntityId, maxResults);
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public LongArrayList getADMNodeIdsByAcl(long aclEntityId, int maxResults)
+    {
+        return aclCrudDAO.getADMNodeIdsByAcl(aclEntityId, maxResults);
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -1696,6 +1719,12 @@ public class AclDAOImpl implements AclDAO
         return changeSetId;
     }
 
+    @Override
+    public boolean hasCurrentChangeSet()
+    {
+        return AlfrescoTransactionSupport.getResource(RESOURCE_KEY_ACL_CHANGE_SET_ID) != null;
+    }
+
     private static class AcePatternMatcher
     {
         private List<? extends AccessControlEntry> patterns;
@@ -1877,6 +1906,10 @@ public class AclDAOImpl implements AclDAO
     {
         aclCrudDAO.renameAuthority(before, after);
         aclCache.clear();
+        if (readableAclsCache != null)
+        {
+            readableAclsCache.clear();
+        }
     }
 
     /**
@@ -33,10 +33,20 @@ import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
 
 import com.google.common.collect.Sets;
 
+import org.alfresco.error.AlfrescoRuntimeException;
 import org.alfresco.model.ContentModel;
 import org.alfresco.repo.batch.BatchProcessWorkProvider;
 import org.alfresco.repo.batch.BatchProcessor;
@@ -46,6 +56,7 @@ import org.alfresco.repo.domain.node.NodeDAO.NodeRefQueryCallback;
 import org.alfresco.repo.lock.JobLockService;
 import org.alfresco.repo.lock.JobLockService.JobLockRefreshCallback;
 import org.alfresco.repo.lock.LockAcquisitionException;
+import org.alfresco.repo.management.DynamicMBeanExportOperations;
 import org.alfresco.repo.policy.ClassPolicyDelegate;
 import org.alfresco.repo.policy.PolicyComponent;
 import org.alfresco.repo.security.authentication.AuthenticationUtil;
@@ -56,6 +67,7 @@ import org.alfresco.repo.transaction.AlfrescoTransactionSupport;
 import org.alfresco.repo.transaction.RetryingTransactionHelper;
 import org.alfresco.repo.transaction.RetryingTransactionHelper.RetryingTransactionCallback;
 import org.alfresco.repo.transaction.TransactionListenerAdapter;
+import org.alfresco.service.cmr.attributes.AttributeService;
 import org.alfresco.service.cmr.repository.NodeRef;
 import org.alfresco.service.cmr.repository.StoreRef;
 import org.alfresco.service.namespace.NamespaceService;
@@ -63,6 +75,7 @@ import org.alfresco.service.namespace.QName;
 import org.alfresco.service.transaction.TransactionService;
 import org.alfresco.util.Pair;
 import org.alfresco.util.PolicyIgnoreUtil;
+import org.alfresco.util.TraceableThreadFactory;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.springframework.beans.BeansException;
@@ -73,12 +86,18 @@ import org.springframework.dao.ConcurrencyFailureException;
 
 /**
  * Finds nodes with ASPECT_PENDING_FIX_ACL aspect and sets fixed ACLs for them
+ * <p/>
+ * When more than one partition is configured, the pending nodes are split into node ID ranges
+ * that are processed in parallel.  Each range is leased through the {@link JobLockService}, so
+ * that servers in a cluster share the ranges out between them, and the progress through each
+ * range is recorded using the {@link AttributeService} so that an interrupted sweep resumes
+ * where it stopped.  The sweep itself is only created and removed under the global job lock.
  * 
  * @author Andreea Dragoi
  * @author sglover
  * @since 4.2.7
  */
-public class FixedAclUpdater extends TransactionListenerAdapter implements ApplicationContextAware
+public class FixedAclUpdater extends TransactionListenerAdapter implements ApplicationContextAware, FixedAclUpdaterMBean
 {
     private static final Log log = LogFactory.getLog(FixedAclUpdater.class);
     private static final Set<QName> PENDING_FIX_ACL_ASPECT_PROPS = pendingFixAclAspectProps();
@@ -87,6 +106,16 @@ public class FixedAclUpdater extends TransactionListenerAdapter implements Appli
     public static final String FIXED_ACL_ASYNC_CALL_KEY = "FIXED_ACL_ASYNC_CALL";
     protected static final QName LOCK_Q_NAME = QName.createQName(NamespaceService.SYSTEM_MODEL_1_0_URI, "FixedAclUpdater");
 
+    private static final String ATTR_KEY_CHECKPOINT = ".FixedAclUpdater";
+    private static final String ATTR_KEY_PARTITIONS = "partitions";
+    private static final String ATTR_KEY_NEXT_ID = "nextId";
+    private static final String ATTR_KEY_END_ID = "endId";
+    /** The next node ID recorded for a partition that has been finished */
+    private static final Long PARTITION_DONE = Long.valueOf(-1L);
+    /** How long to wait for another server to finish creating or removing a sweep */
+    private static final long SWEEP_LOCK_RETRY_WAIT = 100L;
+    private static final int SWEEP_LOCK_RETRY_COUNT = 50;
+
     /** A set of listeners to receive callback events whenever permissions are updated by this class. */
     private static Set<FixedAclUpdaterListener> listeners = Sets.newConcurrentHashSet();
 
@@ -101,6 +130,14 @@ public class FixedAclUpdater extends TransactionListenerAdapter implements Appli
     private int maxItemBatchSize = 100;
     private int numThreads = 4;
     private boolean forceSharedACL = false;
+    private int partitions = 1;
+    private AttributeService attributeService;
+    private DynamicMBeanExportOperations mbeanExporter;
+
+    private final AtomicInteger runningCount = new AtomicInteger();
+    private final AtomicLong processedCount = new AtomicLong();
+    private final AtomicInteger partitionsRemaining = new AtomicInteger();
+    private volatile long pendingAtStart = -1L;
 
     private ClassPolicyDelegate<OnInheritPermissionsDisabled> onInheritPermissionsDisabledDelegate;
     private PolicyComponent policyComponent;
@@ -163,6 +200,35 @@ public class FixedAclUpdater extends TransactionListenerAdapter implements Appli
         this.policyIgnoreUtil = policyIgnoreUtil;
     }
 
+    /**
+     * @param partitions        the number of node ID ranges to split pending nodes into, where 1 (the default)
+     *                          processes all pending nodes as a single batch
+     * @since 7.1
+     */
+    public void setPartitions(int partitions)
+    {
+        this.partitions = Math.max(partitions, 1);
+    }
+
+    /**
+     * @param attributeService  used to record the progress through each partition so that an interrupted sweep
+     *                          can resume (optional)
+     * @since 7.1
+     */
+    public void setAttributeService(AttributeService attributeService)
+    {
+        this.attributeService = attributeService;
+    }
+
+    /**
+     * @param mbeanExporter     the exporter used to register the updater for monitoring over JMX (optional)
+     * @since 7.1
+     */
+    public void setMbeanExporter(DynamicMBeanExportOperations mbeanExporter)
+    {
+        this.mbeanExporter = mbeanExporter;
+    }
+
     /** Register a {@link FixedAclUpdaterListener} to be notified when a node is updated by an instance of this class. */
     public static void registerListener(FixedAclUpdaterListener listener)
     {
@@ -173,12 +239,26 @@ public class FixedAclUpdater extends TransactionListenerAdapter implements Appli
     {
         onInheritPermissionsDisabledDelegate = policyComponent
                 .registerClassPolicy(PermissionServicePolicies.OnInheritPermissionsDisabled.class);
+        if (mbeanExporter != null)
+        {
+            try
+            {
+                mbeanExporter.registerMBean(this, new ObjectName("Alfresco:Name=FixedAclUpdater"));
+            }
+            catch (MalformedObjectNameException | RuntimeException e)
+            {
+                // Monitoring is optional
+                log.warn("Unable to register the fixed ACL updater for JMX monitoring", e);
+            }
+        }
     }
 
     private class GetNodesWithAspects
     {
         private Set<QName> aspects;
         private int workSize;
+        private Long minWorkNodeId;
+        private Long maxWorkNodeId;
         private GetNodesWithAspectCallback getNodesCallback;
 
         GetNodesWithAspects(Set<QName> aspects)
@@ -194,6 +274,22 @@ public class FixedAclUpdater extends TransactionListenerAdapter implements Appli
             return workSize;
         }
 
+        /**
+         * @return the lowest ID of the nodes counted, or <tt>null</tt> if there were none
+         */
+        Long getMinWorkNodeId()
+        {
+            return minWorkNodeId;
+        }
+
+        /**
+         * @return the highest ID of the nodes counted, or <tt>null</tt> if there were none
+         */
+        Long getMaxWorkNodeId()
+        {
+            return maxWorkNodeId;
+        }
+
         List<NodeRef> getNodesWithAspects()
         {
             List<NodeRef> nodes = transactionService.getRetryingTransactionHelper()
@@ -225,6 +321,8 @@ public class FixedAclUpdater extends TransactionListenerAdapter implements Appli
                             return countNodesCallback.getCount();
                         }
                     }, false, true);
+            minWorkNodeId = countNodesCallback.getMinNodeId();
+            maxWorkNodeId = countNodesCallback.getMaxNodeId();
             return count;
         }
     }
@@ -327,6 +425,7 @@ public class FixedAclUpdater extends TransactionListenerAdapter implements Appli
                     }
 
                     listeners.forEach(listener -> listener.permissionsUpdatedAsynchronously(nodeRef));
+                    processedCount.incrementAndGet();
 
                     if (log.isDebugEnabled())
                     {
@@ -394,11 +493,22 @@ public class FixedAclUpdater extends TransactionListenerAdapter implements Appli
     private class CountNodesWithAspectCallback implements NodeRefQueryCallback
     {
         private int count = 0;
+        private Long minNodeId;
+        private Long maxNodeId;
 
         @Override
         public boolean handle(Pair<Long, NodeRef> nodePair)
         {
             count++;
+            Long nodeId = nodePair.getFirst();
+            if (minNodeId == null || nodeId < minNodeId)
+            {
+                minNodeId = nodeId;
+            }
+            if (maxNodeId == null || nodeId > maxNodeId)
+            {
+                maxNodeId = nodeId;
+            }
             return true;
         }
 
@@ -406,6 +516,16 @@ public class FixedAclUpdater extends TransactionListenerAdapter implements Appli
         {
             return count;
         }
+
+        public Long getMinNodeId()
+        {
+            return minNodeId;
+        }
+
+        public Long getMaxNodeId()
+        {
+            return maxNodeId;
+        }
     }
 
     private static class FixedAclUpdaterJobLockRefreshCallback implements JobLockRefreshCallback
@@ -425,6 +545,146 @@ public class FixedAclUpdater extends TransactionListenerAdapter implements Appli
         }
     }
 
+    /**
+     * A range of node IDs and the node ID from which processing of the range continues
+     */
+    private static class Partition
+    {
+        private final int index;
+        /** The end of the range (exclusive), or <tt>null</tt> for the last range */
+        private final Long endNodeId;
+        private volatile long nextNodeId;
+
+        Partition(int index, long nextNodeId, Long endNodeId)
+        {
+            this.index = index;
+            this.nextNodeId = nextNodeId;
+            this.endNodeId = endNodeId;
+        }
+
+        boolean isDone()
+        {
+            return nextNodeId == PARTITION_DONE;
+        }
+
+        QName getLockQName()
+        {
+            return QName.createQName(NamespaceService.SYSTEM_MODEL_1_0_URI, "FixedAclUpdater-" + index);
+        }
+    }
+
+    /**
+     * Provides the pending nodes of a partition in node ID order, stopping early if the lease on the
+     * partition is lost
+     */
+    private class PartitionWorkProvider implements BatchProcessWorkProvider<Pair<Long, NodeRef>>
+    {
+        private final Set<QName> aspects = Collections.singleton(ContentModel.ASPECT_PENDING_FIX_ACL);
+        private final Partition partition;
+        private final JobLockRefreshCallback lockCallback;
+        private long scanFromNodeId;
+        private boolean exhausted = false;
+
+        PartitionWorkProvider(Partition partition, JobLockRefreshCallback lockCallback)
+        {
+            this.partition = partition;
+            this.lockCallback = lockCallback;
+            this.scanFromNodeId = partition.nextNodeId;
+        }
+
+        @Override
+        public int getTotalEstimatedWorkSize()
+        {
+            return -1;
+        }
+
+        @Override
+        public Collection<Pair<Long, NodeRef>> getNextWork()
+        {
+            if (exhausted || !lockCallback.isActive())
+            {
+                return Collections.emptyList();
+            }
+            List<Pair<Long, NodeRef>> nodes = transactionService.getRetryingTransactionHelper()
+                    .doInTransaction(new RetryingTransactionCallback<List<Pair<Long, NodeRef>>>()
+                    {
+                        @Override
+                        public List<Pair<Long, NodeRef>> execute() throws Throwable
+                        {
+                            final List<Pair<Long, NodeRef>> page = new ArrayList<>(maxItemBatchSize);
+                            nodeDAO.getNodesWithAspects(aspects, scanFromNodeId, partition.endNodeId, true, new NodeRefQueryCallback()
+                            {
+                                @Override
+                                public boolean handle(Pair<Long, NodeRef> nodePair)
+                                {
+                                    page.add(nodePair);
+                                    return page.size() < maxItemBatchSize;
+                                }
+                            });
+                            return page;
+                        }
+                    }, false, true);
+            if (nodes.isEmpty())
+            {
+                exhausted = true;
+            }
+            else
+            {
+                scanFromNodeId = nodes.get(nodes.size() - 1).getFirst() + 1;
+            }
+            return nodes;
+        }
+
+        boolean isExhausted()
+        {
+            return exhausted;
+        }
+    }
+
+    /**
+     * Processes the nodes of a partition one batch at a time, recording the progress after each batch
+     */
+    private class PartitionWorker implements BatchProcessWorker<Pair<Long, NodeRef>>
+    {
+        private final AclWorker aclWorker = createAclWorker();
+        private final Partition partition;
+        private Long lastNodeId;
+
+        PartitionWorker(Partition partition)
+        {
+            this.partition = partition;
+        }
+
+        @Override
+        public String getIdentifier(Pair<Long, NodeRef> nodePair)
+        {
+            return aclWorker.getIdentifier(nodePair.getSecond());
+        }
+
+        @Override
+        public void beforeProcess() throws Throwable
+        {
+            lastNodeId = null;
+        }
+
+        @Override
+        public void process(Pair<Long, NodeRef> nodePair) throws Throwable
+        {
+            aclWorker.process(nodePair.getSecond());
+            lastNodeId = nodePair.getFirst();
+        }
+
+        @Override
+        public void afterProcess() throws Throwable
+        {
+            // Nodes of a failed batch keep their aspect and are picked up by the next sweep
+            if (lastNodeId != null)
+            {
+                saveCheckpoint(partition, lastNodeId + 1);
+            }
+        }
+    }
+
     private static Set<QName> pendingFixAclAspectProps()
     {
         Set<QName> props = new HashSet<>();
@@ -435,6 +695,11 @@ public class FixedAclUpdater extends TransactionListenerAdapter implements Appli
 
     public int execute()
     {
+        if (partitions > 1)
+        {
+            return executePartitioned();
+        }
+
         String lockToken = null;
         FixedAclUpdaterJobLockRefreshCallback jobLockRefreshCallback = new FixedAclUpdaterJobLockRefreshCallback();
 
@@ -445,11 +710,19 @@ public class FixedAclUpdater extends TransactionListenerAdapter implements Appli
 
             AclWorkProvider provider = new AclWorkProvider();
             AclWorker worker = createAclWorker();
-            BatchProcessor<NodeRef> bp = new BatchProcessor<>("FixedAclUpdater",
-                    transactionService.getRetryingTransactionHelper(), provider, numThreads, maxItemBatchSize, applicationContext,
-                    log, 100);
-            int count = bp.process(worker, true);
-            return count;
+            startRun(provider.getTotalEstimatedWorkSize());
+            try
+            {
+                BatchProcessor<NodeRef> bp = new BatchProcessor<>("FixedAclUpdater",
+                        transactionService.getRetryingTransactionHelper(), provider, numThreads, maxItemBatchSize, applicationContext,
+                        log, 100);
+                int count = bp.process(worker, true);
+                return count;
+            }
+            finally
+            {
+                runningCount.decrementAndGet();
+            }
         }
         catch (LockAcquisitionException e)
         {
@@ -466,6 +739,412 @@ public class FixedAclUpdater extends TransactionListenerAdapter implements Appli
         }
     }
 
+    /**
+     * Process the pending nodes one partition at a time, with up to <tt>numThreads</tt> partitions in
+     * parallel.  Partitions leased by another server are left to that server.
+     * 
+     * @return the number of nodes that were pending when the run started
+     */
+    private int executePartitioned()
+    {
+        GetNodesWithAspects pending = new GetNodesWithAspects(Collections.singleton(ContentModel.ASPECT_PENDING_FIX_ACL));
+        int count = pending.getWorkSize();
+
+        List<Partition> sweep;
+        String lockToken = getSweepLock();
+        if (lockToken == null)
+        {
+            return 0;
+        }
+        try
+        {
+            if (count == 0)
+            {
+                // Nothing to resume either, so the next sweep can start from a fresh set of ranges
+                pendingAtStart = 0L;
+                finishSweep(true);
+                return 0;
+            }
+            sweep = startSweep(pending.getMinWorkNodeId(), pending.getMaxWorkNodeId());
+        }
+        finally
+        {
+            jobLockService.releaseLock(lockToken, LOCK_Q_NAME);
+        }
+
+        startRun(count);
+        try
+        {
+            TraceableThreadFactory threadFactory = new TraceableThreadFactory();
+            threadFactory.setNamePrefix("FixedAclUpdater");
+            threadFactory.setThreadDaemon(true);
+            ExecutorService executor = Executors.newFixedThreadPool(Math.max(Math.min(numThreads, sweep.size()), 1), threadFactory);
+            try
+            {
+                List<Future<?>> workers = new ArrayList<>(sweep.size());
+                for (final Partition partition : sweep)
+                {
+                    workers.add(executor.submit(() -> processPartition(partition)));
+                }
+                Throwable failure = null;
+                for (Future<?> worker : workers)
+                {
+                    try
+                    {
+                        worker.get();
+                    }
+                    catch (ExecutionException e)
+                    {
+                        if (failure == null)
+                        {
+                            failure = e.getCause();
+                        }
+                    }
+                    catch (InterruptedException e)
+                    {
+                        Thread.currentThread().interrupt();
+                        throw new AlfrescoRuntimeException("Interrupted while updating pending ACLs", e);
+                    }
+                }
+                if (failure instanceof RuntimeException)
+                {
+                    throw (RuntimeException) failure;
+                }
+                else if (failure instanceof Error)
+                {
+                    throw (Error) failure;
+                }
+            }
+            finally
+            {
+                executor.shutdown();
+            }
+            lockToken = getSweepLock();
+            if (lockToken != null)
+            {
+                try
+                {
+                    finishSweep(false);
+                }
+                finally
+                {
+                    jobLockService.releaseLock(lockToken, LOCK_Q_NAME);
+                }
+            }
+            return count;
+        }
+        finally
+        {
+            runningCount.decrementAndGet();
+        }
+    }
+
+    /**
+     * Take the global job lock, which guards the creation and removal of a sweep.  It is only held for
+     * long by a server that is not partitioning the work, in which case there is nothing to do here.
+     * 
+     * @return the lock token, or <tt>null</tt> if another server is holding the lock
+     */
+    private String getSweepLock()
+    {
+        try
+        {
+            return jobLockService.getLock(LOCK_Q_NAME, lockTimeToLive, SWEEP_LOCK_RETRY_WAIT, SWEEP_LOCK_RETRY_COUNT);
+        }
+        catch (LockAcquisitionException e)
+        {
+            if (log.isDebugEnabled())
+            {
+                log.debug("Pending ACLs are being updated by another server");
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Lease a partition and process its pending nodes, unless another server holds the lease
+     */
+    private void processPartition(Partition partition)
+    {
+        QName lockQName = partition.getLockQName();
+        String lockToken;
+        try
+        {
+            lockToken = jobLockService.getLock(lockQName, lockTimeToLive);
+        }
+        catch (LockAcquisitionException e)
+        {
+            if (log.isDebugEnabled())
+            {
+                log.debug("Partition " + partition.index + " is being processed by another server");
+            }
+            return;
+        }
+        FixedAclUpdaterJobLockRefreshCallback jobLockRefreshCallback = new FixedAclUpdaterJobLockRefreshCallback();
+        try
+        {
+            jobLockService.refreshLock(lockToken, lockQName, lockRefreshTime, jobLockRefreshCallback);
+
+            // Another server may have moved the partition on since the sweep was started
+            reloadCheckpoint(partition);
+            if (partition.isDone())
+            {
+                return;
+            }
+
+            PartitionWorkProvider provider = new PartitionWorkProvider(partition, jobLockRefreshCallback);
+            BatchProcessor<Pair<Long, NodeRef>> bp = new BatchProcessor<>("FixedAclUpdater-" + partition.index,
+                    transactionService.getRetryingTransactionHelper(), provider, 1, maxItemBatchSize, applicationContext,
+                    log, 100);
+            bp.process(new PartitionWorker(partition), true);
+            if (provider.isExhausted())
+            {
+                saveCheckpoint(partition, PARTITION_DONE);
+                partitionsRemaining.decrementAndGet();
+            }
+        }
+        finally
+        {
+            jobLockRefreshCallback.isActive.set(false);
+            jobLockService.releaseLock(lockToken, lockQName);
+        }
+    }
+
+    /**
+     * Resume the sweep recorded by the last checkpoint, or split the IDs of the pending nodes into a new
+     * set of partitions.  The caller must hold the global job lock.
+     * 
+     * @param minPendingNodeId      the lowest ID of the pending nodes
+     * @param maxPendingNodeId      the highest ID of the pending nodes
+     */
+    private List<Partition> startSweep(final Long minPendingNodeId, final Long maxPendingNodeId)
+    {
+        List<Partition> sweep = transactionService.getRetryingTransactionHelper()
+                .doInTransaction(new RetryingTransactionCallback<List<Partition>>()
+                {
+                    @Override
+                    public List<Partition> execute() throws Throwable
+                    {
+                        List<Partition> saved = loadSweep();
+                        if (saved != null)
+                        {
+                            return saved;
+                        }
+                        long[] startNodeIds = getPartitionStartIds(minPendingNodeId, maxPendingNodeId, partitions);
+                        List<Partition> created = new ArrayList<>(partitions);
+                        for (int i = 0; i < partitions; i++)
+                        {
+                            Long endNodeId = (i + 1 < partitions) ? Long.valueOf(startNodeIds[i + 1]) : null;
+                            created.add(new Partition(i, startNodeIds[i], endNodeId));
+                        }
+                        if (attributeService != null)
+                        {
+                            attributeService.removeAttributes(ATTR_KEY_CHECKPOINT);
+                            attributeService.setAttribute(Integer.valueOf(partitions), ATTR_KEY_CHECKPOINT, ATTR_KEY_PARTITIONS);
+                            for (Partition partition : created)
+                            {
+                                attributeService.setAttribute(Long.valueOf(partition.nextNodeId), ATTR_KEY_CHECKPOINT, ATTR_KEY_NEXT_ID, partition.index);
+                                if (partition.endNodeId != null)
+                                {
+                                    attributeService.setAttribute(partition.endNodeId, ATTR_KEY_CHECKPOINT, ATTR_KEY_END_ID, partition.index);
+                                }
+                            }
+                        }
+                        return created;
+                    }
+                }, false, true);
+
+        int remaining = 0;
+        for (Partition partition : sweep)
+        {
+            if (!partition.isDone())
+            {
+                remaining++;
+            }
+        }
+        partitionsRemaining.set(remaining);
+        if (log.isDebugEnabled())
+        {
+            log.debug("Updating pending ACLs in " + remaining + " of " + sweep.size() + " partitions");
+        }
+        return sweep;
+    }
+
+    /**
+     * @return the partitions recorded by the last checkpoint, or <tt>null</tt> if there is no checkpoint
+     *         for the current number of partitions
+     */
+    private List<Partition> loadSweep()
+    {
+        if (attributeService == null)
+        {
+            return null;
+        }
+        Integer savedPartitions = (Integer) attributeService.getAttribute(ATTR_KEY_CHECKPOINT, ATTR_KEY_PARTITIONS);
+        if (savedPartitions == null || savedPartitions.intValue() != partitions)
+        {
+            return null;
+        }
+        List<Partition> saved = new ArrayList<>(partitions);
+        for (int i = 0; i < partitions; i++)
+        {
+            Long nextNodeId = (Long) attributeService.getAttribute(ATTR_KEY_CHECKPOINT, ATTR_KEY_NEXT_ID, i);
+            Long endNodeId = (Long) attributeService.getAttribute(ATTR_KEY_CHECKPOINT, ATTR_KEY_END_ID, i);
+            if (nextNodeId == null)
+            {
+                return null;
+            }
+            saved.add(new Partition(i, nextNodeId, endNodeId));
+        }
+        return saved;
+    }
+
+    private void reloadCheckpoint(final Partition partition)
+    {
+        if (attributeService == null)
+        {
+            return;
+        }
+        Long nextNodeId = transactionService.getRetryingTransactionHelper().doInTransaction(new RetryingTransactionCallback<Long>()
+        {
+            @Override
+            public Long execute() throws Throwable
+            {
+                return (Long) attributeService.getAttribute(ATTR_KEY_CHECKPOINT, ATTR_KEY_NEXT_ID, partition.index);
+            }
+        }, true, true);
+        if (nextNodeId != null)
+        {
+            partition.nextNodeId = nextNodeId;
+        }
+    }
+
+    /**
+     * Record the node ID from which the partition continues
+     */
+    private void saveCheckpoint(final Partition partition, final long nextNodeId)
+    {
+        partition.nextNodeId = nextNodeId;
+        if (attributeService == null)
+        {
+            return;
+        }
+        transactionService.getRetryingTransactionHelper().doInTransaction(new RetryingTransactionCallback<Void>()
+        {
+            @Override
+            public Void execute() throws Throwable
+            {
+                attributeService.setAttribute(Long.valueOf(nextNodeId), ATTR_KEY_CHECKPOINT, ATTR_KEY_NEXT_ID, partition.index);
+                return null;
+            }
+        }, false, true);
+    }
+
+    /**
+     * Remove the checkpoint once every partition has been finished, by this or any other server.  The caller
+     * must hold the global job lock.
+     * 
+     * @param force         remove the checkpoint even if some partitions are unfinished
+     */
+    private void finishSweep(final boolean force)
+    {
+        if (attributeService == null)
+        {
+            partitionsRemaining.set(0);
+            return;
+        }
+        int remaining = transactionService.getRetryingTransactionHelper().doInTransaction(new RetryingTransactionCallback<Integer>()
+        {
+            @Override
+            public Integer execute() throws Throwable
+            {
+                int unfinished = 0;
+                if (!force)
+                {
+                    for (int i = 0; i < partitions; i++)
+                    {
+                        Long nextNodeId = (Long) attributeService.getAttribute(ATTR_KEY_CHECKPOINT, ATTR_KEY_NEXT_ID, i);
+                        if (nextNodeId != null && !PARTITION_DONE.equals(nextNodeId))
+                        {
+                            unfinished++;
+                        }
+                    }
+                }
+                if (unfinished == 0)
+                {
+                    attributeService.removeAttributes(ATTR_KEY_CHECKPOINT);
+                }
+                return unfinished;
+            }
+        }, false, true);
+        partitionsRemaining.set(remaining);
+    }
+
+    /**
+     * Split the node IDs between the given bounds into ranges of equal size
+     * 
+     * @param minNodeId     the lowest pending node ID, or <tt>null</tt> if there are no pending nodes
+     * @param maxNodeId     the highest pending node ID, or <tt>null</tt> if there are no pending nodes
+     * @param partitions    the number of ranges
+     * @return the first node ID of each range, in ascending order
+     */
+    static long[] getPartitionStartIds(Long minNodeId, Long maxNodeId, int partitions)
+    {
+        long min = (minNodeId == null) ? 0L : minNodeId;
+        long max = (maxNodeId == null) ? min : Math.max(maxNodeId, min);
+        long rangeSize = Math.max((max - min + 1) / partitions, 1L);
+        long[] startNodeIds = new long[partitions];
+        for (int i = 0; i < partitions; i++)
+        {
+            startNodeIds[i] = min + i * rangeSize;
+        }
+        return startNodeIds;
+    }
+
+    private void startRun(long pendingCount)
+    {
+        if (runningCount.getAndIncrement() == 0)
+        {
+            processedCount.set(0L);
+        }
+        pendingAtStart = pendingCount;
+    }
+
+    @Override
+    public boolean isRunning()
+    {
+        return runningCount.get() > 0;
+    }
+
+    @Override
+    public int getPartitions()
+    {
+        return partitions;
+    }
+
+    @Override
+    public int getPartitionsRemaining()
+    {
+        return partitionsRemaining.get();
+    }
+
+    @Override
+    public long getProcessedCount()
+    {
+        return processedCount.get();
+    }
+
+    @Override
+    public long getBacklog()
+    {
+        long pending = pendingAtStart;
+        if (pending < 0L)
+        {
+            return -1L;
+        }
+        return Math.max(pending - processedCount.get(), 0L);
+    }
+
     @Override
     public void afterCommit()
     {
@@ -0,0 +1,64 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2020 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.domain.permissions;
+
+/**
+ * Management interface for the {@link FixedAclUpdater}, allowing the progress of pending
+ * ACL updates to be monitored over JMX.  The counts are for the current run or, if the
+ * updater is idle, the last run since the server started.
+ * 
+ * @since 7.1
+ */
+public interface FixedAclUpdaterMBean
+{
+    /**
+     * @return <tt>true</tt> if pending ACLs are being updated on this server
+     */
+    boolean isRunning();
+    
+    /**
+     * @return the number of node ID ranges that pending ACLs are split into, where 1 means
+     *         that the updater is not partitioned
+     */
+    int getPartitions();
+    
+    /**
+     * @return the number of partitions of the current sweep that have not been finished by
+     *         any server, or 0 if there is no sweep in progress
+     */
+    int getPartitionsRemaining();
+    
+    /**
+     * @return the number of nodes with pending ACLs processed by this server
+     */
+    long getProcessedCount();
+    
+    /**
+     * @return the estimated number of nodes with pending ACLs still to be processed,
+     *         or -1 if it is not known
+     */
+    long getBacklog();
+}
@@ -42,6 +42,9 @@ import org.alfresco.repo.domain.permissions.AuthorityAliasEntity;
 import org.alfresco.repo.domain.permissions.AuthorityEntity;
 import org.alfresco.repo.domain.permissions.PermissionEntity;
 import org.alfresco.repo.security.permissions.ACEType;
+import org.alfresco.util.collections.LongArrayList;
+import org.apache.ibatis.session.ResultContext;
+import org.apache.ibatis.session.ResultHandler;
 import org.apache.ibatis.session.RowBounds;
 import org.mybatis.spring.SqlSessionTemplate;
 import org.springframework.util.Assert;
@@ -167,6 +170,34 @@ public class AclCrudDAOImpl extends AbstractAclCrudDAOImpl
         return template.selectList(SELECT_ADM_NODES_BY_ACL, params, new RowBounds(0 , maxResults));
     }
     
+    @Override
+    protected LongArrayList getADMNodeEntityIdListByAcl(long aclEntityId, int maxResults)
+    {
+        if (maxResults < 0)
+        {
+            maxResults = RowBounds.NO_ROW_LIMIT;
+        }
+        
+        Map<String, Object> params = new HashMap<String, Object>(1);
+        params.put("id", aclEntityId);
+        
+        // Stream the IDs straight into the primitive list rather than building a List<Long> first
+        final LongArrayList nodeIds = new LongArrayList();
+        ResultHandler resultHandler = new ResultHandler()
+        {
+            public void handleResult(ResultContext context)
+            {
+                Long nodeId = (Long) context.getResultObject();
+                if (nodeId != null)
+                {
+                    nodeIds.add(nodeId);
+                }
+            }
+        };
+        template.select(SELECT_ADM_NODES_BY_ACL, params, new RowBounds(0 , maxResults), resultHandler);
+        return nodeIds;
+    }
+    
     @Override
     protected int updateAclEntity(AclEntity updatedAclEntity)
     {
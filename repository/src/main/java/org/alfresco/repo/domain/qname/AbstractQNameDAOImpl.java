@@ -25,6 +25,7 @@
  */
 package org.alfresco.repo.domain.qname;
 
+import java.io.Serializable;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
@@ -64,6 +65,10 @@ public abstract class AbstractQNameDAOImpl implements QNameDAO
      * VALUE KEY: QName<br/>
      */
     private EntityLookupCache<Long, QName, QName> qnameCache;
+    /**
+     * Cache for Namespace and QName values that are known not to exist
+     */
+    private SimpleCache<Serializable, Object> negativeCache;
     
     /**
      * Default constructor.
@@ -86,6 +91,7 @@ public abstract class AbstractQNameDAOImpl implements QNameDAO
     {
         this.namespaceCache = new EntityLookupCache<Long, String, String>(
                 namespaceCache,
+                negativeCache,
                 CACHE_REGION_NAMESPACE,
                 new NamespaceCallbackDAO());
     }
@@ -99,9 +105,25 @@ public abstract class AbstractQNameDAOImpl implements QNameDAO
     {
         this.qnameCache = new EntityLookupCache<Long, QName, QName>(
                 qnameCache,
+                negativeCache,
                 CACHE_REGION_QNAME,
                 new QNameCallbackDAO());
     }
+    
+    /**
+     * Set the cache that records Namespaces and QNames that are known not to exist.  The
+     * entries are kept in separate regions so the cache can be shared with other DAOs.
+     * 
+     * @param negativeCache         the cache of missing entities
+     * 
+     * @since 7.1
+     */
+    public void setNegativeCache(SimpleCache<Serializable, Object> negativeCache)
+    {
+        this.negativeCache = negativeCache;
+        this.namespaceCache = namespaceCache.withNegativeCache(negativeCache);
+        this.qnameCache = qnameCache.withNegativeCache(negativeCache);
+    }
 
     //================================
     // 'alf_namespace' accessors
@@ -27,6 +27,7 @@ package org.alfresco.repo.model.filefolder;
 
 import java.io.Serializable;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -102,6 +103,15 @@ public class GetChildrenCannedQuery extends org.alfresco.repo.node.getchildren.G
         return callback;
     }
     
+    @Override
+    protected Set<QName> getKeysetFolderTypeQNames()
+    {
+        // note: consistent with the IS_FOLDER value used for post-query sorting (any sub-type of cm:folder)
+        Set<QName> folderTypeQNames = new HashSet<QName>(dictionaryService.getSubTypes(ContentModel.TYPE_FOLDER, true));
+        folderTypeQNames.add(ContentModel.TYPE_FOLDER);
+        return folderTypeQNames;
+    }
+    
     @Override
     protected FilterSortChildQueryCallback getFilterSortChildQuery(final List<FilterSortNode> children, final List<FilterProp> filterProps, GetChildrenCannedQueryParams paramBean)
     {
@@ -29,6 +29,8 @@ import java.util.List;
 import java.util.Set;
 
 import org.alfresco.service.cmr.repository.NodeRef;
+import org.alfresco.util.collections.LongArrayList;
+import org.alfresco.util.collections.LongHashSet;
 
 /**
  * A component that pre-fetches cached data for the given nodes.  Client code can use
@@ -49,6 +51,17 @@ public interface NodeBulkLoader
      */
     public Set<Long> getCachedAncestors(List<Long> nodeIds);
 
+    /**
+     * Gets the current set of cached ancestors of the given list of nodes, without boxing the IDs.
+     * 
+     * @param nodeIds
+     *            a list of node IDs to visit
+     * @return the current set of cached ancestors of the given list of nodes, including the nodes themselves.
+     * 
+     * @since 7.1
+     */
+    public LongHashSet getCachedAncestors(LongArrayList nodeIds);
+
     /**
      * Transaction-scope setting to make the Node loader to guarantee the validity of all
      * caches: some cache data will be reloaded; some cache data will be considered safe. 
@@ -72,6 +85,16 @@ public interface NodeBulkLoader
      * @param nodeIds           the nodes that will be cached.
      */
     public void cacheNodesById(List<Long> nodeIds);
+
+    /**
+     * Pre-cache data relevant to the given nodes.  The primitive form of {@link #cacheNodesById(List)}
+     * for callers that already hold large ID lists.
+     * 
+     * @param nodeIds           the nodes that will be cached.
+     * 
+     * @since 7.1
+     */
+    public void cacheNodesById(LongArrayList nodeIds);
     
     /**
      * <b>FOR TESTING ONLY: </b>Clears out node cache data
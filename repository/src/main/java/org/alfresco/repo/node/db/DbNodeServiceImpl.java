@@ -101,6 +101,7 @@ import org.alfresco.util.PropertyMap;
 import org.alfresco.util.transaction.TransactionListenerAdapter;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.springframework.dao.ConcurrencyFailureException;
 import org.springframework.extensions.surf.util.I18NUtil;
 
 /**
@@ -114,6 +115,11 @@ public class DbNodeServiceImpl extends AbstractNodeServiceImpl implements Extens
     
     private static Log logger = LogFactory.getLog(DbNodeServiceImpl.class);
     
+    /** The number of child associations fetched per query when streaming large folders */
+    private static final int CHILD_ASSOC_PAGE_SIZE = 1000;
+    /** The number of nodes whose metadata is fetched together while archiving a hierarchy */
+    private static final int ARCHIVE_PREFETCH_SIZE = 256;
+    
     private QNameDAO qnameDAO;
     private NodeDAO nodeDAO;
     private PermissionService permissionService;
@@ -2390,12 +2396,32 @@ public class DbNodeServiceImpl extends AbstractNodeServiceImpl implements Extens
         
         // Work through the hierarchy from the top down and archive all the nodes
         boolean firstNode = true;
-        Map<Long, Pair<Long, NodeRef>> archiveRecord = new HashMap<Long, Pair<Long, NodeRef>>(walker.getNodes(false).size() * 2);
-        for (VisitedNode node : walker.getNodes(false))
-        {
+        List<VisitedNode> nodesToArchive = walker.getNodes(false);
+        Map<Long, Pair<Long, NodeRef>> archiveRecord = new HashMap<Long, Pair<Long, NodeRef>>(nodesToArchive.size() * 2);
+        // Bulk-fetch the metadata of the nodes a chunk at a time, so that large hierarchies are not held in memory
+        Map<Long, Map<QName, Serializable>> propertiesByNodeId = Collections.emptyMap();
+        Map<Long, Set<QName>> aspectsByNodeId = Collections.emptyMap();
+        for (int i = 0; i < nodesToArchive.size(); i++)
+        {
+            VisitedNode node = nodesToArchive.get(i);
+            if (i % ARCHIVE_PREFETCH_SIZE == 0)
+            {
+                List<VisitedNode> chunk = nodesToArchive.subList(i, Math.min(i + ARCHIVE_PREFETCH_SIZE, nodesToArchive.size()));
+                List<Long> nodeIdsToArchive = new ArrayList<Long>(chunk.size());
+                for (VisitedNode chunkNode : chunk)
+                {
+                    nodeIdsToArchive.add(chunkNode.id);
+                }
+                propertiesByNodeId = nodeDAO.getNodeProperties(nodeIdsToArchive);
+                aspectsByNodeId = nodeDAO.getNodeAspects(nodeIdsToArchive);
+            }
             // Get node metadata
-            Map<QName, Serializable> archiveProperties = nodeDAO.getNodeProperties(node.id);
-            Set<QName> archiveAspects = nodeDAO.getNodeAspects(node.id);
+            Map<QName, Serializable> archiveProperties = propertiesByNodeId.get(node.id);
+            Set<QName> archiveAspects = aspectsByNodeId.get(node.id);
+            if (archiveProperties == null || archiveAspects == null)
+            {
+                throw new ConcurrencyFailureException("Node disappeared during archival: " + node.nodeRef);
+            }
 
             // The first node gets special treatment as it contains the archival details
             ChildAssociationRef archivePrimaryParentAssocRef = null;
@@ -2914,7 +2940,7 @@ public class DbNodeServiceImpl extends AbstractNodeServiceImpl implements Extens
             }                               
         };
         // We need to get all primary children and do the store filtering ourselves
-        nodeDAO.getChildAssocs(nodeId, null, null, null, Boolean.TRUE, null, callback);
+        nodeDAO.streamChildAssocs(nodeId, null, Boolean.TRUE, null, CHILD_ASSOC_PAGE_SIZE, callback);
         
         // Each child must be moved to the same store as the parent
         for (ChildAssociationRef oldChildAssoc : childAssocs)
@@ -50,6 +50,9 @@ import org.springframework.dao.ConcurrencyFailureException;
  */
 public class NodeHierarchyWalker
 {
+    /** The number of child associations fetched per query when walking down the hierarchy */
+    private static final int CHILD_ASSOC_PAGE_SIZE = 1000;
+
     private final NodeDAO nodeDAO;
     /** Store for all nodes by ID */
     private final Map<Long, VisitedNode> nodesVisitedById = new HashMap<Long, VisitedNode>(59);
@@ -135,9 +138,12 @@ public class NodeHierarchyWalker
         // We have to get to the bottom of the hierarchy
         NodeDAO.ChildAssocRefQueryCallback walkChildAssocs = new NodeDAO.ChildAssocRefQueryCallback()
         {
+            /**
+             * Each page of children is bulk-loaded, so the type and ACL lookups below hit the cache
+             */
             public final boolean preLoadNodes()
             {
-                return false;
+                return true;
             }
 
             @Override
@@ -192,8 +198,8 @@ public class NodeHierarchyWalker
             }                               
         };
 
-        // Gather all child associations
-        nodeDAO.getChildAssocs(nodeId, null, null, null, null, null, walkChildAssocs);
+        // Gather all child associations, a page at a time so that large folders don't hold a result set open
+        nodeDAO.streamChildAssocs(nodeId, null, null, null, CHILD_ASSOC_PAGE_SIZE, walkChildAssocs);
         
         // Dig down to primary children
         for (Long visitedNodeId : nodesVisitedWorking)
@@ -62,6 +62,19 @@ public class FilterSortNodeEntity
 
     private Boolean isPrimary;
     
+    // Keyset (seek) paging - ordering is [isFolder] child assoc name, child assoc id
+    private Integer keysetLimit;
+    private List<Long> keysetFolderTypeQNameIds; // null => not ordered by isFolder
+    private Integer keysetFolder; // 1 => folders only, 0 => other children only, null => all children
+    private boolean keysetAscending;
+    
+    // Keyset values - as a parameter the key to seek after (null assoc id => first page), as a result the key of the row
+    private Long keysetAssocId;
+    private String keysetName;
+    
+    // Keyset anchor - the child node whose key is to be looked up
+    private Long keysetNodeId;
+    
     /**
      * Default constructor
      */
@@ -258,4 +271,74 @@ public class FilterSortNodeEntity
     {
         this.isPrimary = isPrimary;
     }
+
+    public Integer getKeysetLimit()
+    {
+        return keysetLimit;
+    }
+
+    public void setKeysetLimit(Integer keysetLimit)
+    {
+        this.keysetLimit = keysetLimit;
+    }
+
+    public List<Long> getKeysetFolderTypeQNameIds()
+    {
+        return keysetFolderTypeQNameIds;
+    }
+
+    public void setKeysetFolderTypeQNameIds(List<Long> keysetFolderTypeQNameIds)
+    {
+        this.keysetFolderTypeQNameIds = keysetFolderTypeQNameIds;
+    }
+
+    public boolean isKeysetAscending()
+    {
+        return keysetAscending;
+    }
+
+    public void setKeysetAscending(boolean keysetAscending)
+    {
+        this.keysetAscending = keysetAscending;
+    }
+
+    public Long getKeysetAssocId()
+    {
+        return keysetAssocId;
+    }
+
+    public void setKeysetAssocId(Long keysetAssocId)
+    {
+        this.keysetAssocId = keysetAssocId;
+    }
+
+    public Long getKeysetNodeId()
+    {
+        return keysetNodeId;
+    }
+
+    public void setKeysetNodeId(Long keysetNodeId)
+    {
+        this.keysetNodeId = keysetNodeId;
+    }
+
+    public Integer getKeysetFolder()
+    {
+        return keysetFolder;
+    }
+
+    public void setKeysetFolder(Integer keysetFolder)
+    {
+        this.keysetFolder = keysetFolder;
+    }
+
+    public String getKeysetName()
+    {
+        return keysetName;
+    }
+
+    public void setKeysetName(String keysetName)
+    {
+        this.keysetName = keysetName;
+    }
 }
\ No newline at end of file
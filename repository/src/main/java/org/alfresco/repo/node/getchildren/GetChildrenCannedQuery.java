@@ -44,6 +44,7 @@ import org.alfresco.query.CannedQueryParameters;
 import org.alfresco.query.CannedQuerySortDetails;
 import org.alfresco.query.CannedQuerySortDetails.SortOrder;
 import org.alfresco.repo.domain.node.AuditablePropertiesEntity;
+import org.alfresco.repo.domain.node.ChildAssocEntity;
 import org.alfresco.repo.domain.node.Node;
 import org.alfresco.repo.domain.node.NodeDAO;
 import org.alfresco.repo.domain.node.NodeEntity;
@@ -78,6 +79,9 @@ import org.springframework.extensions.surf.util.I18NUtil;
  * 
  * To get paged list of children of a parent node filtered by child type.
  * Also optionally filtered and/or sorted by one or more properties (up to three).
+ * 
+ * Optionally uses keyset (seek) paging, in which case the ordering is [IS_FOLDER] child assoc name, child assoc id,
+ * is applied by the DB and each page starts directly after the key of the previous page (see {@link GetChildrenKeyset}).
  *
  * @author janv
  * @since 4.0
@@ -89,6 +93,10 @@ public class GetChildrenCannedQuery extends AbstractCannedQueryPermissions<NodeR
     private static final String QUERY_NAMESPACE = "alfresco.node";
     private static final String QUERY_SELECT_GET_CHILDREN_WITH_PROPS = "select_GetChildrenCannedQueryWithProps";
     private static final String QUERY_SELECT_GET_CHILDREN_WITHOUT_PROPS = "select_GetChildrenCannedQueryWithoutProps";
+    private static final String QUERY_SELECT_GET_CHILDREN_KEYSET = "select_GetChildrenCannedQueryKeyset";
+    private static final String QUERY_SELECT_GET_CHILDREN_KEYSET_ANCHOR = "select_GetChildrenCannedQueryKeysetAnchor";
+    
+    private static final int KEYSET_BATCH_SIZE = 256 * 4;
     
     public static final int MAX_FILTER_SORT_PROPS = 3;
     
@@ -140,6 +148,12 @@ public class GetChildrenCannedQuery extends AbstractCannedQueryPermissions<NodeR
         {
             applyPostQueryPermissions = true;
         }
+        
+        if (paramBean.isKeysetPaging())
+        {
+            // sorted by the query and permissions applied as part of the "queryAndFilter"
+            applyPostQueryPermissions = false;
+        }
     }
     
     protected FilterSortChildQueryCallback getFilterSortChildQuery(final List<FilterSortNode> children, final List<FilterProp> filterProps, GetChildrenCannedQueryParams paramBean)
@@ -156,6 +170,16 @@ public class GetChildrenCannedQuery extends AbstractCannedQueryPermissions<NodeR
         Set<QName> exclusiveAspects = paramBean.getExclusiveAspects();
         return new DefaultUnsortedChildQueryCallback(rawResult, requestedCount, inclusiveAspects, exclusiveAspects);
     }
+    
+    /**
+     * Get the node types that are treated as folders when keyset paging is ordered by {@link #SORT_QNAME_NODE_IS_FOLDER}.
+     * 
+     * @return the folder types or <tt>null</tt> if this query cannot order by IS_FOLDER in the DB
+     */
+    protected Set<QName> getKeysetFolderTypeQNames()
+    {
+        return null;
+    }
 
     @Override
     protected List<NodeRef> queryAndFilter(CannedQueryParameters parameters)
@@ -294,7 +318,12 @@ public class GetChildrenCannedQuery extends AbstractCannedQueryPermissions<NodeR
 	            params.setPattern(pattern);
 	        }
 	        
-	        if (filterSortPropCnt > 0)
+	        if (paramBean.isKeysetPaging())
+	        {
+	            // keyset (seek) paging - note: sorted by the query and permissions are applied per batch to allow early cutoff
+	            result = queryKeyset(params, sortPairs, filterProps, paramBean, parameters.getResultsRequired());
+	        }
+	        else if (filterSortPropCnt > 0)
 	        {
 	            // filtered and/or sorted - note: permissions will be applied post query
 	            final List<FilterSortNode> children = new ArrayList<FilterSortNode>(100);
@@ -342,13 +371,158 @@ public class GetChildrenCannedQuery extends AbstractCannedQueryPermissions<NodeR
         {
 	        if (start != null)
 	        {
-	            logger.debug("Base query "+(filterSortPropCnt > 0 ? "(sort=y, perms=n)" : "(sort=n, perms=y)")+": "+result.size()+" in "+(System.currentTimeMillis()-start)+" msecs");
+	            logger.debug("Base query "+(paramBean.isKeysetPaging() ? "(keyset=y, perms=y)" : (filterSortPropCnt > 0 ? "(sort=y, perms=n)" : "(sort=n, perms=y)"))+": "+result.size()+" in "+(System.currentTimeMillis()-start)+" msecs");
 	        }
         }
         
         return result;
     }
     
+    private List<NodeRef> queryKeyset(FilterSortNodeEntity params, List<Pair<QName, SortOrder>> sortPairs, List<FilterProp> filterProps, GetChildrenCannedQueryParams paramBean, int requestedCount)
+    {
+        if (filterProps.size() > 0)
+        {
+            throw new AlfrescoRuntimeException("GetChildren: keyset paging does not support filter properties: "+filterProps);
+        }
+        
+        // Set keyset ordering - [isFolder] child assoc name, child assoc id
+        // note: [isFolder] is applied as separate seeks over the folders and the other children, so that each seek is served by an index
+        int idx = 0;
+        Integer[] folderPhases = new Integer[] { null };
+        if ((idx < sortPairs.size()) && sortPairs.get(idx).getFirst().equals(SORT_QNAME_NODE_IS_FOLDER))
+        {
+            Set<QName> folderTypeQNames = getKeysetFolderTypeQNames();
+            if (folderTypeQNames == null)
+            {
+                throw new AlfrescoRuntimeException("GetChildren: keyset paging is not supported for sort: "+SORT_QNAME_NODE_IS_FOLDER);
+            }
+            Set<Long> folderTypeQNameIds = qnameDAO.convertQNamesToIds(folderTypeQNames, false);
+            // note: an unused id keeps the DB query valid if none of the folder types has been persisted yet
+            params.setKeysetFolderTypeQNameIds(folderTypeQNameIds.size() > 0 ? new ArrayList<Long>(folderTypeQNameIds) : Collections.singletonList(-1L));
+            folderPhases = (sortPairs.get(idx).getSecond() == SortOrder.ASCENDING) ? new Integer[] { 0, 1 } : new Integer[] { 1, 0 };
+            idx++;
+        }
+        boolean ascending = true;
+        if ((idx < sortPairs.size()) && sortPairs.get(idx).getFirst().equals(ContentModel.PROP_NAME))
+        {
+            ascending = (sortPairs.get(idx).getSecond() == SortOrder.ASCENDING);
+            idx++;
+        }
+        if (idx < sortPairs.size())
+        {
+            throw new AlfrescoRuntimeException("GetChildren: keyset paging is not supported for sort: "+sortPairs);
+        }
+        params.setKeysetAscending(ascending);
+        
+        int phase = 0;
+        GetChildrenKeyset after = paramBean.getKeysetAfter();
+        if ((after != null) && (params.getKeysetFolderTypeQNameIds() != null))
+        {
+            if (after.getFolder() == null)
+            {
+                throw new IllegalArgumentException("Continuation token does not match the requested sort: "+after);
+            }
+            // continue with the seek that the last child belongs to
+            phase = (after.getFolder() == (folderPhases[0] == 1)) ? 0 : 1;
+        }
+        params.setKeysetFolder(folderPhases[phase]);
+        if (after != null)
+        {
+            setKeysetAnchor(params, after);
+        }
+        
+        final List<NodeRef> rawResult = new ArrayList<NodeRef>(Math.min(1000, requestedCount));
+        UnsortedChildQueryCallback callback = getUnsortedChildQueryCallback(rawResult, requestedCount, paramBean);
+        
+        final int batchSize = Math.max(1, Math.min(requestedCount, KEYSET_BATCH_SIZE));
+        params.setKeysetLimit(batchSize);
+        
+        boolean more = true;
+        while (more)
+        {
+            final List<FilterSortNodeEntity> batch = new ArrayList<FilterSortNodeEntity>(batchSize);
+            cannedQueryDAO.executeQuery(QUERY_NAMESPACE, QUERY_SELECT_GET_CHILDREN_KEYSET, params, 0, Integer.MAX_VALUE, new CannedQueryDAO.ResultHandler<FilterSortNodeEntity>()
+            {
+                public boolean handleResult(FilterSortNodeEntity result)
+                {
+                    batch.add(result);
+                    return true;
+                }
+            });
+            
+            if (batch.size() > 0)
+            {
+                List<NodeRef> nodeRefs = new ArrayList<NodeRef>(batch.size());
+                for (FilterSortNodeEntity child : batch)
+                {
+                    nodeRefs.add(child.getNode().getNodeRef());
+                }
+                
+                preload(nodeRefs);
+                
+                for (NodeRef nodeRef : applyPostQueryPermissions(nodeRefs, nodeRefs.size()))
+                {
+                    // Call back
+                    if (!callback.handle(nodeRef))
+                    {
+                        more = false;
+                        break;
+                    }
+                }
+                
+                // next batch (if any) continues after the last row, whether or not it was filtered out
+                FilterSortNodeEntity last = batch.get(batch.size() - 1);
+                params.setKeysetAssocId(last.getKeysetAssocId());
+                params.setKeysetName(last.getKeysetName());
+            }
+            
+            if (more && (batch.size() < batchSize))
+            {
+                // this seek is exhausted - continue with the other children (if ordered by isFolder)
+                phase++;
+                if (phase < folderPhases.length)
+                {
+                    params.setKeysetFolder(folderPhases[phase]);
+                    params.setKeysetAssocId(null);
+                    params.setKeysetName(null);
+                }
+                else
+                {
+                    more = false;
+                }
+            }
+        }
+        
+        // permissions have been applied
+        return PermissionCheckedValueMixin.create(rawResult);
+    }
+    
+    /**
+     * Set the child association to seek after, given the key of the last child of the previous page.  If that child
+     * is no longer in the parent then the seek continues from its name.
+     */
+    private void setKeysetAnchor(FilterSortNodeEntity params, GetChildrenKeyset after)
+    {
+        params.setKeysetNodeId(after.getNodeId());
+        List<FilterSortNodeEntity> anchors = cannedQueryDAO.executeQuery(QUERY_NAMESPACE, QUERY_SELECT_GET_CHILDREN_KEYSET_ANCHOR, params, 0, 1);
+        params.setKeysetNodeId(null);
+        if (anchors.size() > 0)
+        {
+            params.setKeysetAssocId(anchors.get(0).getKeysetAssocId());
+            params.setKeysetName(anchors.get(0).getKeysetName());
+        }
+        else if (after.getName() != null)
+        {
+            // any child with the same name was added after the page was returned, so is included
+            params.setKeysetAssocId(params.isKeysetAscending() ? Long.MIN_VALUE : Long.MAX_VALUE);
+            params.setKeysetName(ChildAssocEntity.getChildNodeNameShort(after.getName().toLowerCase()));
+        }
+        else
+        {
+            throw new IllegalArgumentException("Continuation token refers to a child that is no longer in the parent: "+after);
+        }
+    }
+    
     // Set filter/sort props (between 0 and 3)
     private int setFilterSortParams(List<QName> filterSortProps, FilterSortNodeEntity params)
     {
@@ -157,7 +157,7 @@ public class GetChildrenCannedQueryFactory extends AbstractCannedQueryFactory<No
      * @param exclusiveAspects      If not null, any child nodes with any aspect in this collection will be excluded in the results.
      * @param filterProps           filter properties
      * @param sortProps             sort property pairs (QName and Boolean - true if ascending)
-     * @param pagingRequest         skipCount, maxItems - optionally queryExecutionId and requestTotalCountMax
+     * @param pagingRequest         skipCount, maxItems - optionally queryExecutionId, requestTotalCountMax and keyset paging
      * 
      * @return                      an implementation that will execute the query
      */
@@ -170,6 +170,17 @@ public class GetChildrenCannedQueryFactory extends AbstractCannedQueryFactory<No
         
         // specific query params - context (parent) and inclusive filters (child types, property values)
         GetChildrenCannedQueryParams paramBean = new GetChildrenCannedQueryParams(tenantService.getName(parentRef), assocTypeQNames, childTypeQNames, inclusiveAspects, exclusiveAspects, filterProps, pattern);
+        
+        // keyset (seek) paging - continues after the key encoded in the token (if any)
+        if (pagingRequest.isKeysetPaging())
+        {
+            paramBean.setKeysetPaging(true);
+            String continuationToken = pagingRequest.getContinuationToken();
+            if (continuationToken != null)
+            {
+                paramBean.setKeysetAfter(GetChildrenKeyset.decode(continuationToken));
+            }
+        }
 
         // page details
         CannedQueryPageDetails cqpd = new CannedQueryPageDetails(pagingRequest.getSkipCount(), pagingRequest.getMaxItems(), CannedQueryPageDetails.DEFAULT_PAGE_NUMBER, CannedQueryPageDetails.DEFAULT_PAGE_COUNT);
@@ -48,6 +48,8 @@ public class GetChildrenCannedQueryParams
     private String pattern = null;
     private Set<QName> inclusiveAspects = null;
     private Set<QName> exclusiveAspects = null;
+    private boolean keysetPaging = false;
+    private GetChildrenKeyset keysetAfter = null;
     
     public GetChildrenCannedQueryParams(
             NodeRef parentRef,
@@ -105,4 +107,32 @@ public class GetChildrenCannedQueryParams
     {
         return exclusiveAspects;
     }
+
+    /**
+     * @return <tt>true</tt> if the children are to be returned using keyset (seek) paging
+     * @since 7.1
+     */
+    public boolean isKeysetPaging()
+    {
+        return keysetPaging;
+    }
+
+    public void setKeysetPaging(boolean keysetPaging)
+    {
+        this.keysetPaging = keysetPaging;
+    }
+
+    /**
+     * @return the key of the last child of the previous page (keyset paging only) or <tt>null</tt> for the first page
+     * @since 7.1
+     */
+    public GetChildrenKeyset getKeysetAfter()
+    {
+        return keysetAfter;
+    }
+
+    public void setKeysetAfter(GetChildrenKeyset keysetAfter)
+    {
+        this.keysetAfter = keysetAfter;
+    }
 }
@@ -0,0 +1,232 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2020 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.node.getchildren;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.Objects;
+
+import org.alfresco.model.ContentModel;
+import org.alfresco.service.namespace.QName;
+import org.alfresco.util.Pair;
+
+/**
+ * GetChildren - sort key of the last child returned by a keyset (seek) paged query.
+ * <p>
+ * The key is handed to clients as an opaque continuation token and passed back to request the next page,
+ * which the query then starts directly after the key instead of skipping all earlier results. Keyset paging
+ * supports ordering by the optional {@link GetChildrenCannedQuery#SORT_QNAME_NODE_IS_FOLDER IS_FOLDER} flag,
+ * then by name (ascending unless <b>cm:name</b> is sorted descending).
+ * <p>
+ * The name order is that of the child association name, which is the lower-case <b>cm:name</b> truncated to
+ * 50 characters, with ties broken by the child association id.  Both are indexed, so the cost of a page does not
+ * depend on how many children come before it.  The query finds the child association of the given child node to
+ * seek after it; the <b>cm:name</b> is only used if that child is no longer in the parent.
+ *
+ * @since 7.1
+ */
+public class GetChildrenKeyset
+{
+    private static final String TOKEN_VERSION = "1";
+    private static final char SEPARATOR = ':';
+    private static final char NULL_FLAG = '-';
+
+    private final Long nodeId;
+    private final Boolean folder;
+    private final String name;
+
+    /**
+     * @param nodeId        the child node id (mandatory)
+     * @param folder        the child's IS_FOLDER flag (<tt>null</tt> if not part of the ordering)
+     * @param name          the child's name (<tt>null</tt> if not known)
+     */
+    public GetChildrenKeyset(Long nodeId, Boolean folder, String name)
+    {
+        if (nodeId == null)
+        {
+            throw new IllegalArgumentException("Keyset node id is mandatory");
+        }
+        this.nodeId = nodeId;
+        this.folder = folder;
+        this.name = name;
+    }
+
+    public Long getNodeId()
+    {
+        return nodeId;
+    }
+
+    public Boolean getFolder()
+    {
+        return folder;
+    }
+
+    public String getName()
+    {
+        return name;
+    }
+
+    /**
+     * Can the given ordering be served using keyset paging?
+     *
+     * @param sortProps     sort property pairs (QName and Boolean - true if ascending), may be <tt>null</tt>
+     * @return              <tt>true</tt> if the ordering is empty or [IS_FOLDER] [cm:name]
+     */
+    public static boolean isSupportedSort(List<Pair<QName, Boolean>> sortProps)
+    {
+        if (sortProps == null || sortProps.isEmpty())
+        {
+            return true;
+        }
+        int idx = 0;
+        if (GetChildrenCannedQuery.SORT_QNAME_NODE_IS_FOLDER.equals(sortProps.get(idx).getFirst()))
+        {
+            idx++;
+        }
+        if (idx < sortProps.size() && ContentModel.PROP_NAME.equals(sortProps.get(idx).getFirst()))
+        {
+            idx++;
+        }
+        return idx == sortProps.size();
+    }
+
+    /**
+     * @return              an opaque, URL-safe token for this key
+     */
+    public String encode()
+    {
+        StringBuilder sb = new StringBuilder(32 + (name == null ? 0 : name.length()));
+        sb.append(TOKEN_VERSION).append(SEPARATOR)
+          .append(nodeId).append(SEPARATOR)
+          .append(folder == null ? NULL_FLAG : (folder ? '1' : '0')).append(SEPARATOR)
+          .append(name == null ? NULL_FLAG : '1').append(SEPARATOR);
+        if (name != null)
+        {
+            sb.append(name);
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(sb.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decode a token previously returned by {@link #encode()}.
+     *
+     * @param token         the continuation token
+     * @return              the key
+     * @throws IllegalArgumentException if the token is malformed
+     */
+    public static GetChildrenKeyset decode(String token)
+    {
+        if (token == null || token.isEmpty())
+        {
+            throw new IllegalArgumentException("Continuation token is empty");
+        }
+        String str;
+        try
+        {
+            str = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+        }
+        catch (IllegalArgumentException e)
+        {
+            throw new IllegalArgumentException("Invalid continuation token: " + token, e);
+        }
+
+        // version:nodeId:folder:hasName:name (the name may itself contain the separator)
+        String[] parts = str.split(String.valueOf(SEPARATOR), 5);
+        if (parts.length != 5 || !TOKEN_VERSION.equals(parts[0]) || parts[2].length() != 1 || parts[3].length() != 1)
+        {
+            throw new IllegalArgumentException("Invalid continuation token: " + token);
+        }
+        Long nodeId;
+        try
+        {
+            nodeId = Long.valueOf(parts[1]);
+        }
+        catch (NumberFormatException e)
+        {
+            throw new IllegalArgumentException("Invalid continuation token: " + token, e);
+        }
+        Boolean folder;
+        switch (parts[2].charAt(0))
+        {
+            case '1':
+                folder = Boolean.TRUE;
+                break;
+            case '0':
+                folder = Boolean.FALSE;
+                break;
+            case NULL_FLAG:
+                folder = null;
+                break;
+            default:
+                throw new IllegalArgumentException("Invalid continuation token: " + token);
+        }
+        String name;
+        switch (parts[3].charAt(0))
+        {
+            case '1':
+                name = parts[4];
+                break;
+            case NULL_FLAG:
+                if (!parts[4].isEmpty())
+                {
+                    throw new IllegalArgumentException("Invalid continuation token: " + token);
+                }
+                name = null;
+                break;
+            default:
+                throw new IllegalArgumentException("Invalid continuation token: " + token);
+        }
+        return new GetChildrenKeyset(nodeId, folder, name);
+    }
+
+    @Override
+    public boolean equals(Object obj)
+    {
+        if (this == obj)
+        {
+            return true;
+        }
+        if (!(obj instanceof GetChildrenKeyset))
+        {
+            return false;
+        }
+        GetChildrenKeyset that = (GetChildrenKeyset) obj;
+        return nodeId.equals(that.nodeId) && Objects.equals(folder, that.folder) && Objects.equals(name, that.name);
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return nodeId.hashCode();
+    }
+
+    @Override
+    public String toString()
+    {
+        return "GetChildrenKeyset [nodeId=" + nodeId + ", folder=" + folder + ", name=" + name + "]";
+    }
+}
@@ -26,6 +26,7 @@
 package org.alfresco.repo.rendition2;
 
 import org.alfresco.model.ContentModel;
+import org.alfresco.repo.content.caching.ContentPrefetcher;
 import org.alfresco.repo.content.transform.LocalTransform;
 import org.alfresco.repo.content.transform.LocalTransformServiceRegistry;
 import org.alfresco.repo.security.authentication.AuthenticationUtil;
@@ -61,6 +62,7 @@ public class LocalTransformClient implements TransformClient, InitializingBean
     private TransactionService transactionService;
     private ContentService contentService;
     private RenditionService2Impl renditionService2;
+    private ContentPrefetcher contentPrefetcher;
 
     private ExecutorService executorService;
     private ThreadLocal<LocalTransform> transform = new ThreadLocal<>();
@@ -85,6 +87,14 @@ public class LocalTransformClient implements TransformClient, InitializingBean
         this.renditionService2 = renditionService2;
     }
 
+    /**
+     * Optional. Asked to cache the source content of a supported transform while the transform is queued.
+     */
+    public void setContentPrefetcher(ContentPrefetcher contentPrefetcher)
+    {
+        this.contentPrefetcher = contentPrefetcher;
+    }
+
     public void setExecutorService(ExecutorService executorService)
     {
         this.executorService = executorService;
@@ -122,6 +132,10 @@ public class LocalTransformClient implements TransformClient, InitializingBean
         {
             throw new UnsupportedOperationException(message);
         }
+        if (contentPrefetcher != null && contentUrl != null)
+        {
+            contentPrefetcher.prefetch(contentUrl);
+        }
     }
 
     @Override
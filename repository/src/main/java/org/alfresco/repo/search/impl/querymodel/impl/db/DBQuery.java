@@ -71,6 +71,14 @@ public class DBQuery extends BaseQuery implements DBQueryBuilderComponent
     private Long sysDeletedType;
 
     private Long sinceTxId;
+
+    private Set<Long> readableAclIds;
+
+    private String ownerAuthority;
+
+    private Long ownerQNameId;
+
+    private long aclScanLimit;
     
     Set<String> selectorGroup;
 
@@ -133,6 +141,70 @@ public class DBQuery extends BaseQuery implements DBQueryBuilderComponent
         this.sinceTxId = sinceTxId;
     }
 
+    /**
+     * @return the IDs of the ACLs the nodes must have, or <tt>null</tt> if the query is not restricted by ACL
+     */
+    public Set<Long> getReadableAclIds()
+    {
+        return readableAclIds;
+    }
+
+    /**
+     * @param readableAclIds the IDs of the ACLs the nodes must have, or <tt>null</tt> to not restrict by ACL
+     */
+    public void setReadableAclIds(Set<Long> readableAclIds)
+    {
+        this.readableAclIds = readableAclIds;
+    }
+
+    /**
+     * @return the authority whose nodes are included whatever their ACL, or <tt>null</tt>
+     */
+    public String getOwnerAuthority()
+    {
+        return ownerAuthority;
+    }
+
+    /**
+     * @param ownerAuthority the authority whose nodes, as creator or owner, are included whatever their ACL
+     */
+    public void setOwnerAuthority(String ownerAuthority)
+    {
+        this.ownerAuthority = ownerAuthority;
+    }
+
+    /**
+     * @return the ID of the cm:owner property QName, or <tt>null</tt>
+     */
+    public Long getOwnerQNameId()
+    {
+        return ownerQNameId;
+    }
+
+    /**
+     * @param ownerQNameId the ID of the cm:owner property QName, or <tt>null</tt> if it has not been used
+     */
+    public void setOwnerQNameId(Long ownerQNameId)
+    {
+        this.ownerQNameId = ownerQNameId;
+    }
+
+    /**
+     * @return the most matching nodes whose ACLs are read when finding the ACLs to filter by
+     */
+    public long getAclScanLimit()
+    {
+        return aclScanLimit;
+    }
+
+    /**
+     * @param aclScanLimit the most matching nodes whose ACLs are read when finding the ACLs to filter by
+     */
+    public void setAclScanLimit(long aclScanLimit)
+    {
+        this.aclScanLimit = aclScanLimit;
+    }
+
     public List<DBQueryBuilderJoinCommand> getJoins()
     {
         HashMap<QName, DBQueryBuilderJoinCommand> singleJoins = new HashMap<QName, DBQueryBuilderJoinCommand>();
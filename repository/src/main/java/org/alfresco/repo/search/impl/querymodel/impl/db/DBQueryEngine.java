@@ -90,6 +90,8 @@ public class DBQueryEngine implements QueryEngine
     
     protected static final String SELECT_BY_DYNAMIC_QUERY = "alfresco.metadata.query.select_byDynamicQuery";
     
+    protected static final String SELECT_ACL_IDS_BY_DYNAMIC_QUERY = "alfresco.metadata.query.select_aclIdsByDynamicQuery";
+    
     protected SqlSessionTemplate template;
 
     protected QNameDAO qnameDAO;
@@ -114,6 +116,12 @@ public class DBQueryEngine implements QueryEngine
 
     private boolean maxPermissionCheckEnabled;
 
+    private boolean sqlPermissionFilteringEnabled;
+
+    private int maxSqlPermissionFilteringAcls = 1000;
+
+    private int maxSqlPermissionFilteringNodes = 100000;
+
     protected EntityLookupCache<Long, Node, NodeRef> nodesCache;
 
     private List<Pair<Long, StoreRef>> stores;
@@ -140,6 +148,39 @@ public class DBQueryEngine implements QueryEngine
         this.maxPermissionCheckEnabled = maxPermissionCheckEnabled;
     }
 
+    /**
+     * Restrict the nodes selected by the database to those with ACLs the user can read, rather than
+     * discarding unreadable nodes one at a time.  This keeps the permission check limits from truncating
+     * the results of users who can only read a few of the matching nodes.
+     * 
+     * @param sqlPermissionFilteringEnabled <tt>true</tt> to filter by ACL in the query
+     * @since 7.1
+     */
+    public void setSqlPermissionFilteringEnabled(boolean sqlPermissionFilteringEnabled)
+    {
+        this.sqlPermissionFilteringEnabled = sqlPermissionFilteringEnabled;
+    }
+
+    /**
+     * @param maxSqlPermissionFilteringAcls the most distinct ACLs a query may match and still be filtered
+     *            by ACL in the database; queries matching more fall back to checking each node
+     * @since 7.1
+     */
+    public void setMaxSqlPermissionFilteringAcls(int maxSqlPermissionFilteringAcls)
+    {
+        this.maxSqlPermissionFilteringAcls = maxSqlPermissionFilteringAcls;
+    }
+
+    /**
+     * @param maxSqlPermissionFilteringNodes the most matching nodes whose ACLs are read to find the ACLs to filter
+     *            by; queries matching more fall back to checking each node
+     * @since 7.1
+     */
+    public void setMaxSqlPermissionFilteringNodes(int maxSqlPermissionFilteringNodes)
+    {
+        this.maxSqlPermissionFilteringNodes = maxSqlPermissionFilteringNodes;
+    }
+
     public void setTemplate(SqlSessionTemplate template)
     {
         this.template = template;
@@ -297,6 +338,11 @@ public class DBQueryEngine implements QueryEngine
         logger.debug("- using standard table for the query");
         return SELECT_BY_DYNAMIC_QUERY;
     }
+    
+    protected String pickAclIdQueryTemplate(QueryOptions options, DBQuery dbQuery)
+    {
+        return SELECT_ACL_IDS_BY_DYNAMIC_QUERY;
+    }
 
     private ResultSet selectNodesWithPermissions(QueryOptions options, DBQuery dbQuery)
     {
@@ -310,6 +356,11 @@ public class DBQueryEngine implements QueryEngine
         permissionAssessor.setMaxPermissionChecks(maxPermsChecks);
         permissionAssessor.setMaxPermissionCheckTimeMillis(maxPermCheckTimeMillis);
         
+        if (sqlPermissionFilteringEnabled)
+        {
+            applyReadableAclFilter(options, dbQuery, permissionAssessor, authority);
+        }
+        
         FilteringResultSet resultSet = acceleratedNodeSelection(options, dbQuery, permissionAssessor);
         
         PagingLuceneResultSet plrs = new PagingLuceneResultSet(resultSet, options.getAsSearchParmeters(), nodeService);
@@ -317,6 +368,72 @@ public class DBQueryEngine implements QueryEngine
         return plrs;
     }
 
+    /**
+     * Resolves which of the ACLs on the matching nodes the user can read and restricts the query to
+     * nodes with those ACLs, or owned by the user.  The assessor still checks each selected node, but
+     * as its ACL decisions are cached by then this costs little.  The ACLs are read from at most
+     * <tt>maxSqlPermissionFilteringNodes</tt> nodes, so that the extra query stays cheap.
+     */
+    void applyReadableAclFilter(QueryOptions options, DBQuery dbQuery, NodePermissionAssessor permissionAssessor, Authority authority)
+    {
+        dbQuery.setReadableAclIds(null);
+        if (!permissionAssessor.isReadingRestricted())
+        {
+            return;
+        }
+        
+        Set<Long> aclIds = new HashSet<>();
+        int[] nodeCount = new int[1];
+        // One node more than the limit shows that the limit was reached
+        dbQuery.setAclScanLimit(maxSqlPermissionFilteringNodes + 1L);
+        template.select(pickAclIdQueryTemplate(options, dbQuery), dbQuery, new ResultHandler<Long>()
+        {
+            @Override
+            public void handleResult(ResultContext<? extends Long> context)
+            {
+                nodeCount[0]++;
+                aclIds.add(context.getResultObject());
+                if (aclIds.size() > maxSqlPermissionFilteringAcls)
+                {
+                    context.stop();
+                }
+            }
+        });
+        if (aclIds.size() > maxSqlPermissionFilteringAcls)
+        {
+            if (logger.isDebugEnabled())
+            {
+                logger.debug("- more than " + maxSqlPermissionFilteringAcls + " ACLs match, checking permissions per node");
+            }
+            return;
+        }
+        if (nodeCount[0] > maxSqlPermissionFilteringNodes)
+        {
+            if (logger.isDebugEnabled())
+            {
+                logger.debug("- more than " + maxSqlPermissionFilteringNodes + " nodes match, checking permissions per node");
+            }
+            return;
+        }
+        
+        Set<Long> readableAclIds = new HashSet<>();
+        for (Long aclId : aclIds)
+        {
+            if (aclId != null && permissionAssessor.canRead(aclId))
+            {
+                readableAclIds.add(aclId);
+            }
+        }
+        dbQuery.setReadableAclIds(readableAclIds);
+        dbQuery.setOwnerAuthority(authority == null ? null : authority.getAuthority());
+        Pair<Long, QName> ownerQName = qnameDAO.getQName(ContentModel.PROP_OWNER);
+        dbQuery.setOwnerQNameId(ownerQName == null ? null : ownerQName.getFirst());
+        if (logger.isDebugEnabled())
+        {
+            logger.debug("- restricted to " + readableAclIds.size() + " of " + aclIds.size() + " ACLs");
+        }
+    }
+
     protected NodePermissionAssessor createAssessor(Authority authority)
     {
         return new NodePermissionAssessor(nodeService, permissionService, authority, nodesCache);
@@ -35,9 +35,11 @@ import org.alfresco.repo.cache.lookup.EntityLookupCache;
 import org.alfresco.repo.domain.node.Node;
 import org.alfresco.repo.domain.permissions.Authority;
 import org.alfresco.repo.security.authentication.AuthenticationUtil;
+import org.alfresco.repo.security.permissions.PermissionServiceSPI;
 import org.alfresco.service.cmr.repository.NodeRef;
 import org.alfresco.service.cmr.repository.NodeService;
 import org.alfresco.service.cmr.repository.datatype.DefaultTypeConverter;
+import org.alfresco.service.cmr.security.AccessStatus;
 import org.alfresco.service.cmr.security.PermissionService;
 import org.alfresco.service.namespace.QName;
 import org.alfresco.util.EqualsHelper;
@@ -92,6 +94,15 @@ public class NodePermissionAssessor
         return isReallyIncluded(node);
     }
 
+    /**
+     * @return <tt>true</tt> if nodes are included by their ACLs, i.e. the reader is not the system user,
+     *         an administrator or unauthenticated
+     */
+    public boolean isReadingRestricted()
+    {
+        return !isNullReading && !isSystemReading && !isAdminReading;
+    }
+
     public boolean isFirstRecord()
     {
         return checksPerformed == 0;
@@ -199,6 +210,12 @@ public class NodePermissionAssessor
             }
         }
 
+        if (permissionService instanceof PermissionServiceSPI)
+        {
+            // Shares the decisions already made for the same authorities
+            return ((PermissionServiceSPI) permissionService).hasAclReadPermission(aclId) == AccessStatus.ALLOWED;
+        }
+
         Set<String> aclReaders = permissionService.getReaders(aclId);
         for (String auth : aclReaders)
         {
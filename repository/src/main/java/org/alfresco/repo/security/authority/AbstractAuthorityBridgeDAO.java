@@ -25,7 +25,15 @@
  */
 package org.alfresco.repo.security.authority;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
 
 import org.alfresco.model.ContentModel;
 import org.alfresco.repo.domain.node.NodeDAO;
@@ -35,12 +43,18 @@ import org.alfresco.service.cmr.repository.NodeRef;
 import org.alfresco.service.cmr.repository.StoreRef;
 import org.alfresco.service.namespace.QName;
 import org.alfresco.util.Pair;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
 
 /**
  * @author Andy
  */
 public abstract class AbstractAuthorityBridgeDAO implements AuthorityBridgeDAO
 {
+    private static final Log logger = LogFactory.getLog(AbstractAuthorityBridgeDAO.class);
+
+    /** The number of node IDs in each IN list, and of rows in each insert, used to maintain the authority closure */
+    private static final int BATCH_SIZE = 256;
 
     private NodeDAO nodeDAO;
 
@@ -164,6 +178,545 @@ public abstract class AbstractAuthorityBridgeDAO implements AuthorityBridgeDAO
         return selectDirectAuthoritiesForUser(authorityContainerTypeQNameId, memberAssocQNameId, authorityNameQNameId, storeId, (pair == null) ? -1L : pair.getFirst());
     }
 
+    /* (non-Javadoc)
+     * @see org.alfresco.repo.security.authority.AuthorityBridgeDAO#getAncestorAuthorities(org.alfresco.service.cmr.repository.NodeRef)
+     */
+    @Override
+    public List<AuthorityBridgeLink> getAncestorAuthorities(NodeRef authRef)
+    {
+        Long nodeId = getNodeId(authRef);
+        if (nodeId == null)
+        {
+            return Collections.emptyList();
+        }
+        
+        // Get tenant specific store id
+        StoreRef tenantSpecificStoreRef = tenantService.getName(StoreRef.STORE_REF_WORKSPACE_SPACESSTORE);
+        Long storeId = Long.MIN_VALUE;
+        if (tenantSpecificStoreRef != null)
+        {
+            Pair<Long, StoreRef> storePair = nodeDAO.getStore(tenantSpecificStoreRef);
+            if (storePair != null)
+            {
+                storeId = storePair.getFirst();
+            }
+        }
+
+        return selectAncestorAuthorities(getQNameId(ContentModel.TYPE_AUTHORITY_CONTAINER), getQNameId(ContentModel.PROP_AUTHORITY_NAME), storeId, nodeId);
+    }
+
+    /**
+     * Adds the paths that the new link creates to every pair of (ancestor of the group, descendant of the member).
+     * A link that closes a cycle merges groups into one strongly connected component, which cannot be expressed
+     * as a sum of paths, so the closure of the member's descendants is rebuilt instead.
+     */
+    @Override
+    public void addAuthorityClosureLink(NodeRef parentRef, NodeRef childRef)
+    {
+        Long parentId = getNodeId(parentRef);
+        Long childId = getNodeId(childRef);
+        if (parentId == null || childId == null)
+        {
+            return;
+        }
+        Pair<Map<Long, Long>, Map<Long, Long>> closure = lockAuthorityClosure(parentId, childId);
+        Map<Long, Long> ancestors = closure.getFirst();
+        Map<Long, Long> descendants = closure.getSecond();
+        if (ancestors.containsKey(childId))
+        {
+            if (logger.isDebugEnabled())
+            {
+                logger.debug("Link from " + parentRef + " to " + childRef + " is cyclic; rebuilding the closure of " + descendants.size() + " authorities");
+            }
+            rebuildAuthorityClosure(descendants.keySet(), null, null);
+            return;
+        }
+        updateAuthorityClosure(ancestors, descendants, 1L);
+    }
+
+    /**
+     * Subtracts the paths that the link contributed.  This is called before the link is deleted.  A link inside a
+     * cycle was never counted as a path, so the closure of the member's descendants is rebuilt from the links that
+     * remain instead.
+     */
+    @Override
+    public void removeAuthorityClosureLink(NodeRef parentRef, NodeRef childRef)
+    {
+        Long parentId = getNodeId(parentRef);
+        Long childId = getNodeId(childRef);
+        if (parentId == null || childId == null)
+        {
+            return;
+        }
+        Pair<Map<Long, Long>, Map<Long, Long>> closure = lockAuthorityClosure(parentId, childId);
+        Map<Long, Long> ancestors = closure.getFirst();
+        Map<Long, Long> descendants = closure.getSecond();
+        if (ancestors.containsKey(childId))
+        {
+            if (logger.isDebugEnabled())
+            {
+                logger.debug("Link from " + parentRef + " to " + childRef + " is cyclic; rebuilding the closure of " + descendants.size() + " authorities");
+            }
+            rebuildAuthorityClosure(descendants.keySet(), parentId, childId);
+            return;
+        }
+        updateAuthorityClosure(ancestors, descendants, -1L);
+    }
+
+    /**
+     * Reads the ancestors of the group and the descendants of the member, and locks the nodes of all of them.
+     * Two membership changes whose paths combine always share at least one of these nodes, so they are applied
+     * one after the other and the second sees the rows written by the first.  The closure is read again once
+     * new locks are held, as another change may have committed while this one waited.
+     *
+     * @return          the path counts of the ancestors of the group and of the descendants of the member,
+     *                  each including the node itself
+     */
+    private Pair<Map<Long, Long>, Map<Long, Long>> lockAuthorityClosure(Long parentId, Long childId)
+    {
+        Set<Long> locked = new HashSet<Long>();
+        while (true)
+        {
+            Map<Long, Long> ancestors = getClosureAncestors(parentId);
+            Map<Long, Long> descendants = getClosureDescendants(childId);
+            Set<Long> toLock = new TreeSet<Long>();
+            toLock.addAll(ancestors.keySet());
+            toLock.addAll(descendants.keySet());
+            toLock.removeAll(locked);
+            if (toLock.isEmpty())
+            {
+                return new Pair<Map<Long, Long>, Map<Long, Long>>(ancestors, descendants);
+            }
+            // Always in ID order, so that changes waiting on each other do not deadlock
+            for (List<Long> batch : getBatches(toLock))
+            {
+                lockAuthorityNodes(batch);
+            }
+            locked.addAll(toLock);
+        }
+    }
+
+    /* (non-Javadoc)
+     * @see org.alfresco.repo.security.authority.AuthorityBridgeDAO#rebuildAuthorityClosure()
+     */
+    @Override
+    public int rebuildAuthorityClosure()
+    {
+        return rebuildAuthorityClosure(null, null, null);
+    }
+
+    /**
+     * Rebuild the closure rows of some authorities, or of all of them, from the membership links, optionally
+     * ignoring one link that is about to be deleted.  When only some authorities are rebuilt they must include all
+     * of their own descendants.  The rows of the groups above them are then unaffected and are read as they are.
+     * <p>
+     * Groups that contain each other form a strongly connected component.  Every member of a component is an
+     * ancestor of every other member, and of itself, by a single path.  Between components the path count is the
+     * number of paths in the graph of components, which is what {@link #addAuthorityClosureLink(NodeRef, NodeRef)}
+     * and {@link #removeAuthorityClosureLink(NodeRef, NodeRef)} maintain for links that are not inside a cycle.
+     *
+     * @param descendantIds         the authorities to rebuild, or <tt>null</tt> for all of them
+     */
+    private int rebuildAuthorityClosure(Set<Long> descendantIds, Long excludedParentId, Long excludedChildId)
+    {
+        Long start = (logger.isDebugEnabled() ? System.currentTimeMillis() : null);
+
+        Long authorityContainerTypeQNameId = getQNameId(ContentModel.TYPE_AUTHORITY_CONTAINER);
+        Long memberAssocQNameId = getQNameId(ContentModel.ASSOC_MEMBER);
+        List<AuthorityClosureEntity> links;
+        if (descendantIds == null)
+        {
+            links = selectAuthorityClosureLinks(authorityContainerTypeQNameId, memberAssocQNameId);
+        }
+        else
+        {
+            links = new ArrayList<AuthorityClosureEntity>();
+            for (List<Long> batch : getBatches(descendantIds))
+            {
+                links.addAll(selectAuthorityClosureLinksForChildren(authorityContainerTypeQNameId, memberAssocQNameId, batch));
+            }
+        }
+        Map<Long, List<Long>> parentsByChild = new HashMap<Long, List<Long>>();
+        boolean excluded = (excludedParentId == null);
+        for (AuthorityClosureEntity link : links)
+        {
+            if (!excluded && excludedParentId.equals(link.getAncestorNodeId()) && excludedChildId.equals(link.getDescendantNodeId()))
+            {
+                excluded = true;
+                continue;
+            }
+            List<Long> parents = parentsByChild.get(link.getDescendantNodeId());
+            if (parents == null)
+            {
+                parents = new ArrayList<Long>(2);
+                parentsByChild.put(link.getDescendantNodeId(), parents);
+            }
+            parents.add(link.getAncestorNodeId());
+        }
+
+        // The groups above the rebuilt authorities keep their rows
+        Map<Long, Map<Long, Long>> ancestorsOutside = new HashMap<Long, Map<Long, Long>>();
+        if (descendantIds != null)
+        {
+            for (List<Long> parents : parentsByChild.values())
+            {
+                for (Long parentId : parents)
+                {
+                    if (!descendantIds.contains(parentId) && !ancestorsOutside.containsKey(parentId))
+                    {
+                        ancestorsOutside.put(parentId, getClosureAncestors(parentId));
+                    }
+                }
+            }
+        }
+
+        // Components come out ancestors first, so the ancestors of each component are known before it is reached.
+        // The links of the groups outside are not loaded, so each of those is a component of its own.
+        ComponentFinder finder = new ComponentFinder(parentsByChild);
+        Map<List<Long>, Map<Long, Long>> ancestorsByComponent = new HashMap<List<Long>, Map<Long, Long>>();
+
+        if (descendantIds == null)
+        {
+            deleteAuthorityClosure();
+        }
+        else
+        {
+            for (List<Long> batch : getBatches(descendantIds))
+            {
+                deleteAuthorityClosureForDescendants(batch);
+            }
+        }
+        int count = 0;
+        List<AuthorityClosureEntity> rows = new ArrayList<AuthorityClosureEntity>(BATCH_SIZE);
+        for (List<Long> component : finder.getComponents())
+        {
+            if (ancestorsOutside.containsKey(component.get(0)))
+            {
+                continue;
+            }
+            Map<Long, Long> ancestors = new HashMap<Long, Long>();
+            for (Long nodeId : component)
+            {
+                List<Long> parents = parentsByChild.get(nodeId);
+                if (parents == null)
+                {
+                    continue;
+                }
+                for (Long parentId : parents)
+                {
+                    Map<Long, Long> parentAncestors = ancestorsOutside.get(parentId);
+                    if (parentAncestors != null)
+                    {
+                        // These include the parent itself
+                        for (Map.Entry<Long, Long> entry : parentAncestors.entrySet())
+                        {
+                            addPathCount(ancestors, entry.getKey(), entry.getValue());
+                        }
+                        continue;
+                    }
+                    List<Long> parentComponent = finder.getComponent(parentId);
+                    if (parentComponent == component)
+                    {
+                        continue;
+                    }
+                    for (Long memberId : parentComponent)
+                    {
+                        addPathCount(ancestors, memberId, 1L);
+                    }
+                    for (Map.Entry<Long, Long> entry : ancestorsByComponent.get(parentComponent).entrySet())
+                    {
+                        addPathCount(ancestors, entry.getKey(), entry.getValue());
+                    }
+                }
+            }
+            ancestorsByComponent.put(component, ancestors);
+
+            for (Long nodeId : component)
+            {
+                if (component.size() > 1)
+                {
+                    for (Long memberId : component)
+                    {
+                        addAuthorityClosureRow(rows, new AuthorityClosureEntity(memberId, nodeId, 1L));
+                        count++;
+                    }
+                }
+                for (Map.Entry<Long, Long> entry : ancestors.entrySet())
+                {
+                    addAuthorityClosureRow(rows, new AuthorityClosureEntity(entry.getKey(), nodeId, entry.getValue()));
+                    count++;
+                }
+            }
+        }
+        if (!rows.isEmpty())
+        {
+            insertAuthorityClosureRows(rows);
+        }
+
+        if (start != null)
+        {
+            logger.debug("Authority closure rebuilt: " + count + " rows from " + links.size() + " links in " + (System.currentTimeMillis() - start) + " msecs");
+        }
+        return count;
+    }
+
+    private static <T> List<List<T>> getBatches(Collection<T> items)
+    {
+        List<List<T>> batches = new ArrayList<List<T>>();
+        List<T> batch = null;
+        for (T item : items)
+        {
+            if (batch == null || batch.size() == BATCH_SIZE)
+            {
+                batch = new ArrayList<T>(BATCH_SIZE);
+                batches.add(batch);
+            }
+            batch.add(item);
+        }
+        return batches;
+    }
+
+    /**
+     * Adds a row to those waiting to be inserted, inserting them once there are enough for a batch.
+     */
+    private void addAuthorityClosureRow(List<AuthorityClosureEntity> rows, AuthorityClosureEntity row)
+    {
+        rows.add(row);
+        if (rows.size() == BATCH_SIZE)
+        {
+            insertAuthorityClosureRows(rows);
+            rows.clear();
+        }
+    }
+
+    private static <K> void addPathCount(Map<K, Long> pathCounts, K key, long pathCount)
+    {
+        Long existing = pathCounts.get(key);
+        pathCounts.put(key, (existing == null) ? pathCount : existing + pathCount);
+    }
+
+    /**
+     * Finds the strongly connected components of the membership graph, walking from members to their groups
+     * (Tarjan's algorithm).  Components are listed in the order they complete, which puts the groups that a
+     * component belongs to before the component itself.
+     */
+    private static class ComponentFinder
+    {
+        private final Map<Long, List<Long>> parentsByChild;
+        private final Map<Long, Integer> indexes = new HashMap<Long, Integer>();
+        private final Map<Long, Integer> lowLinks = new HashMap<Long, Integer>();
+        private final List<Long> stack = new ArrayList<Long>();
+        private final Map<Long, List<Long>> componentsByNode = new HashMap<Long, List<Long>>();
+        private final List<List<Long>> components = new ArrayList<List<Long>>();
+
+        private ComponentFinder(Map<Long, List<Long>> parentsByChild)
+        {
+            this.parentsByChild = parentsByChild;
+            for (Long childId : parentsByChild.keySet())
+            {
+                if (!indexes.containsKey(childId))
+                {
+                    visit(childId);
+                }
+            }
+        }
+
+        private void visit(Long nodeId)
+        {
+            int index = indexes.size();
+            indexes.put(nodeId, index);
+            lowLinks.put(nodeId, index);
+            stack.add(nodeId);
+            
+            List<Long> parents = parentsByChild.get(nodeId);
+            if (parents != null)
+            {
+                for (Long parentId : parents)
+                {
+                    if (!indexes.containsKey(parentId))
+                    {
+                        visit(parentId);
+                        lowLinks.put(nodeId, Math.min(lowLinks.get(nodeId), lowLinks.get(parentId)));
+                    }
+                    else if (!componentsByNode.containsKey(parentId))
+                    {
+                        // Still on the stack
+                        lowLinks.put(nodeId, Math.min(lowLinks.get(nodeId), indexes.get(parentId)));
+                    }
+                }
+            }
+            
+            if (lowLinks.get(nodeId) == index)
+            {
+                List<Long> component = new ArrayList<Long>(1);
+                Long memberId;
+                do
+                {
+                    memberId = stack.remove(stack.size() - 1);
+                    component.add(memberId);
+                    componentsByNode.put(memberId, component);
+                }
+                while (!memberId.equals(nodeId));
+                components.add(component);
+            }
+        }
+
+        private List<List<Long>> getComponents()
+        {
+            return components;
+        }
+
+        private List<Long> getComponent(Long nodeId)
+        {
+            return componentsByNode.get(nodeId);
+        }
+    }
+
+    /**
+     * Adds or subtracts the paths through a link for every pair of (ancestor of the group, descendant of the member).
+     * The pairs are taken in blocks, and the rows of each block are read, deleted and written back with their new
+     * path counts using one statement each.  The nodes of every pair are already locked.
+     */
+    private void updateAuthorityClosure(Map<Long, Long> ancestors, Map<Long, Long> descendants, long sign)
+    {
+        for (List<Long> ancestorIds : getBatches(ancestors.keySet()))
+        {
+            for (List<Long> descendantIds : getBatches(descendants.keySet()))
+            {
+                Map<Pair<Long, Long>, Long> existing = new HashMap<Pair<Long, Long>, Long>();
+                for (AuthorityClosureEntity entity : selectAuthorityClosureRows(ancestorIds, descendantIds))
+                {
+                    existing.put(new Pair<Long, Long>(entity.getAncestorNodeId(), entity.getDescendantNodeId()), entity.getPathCount());
+                }
+                List<AuthorityClosureEntity> rows = new ArrayList<AuthorityClosureEntity>(BATCH_SIZE);
+                for (Long ancestorId : ancestorIds)
+                {
+                    for (Long descendantId : descendantIds)
+                    {
+                        Long pathCount = existing.get(new Pair<Long, Long>(ancestorId, descendantId));
+                        long newPathCount = (pathCount == null ? 0L : pathCount) + sign * ancestors.get(ancestorId) * descendants.get(descendantId);
+                        if (newPathCount > 0)
+                        {
+                            rows.add(new AuthorityClosureEntity(ancestorId, descendantId, newPathCount));
+                        }
+                    }
+                }
+                if (!existing.isEmpty())
+                {
+                    deleteAuthorityClosureRows(ancestorIds, descendantIds);
+                }
+                for (List<AuthorityClosureEntity> batch : getBatches(rows))
+                {
+                    insertAuthorityClosureRows(batch);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return      the path counts of the groups containing the node, including the node itself
+     */
+    private Map<Long, Long> getClosureAncestors(Long nodeId)
+    {
+        Map<Long, Long> ancestors = new HashMap<Long, Long>();
+        for (AuthorityClosureEntity entity : selectAuthorityClosureAncestors(nodeId))
+        {
+            ancestors.put(entity.getAncestorNodeId(), entity.getPathCount());
+        }
+        // A node in a cycle already has a row for itself
+        if (!ancestors.containsKey(nodeId))
+        {
+            ancestors.put(nodeId, 1L);
+        }
+        return ancestors;
+    }
+
+    /**
+     * @return      the path counts of the authorities contained by the node, including the node itself
+     */
+    private Map<Long, Long> getClosureDescendants(Long nodeId)
+    {
+        Map<Long, Long> descendants = new HashMap<Long, Long>();
+        for (AuthorityClosureEntity entity : selectAuthorityClosureDescendants(nodeId))
+        {
+            descendants.put(entity.getDescendantNodeId(), entity.getPathCount());
+        }
+        if (!descendants.containsKey(nodeId))
+        {
+            descendants.put(nodeId, 1L);
+        }
+        return descendants;
+    }
+
+    private Long getNodeId(NodeRef nodeRef)
+    {
+        Pair<Long, NodeRef> pair = (nodeRef == null) ? null : nodeDAO.getNodePair(tenantService.getName(nodeRef));
+        return (pair == null) ? null : pair.getFirst();
+    }
+
+    private Long getQNameId(QName qname)
+    {
+        Pair<Long, QName> qnamePair = qnameDAO.getQName(qname);
+        return (qnamePair == null) ? Long.MIN_VALUE : qnamePair.getFirst();
+    }
+
+    /**
+     * @param authorityContainerTypeQNameId Long
+     * @param authorityNameQNameId Long
+     * @param storeId Long
+     * @param nodeId Long
+     */
+    protected abstract List<AuthorityBridgeLink> selectAncestorAuthorities(Long authorityContainerTypeQNameId, Long authorityNameQNameId, Long storeId, Long nodeId);
+
+    /**
+     * @param authorityContainerTypeQNameId Long
+     * @param memberAssocQNameId Long
+     * @return the membership links in all stores, as closure rows with a path count of one
+     */
+    protected abstract List<AuthorityClosureEntity> selectAuthorityClosureLinks(Long authorityContainerTypeQNameId, Long memberAssocQNameId);
+
+    /**
+     * @param authorityContainerTypeQNameId Long
+     * @param memberAssocQNameId Long
+     * @param childIds the members whose links are wanted
+     * @return the membership links of the given members, as closure rows with a path count of one
+     */
+    protected abstract List<AuthorityClosureEntity> selectAuthorityClosureLinksForChildren(Long authorityContainerTypeQNameId, Long memberAssocQNameId, List<Long> childIds);
+
+    /**
+     * Locks the given authority nodes until the end of the transaction.
+     */
+    protected abstract void lockAuthorityNodes(List<Long> nodeIds);
+
+    /**
+     * Reads with a lock, so that the rows include changes committed since the transaction started.
+     */
+    protected abstract List<AuthorityClosureEntity> selectAuthorityClosureAncestors(Long nodeId);
+
+    /**
+     * Reads with a lock, so that the rows include changes committed since the transaction started.
+     */
+    protected abstract List<AuthorityClosureEntity> selectAuthorityClosureDescendants(Long nodeId);
+
+    /**
+     * @return the closure rows from any of the ancestors to any of the descendants
+     */
+    protected abstract List<AuthorityClosureEntity> selectAuthorityClosureRows(List<Long> ancestorIds, List<Long> descendantIds);
+
+    /**
+     * Inserts the rows with a single statement.
+     */
+    protected abstract void insertAuthorityClosureRows(List<AuthorityClosureEntity> rows);
+
+    /**
+     * @return the number of closure rows from any of the ancestors to any of the descendants that were deleted
+     */
+    protected abstract int deleteAuthorityClosureRows(List<Long> ancestorIds, List<Long> descendantIds);
+
+    protected abstract int deleteAuthorityClosure();
+
+    protected abstract int deleteAuthorityClosureForDescendants(List<Long> descendantIds);
+
     /**
      * @param authorityContainerTypeQNameId Long
      * @param memberAssocQNameId Long
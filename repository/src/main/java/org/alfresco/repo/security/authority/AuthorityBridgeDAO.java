@@ -38,4 +38,40 @@ public interface AuthorityBridgeDAO
     List<AuthorityBridgeLink> getAuthorityBridgeLinks();
     
     List<AuthorityBridgeLink> getDirectAuthoritiesForUser(NodeRef authRef);
+
+    /**
+     * Get all the groups that contain an authority, directly or through other groups, with a single
+     * read of the authority closure table.
+     * 
+     * @param authRef               the user or group node
+     * @return                      links carrying the names of the containing groups as parent names
+     * @since 7.1
+     */
+    List<AuthorityBridgeLink> getAncestorAuthorities(NodeRef authRef);
+
+    /**
+     * Record in the authority closure table that a group has gained a member.
+     * 
+     * @param parentRef             the group node
+     * @param childRef              the member node
+     * @since 7.1
+     */
+    void addAuthorityClosureLink(NodeRef parentRef, NodeRef childRef);
+
+    /**
+     * Record in the authority closure table that a group has lost a member.
+     * 
+     * @param parentRef             the group node
+     * @param childRef              the member node
+     * @since 7.1
+     */
+    void removeAuthorityClosureLink(NodeRef parentRef, NodeRef childRef);
+
+    /**
+     * Rebuild the whole authority closure table from the group memberships held in all stores.
+     * 
+     * @return                      the number of closure rows written
+     * @since 7.1
+     */
+    int rebuildAuthorityClosure();
 }
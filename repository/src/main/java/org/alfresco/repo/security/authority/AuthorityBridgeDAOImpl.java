@@ -27,6 +27,7 @@ package org.alfresco.repo.security.authority;
 
 import java.util.List;
 
+import org.alfresco.ibatis.IdsEntity;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.mybatis.spring.SqlSessionTemplate;
@@ -39,6 +40,28 @@ public class AuthorityBridgeDAOImpl extends AbstractAuthorityBridgeDAO
     private static final String QUERY_SELECT_GET_AUTHORITY_BRIDGE_ENTRIES = "alfresco.query.authorities.select_GetAuthorityBridgeEntries";
     
     private static final String QUERY_SELECT_GET_DIRECT_AUTHORITIES_FOR_UESR = "alfresco.query.authorities.select_GetDirectAuthoritiesForUser";
+    
+    private static final String QUERY_SELECT_GET_ANCESTOR_AUTHORITIES = "alfresco.query.authorities.select_GetAncestorAuthorities";
+    
+    private static final String QUERY_SELECT_GET_AUTHORITY_CLOSURE_LINKS = "alfresco.query.authorities.select_GetAuthorityClosureLinks";
+    
+    private static final String QUERY_SELECT_GET_AUTHORITY_CLOSURE_LINKS_FOR_CHILDREN = "alfresco.query.authorities.select_GetAuthorityClosureLinksForChildren";
+    
+    private static final String QUERY_SELECT_LOCK_AUTHORITY_NODES = "alfresco.query.authorities.select_LockAuthorityNodes";
+    
+    private static final String QUERY_SELECT_GET_AUTHORITY_CLOSURE_ANCESTORS = "alfresco.query.authorities.select_GetAuthorityClosureAncestors";
+    
+    private static final String QUERY_SELECT_GET_AUTHORITY_CLOSURE_DESCENDANTS = "alfresco.query.authorities.select_GetAuthorityClosureDescendants";
+    
+    private static final String QUERY_SELECT_GET_AUTHORITY_CLOSURE_ROWS = "alfresco.query.authorities.select_GetAuthorityClosureRows";
+    
+    private static final String INSERT_AUTHORITY_CLOSURE_ROWS = "alfresco.query.authorities.insert_AuthorityClosureRows";
+    
+    private static final String DELETE_AUTHORITY_CLOSURE_ROWS = "alfresco.query.authorities.delete_AuthorityClosureRows";
+    
+    private static final String DELETE_AUTHORITY_CLOSURE = "alfresco.query.authorities.delete_AuthorityClosure";
+    
+    private static final String DELETE_AUTHORITY_CLOSURE_FOR_DESCENDANTS = "alfresco.query.authorities.delete_AuthorityClosureForDescendants";
    
     private Log logger = LogFactory.getLog(getClass());
 
@@ -93,4 +116,88 @@ public class AuthorityBridgeDAOImpl extends AbstractAuthorityBridgeDAO
         return links;
     }
 
+    @Override
+    protected List<AuthorityBridgeLink> selectAncestorAuthorities(Long authorityContainerTypeQNameId, Long authorityNameQNameId, Long storeId, Long nodeId)
+    {
+        Long start = (logger.isDebugEnabled() ? System.currentTimeMillis() : null);
+        
+        AuthorityBridgeParametersEntity authorityBridgeParametersEntity = new AuthorityBridgeParametersEntity(authorityContainerTypeQNameId, null, authorityNameQNameId, storeId, nodeId);
+        
+        List<AuthorityBridgeLink> links = template.selectList(QUERY_SELECT_GET_ANCESTOR_AUTHORITIES, authorityBridgeParametersEntity);
+        
+        if (start != null)
+        {
+            logger.debug("Ancestor authority: "+links.size()+" in "+(System.currentTimeMillis()-start)+" msecs");
+        }
+        
+        return links;
+    }
+
+    @Override
+    protected List<AuthorityClosureEntity> selectAuthorityClosureLinks(Long authorityContainerTypeQNameId, Long memberAssocQNameId)
+    {
+        AuthorityBridgeParametersEntity authorityBridgeParametersEntity = new AuthorityBridgeParametersEntity(authorityContainerTypeQNameId, memberAssocQNameId, null, null);
+        return template.selectList(QUERY_SELECT_GET_AUTHORITY_CLOSURE_LINKS, authorityBridgeParametersEntity);
+    }
+
+    @Override
+    protected List<AuthorityClosureEntity> selectAuthorityClosureLinksForChildren(Long authorityContainerTypeQNameId, Long memberAssocQNameId, List<Long> childIds)
+    {
+        AuthorityBridgeParametersEntity authorityBridgeParametersEntity = new AuthorityBridgeParametersEntity(authorityContainerTypeQNameId, memberAssocQNameId, null, null);
+        authorityBridgeParametersEntity.setNodeIds(childIds);
+        return template.selectList(QUERY_SELECT_GET_AUTHORITY_CLOSURE_LINKS_FOR_CHILDREN, authorityBridgeParametersEntity);
+    }
+
+    @Override
+    protected void lockAuthorityNodes(List<Long> nodeIds)
+    {
+        IdsEntity ids = new IdsEntity();
+        ids.setIds(nodeIds);
+        template.selectList(QUERY_SELECT_LOCK_AUTHORITY_NODES, ids);
+    }
+
+    @Override
+    protected List<AuthorityClosureEntity> selectAuthorityClosureAncestors(Long nodeId)
+    {
+        return template.selectList(QUERY_SELECT_GET_AUTHORITY_CLOSURE_ANCESTORS, nodeId);
+    }
+
+    @Override
+    protected List<AuthorityClosureEntity> selectAuthorityClosureDescendants(Long nodeId)
+    {
+        return template.selectList(QUERY_SELECT_GET_AUTHORITY_CLOSURE_DESCENDANTS, nodeId);
+    }
+
+    @Override
+    protected List<AuthorityClosureEntity> selectAuthorityClosureRows(List<Long> ancestorIds, List<Long> descendantIds)
+    {
+        return template.selectList(QUERY_SELECT_GET_AUTHORITY_CLOSURE_ROWS, new AuthorityClosureParametersEntity(ancestorIds, descendantIds));
+    }
+
+    @Override
+    protected void insertAuthorityClosureRows(List<AuthorityClosureEntity> rows)
+    {
+        template.insert(INSERT_AUTHORITY_CLOSURE_ROWS, new AuthorityClosureParametersEntity(rows));
+    }
+
+    @Override
+    protected int deleteAuthorityClosureRows(List<Long> ancestorIds, List<Long> descendantIds)
+    {
+        return template.delete(DELETE_AUTHORITY_CLOSURE_ROWS, new AuthorityClosureParametersEntity(ancestorIds, descendantIds));
+    }
+
+    @Override
+    protected int deleteAuthorityClosure()
+    {
+        return template.delete(DELETE_AUTHORITY_CLOSURE);
+    }
+
+    @Override
+    protected int deleteAuthorityClosureForDescendants(List<Long> descendantIds)
+    {
+        IdsEntity ids = new IdsEntity();
+        ids.setIds(descendantIds);
+        return template.delete(DELETE_AUTHORITY_CLOSURE_FOR_DESCENDANTS, ids);
+    }
+
 }
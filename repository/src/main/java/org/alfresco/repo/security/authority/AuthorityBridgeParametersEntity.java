@@ -25,6 +25,8 @@
  */
 package org.alfresco.repo.security.authority;
 
+import java.util.List;
+
 /**
  * @author Andy
  *
@@ -41,6 +43,8 @@ public class AuthorityBridgeParametersEntity
     
     Long nodeId;
     
+    List<Long> nodeIds;
+    
     public AuthorityBridgeParametersEntity()
     {
         
@@ -140,5 +144,21 @@ public class AuthorityBridgeParametersEntity
         this.nodeId = nodeId;
     }
 
+    /**
+     * @return the node ids
+     */
+    public List<Long> getNodeIds()
+    {
+        return nodeIds;
+    }
+
+    /**
+     * @param nodeIds the node ids to set
+     */
+    public void setNodeIds(List<Long> nodeIds)
+    {
+        this.nodeIds = nodeIds;
+    }
+
     
 }
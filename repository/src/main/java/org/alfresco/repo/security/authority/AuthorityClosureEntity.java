@@ -0,0 +1,88 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2020 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.security.authority;
+
+/**
+ * A row of the authority closure table: the number of distinct membership paths by which
+ * an authority node is contained in an ancestor group node.
+ *
+ * @since 7.1
+ */
+public class AuthorityClosureEntity
+{
+    private Long ancestorNodeId;
+
+    private Long descendantNodeId;
+
+    private long pathCount;
+
+    public AuthorityClosureEntity()
+    {
+    }
+
+    public AuthorityClosureEntity(Long ancestorNodeId, Long descendantNodeId, long pathCount)
+    {
+        this.ancestorNodeId = ancestorNodeId;
+        this.descendantNodeId = descendantNodeId;
+        this.pathCount = pathCount;
+    }
+
+    public Long getAncestorNodeId()
+    {
+        return ancestorNodeId;
+    }
+
+    public void setAncestorNodeId(Long ancestorNodeId)
+    {
+        this.ancestorNodeId = ancestorNodeId;
+    }
+
+    public Long getDescendantNodeId()
+    {
+        return descendantNodeId;
+    }
+
+    public void setDescendantNodeId(Long descendantNodeId)
+    {
+        this.descendantNodeId = descendantNodeId;
+    }
+
+    public long getPathCount()
+    {
+        return pathCount;
+    }
+
+    public void setPathCount(long pathCount)
+    {
+        this.pathCount = pathCount;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "AuthorityClosureEntity [ancestorNodeId=" + ancestorNodeId + ", descendantNodeId=" + descendantNodeId + ", pathCount=" + pathCount + "]";
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2020 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.security.authority;
+
+import java.util.List;
+
+/**
+ * Parameters for reading, deleting and writing the authority closure rows of a block of ancestors and
+ * descendants with one statement each.
+ *
+ * @since 7.1
+ */
+public class AuthorityClosureParametersEntity
+{
+    private List<Long> ancestorIds;
+
+    private List<Long> descendantIds;
+
+    private List<AuthorityClosureEntity> rows;
+
+    public AuthorityClosureParametersEntity()
+    {
+    }
+
+    public AuthorityClosureParametersEntity(List<Long> ancestorIds, List<Long> descendantIds)
+    {
+        this.ancestorIds = ancestorIds;
+        this.descendantIds = descendantIds;
+    }
+
+    public AuthorityClosureParametersEntity(List<AuthorityClosureEntity> rows)
+    {
+        this.rows = rows;
+    }
+
+    public List<Long> getAncestorIds()
+    {
+        return ancestorIds;
+    }
+
+    public void setAncestorIds(List<Long> ancestorIds)
+    {
+        this.ancestorIds = ancestorIds;
+    }
+
+    public List<Long> getDescendantIds()
+    {
+        return descendantIds;
+    }
+
+    public void setDescendantIds(List<Long> descendantIds)
+    {
+        this.descendantIds = descendantIds;
+    }
+
+    public List<AuthorityClosureEntity> getRows()
+    {
+        return rows;
+    }
+
+    public void setRows(List<AuthorityClosureEntity> rows)
+    {
+        this.rows = rows;
+    }
+}
@@ -97,7 +97,8 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.springframework.beans.factory.InitializingBean;
 
-public class AuthorityDAOImpl implements AuthorityDAO, NodeServicePolicies.BeforeDeleteNodePolicy, NodeServicePolicies.OnUpdatePropertiesPolicy, RefreshableCacheListener, InitializingBean
+public class AuthorityDAOImpl implements AuthorityDAO, NodeServicePolicies.BeforeDeleteNodePolicy, NodeServicePolicies.OnUpdatePropertiesPolicy,
+        NodeServicePolicies.OnCreateChildAssociationPolicy, NodeServicePolicies.BeforeDeleteChildAssociationPolicy, RefreshableCacheListener, InitializingBean
 {
     private static Log logger = LogFactory.getLog(AuthorityDAOImpl.class);
     
@@ -138,6 +139,7 @@ public class AuthorityDAOImpl implements AuthorityDAO, NodeServicePolicies.Befor
     private int zoneAuthoritySampleSize = 10000;
 
     private boolean useBridgeTable = true;
+    private boolean useClosureTable = false;
     /** limits the findAuthorities search query */
     private int findAuthoritiesLimit = 100;
     
@@ -228,6 +230,17 @@ public class AuthorityDAOImpl implements AuthorityDAO, NodeServicePolicies.Befor
         this.useBridgeTable = useBridgeTable;
     }
 
+    /**
+     * @param useClosureTable       <tt>true</tt> to read all the groups of a user from the authority closure
+     *                              table in a single query (optional, default <tt>false</tt>).  The table is
+     *                              only maintained while this is set, so turning it on later needs a rebuild.
+     * @since 7.1
+     */
+    public void setUseClosureTable(boolean useClosureTable)
+    {
+        this.useClosureTable = useClosureTable;
+    }
+
 
     public void setPersonService(PersonService personService)
     {
@@ -820,6 +833,18 @@ public class AuthorityDAOImpl implements AuthorityDAO, NodeServicePolicies.Befor
         }
     }
 
+    /**
+     * Use the authority closure table to list all the groups containing an authority with a single query.
+     */
+    private void listAuthoritiesByClosureTable(Set<String> authorities, String name)
+    {
+        NodeRef authRef = getAuthorityOrNull(name);
+        for (AuthorityBridgeLink ancestor : authorityBridgeDAO.getAncestorAuthorities(authRef))
+        {
+            authorities.add(getPooledName(ancestor.getParentName()));
+        }
+    }
+
     /**
      * Explicitly use the bridge table to list authorities.
      */
@@ -881,7 +906,11 @@ public class AuthorityDAOImpl implements AuthorityDAO, NodeServicePolicies.Befor
             if (authorities == null)
             {
                 authorities = new TreeSet<String>();
-                if(useBridgeTable)
+                if (useClosureTable)
+                {
+                    listAuthoritiesByClosureTable(authorities, name);
+                }
+                else if(useBridgeTable)
                 {
                     listAuthoritiesByBridgeTable(authorities, name);
                 }
@@ -1656,6 +1685,29 @@ public class AuthorityDAOImpl implements AuthorityDAO, NodeServicePolicies.Befor
         }
     }
 
+    /**
+     * Listen out for new group members so that the authority closure holds the new paths.
+     */
+    public void onCreateChildAssociation(ChildAssociationRef childAssocRef, boolean isNewNode)
+    {
+        if (useClosureTable)
+        {
+            authorityBridgeDAO.addAuthorityClosureLink(childAssocRef.getParentRef(), childAssocRef.getChildRef());
+        }
+    }
+
+    /**
+     * Listen out for members leaving groups, including when either node is deleted, while the membership can
+     * still be resolved.
+     */
+    public void beforeDeleteChildAssociation(ChildAssociationRef childAssocRef)
+    {
+        if (useClosureTable)
+        {
+            authorityBridgeDAO.removeAuthorityClosureLink(childAssocRef.getParentRef(), childAssocRef.getChildRef());
+        }
+    }
+
     public void onCreateNode(ChildAssociationRef childAssocRef)
     {
         // Restrict creation of group name that contain invalid characters.
@@ -1686,6 +1738,11 @@ public class AuthorityDAOImpl implements AuthorityDAO, NodeServicePolicies.Befor
         // Listen out for group creation to guard against illegal characters
         this.policyComponent.bindClassBehaviour(QName.createQName(NamespaceService.ALFRESCO_URI, "onCreateNode"), ContentModel.TYPE_AUTHORITY_CONTAINER, new JavaBehaviour(
                 this, "onCreateNode"));
+        // Listen out for membership changes to keep the authority closure up to date
+        this.policyComponent.bindAssociationBehaviour(NodeServicePolicies.OnCreateChildAssociationPolicy.QNAME, ContentModel.TYPE_AUTHORITY_CONTAINER,
+                ContentModel.ASSOC_MEMBER, new JavaBehaviour(this, "onCreateChildAssociation"));
+        this.policyComponent.bindAssociationBehaviour(NodeServicePolicies.BeforeDeleteChildAssociationPolicy.QNAME, ContentModel.TYPE_AUTHORITY_CONTAINER,
+                ContentModel.ASSOC_MEMBER, new JavaBehaviour(this, "beforeDeleteChildAssociation"));
 }
     
     /**
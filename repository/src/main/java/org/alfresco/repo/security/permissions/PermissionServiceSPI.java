@@ -25,6 +25,8 @@
  */
 package org.alfresco.repo.security.permissions;
 
+import java.util.BitSet;
+import java.util.List;
 import java.util.Set;
 
 import org.alfresco.service.cmr.repository.NodeRef;
@@ -158,4 +160,25 @@ public interface PermissionServiceSPI extends PermissionService
      * @return - the node permission entry
      */
     public NodePermissionEntry getSetPermissions(StoreRef storeRef);
+
+    /**
+     * Check whether the current user's authorities can read nodes with the given ACL.  Unlike
+     * {@link #hasReadPermission(NodeRef)}, ownership and the administrator role are not considered.
+     * 
+     * @param aclId the low-level ACL ID
+     * @return the access status
+     * @since 7.1
+     */
+    public AccessStatus hasAclReadPermission(Long aclId);
+
+    /**
+     * Check a permission on many nodes at once, evaluating nodes that share an ACL only once
+     * where possible.  Each node gets the same answer as from {@link #hasPermission(NodeRef, String)}.
+     * 
+     * @param nodeRefs the nodes to check, which may include <tt>null</tt> entries
+     * @param perm the permission to check
+     * @return the positions in the list of the nodes for which the permission is allowed
+     * @since 7.1
+     */
+    public BitSet hasPermissions(List<NodeRef> nodeRefs, String perm);
 }
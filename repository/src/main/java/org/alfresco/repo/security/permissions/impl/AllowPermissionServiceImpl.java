@@ -25,6 +25,9 @@
  */
 package org.alfresco.repo.security.permissions.impl;
 
+import java.util.BitSet;
+import java.util.List;
+
 import org.alfresco.repo.security.permissions.PermissionReference;
 import org.alfresco.service.cmr.repository.NodeRef;
 import org.alfresco.service.cmr.security.AccessStatus;
@@ -47,4 +50,18 @@ public class AllowPermissionServiceImpl extends PermissionServiceImpl
     {
        return AccessStatus.ALLOWED;
     }
+
+    @Override
+    public AccessStatus hasAclReadPermission(Long aclId)
+    {
+       return AccessStatus.ALLOWED;
+    }
+
+    @Override
+    public BitSet hasPermissions(List<NodeRef> nodeRefs, String perm)
+    {
+       BitSet allowed = new BitSet(nodeRefs.size());
+       allowed.set(0, nodeRefs.size());
+       return allowed;
+    }
 }
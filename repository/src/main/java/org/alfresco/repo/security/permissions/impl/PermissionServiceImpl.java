@@ -28,7 +28,11 @@ package org.alfresco.repo.security.permissions.impl;
 import static org.apache.commons.lang3.BooleanUtils.toBoolean;
 
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.List;
@@ -43,6 +47,7 @@ import org.alfresco.model.ContentModel;
 import org.alfresco.repo.cache.SimpleCache;
 import org.alfresco.repo.domain.permissions.AclDAO;
 import org.alfresco.repo.domain.permissions.FixedAclUpdater;
+import org.alfresco.repo.node.NodeBulkLoader;
 import org.alfresco.repo.policy.ClassPolicyDelegate;
 import org.alfresco.repo.policy.JavaBehaviour;
 import org.alfresco.repo.policy.PolicyComponent;
@@ -117,6 +122,8 @@ public class PermissionServiceImpl extends AbstractLifecycleBean implements Perm
     protected SimpleCache<Serializable, Set<String>> readersCache;
     
     protected SimpleCache<Serializable, Set<String>> readersDeniedCache;
+    
+    protected SimpleCache<Serializable, Boolean> readableAclsCache;
 
     /*
      * Access to the model
@@ -166,6 +173,8 @@ public class PermissionServiceImpl extends AbstractLifecycleBean implements Perm
     
     protected FixedAclUpdater fixedAclUpdater;
 
+    protected NodeBulkLoader nodeBulkLoader;
+
     protected boolean anyDenyDenies = false;
 
     private final ExtendedTrait<PermissionServiceTrait> permissionServiceTrait;
@@ -210,6 +219,10 @@ public class PermissionServiceImpl extends AbstractLifecycleBean implements Perm
         accessCache.clear();
         readersCache.clear();
         readersDeniedCache.clear();
+        if (readableAclsCache != null)
+        {
+            readableAclsCache.clear();
+        }
     }
 
     public boolean getAnyDenyDenies()
@@ -299,6 +312,16 @@ public class PermissionServiceImpl extends AbstractLifecycleBean implements Perm
     {
         this.fixedAclUpdater = fixedAclUpdater;
     }
+
+    /**
+     * @param nodeBulkLoader        the optional loader used to pre-cache the nodes passed to
+     *                              {@link #hasPermissions(List, String)}
+     * @since 7.1
+     */
+    public void setNodeBulkLoader(NodeBulkLoader nodeBulkLoader)
+    {
+        this.nodeBulkLoader = nodeBulkLoader;
+    }
     
     /**
      * Set the permissions access cache.
@@ -327,6 +350,16 @@ public class PermissionServiceImpl extends AbstractLifecycleBean implements Perm
     {
         this.readersDeniedCache = readersDeniedCache;
     }
+
+    /**
+     * @param readableAclsCache     the optional cache of read decisions, keyed by the authorities and
+     *                              the ACL version
+     * @since 7.1
+     */
+    public void setReadableAclsCache(SimpleCache<Serializable, Boolean> readableAclsCache)
+    {
+        this.readableAclsCache = readableAclsCache;
+    }
     
     /**
      * Set the policy component
@@ -1218,6 +1251,84 @@ public class PermissionServiceImpl extends AbstractLifecycleBean implements Perm
         return hasPermission(nodeRef, getPermissionReference(perm));
     }
 
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * The nodes are pre-cached in bulk.  Nodes sharing the same ACL, type, aspects and dynamic
+     * authorities share a single evaluation; anything else (version nodes, missing nodes and
+     * nodes without a current ACL) is checked one at a time through {@link #hasPermission(NodeRef, String)}.
+     * Subclasses that change how a single node is checked must override this method as well.
+     */
+    @Override
+    @Extend(traitAPI = PermissionServiceTrait.class, extensionAPI = PermissionServiceExtension.class)
+    public BitSet hasPermissions(List<NodeRef> nodeRefs, String perm)
+    {
+        BitSet allowed = new BitSet(nodeRefs.size());
+        PermissionReference permIn = getPermissionReference(perm);
+        if (nodeBulkLoader != null)
+        {
+            List<NodeRef> toCache = new ArrayList<NodeRef>(nodeRefs.size());
+            for (NodeRef nodeRef : nodeRefs)
+            {
+                if (nodeRef != null)
+                {
+                    toCache.add(tenantService.getName(nodeRef));
+                }
+            }
+            nodeBulkLoader.cacheNodes(toCache);
+        }
+
+        // The system user and unauthenticated calls are trivial, so only group real users
+        Authentication auth = AuthenticationUtil.getRunAsAuthentication();
+        String user = AuthenticationUtil.getRunAsUser();
+        boolean grouped = (permIn != null) && (auth != null) && (user != null) && !AuthenticationUtil.isRunAsUserTheSystemUser();
+        PermissionReference permRef = OLD_ALL_PERMISSIONS_REFERENCE.equals(permIn) ? getAllPermissionReference() : permIn;
+
+        Map<List<Object>, AccessStatus> decisions = new HashMap<List<Object>, AccessStatus>();
+        for (int i = 0; i < nodeRefs.size(); i++)
+        {
+            NodeRef nodeRef = nodeRefs.get(i);
+            AccessStatus status = null;
+            if (grouped && (nodeRef != null) && !isVersionNodeRef(nodeRef) && nodeService.exists(nodeRef))
+            {
+                NodeRef tenantNodeRef = tenantService.getName(nodeRef);
+                AccessControlListProperties properties = permissionsDaoComponent.getAccessControlListProperties(tenantNodeRef);
+                if ((properties != null) && (properties.getAclType() != null) && (properties.getAclType() != ACLType.OLD))
+                {
+                    QName typeQname = nodeService.getType(tenantNodeRef);
+                    Set<QName> aspectQNames = nodeService.getAspects(tenantNodeRef);
+                    Set<String> dynamicAuthoritiesHeld = getDynamicAuthorities(auth, tenantNodeRef, permRef);
+                    List<Object> key = Arrays.<Object>asList(properties.getId(), typeQname, aspectQNames, dynamicAuthoritiesHeld);
+                    status = decisions.get(key);
+                    if (status == null)
+                    {
+                        PermissionContext context = new PermissionContext(typeQname);
+                        context.getAspects().addAll(aspectQNames);
+                        for (String dynamicAuthority : dynamicAuthoritiesHeld)
+                        {
+                            context.addDynamicAuthorityAssignment(user, dynamicAuthority);
+                        }
+                        status = hasPermission(properties.getId(), context, permRef);
+                        decisions.put(key, status);
+                    }
+                }
+            }
+            if (status == null)
+            {
+                status = hasPermission(nodeRef, perm);
+            }
+            if (status == AccessStatus.ALLOWED)
+            {
+                allowed.set(i);
+            }
+        }
+        if (log.isDebugEnabled())
+        {
+            log.debug("Checked " + perm + " on " + nodeRefs.size() + " nodes with " + decisions.size() + " distinct evaluations");
+        }
+        return allowed;
+    }
+
     @Override
     @Extend(traitAPI = PermissionServiceTrait.class, extensionAPI = PermissionServiceExtension.class)
     public void setPermission(NodeRef nodeRef, String authority, String perm, boolean allow)
@@ -1412,7 +1523,7 @@ public class PermissionServiceImpl extends AbstractLifecycleBean implements Perm
         {
             return Collections.emptySet();
         }
-        Set<String> denied = readersDeniedCache.get(aclId);
+        Set<String> denied = readersDeniedCache.get((Serializable)acl.getProperties());
         if (denied != null)
         {
             return denied;
@@ -1439,10 +1550,70 @@ public class PermissionServiceImpl extends AbstractLifecycleBean implements Perm
         return denied;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @Extend(traitAPI = PermissionServiceTrait.class, extensionAPI = PermissionServiceExtension.class)
+    public AccessStatus hasAclReadPermission(Long aclId)
+    {
+        if (aclId == null)
+        {
+            return AccessStatus.DENIED;
+        }
+        return canRead(aclId);
+    }
+
+    /**
+     * Checks whether the current authorities can read an ACL, using the decisions already made for
+     * the same set of authorities where possible.  Decisions are keyed by the ACL version, so a
+     * changed ACL is always evaluated afresh.  A transaction that has changed ACLs evaluates them
+     * directly, as its decisions would not hold for anyone else.
+     */
     protected AccessStatus canRead(Long aclId)
     {
         Set<String> authorities = getAuthorisations();
+        if (readableAclsCache == null || aclDaoComponent.hasCurrentChangeSet())
+        {
+            return canRead(aclId, authorities);
+        }
+        AccessControlListProperties properties = aclDaoComponent.getAccessControlListProperties(aclId);
+        if (properties == null)
+        {
+            return canRead(aclId, authorities);
+        }
+
+        ReadableAclKey key = new ReadableAclKey(getReadableAclAuthorities(authorities), (Serializable) properties);
+        Boolean readable = readableAclsCache.get(key);
+        if (readable != null)
+        {
+            return readable ? AccessStatus.ALLOWED : AccessStatus.DENIED;
+        }
+        AccessStatus status = canRead(aclId, authorities);
+        readableAclsCache.put(key, status == AccessStatus.ALLOWED);
+        return status;
+    }
 
+    /**
+     * Get the key for the current authorities, built once for the authorities bound to the transaction
+     * by {@link #getAuthorisations()} and rebuilt only when they are.
+     */
+    private ReadableAclKey.Authorities getReadableAclAuthorities(Set<String> authorities)
+    {
+        Object boundAuthorities = AlfrescoTransactionSupport.getResource("MyAuthCache");
+        @SuppressWarnings("unchecked")
+        Pair<Object, ReadableAclKey.Authorities> boundKey =
+                (Pair<Object, ReadableAclKey.Authorities>) AlfrescoTransactionSupport.getResource("MyReadableAclAuthorities");
+        if (boundKey == null || boundAuthorities == null || boundKey.getFirst() != boundAuthorities)
+        {
+            boundKey = new Pair<Object, ReadableAclKey.Authorities>(boundAuthorities, new ReadableAclKey.Authorities(authorities));
+            AlfrescoTransactionSupport.bindResource("MyReadableAclAuthorities", boundKey);
+        }
+        return boundKey.getSecond();
+    }
+
+    private AccessStatus canRead(Long aclId, Set<String> authorities)
+    {
         // test denied 
         
         if(anyDenyDenies)
@@ -0,0 +1,141 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2020 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.security.permissions.impl;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Immutable key for one read decision: a set of authorities and one version of an ACL.  The ACL
+ * is identified by its cached properties, which compare on the ACL ID and version, so a decision
+ * made before an ACL changed is never found for the changed ACL.
+ * 
+ * @since 7.1
+ */
+public final class ReadableAclKey implements Serializable
+{
+    private static final long serialVersionUID = -6519440273961322745L;
+
+    private final Authorities authorities;
+    private final Serializable aclProperties;
+    private final int hashCode;
+
+    /**
+     * @param authorities       the authorities evaluating the ACL
+     * @param aclProperties     the cached properties of the ACL, including its version
+     */
+    public ReadableAclKey(Authorities authorities, Serializable aclProperties)
+    {
+        this.authorities = authorities;
+        this.aclProperties = aclProperties;
+        this.hashCode = 31 * authorities.hashCode() + aclProperties.hashCode();
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return hashCode;
+    }
+
+    @Override
+    public boolean equals(Object obj)
+    {
+        if (this == obj)
+        {
+            return true;
+        }
+        else if (obj instanceof ReadableAclKey)
+        {
+            ReadableAclKey that = (ReadableAclKey) obj;
+            return this.hashCode == that.hashCode
+                    && this.aclProperties.equals(that.aclProperties)
+                    && this.authorities.equals(that.authorities);
+        }
+        else
+        {
+            return false;
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        return "ReadableAclKey[authorities=" + authorities + ", acl=" + aclProperties + "]";
+    }
+
+    /**
+     * An immutable copy of a set of authorities, with its hash code computed once.  It is built once
+     * for the authorities of a transaction and shared by all the keys made for them.
+     */
+    public static final class Authorities implements Serializable
+    {
+        private static final long serialVersionUID = 2853717245069213184L;
+
+        private final Set<String> authorities;
+        private final int hashCode;
+
+        /**
+         * @param authorities       the authorities, which are copied
+         */
+        public Authorities(Set<String> authorities)
+        {
+            this.authorities = Collections.unmodifiableSet(new HashSet<String>(authorities));
+            this.hashCode = this.authorities.hashCode();
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return hashCode;
+        }
+
+        @Override
+        public boolean equals(Object obj)
+        {
+            if (this == obj)
+            {
+                return true;
+            }
+            else if (obj instanceof Authorities)
+            {
+                Authorities that = (Authorities) obj;
+                return this.hashCode == that.hashCode && this.authorities.equals(that.authorities);
+            }
+            else
+            {
+                return false;
+            }
+        }
+
+        @Override
+        public String toString()
+        {
+            return "Authorities[" + authorities.size() + "]";
+        }
+    }
+}
@@ -52,6 +52,7 @@ import org.alfresco.repo.security.permissions.PermissionCheckCollection;
 import org.alfresco.repo.security.permissions.PermissionCheckValue;
 import org.alfresco.repo.security.permissions.PermissionCheckedCollection.PermissionCheckedCollectionMixin;
 import org.alfresco.repo.security.permissions.PermissionCheckedValue;
+import org.alfresco.repo.security.permissions.PermissionServiceSPI;
 import org.alfresco.repo.security.permissions.impl.SimplePermissionReference;
 import org.alfresco.service.cmr.repository.AssociationRef;
 import org.alfresco.service.cmr.repository.ChildAssociationRef;
@@ -85,6 +86,8 @@ public class ACLEntryAfterInvocationProvider implements AfterInvocationProvider,
 
     private static final String AFTER_ACL_PARENT = "AFTER_ACL_PARENT";
 
+    private static final long PERMISSION_CHECK_BATCH_SIZE = 256L;
+
     private PermissionService permissionService;
 
     private NamespacePrefixResolver nspr;
@@ -807,8 +810,16 @@ public class ACLEntryAfterInvocationProvider implements AfterInvocationProvider,
         // Keep values explicitly
         List<Object> keepValues = new ArrayList<Object>(returnedObject.size());
         
-        for (Object nextObject : returnedObject)
+        // Nodes are checked in batches if the permission service can do so
+        PermissionServiceSPI batchPermissionService = (permissionService instanceof PermissionServiceSPI) ? (PermissionServiceSPI) permissionService : null;
+        List<Object> objects = new ArrayList<Object>(returnedObject);
+        int checkedStart = 0;
+        int checkedEnd = 0;
+        BitSet checkedAllowed = null;
+        
+        for (int position = 0; position < objects.size(); position++)
         {
+            Object nextObject = objects.get(position);
             // if the maximum result size or time has been exceeded, then we have to remove only
             long currentTimeMillis = System.currentTimeMillis();
             
@@ -839,88 +850,34 @@ public class ACLEntryAfterInvocationProvider implements AfterInvocationProvider,
             }
             
             boolean allowed = true;
-            for (ConfigAttributeDefintion cad : supportedDefinitions)
+            if (batchPermissionService != null)
             {
-                NodeRef testNodeRef = null;
-                if (cad.typeString.equals(AFTER_ACL_NODE))
+                if (position >= checkedEnd)
                 {
-                    if (StoreRef.class.isAssignableFrom(nextObject.getClass()))
-                    {
-                        testNodeRef = nodeService.getRootNode((StoreRef) nextObject);
-                    }
-                    else if (NodeRef.class.isAssignableFrom(nextObject.getClass()))
-                    {
-                        testNodeRef = (NodeRef) nextObject;
-                    }
-                    else if (ChildAssociationRef.class.isAssignableFrom(nextObject.getClass()))
-                    {
-                        testNodeRef = ((ChildAssociationRef) nextObject).getChildRef();
-                    }
-                    else if (Pair.class.isAssignableFrom(nextObject.getClass()))
-                    {
-                        testNodeRef = (NodeRef) ((Pair)nextObject).getSecond();
-                    }
-                    else if (PermissionCheckValue.class.isAssignableFrom(nextObject.getClass()))
-                    {
-                        testNodeRef = ((PermissionCheckValue) nextObject).getNodeRef();
-                    }
-                    else if (AssociationRef.class.isAssignableFrom(nextObject.getClass()))
-                    {
-                        testNodeRef = ((AssociationRef) nextObject).getTargetRef();
-                    }
-                    else
-                    {
-                        throw new ACLEntryVoterException("The specified parameter is not recognized: " + nextObject.getClass());
-                    }
+                    // Check the next objects together, but no more of them than could still be kept
+                    long wanted = Math.min(targetResultCount - keepValues.size(), (long) maxPermissionChecks - count);
+                    checkedStart = position;
+                    checkedEnd = (int) Math.min(objects.size(), position + Math.max(1L, Math.min(wanted, PERMISSION_CHECK_BATCH_SIZE)));
+                    checkedAllowed = checkPermissions(batchPermissionService, objects.subList(checkedStart, checkedEnd), supportedDefinitions);
                 }
-                else if (cad.typeString.equals(AFTER_ACL_PARENT))
+                allowed = checkedAllowed.get(position - checkedStart);
+            }
+            else
+            {
+                for (ConfigAttributeDefintion cad : supportedDefinitions)
                 {
-                    if (StoreRef.class.isAssignableFrom(nextObject.getClass()))
-                    {
-                        // Will be allowed
-                        testNodeRef = null;
-                    }
-                    else if (NodeRef.class.isAssignableFrom(nextObject.getClass()))
+                    NodeRef testNodeRef = getTestNodeRef(cad, nextObject);
+                    
+                    if (isUnfiltered(testNodeRef))      // Null allows
                     {
-                        testNodeRef = nodeService.getPrimaryParent((NodeRef) nextObject).getParentRef();
+                        continue;                       // Continue to next ConfigAttributeDefintion
                     }
-                    else if (ChildAssociationRef.class.isAssignableFrom(nextObject.getClass()))
+                    
+                    if (allowed && (testNodeRef != null) && (permissionService.hasPermission(testNodeRef, cad.required.toString()) == AccessStatus.DENIED))
                     {
-                        testNodeRef = ((ChildAssociationRef) nextObject).getParentRef();
+                        allowed = false;
+                        break;                          // No point evaluating more ConfigAttributeDefintions
                     }
-                    else if (AssociationRef.class.isAssignableFrom(nextObject.getClass()))
-                    {
-                        testNodeRef = ((AssociationRef) nextObject).getSourceRef();
-                    }
-                    else if (Pair.class.isAssignableFrom(nextObject.getClass()))
-                    {
-                        testNodeRef = (NodeRef) ((Pair)nextObject).getSecond();
-                    }
-                    else if (PermissionCheckValue.class.isAssignableFrom(nextObject.getClass()))
-                    {
-                        NodeRef nodeRef = ((PermissionCheckValue) nextObject).getNodeRef();
-                        testNodeRef = nodeService.getPrimaryParent(nodeRef).getParentRef();
-                    }
-                    else
-                    {
-                        throw new ACLEntryVoterException("The specified parameter is recognized: " + nextObject.getClass());
-                    }
-                }
-                
-                if (log.isDebugEnabled())
-                {
-                    log.debug("\t" + cad.typeString + " test on " + testNodeRef + " from " + nextObject.getClass().getName());
-                }
-                
-                if (isUnfiltered(testNodeRef))      // Null allows
-                {
-                    continue;                       // Continue to next ConfigAttributeDefintion
-                }
-                
-                if (allowed && (testNodeRef != null) && (permissionService.hasPermission(testNodeRef, cad.required.toString()) == AccessStatus.DENIED))
-                {
-                    allowed = false;
-                    break;                          // No point evaluating more ConfigAttributeDefintions
                 }
             }
             
@@ -955,6 +912,115 @@ public class ACLEntryAfterInvocationProvider implements AfterInvocationProvider,
         return PermissionCheckedCollectionMixin.create(returnedObject, cutoff, checksRemaining, sizeOriginal);
     }
 
+    /**
+     * @return the node whose permission decides whether the object is kept, or <tt>null</tt> if there is none
+     */
+    @SuppressWarnings("rawtypes")
+    private NodeRef getTestNodeRef(ConfigAttributeDefintion cad, Object nextObject)
+    {
+        NodeRef testNodeRef = null;
+        if (cad.typeString.equals(AFTER_ACL_NODE))
+        {
+            if (StoreRef.class.isAssignableFrom(nextObject.getClass()))
+            {
+                testNodeRef = nodeService.getRootNode((StoreRef) nextObject);
+            }
+            else if (NodeRef.class.isAssignableFrom(nextObject.getClass()))
+            {
+                testNodeRef = (NodeRef) nextObject;
+            }
+            else if (ChildAssociationRef.class.isAssignableFrom(nextObject.getClass()))
+            {
+                testNodeRef = ((ChildAssociationRef) nextObject).getChildRef();
+            }
+            else if (Pair.class.isAssignableFrom(nextObject.getClass()))
+            {
+                testNodeRef = (NodeRef) ((Pair)nextObject).getSecond();
+            }
+            else if (PermissionCheckValue.class.isAssignableFrom(nextObject.getClass()))
+            {
+                testNodeRef = ((PermissionCheckValue) nextObject).getNodeRef();
+            }
+            else if (AssociationRef.class.isAssignableFrom(nextObject.getClass()))
+            {
+                testNodeRef = ((AssociationRef) nextObject).getTargetRef();
+            }
+            else
+            {
+                throw new ACLEntryVoterException("The specified parameter is not recognized: " + nextObject.getClass());
+            }
+        }
+        else if (cad.typeString.equals(AFTER_ACL_PARENT))
+        {
+            if (StoreRef.class.isAssignableFrom(nextObject.getClass()))
+            {
+                // Will be allowed
+                testNodeRef = null;
+            }
+            else if (NodeRef.class.isAssignableFrom(nextObject.getClass()))
+            {
+                testNodeRef = nodeService.getPrimaryParent((NodeRef) nextObject).getParentRef();
+            }
+            else if (ChildAssociationRef.class.isAssignableFrom(nextObject.getClass()))
+            {
+                testNodeRef = ((ChildAssociationRef) nextObject).getParentRef();
+            }
+            else if (AssociationRef.class.isAssignableFrom(nextObject.getClass()))
+            {
+                testNodeRef = ((AssociationRef) nextObject).getSourceRef();
+            }
+            else if (Pair.class.isAssignableFrom(nextObject.getClass()))
+            {
+                testNodeRef = (NodeRef) ((Pair)nextObject).getSecond();
+            }
+            else if (PermissionCheckValue.class.isAssignableFrom(nextObject.getClass()))
+            {
+                NodeRef nodeRef = ((PermissionCheckValue) nextObject).getNodeRef();
+                testNodeRef = nodeService.getPrimaryParent(nodeRef).getParentRef();
+            }
+            else
+            {
+                throw new ACLEntryVoterException("The specified parameter is recognized: " + nextObject.getClass());
+            }
+        }
+        
+        if (log.isDebugEnabled())
+        {
+            log.debug("\t" + cad.typeString + " test on " + testNodeRef + " from " + nextObject.getClass().getName());
+        }
+        return testNodeRef;
+    }
+
+    /**
+     * Check the permissions of several objects together, through {@link PermissionServiceSPI#hasPermissions(List, String)}.
+     * 
+     * @return the positions of the objects that are kept
+     */
+    private BitSet checkPermissions(PermissionServiceSPI batchPermissionService, List<Object> objects, List<ConfigAttributeDefintion> supportedDefinitions)
+    {
+        BitSet allowed = new BitSet(objects.size());
+        allowed.set(0, objects.size());
+        for (ConfigAttributeDefintion cad : supportedDefinitions)
+        {
+            List<NodeRef> testNodeRefs = new ArrayList<NodeRef>(objects.size());
+            for (int i = 0; i < objects.size(); i++)
+            {
+                NodeRef testNodeRef = allowed.get(i) ? getTestNodeRef(cad, objects.get(i)) : null;
+                // Null allows
+                testNodeRefs.add(isUnfiltered(testNodeRef) ? null : testNodeRef);
+            }
+            BitSet cadAllowed = batchPermissionService.hasPermissions(testNodeRefs, cad.required.toString());
+            for (int i = 0; i < objects.size(); i++)
+            {
+                if ((testNodeRefs.get(i) != null) && !cadAllowed.get(i))
+                {
+                    allowed.clear(i);
+                }
+            }
+        }
+        return allowed;
+    }
+
     @SuppressWarnings("rawtypes")
     private Object[] decide(Authentication authentication, Object object, ConfigAttributeDefinition config, Object[] returnedObject) throws AccessDeniedException
     {
@@ -25,8 +25,10 @@
  */
 package org.alfresco.repo.security.permissions.noop;
 
+import java.util.BitSet;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 import org.alfresco.repo.security.permissions.NodePermissionEntry;
@@ -284,6 +286,20 @@ public class PermissionServiceNOOPImpl implements PermissionServiceSPI
         return AccessStatus.ALLOWED;
     }
 
+    @Override
+    public AccessStatus hasAclReadPermission(Long aclId)
+    {
+        return AccessStatus.ALLOWED;
+    }
+
+    @Override
+    public BitSet hasPermissions(List<NodeRef> nodeRefs, String perm)
+    {
+        BitSet allowed = new BitSet(nodeRefs.size());
+        allowed.set(0, nodeRefs.size());
+        return allowed;
+    }
+
     @Override
 	public Set<String> getAuthorisations()
 	{
@@ -37,7 +37,6 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.TreeSet;
 import java.util.zip.CRC32;
 
 import org.alfresco.error.AlfrescoRuntimeException;
@@ -80,6 +79,8 @@ import org.alfresco.service.namespace.NamespaceService;
 import org.alfresco.service.namespace.QName;
 import org.alfresco.util.Pair;
 import org.alfresco.util.PropertyCheck;
+import org.alfresco.util.collections.LongArrayList;
+import org.alfresco.util.collections.LongHashSet;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
@@ -636,21 +637,30 @@ public class SOLRTrackingComponentImpl implements SearchTrackingComponent
     }
     
     /**
-     * Does a 'breadth first' search of ancestors, caching as it goes
+     * Does a 'breadth first' search of ancestors, caching a level at a time
      * @param nodeIds initial list of nodes to visit
-     * @return all visited nodes, in no particular order
+     * @return all visited nodes, in ascending order
      */
     private List<Long> cacheAncestors(List<Long> nodeIds)
     {
-        final LinkedList<Long> toVisit = new LinkedList<Long>(nodeIds);
-        Set<Long> visited = new TreeSet<Long>();
-        Long nodeId;
-        nodeDAO.cacheNodesById(toVisit);
-        Long lastCached = toVisit.peekLast();
-        while ((nodeId = toVisit.pollFirst()) != null)
+        LongHashSet visited = new LongHashSet(nodeIds.size() * 2);
+        LongArrayList level = LongArrayList.of(nodeIds);
+        while (!level.isEmpty())
         {
-            if (visited.add(nodeId) && (nodeDAO.getNodeIdStatus(nodeId) != null) && (false == nodeDAO.getNodeIdStatus(nodeId).isDeleted()))
+            nodeDAO.cacheNodesById(level);
+            final LongArrayList nextLevel = new LongArrayList();
+            for (int i = 0; i < level.size(); i++)
             {
+                long nodeId = level.get(i);
+                if (!visited.add(nodeId))
+                {
+                    continue;
+                }
+                Status status = nodeDAO.getNodeIdStatus(nodeId);
+                if (status == null || status.isDeleted())
+                {
+                    continue;
+                }
                 nodeDAO.getParentAssocs(nodeId, null, null, null, new ChildAssocRefQueryCallback()
                 {
                     @Override
@@ -669,7 +679,7 @@ public class SOLRTrackingComponentImpl implements SearchTrackingComponent
                     public boolean handle(Pair<Long, ChildAssociationRef> childAssocPair,
                             Pair<Long, NodeRef> parentNodePair, Pair<Long, NodeRef> childNodePair)
                     {
-                        toVisit.add(parentNodePair.getFirst());
+                        nextLevel.add(parentNodePair.getFirst());
                         return true;
                     }
 
@@ -679,15 +689,9 @@ public class SOLRTrackingComponentImpl implements SearchTrackingComponent
                     }
                 });
             }
-            final boolean nodeIdEqualsLastCached = (nodeId == null && lastCached == null) ||
-                                                   (nodeId != null && nodeId.equals(lastCached));
-            if (nodeIdEqualsLastCached && !toVisit.isEmpty())
-            {
-                nodeDAO.cacheNodesById(toVisit);
-                lastCached = toVisit.peekLast();
-            }
+            level = nextLevel;
         }
-        return new ArrayList<Long>(visited);
+        return visited.toSortedList().toList();
     }    
 
     /** Get properties that we want to be indexed. */
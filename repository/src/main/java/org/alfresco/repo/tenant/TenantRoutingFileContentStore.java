@@ -33,8 +33,10 @@ import java.util.Map;
 import org.alfresco.repo.content.ContentLimitProvider;
 import org.alfresco.repo.content.ContentLimitProvider.NoLimitProvider;
 import org.alfresco.repo.content.ContentStore;
+import org.alfresco.repo.content.filestore.DeduplicatingFileContentStore;
 import org.alfresco.repo.content.filestore.FileContentStore;
 import org.alfresco.repo.content.filestore.FileContentUrlProvider;
+import org.alfresco.repo.content.filestore.FileContentVolumes;
 import org.springframework.context.ApplicationContext;
 
 /**
@@ -44,6 +46,12 @@ public class TenantRoutingFileContentStore extends AbstractTenantRoutingContentS
 {
     private ContentLimitProvider contentLimitProvider = new NoLimitProvider();
     private FileContentUrlProvider fileContentUrlProvider;
+    private boolean deduplicate = false;
+    private String contentDigestAlgorithm;
+    private String volumes;
+    private String volumeWeights;
+    private long volumeMinFreeSpace = 0L;
+    private volatile FileContentVolumes fileContentVolumes;
     
     /**
      * Sets a new {@link ContentLimitProvider} which will provide a maximum filesize for content.
@@ -61,6 +69,89 @@ public class TenantRoutingFileContentStore extends AbstractTenantRoutingContentS
         this.fileContentUrlProvider = fileContentUrlProvider;
     }
     
+    /**
+     * Sets whether identical content is stored only once, using a {@link DeduplicatingFileContentStore}.
+     * 
+     * @since 7.1
+     */
+    public void setDeduplicate(boolean deduplicate)
+    {
+        this.deduplicate = deduplicate;
+    }
+    
+    /**
+     * @see FileContentStore#setContentDigestAlgorithm(String)
+     * @since 7.1
+     */
+    public void setContentDigestAlgorithm(String contentDigestAlgorithm)
+    {
+        this.contentDigestAlgorithm = contentDigestAlgorithm;
+    }
+    
+    /**
+     * Sets the volumes across which new content is spread, as comma-separated <b>name=path</b> pairs.
+     * Volumes are used by stores below the {@link #getRootLocation() root location}, i.e. for tenants
+     * without their own content store directory.
+     * 
+     * @see FileContentVolumes#parse(String, String)
+     * @since 7.1
+     */
+    public void setVolumes(String volumes)
+    {
+        this.volumes = volumes;
+    }
+    
+    /**
+     * Sets the relative weights of the volumes, as comma-separated <b>name=weight</b> pairs.
+     * 
+     * @since 7.1
+     */
+    public void setVolumeWeights(String volumeWeights)
+    {
+        this.volumeWeights = volumeWeights;
+    }
+    
+    /**
+     * @see FileContentVolumes#setMinFreeSpace(long)
+     * @since 7.1
+     */
+    public void setVolumeMinFreeSpace(long volumeMinFreeSpace)
+    {
+        this.volumeMinFreeSpace = volumeMinFreeSpace;
+    }
+    
+    @Override
+    public void init()
+    {
+        getFileContentVolumes();
+        super.init();
+    }
+    
+    /**
+     * @return the volumes shared by the stores below the root location, or <tt>null</tt> if there are none
+     */
+    private FileContentVolumes getFileContentVolumes()
+    {
+        FileContentVolumes result = fileContentVolumes;
+        if (result == null && volumes != null)
+        {
+            synchronized (this)
+            {
+                result = fileContentVolumes;
+                if (result == null)
+                {
+                    result = FileContentVolumes.parse(volumes, volumeWeights);
+                    if (result != null)
+                    {
+                        result.setMinFreeSpace(volumeMinFreeSpace);
+                        fileContentVolumes = result;
+                    }
+                }
+            }
+        }
+        return result;
+    }
+    
     protected ContentStore initContentStore(ApplicationContext ctx, String contentRoot)
     {
     	Map<String, Serializable> extendedEventParams = new HashMap<String, Serializable>();
@@ -69,7 +160,9 @@ public class TenantRoutingFileContentStore extends AbstractTenantRoutingContentS
     	    extendedEventParams.put("Tenant", tenantService.getCurrentUserDomain());
     	}
 
-        FileContentStore fileContentStore = new FileContentStore(ctx, new File(contentRoot), extendedEventParams);
+        FileContentStore fileContentStore = deduplicate ?
+                new DeduplicatingFileContentStore(ctx, new File(contentRoot), extendedEventParams) :
+                new FileContentStore(ctx, new File(contentRoot), extendedEventParams);
         
         // Set the content filesize limiter if there is one.
         if (this.contentLimitProvider != null)
@@ -81,6 +174,13 @@ public class TenantRoutingFileContentStore extends AbstractTenantRoutingContentS
         {
             fileContentStore.setFileContentUrlProvider(fileContentUrlProvider);
         }
+        fileContentStore.setContentDigestAlgorithm(contentDigestAlgorithm);
+        
+        // Stores sharing the root location share the volumes, and their health, too
+        if (contentRoot.equals(getRootLocation()))
+        {
+            fileContentStore.setVolumes(getFileContentVolumes());
+        }
         return fileContentStore;
     }
 }
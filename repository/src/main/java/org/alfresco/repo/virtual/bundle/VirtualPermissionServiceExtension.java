@@ -26,6 +26,8 @@
 
 package org.alfresco.repo.virtual.bundle;
 
+import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.LinkedList;
@@ -434,6 +436,38 @@ public class VirtualPermissionServiceExtension extends
         return getTrait().getReadersDenied(aclId);
     }
 
+    @Override
+    public BitSet hasPermissions(List<NodeRef> nodeRefs, String perm)
+    {
+        // Virtual nodes are checked one at a time; the trait sees nulls in their place
+        List<NodeRef> actualNodeRefs = new ArrayList<NodeRef>(nodeRefs);
+        List<Integer> virtualPositions = new LinkedList<Integer>();
+        for (int i = 0; i < nodeRefs.size(); i++)
+        {
+            NodeRef nodeRef = nodeRefs.get(i);
+            if (nodeRef != null && Reference.fromNodeRef(nodeRef) != null)
+            {
+                actualNodeRefs.set(i, null);
+                virtualPositions.add(i);
+            }
+        }
+        BitSet allowed = getTrait().hasPermissions(actualNodeRefs,
+                                                   perm);
+        for (int position : virtualPositions)
+        {
+            allowed.set(position,
+                        AccessStatus.ALLOWED.equals(hasPermission(nodeRefs.get(position),
+                                                                  perm)));
+        }
+        return allowed;
+    }
+
+    @Override
+    public AccessStatus hasAclReadPermission(Long aclId)
+    {
+        return getTrait().hasAclReadPermission(aclId);
+    }
+
     @Override
     public AccessStatus hasPermission(Long aclID, PermissionContext context, String permission)
     {
@@ -162,6 +162,15 @@ CREATE TABLE alf_authority_alias
     CONSTRAINT fk_alf_autha_ali FOREIGN KEY (alias_id) REFERENCES alf_authority (id)
 ) ENGINE=InnoDB;
 
+CREATE TABLE alf_authority_closure
+(
+    descendant_node_id BIGINT NOT NULL,
+    ancestor_node_id BIGINT NOT NULL,
+    path_count BIGINT NOT NULL,
+    PRIMARY KEY (descendant_node_id, ancestor_node_id),
+    KEY idx_alf_authcl_anc (ancestor_node_id)
+) ENGINE=InnoDB;
+
 CREATE TABLE alf_transaction
 (
     id BIGINT NOT NULL AUTO_INCREMENT,
@@ -245,6 +254,7 @@ CREATE TABLE alf_child_assoc
     KEY fk_alf_cass_qnns (qname_ns_id),
     KEY idx_alf_cass_qncrc (qname_crc, type_qname_id, parent_node_id),
     KEY idx_alf_cass_pri (parent_node_id, is_primary, child_node_id),
+    KEY idx_alf_cass_pname (parent_node_id, child_node_name, id),
     CONSTRAINT fk_alf_cass_cnode FOREIGN KEY (child_node_id) REFERENCES alf_node (id),
     CONSTRAINT fk_alf_cass_pnode FOREIGN KEY (parent_node_id) REFERENCES alf_node (id),
     CONSTRAINT fk_alf_cass_qnns FOREIGN KEY (qname_ns_id) REFERENCES alf_namespace (id),
@@ -174,6 +174,15 @@ CREATE UNIQUE INDEX auth_id ON alf_authority_alias (auth_id, alias_id);
 CREATE INDEX fk_alf_autha_ali ON alf_authority_alias (alias_id);
 CREATE INDEX fk_alf_autha_aut ON alf_authority_alias (auth_id);
 
+CREATE TABLE alf_authority_closure
+(
+    descendant_node_id INT8 NOT NULL,
+    ancestor_node_id INT8 NOT NULL,
+    path_count INT8 NOT NULL,
+    PRIMARY KEY (descendant_node_id, ancestor_node_id)
+);
+CREATE INDEX idx_alf_authcl_anc ON alf_authority_closure (ancestor_node_id);
+
 CREATE SEQUENCE alf_transaction_seq START WITH 1 INCREMENT BY 1;
 CREATE TABLE alf_transaction
 (
@@ -267,6 +276,7 @@ CREATE INDEX fk_alf_cass_tqn ON alf_child_assoc (type_qname_id);
 CREATE INDEX fk_alf_cass_qnns ON alf_child_assoc (qname_ns_id);
 CREATE INDEX idx_alf_cass_qncrc ON alf_child_assoc (qname_crc, type_qname_id, parent_node_id);
 CREATE INDEX idx_alf_cass_pri ON alf_child_assoc (parent_node_id, is_primary, child_node_id);
+CREATE INDEX idx_alf_cass_pname ON alf_child_assoc (parent_node_id, child_node_name, id);
 
 CREATE TABLE alf_node_aspects
 (
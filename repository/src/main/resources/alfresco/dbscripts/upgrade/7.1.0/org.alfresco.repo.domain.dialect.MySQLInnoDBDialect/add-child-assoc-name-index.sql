@@ -0,0 +1,22 @@
+--
+-- Title:      Add child association name index to alf_child_assoc
+-- Database:   MySQL
+-- Since:      V7.1.0
+--
+-- Please contact support@alfresco.com if you need assistance with the upgrade.
+--
+
+DROP INDEX idx_alf_cass_pname;  --(optional)
+CREATE INDEX idx_alf_cass_pname ON alf_child_assoc (parent_node_id, child_node_name, id);
+
+--
+-- Record script finish
+--
+DELETE FROM alf_applied_patch WHERE id = 'patch.db-V7.1.0-add-child-assoc-name-index';
+INSERT INTO alf_applied_patch
+  (id, description, fixes_from_schema, fixes_to_schema, applied_to_schema, target_schema, applied_on_date, applied_to_server, was_executed, succeeded, report)
+  VALUES
+  (
+    'patch.db-V7.1.0-add-child-assoc-name-index', 'Adds an index on alf_child_assoc for paging children by name',
+    0, 15003, -1, 15004, null, 'UNKNOWN', ${TRUE}, ${TRUE}, 'Index idx_alf_cass_pname added to alf_child_assoc'
+  );
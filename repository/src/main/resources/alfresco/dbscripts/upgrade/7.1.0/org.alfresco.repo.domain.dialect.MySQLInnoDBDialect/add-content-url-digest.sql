@@ -0,0 +1,21 @@
+--
+-- Title:      Add content digest to alf_content_url
+-- Database:   MySQL
+-- Since:      V7.1.0
+--
+-- Please contact support@alfresco.com if you need assistance with the upgrade.
+--
+
+ALTER TABLE alf_content_url ADD COLUMN content_digest VARCHAR(255) NULL;
+
+--
+-- Record script finish
+--
+DELETE FROM alf_applied_patch WHERE id = 'patch.db-V7.1.0-add-content-url-digest';
+INSERT INTO alf_applied_patch
+  (id, description, fixes_from_schema, fixes_to_schema, applied_to_schema, target_schema, applied_on_date, applied_to_server, was_executed, succeeded, report)
+  VALUES
+  (
+    'patch.db-V7.1.0-add-content-url-digest', 'Adds the content digest column to alf_content_url',
+    0, 15001, -1, 15002, null, 'UNKNOWN', ${TRUE}, ${TRUE}, 'Column content_digest added to alf_content_url'
+  );
@@ -0,0 +1,28 @@
+--
+-- Title:      Add the alf_authority_closure table
+-- Database:   PostgreSQL
+-- Since:      V7.1.0
+--
+-- Please contact support@alfresco.com if you need assistance with the upgrade.
+--
+
+CREATE TABLE alf_authority_closure
+(
+    descendant_node_id INT8 NOT NULL,
+    ancestor_node_id INT8 NOT NULL,
+    path_count INT8 NOT NULL,
+    PRIMARY KEY (descendant_node_id, ancestor_node_id)
+);
+CREATE INDEX idx_alf_authcl_anc ON alf_authority_closure (ancestor_node_id);
+
+--
+-- Record script finish
+--
+DELETE FROM alf_applied_patch WHERE id = 'patch.db-V7.1.0-add-authority-closure-table';
+INSERT INTO alf_applied_patch
+  (id, description, fixes_from_schema, fixes_to_schema, applied_to_schema, target_schema, applied_on_date, applied_to_server, was_executed, succeeded, report)
+  VALUES
+  (
+    'patch.db-V7.1.0-add-authority-closure-table', 'Adds the alf_authority_closure table',
+    0, 15002, -1, 15003, null, 'UNKNOWN', ${TRUE}, ${TRUE}, 'Table alf_authority_closure added'
+  );
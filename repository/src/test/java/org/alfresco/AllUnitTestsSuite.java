@@ -50,6 +50,8 @@ import org.junit.runners.Suite;
     org.alfresco.repo.cache.DefaultCacheFactoryTest.class,
     org.alfresco.repo.cache.DefaultSimpleCacheTest.class,
     org.alfresco.repo.cache.InMemoryCacheStatisticsTest.class,
+    org.alfresco.repo.cache.InvalidatingCacheFactoryTest.class,
+    org.alfresco.repo.cache.OffHeapSimpleCacheTest.class,
     org.alfresco.repo.cache.TransactionStatsTest.class,
     org.alfresco.repo.cache.lookup.EntityLookupCacheTest.class,
     org.alfresco.repo.calendar.CalendarHelpersTest.class,
@@ -69,6 +71,7 @@ import org.junit.runners.Suite;
     org.alfresco.repo.module.tool.ModuleManagementToolTest.class,
     org.alfresco.repo.module.tool.WarHelperImplTest.class,
     org.alfresco.repo.module.tool.ModuleServiceImplTest.class,
+    org.alfresco.repo.node.getchildren.GetChildrenKeysetTest.class,
     org.alfresco.repo.node.integrity.IntegrityEventTest.class,
     org.alfresco.repo.policy.MTPolicyComponentTest.class,
     org.alfresco.repo.policy.PolicyComponentTest.class,
@@ -190,9 +193,11 @@ import org.junit.runners.Suite;
     org.alfresco.service.cmr.repository.TemporalSourceOptionsTest.class,
     org.alfresco.repo.content.metadata.MetadataExtracterLimitsTest.class,
     org.alfresco.repo.content.caching.quota.StandardQuotaStrategyMockTest.class,
+    org.alfresco.repo.content.caching.quota.FrequencyAwareQuotaStrategyTest.class,
     org.alfresco.repo.content.caching.quota.UnlimitedQuotaStrategyTest.class,
     org.alfresco.repo.content.caching.CachingContentStoreTest.class,
     org.alfresco.repo.content.caching.ContentCacheImplTest.class,
+    org.alfresco.repo.content.compression.CompressingContentStoreTest.class,
     org.alfresco.repo.domain.permissions.FixedAclUpdaterUnitTest.class,
     org.alfresco.repo.domain.propval.PropertyTypeConverterTest.class,
     org.alfresco.repo.domain.schema.script.ScriptBundleExecutorImplTest.class,
@@ -555,6 +555,47 @@ public class CacheTest extends TestCase
         }
     }
     
+    /**
+     * Read-only and read-write transactions both see the value they read first for the rest of the
+     * transaction, and neither writes it back to the shared cache.
+     */
+    public void testReadsInReadOnlyTxn() throws Throwable
+    {
+        TransactionalCache.putSharedCacheValue(backingCache, "read-test", "A", null);
+        
+        TransactionService transactionService = serviceRegistry.getTransactionService();
+        UserTransaction txn = transactionService.getUserTransaction(true);
+        try
+        {
+            txn.begin();
+            assertEquals("A", transactionalCache.get("read-test"));
+            TransactionalCache.putSharedCacheValue(backingCache, "read-test", "B", null);
+            assertEquals("Read-only transaction must see the value it read first", "A", transactionalCache.get("read-test"));
+            txn.commit();
+        }
+        finally
+        {
+            try { txn.rollback(); } catch (Throwable ee) {}
+        }
+        
+        txn = transactionService.getUserTransaction(false);
+        try
+        {
+            txn.begin();
+            assertEquals("B", transactionalCache.get("read-test"));
+            TransactionalCache.putSharedCacheValue(backingCache, "read-test", "C", null);
+            assertEquals("Read-write transaction must see the value it read first", "B", transactionalCache.get("read-test"));
+            txn.commit();
+        }
+        finally
+        {
+            try { txn.rollback(); } catch (Throwable ee) {}
+        }
+        // Nothing was written by either transaction
+        assertEquals("C", TransactionalCache.getSharedCacheValue(backingCache, "read-test", null));
+        backingCache.remove("read-test");
+    }
+    
     /**
      * Add 50K objects into the transactional cache and checks that the first object added
      * has been discarded.
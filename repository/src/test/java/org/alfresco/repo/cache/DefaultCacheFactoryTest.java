@@ -29,6 +29,7 @@ import static org.junit.Assert.*;
 
 import java.util.Properties;
 
+import org.alfresco.error.AlfrescoRuntimeException;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -62,6 +63,18 @@ public class DefaultCacheFactoryTest
         properties.setProperty("cache.withMaxIdle.maxItems", "0");
         properties.setProperty("cache.withMaxIdle.eviction-policy", "NONE");
         properties.setProperty("cache.withMaxIdle.maxIdleSeconds", "7");
+        // cache.offHeap
+        properties.setProperty("cache.offHeap.storage", "off-heap");
+        properties.setProperty("cache.offHeap.offHeap.maxBytes", "1048576");
+        properties.setProperty("cache.offHeap.offHeap.slabBytes", "65536");
+        properties.setProperty("cache.offHeap.timeToLiveSeconds", "8");
+        // cache.withMaxWeight
+        properties.setProperty("cache.withMaxWeight.maxItems", "10");
+        properties.setProperty("cache.withMaxWeight.eviction-policy", "LRU");
+        properties.setProperty("cache.withMaxWeight.maxWeight", "65536");
+        properties.setProperty("cache.withMaxWeight.weigher", DefaultCacheEntryWeigher.class.getName());
+        // cache.badWeigher
+        properties.setProperty("cache.badWeigher.weigher", "org.alfresco.NoSuchWeigher");
         
         cacheFactory.setProperties(properties);
     }
@@ -92,6 +105,38 @@ public class DefaultCacheFactoryTest
         assertEquals(6, cache.getTTLSecs());        
     }
     
+    @Test
+    public void canCreateOffHeapCache()
+    {
+        OffHeapSimpleCache<String, String> offHeapCache = (OffHeapSimpleCache<String, String>) cacheFactory.createCache("cache.offHeap");
+        assertEquals("cache.offHeap", offHeapCache.getCacheName());
+        assertEquals(1048576, offHeapCache.getMaxBytes());
+        assertEquals(65536, offHeapCache.getSlabBytes());
+        assertEquals(8, offHeapCache.getTTLSecs());
+    }
+    
+    @Test
+    public void canCreateCacheWithMaxWeight()
+    {
+        cache = (DefaultSimpleCache<String, String>) cacheFactory.createCache("cache.withMaxWeight");
+        assertEquals("cache.withMaxWeight", cache.getCacheName());
+        assertEquals(65536L, cache.getMaxWeight());
+        
+        // Bounded by weight rather than by number of items
+        for (int i = 0; i < 20; i++)
+        {
+            cache.put("key" + i, "value" + i);
+        }
+        assertEquals(20, cache.getSize());
+        assertTrue(cache.getEstimatedBytes() > 0L);
+    }
+    
+    @Test(expected=AlfrescoRuntimeException.class)
+    public void cannotCreateCacheWithUnknownWeigher()
+    {
+        cacheFactory.createCache("cache.badWeigher");
+    }
+    
     @Test
     public void canCreateCacheWithMaxIdle()
     {
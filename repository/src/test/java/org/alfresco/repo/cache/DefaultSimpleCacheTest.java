@@ -27,6 +27,8 @@ package org.alfresco.repo.cache;
 
 import static org.junit.Assert.*;
 
+import java.util.concurrent.atomic.AtomicInteger;
+
 import org.junit.Test;
 
 /**
@@ -87,6 +89,98 @@ public class DefaultSimpleCacheTest extends SimpleCacheTestBase<DefaultSimpleCac
         assertTrue(cache.isUseMaxItems());
     }
     
+    @Test
+    public void boundedWeightCache()
+    {
+        // Weigh entries by the length of their value. The small capacity keeps the entries in a single segment.
+        CacheEntryWeigher<Integer, String> weigher = new CacheEntryWeigher<Integer, String>()
+        {
+            @Override
+            public int weigh(Integer key, String value)
+            {
+                return value == null ? 0 : value.length();
+            }
+        };
+        cache = new DefaultSimpleCache<Integer, String>(2, true, 19L, weigher, 0, 0, getClass().getName());
+        assertEquals(19L, cache.getMaxWeight());
+        
+        cache.put(1, "11111");
+        cache.put(2, "22222");
+        cache.put(3, "33333");
+        cache.put(4, "44444");
+        cache.put(5, "55555");
+        
+        // maxWeight takes precedence over maxItems, so three entries fit
+        assertEquals(3, cache.getSize());
+        assertEquals(15L, cache.getEstimatedBytes());
+        assertFalse(cache.contains(1));
+        assertFalse(cache.contains(2));
+        assertEquals("55555", cache.get(5));
+        
+        // A single large value displaces the others
+        cache.put(6, "666666666666666666");
+        assertEquals(1, cache.getSize());
+        assertEquals(18L, cache.getEstimatedBytes());
+    }
+    
+    @Test
+    public void estimatedBytes()
+    {
+        assertEquals(0L, cache.getEstimatedBytes());
+        cache.put(1, "1");
+        long oneEntry = cache.getEstimatedBytes();
+        assertTrue(oneEntry > 0L);
+        cache.put(2, "a much longer value than the first");
+        assertTrue(cache.getEstimatedBytes() > 2 * oneEntry);
+        cache.clear();
+        assertEquals(0L, cache.getEstimatedBytes());
+    }
+    
+    @Test
+    public void estimatedBytesFollowReplacement()
+    {
+        cache.put(1, "a much longer value than the next");
+        cache.put(1, "1");
+        long replaced = cache.getEstimatedBytes();
+        cache.remove(1);
+        cache.put(1, "1");
+        assertEquals(replaced, cache.getEstimatedBytes());
+    }
+    
+    @Test
+    public void unboundedCacheWeighsSampleWhenAsked()
+    {
+        final AtomicInteger weighed = new AtomicInteger();
+        CacheEntryWeigher<Integer, String> weigher = new CacheEntryWeigher<Integer, String>()
+        {
+            @Override
+            public int weigh(Integer key, String value)
+            {
+                weighed.incrementAndGet();
+                return 10;
+            }
+        };
+        cache = new DefaultSimpleCache<Integer, String>(0, false, 0L, weigher, 0, 0, getClass().getName());
+        for (int i = 0; i < 1000; i++)
+        {
+            cache.put(i, "value");
+        }
+        assertEquals(0, weighed.get());
+        
+        // Only a sample is weighed, and scaled up to the whole cache
+        assertEquals(10000L, cache.getEstimatedBytes());
+        assertTrue(weighed.get() < 1000);
+    }
+    
+    @Test
+    public void tenantCacheKeysAreUnwrapped()
+    {
+        DefaultCacheEntryWeigher weigher = new DefaultCacheEntryWeigher();
+        int shortKey = weigher.weigh(new TransactionalCache.CacheRegionKey("region", "1"), null);
+        int longKey = weigher.weigh(new TransactionalCache.CacheRegionKey("region", "a much longer key than the first"), null);
+        assertTrue(longKey > shortKey);
+    }
+    
     @Test(expected=IllegalArgumentException.class)
     public void noNegativeMaxItems()
     {
@@ -0,0 +1,188 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2020 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.cache;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for the {@link InvalidatingCacheFactory} and the {@link InvalidatingSimpleCache near caches} it creates,
+ * using two factories sharing a {@link LoopbackCacheInvalidationTransport} as members of a cluster.
+ */
+public class InvalidatingCacheFactoryTest
+{
+    private RecordingTransport transport;
+    private InvalidatingCacheFactory<String, String> memberOne;
+    private InvalidatingCacheFactory<String, String> memberTwo;
+    
+    @Before
+    public void setUp() throws Exception
+    {
+        Properties properties = new Properties();
+        properties.setProperty("cache.invalidating.maxItems", "100");
+        properties.setProperty("cache.invalidating.cluster.type", "invalidating");
+        properties.setProperty("cache.local.maxItems", "100");
+        properties.setProperty("cache.local.cluster.type", "local");
+        properties.setProperty("cache.replicated.maxItems", "100");
+        properties.setProperty("cache.replicated.cluster.type", "fully-distributed");
+        
+        transport = new RecordingTransport();
+        memberOne = createMember(properties);
+        memberTwo = createMember(properties);
+    }
+    
+    private InvalidatingCacheFactory<String, String> createMember(Properties properties) throws Exception
+    {
+        InvalidatingCacheFactory<String, String> factory = new InvalidatingCacheFactory<String, String>();
+        factory.setProperties(properties);
+        factory.setTransport(transport);
+        factory.afterPropertiesSet();
+        return factory;
+    }
+    
+    @Test
+    public void onlyConfiguredClusterTypesAreNearCaches() throws Exception
+    {
+        assertTrue(memberOne.createCache("cache.invalidating") instanceof InvalidatingSimpleCache);
+        assertTrue(memberOne.createCache("cache.local") instanceof DefaultSimpleCache);
+        assertTrue(memberOne.createCache("cache.replicated") instanceof DefaultSimpleCache);
+        
+        memberTwo.setClusterTypes(Collections.singleton("fully-distributed"));
+        assertTrue(memberTwo.createCache("cache.replicated") instanceof InvalidatingSimpleCache);
+        assertTrue(memberTwo.createCache("cache.invalidating") instanceof DefaultSimpleCache);
+    }
+    
+    @Test
+    public void changesInvalidateOtherMembers()
+    {
+        SimpleCache<String, String> cacheOne = memberOne.createCache("cache.invalidating");
+        SimpleCache<String, String> cacheTwo = memberTwo.createCache("cache.invalidating");
+        
+        cacheOne.put("a", "1");
+        cacheTwo.put("a", "2");
+        // Member one's value is stale and was dropped, but member two keeps its own value
+        assertNull(cacheOne.get("a"));
+        assertEquals("2", cacheTwo.get("a"));
+        
+        cacheOne.put("a", "3");
+        assertEquals("3", cacheOne.get("a"));
+        assertNull(cacheTwo.get("a"));
+        
+        cacheTwo.put("b", "4");
+        cacheOne.remove("b");
+        assertNull(cacheTwo.get("b"));
+        
+        cacheTwo.put("c", "5");
+        cacheTwo.put("d", "6");
+        cacheOne.clear();
+        assertFalse(cacheTwo.contains("c"));
+        assertFalse(cacheTwo.contains("d"));
+        
+        assertEquals(4, ((InvalidatingSimpleCache<String, String>) cacheOne).getInvalidationsPublished());
+        assertEquals(4, ((InvalidatingSimpleCache<String, String>) cacheOne).getInvalidationsReceived());
+    }
+    
+    @Test
+    public void batchesAreCoalesced()
+    {
+        InvalidatingSimpleCache<String, String> cacheOne = (InvalidatingSimpleCache<String, String>) memberOne.createCache("cache.invalidating");
+        SimpleCache<String, String> cacheTwo = memberTwo.createCache("cache.invalidating");
+        cacheTwo.put("a", "1");
+        cacheTwo.put("b", "2");
+        cacheTwo.put("c", "3");
+        transport.published.clear();
+        
+        cacheOne.beginBatch();
+        cacheOne.put("a", "11");
+        cacheOne.put("b", "12");
+        // Nested batches are only published by the outermost batch
+        cacheOne.beginBatch();
+        cacheOne.remove("a");
+        cacheOne.endBatch();
+        // Nothing is published until the batch ends
+        assertEquals(0, transport.published.size());
+        assertEquals("3", cacheTwo.get("c"));
+        assertEquals("1", cacheTwo.get("a"));
+        cacheOne.endBatch();
+        
+        assertEquals(1, transport.published.size());
+        CacheInvalidation invalidation = transport.published.get(0);
+        assertFalse(invalidation.isClear());
+        assertEquals(2, invalidation.getKeys().size());
+        assertTrue(invalidation.getKeys().contains("a"));
+        assertTrue(invalidation.getKeys().contains("b"));
+        assertNull(cacheTwo.get("a"));
+        assertNull(cacheTwo.get("b"));
+        assertEquals("3", cacheTwo.get("c"));
+        
+        // A clear supersedes the keys
+        transport.published.clear();
+        cacheOne.beginBatch();
+        cacheOne.put("d", "4");
+        cacheOne.clear();
+        cacheOne.put("e", "5");
+        cacheOne.endBatch();
+        assertEquals(1, transport.published.size());
+        assertTrue(transport.published.get(0).isClear());
+        assertEquals(0, transport.published.get(0).getKeys().size());
+        assertFalse(cacheTwo.contains("c"));
+        assertEquals("5", cacheOne.get("e"));
+        
+        // An empty batch publishes nothing
+        transport.published.clear();
+        cacheOne.beginBatch();
+        cacheOne.get("e");
+        cacheOne.endBatch();
+        assertEquals(0, transport.published.size());
+    }
+    
+    @Test(expected = IllegalStateException.class)
+    public void cannotEndBatchThatWasNotStarted()
+    {
+        InvalidatingSimpleCache<String, String> cache = (InvalidatingSimpleCache<String, String>) memberOne.createCache("cache.invalidating");
+        cache.endBatch();
+    }
+    
+    /** Loopback transport that keeps the invalidations published */
+    private static class RecordingTransport extends LoopbackCacheInvalidationTransport
+    {
+        private final List<CacheInvalidation> published = new ArrayList<CacheInvalidation>();
+        
+        @Override
+        public void publish(CacheInvalidation invalidation)
+        {
+            published.add(invalidation);
+            super.publish(invalidation);
+        }
+    }
+}
@@ -0,0 +1,174 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2020 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.cache;
+
+import static org.junit.Assert.*;
+
+import org.alfresco.repo.cache.TransactionStats.OpType;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.springframework.context.ApplicationContext;
+
+/**
+ * Tests for the {@link OffHeapSimpleCache} class.
+ */
+public class OffHeapSimpleCacheTest extends SimpleCacheTestBase<OffHeapSimpleCache<Integer, String>>
+{
+    @Override
+    protected OffHeapSimpleCache<Integer, String> createCache()
+    {
+        return new OffHeapSimpleCache<Integer, String>(1024 * 1024, 64 * 1024, 0, getClass().getName());
+    }
+    
+    @Test
+    public void valuesAreCopies()
+    {
+        cache.put(1, "one");
+        String first = cache.get(1);
+        String second = cache.get(1);
+        assertEquals("one", first);
+        assertEquals(first, second);
+        assertNotSame(first, second);
+    }
+    
+    @Test
+    public void updatedValuesReplaceOldValues()
+    {
+        cache.put(1, "one");
+        cache.put(1, "uno");
+        assertEquals("uno", cache.get(1));
+        assertEquals(1, cache.getKeys().size());
+    }
+    
+    @Test
+    public void unserializableValuesAreNotCached()
+    {
+        OffHeapSimpleCache<Integer, Object> objects = new OffHeapSimpleCache<Integer, Object>(1024 * 1024, 64 * 1024, 0, getClass().getName());
+        objects.put(1, "one");
+        objects.put(1, new Object());
+        assertFalse(objects.contains(1));
+        assertNull(objects.get(1));
+    }
+    
+    @Test
+    public void oldestSlabIsEvicted()
+    {
+        // Two slabs of 1KB: each value fills most of a slab
+        cache = new OffHeapSimpleCache<Integer, String>(2048, 1024, 0, getClass().getName());
+        String value = new String(new char[800]).replace((char) 0, 'x');
+        cache.put(1, value);
+        cache.put(2, value);
+        assertTrue(cache.contains(1));
+        assertTrue(cache.contains(2));
+        assertTrue(cache.getUsedBytes() > 1600);
+        assertTrue(cache.getUsedBytes() <= cache.getMaxBytes());
+        
+        // No room left, so the first slab is recycled
+        cache.put(3, value);
+        assertFalse(cache.contains(1));
+        assertNull(cache.get(1));
+        assertEquals(value, cache.get(2));
+        assertEquals(value, cache.get(3));
+        assertEquals(1, cache.getEvictionCount());
+        assertTrue(cache.getUsedBytes() <= cache.getMaxBytes());
+    }
+    
+    @Test
+    public void valuesLargerThanSlabAreNotCached()
+    {
+        cache = new OffHeapSimpleCache<Integer, String>(2048, 1024, 0, getClass().getName());
+        cache.put(1, "small");
+        cache.put(1, new String(new char[2000]).replace((char) 0, 'x'));
+        assertFalse(cache.contains(1));
+        assertEquals(0, cache.getEvictionCount());
+    }
+    
+    @Test
+    public void clearReleasesBytes()
+    {
+        cache.put(1, "one");
+        assertTrue(cache.getUsedBytes() > 0);
+        cache.clear();
+        assertEquals(0, cache.getUsedBytes());
+        cache.put(2, "two");
+        assertEquals("two", cache.get(2));
+    }
+    
+    @Test(expected=IllegalArgumentException.class)
+    public void maxBytesMustHoldOneSlab()
+    {
+        new OffHeapSimpleCache<Integer, String>(100, 1024, 0, getClass().getName());
+    }
+    
+    @Test
+    public void cachesCanHaveTTL() throws Exception
+    {
+        cache = new OffHeapSimpleCache<Integer, String>(1024 * 1024, 64 * 1024, 1, getClass().getName());
+        cache.put(1, "1");
+        assertTrue(cache.contains(1));
+        Thread.sleep(1500L);
+        assertFalse(cache.contains(1));
+        assertNull(cache.get(1));
+    }
+    
+    @Test
+    public void expiredKeysAreNotListed() throws Exception
+    {
+        cache = new OffHeapSimpleCache<Integer, String>(1024 * 1024, 64 * 1024, 1, getClass().getName());
+        cache.put(1, "1");
+        assertTrue(cache.getKeys().contains(1));
+        Thread.sleep(1500L);
+        cache.put(2, "2");
+        assertFalse(cache.getKeys().contains(1));
+        assertTrue(cache.getKeys().contains(2));
+    }
+    
+    @Test
+    public void statisticsArePublished()
+    {
+        InMemoryCacheStatistics cacheStats = new InMemoryCacheStatistics();
+        cacheStats.setApplicationContext(Mockito.mock(ApplicationContext.class));
+        cache.setCacheStats(cacheStats);
+        cache.setCacheStatsEnabled(true);
+        
+        assertEquals(-1L, cacheStats.usedBytes(cache.getCacheName()));
+        
+        // Outside of a transaction, each operation is published straight away
+        cache.put(1, "one");
+        cache.get(1);
+        cache.get(2);
+        cache.get(1);
+        assertEquals(2, cacheStats.count(cache.getCacheName(), OpType.GET_HIT));
+        assertEquals(1, cacheStats.count(cache.getCacheName(), OpType.GET_MISS));
+        assertEquals(1, cacheStats.count(cache.getCacheName(), OpType.PUT));
+        assertEquals(0, cacheStats.count(cache.getCacheName(), OpType.EVICT));
+        assertEquals(cache.getUsedBytes(), cacheStats.usedBytes(cache.getCacheName()));
+        assertTrue(cacheStats.usedBytes(cache.getCacheName()) > 0);
+        
+        cache.clear();
+        assertEquals(0L, cacheStats.usedBytes(cache.getCacheName()));
+    }
+}
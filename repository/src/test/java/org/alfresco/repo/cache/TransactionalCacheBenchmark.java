@@ -0,0 +1,248 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2020 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.cache;
+
+import java.io.Serializable;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.alfresco.repo.cache.TransactionalCache.ValueHolder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * JMH benchmark of {@link TransactionalCache} reads, writes and commits by concurrent transactions
+ * sharing a {@link DefaultSimpleCache}.  Transactions are driven by a resourceless transaction manager,
+ * so only the cost of the cache and the transaction synchronization is measured.
+ * <p>
+ * Run with <tt>main</tt> from the test classpath, e.g. to compare against a previous build:
+ * <pre>
+ *    java -cp ... org.alfresco.repo.cache.TransactionalCacheBenchmark -t 16
+ * </pre>
+ * 
+ * @since 7.1
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(16)
+public class TransactionalCacheBenchmark
+{
+    /** The number of distinct keys; half of them are present in the shared cache at the start */
+    @Param({"100000"})
+    private int keyCount;
+    
+    /** The number of cache operations performed by each transaction */
+    @Param({"20"})
+    private int opsPerTxn;
+    
+    private TransactionalCache<Long, String> transactionalCache;
+    private TransactionTemplate readOnlyTxn;
+    private TransactionTemplate readWriteTxn;
+    
+    @Setup
+    public void setUp() throws Exception
+    {
+        DefaultSimpleCache<Serializable, ValueHolder<String>> sharedCache =
+                new DefaultSimpleCache<Serializable, ValueHolder<String>>(keyCount * 2, "benchmark.sharedCache");
+        for (long i = 0; i < keyCount; i += 2)
+        {
+            TransactionalCache.putSharedCacheValue(sharedCache, i, "value-" + i, null);
+        }
+        
+        transactionalCache = new TransactionalCache<Long, String>();
+        transactionalCache.setName("benchmark.transactionalCache");
+        transactionalCache.setSharedCache(sharedCache);
+        transactionalCache.setMaxCacheSize(opsPerTxn * 10);
+        transactionalCache.setMutable(true);
+        transactionalCache.setAllowEqualsChecks(true);
+        transactionalCache.afterPropertiesSet();
+        
+        ResourcelessTransactionManager transactionManager = new ResourcelessTransactionManager();
+        readOnlyTxn = new TransactionTemplate(transactionManager);
+        readOnlyTxn.setReadOnly(true);
+        readWriteTxn = new TransactionTemplate(transactionManager);
+    }
+    
+    /**
+     * Read-only transactions that only get values
+     */
+    @Benchmark
+    public Object readOnlyGets()
+    {
+        return readOnlyTxn.execute(new TransactionCallback<Object>()
+        {
+            @Override
+            public Object doInTransaction(TransactionStatus status)
+            {
+                Object last = null;
+                for (int i = 0; i < opsPerTxn; i++)
+                {
+                    last = transactionalCache.get(randomKey());
+                }
+                return last;
+            }
+        });
+    }
+    
+    /**
+     * Read-write transactions that only get values
+     */
+    @Benchmark
+    public Object readWriteGets()
+    {
+        return readWriteTxn.execute(new TransactionCallback<Object>()
+        {
+            @Override
+            public Object doInTransaction(TransactionStatus status)
+            {
+                Object last = null;
+                for (int i = 0; i < opsPerTxn; i++)
+                {
+                    last = transactionalCache.get(randomKey());
+                }
+                return last;
+            }
+        });
+    }
+    
+    /**
+     * Read-write transactions that put values and commit them to the shared cache
+     */
+    @Benchmark
+    public Object putAndCommit()
+    {
+        return readWriteTxn.execute(new TransactionCallback<Object>()
+        {
+            @Override
+            public Object doInTransaction(TransactionStatus status)
+            {
+                for (int i = 0; i < opsPerTxn; i++)
+                {
+                    Long key = randomKey();
+                    transactionalCache.put(key, "value-" + key);
+                }
+                return null;
+            }
+        });
+    }
+    
+    /**
+     * Read-write transactions that mostly read, with some updates and removals, typical of bulk import
+     */
+    @Benchmark
+    public Object mixedAndCommit()
+    {
+        return readWriteTxn.execute(new TransactionCallback<Object>()
+        {
+            @Override
+            public Object doInTransaction(TransactionStatus status)
+            {
+                Object last = null;
+                for (int i = 0; i < opsPerTxn; i++)
+                {
+                    Long key = randomKey();
+                    switch (i % 10)
+                    {
+                        case 0:
+                            transactionalCache.put(key, "updated-" + key);
+                            break;
+                        case 5:
+                            transactionalCache.remove(key);
+                            break;
+                        default:
+                            last = transactionalCache.get(key);
+                    }
+                }
+                return last;
+            }
+        });
+    }
+    
+    private Long randomKey()
+    {
+        return Long.valueOf(ThreadLocalRandom.current().nextInt(keyCount));
+    }
+    
+    /**
+     * Transaction manager that holds no resources but provides the full transaction synchronization lifecycle
+     */
+    private static class ResourcelessTransactionManager extends AbstractPlatformTransactionManager
+    {
+        private static final long serialVersionUID = 1L;
+        
+        @Override
+        protected Object doGetTransaction()
+        {
+            return new Object();
+        }
+        @Override
+        protected void doBegin(Object transaction, TransactionDefinition definition)
+        {
+        }
+        @Override
+        protected void doCommit(DefaultTransactionStatus status)
+        {
+        }
+        @Override
+        protected void doRollback(DefaultTransactionStatus status)
+        {
+        }
+    }
+    
+    public static void main(String... args) throws RunnerException
+    {
+        OptionsBuilder options = new OptionsBuilder();
+        options.include(TransactionalCacheBenchmark.class.getName());
+        if (args.length == 2 && "-t".equals(args[0]))
+        {
+            options.threads(Integer.parseInt(args[1]));
+        }
+        new Runner(options.build()).run();
+    }
+}
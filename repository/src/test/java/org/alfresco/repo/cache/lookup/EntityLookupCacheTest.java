@@ -54,8 +54,10 @@ import org.springframework.dao.DuplicateKeyException;
 public class EntityLookupCacheTest extends TestCase implements EntityLookupCallbackDAO<Long, Object, String>
 {
     SimpleCache<Long, Object> cache;
+    SimpleCache<Long, Object> negativeCache;
     private EntityLookupCache<Long, Object, String> entityLookupCacheA;
     private EntityLookupCache<Long, Object, String> entityLookupCacheB;
+    private EntityLookupCache<Long, Object, String> entityLookupCacheN;
     private TreeMap<Long, String> database;
     private ControlDAO controlDAO;
 
@@ -65,6 +67,8 @@ public class EntityLookupCacheTest extends TestCase implements EntityLookupCallb
         cache = new MemoryCache<Long, Object>();
         entityLookupCacheA = new EntityLookupCache<Long, Object, String>(cache, "A", this);
         entityLookupCacheB = new EntityLookupCache<Long, Object, String>(cache, "B", this);
+        negativeCache = new MemoryCache<Long, Object>();
+        entityLookupCacheN = new EntityLookupCache<Long, Object, String>(cache, negativeCache, "N", this);
         database = new TreeMap<Long, String>();
         
         controlDAO = Mockito.mock(ControlDAO.class);
@@ -266,6 +270,92 @@ public class EntityLookupCacheTest extends TestCase implements EntityLookupCallb
         assertEquals(0, cache.getKeys().size());                    // ... but cache must be empty
     }
 
+    public void testNegativeLookupByValue() throws Exception
+    {
+        TestValue value = new TestValue(getName());
+        assertNull(entityLookupCacheN.getByValue(value));
+        assertEquals("'Not found' must not go into the main cache", 0, cache.getKeys().size());
+        assertEquals(1, negativeCache.getKeys().size());
+        assertEquals(1, entityLookupCacheN.getNegativePutCount());
+        assertEquals(0, entityLookupCacheN.getNegativeHitCount());
+        
+        // Look it up again; it must come from the negative cache
+        assertNull(entityLookupCacheN.getByValue(value));
+        assertEquals(1, entityLookupCacheN.getNegativePutCount());
+        assertEquals(1, entityLookupCacheN.getNegativeHitCount());
+        
+        // Creating it must remove the negative entry
+        Pair<Long, Object> entityPair = entityLookupCacheN.getOrCreateByValue(value);
+        assertNotNull(entityPair);
+        assertEquals(0, negativeCache.getKeys().size());
+        assertEquals(entityPair, entityLookupCacheN.getByValue(value));
+        assertEquals(1, entityLookupCacheN.getNegativeHitCount());
+    }
+    
+    public void testNegativeLookupByKey() throws Exception
+    {
+        Long id = Long.valueOf(100);
+        assertNull(entityLookupCacheN.getByKey(id));
+        assertNull(entityLookupCacheN.getByKey(id));
+        assertEquals(0, cache.getKeys().size());
+        assertEquals(1, negativeCache.getKeys().size());
+        assertEquals(1, entityLookupCacheN.getNegativeHitCount());
+        
+        // Another region does not see the entry
+        EntityLookupCache<Long, Object, String> entityLookupCacheM =
+                new EntityLookupCache<Long, Object, String>(cache, negativeCache, "M", this);
+        assertNull(entityLookupCacheM.getByKey(id));
+        assertEquals(0, entityLookupCacheM.getNegativeHitCount());
+        assertEquals(2, negativeCache.getKeys().size());
+    }
+    
+    public void testNegativeLookupInvalidatedByCreate() throws Exception
+    {
+        TestValue value = new TestValue(getName());
+        assertNull(entityLookupCacheN.getByValue(value));
+        assertEquals(1, negativeCache.getKeys().size());
+        
+        Pair<Long, Object> entityPair = entityLookupCacheN.createOrGetByValue(value, controlDAO);
+        assertNotNull(entityPair);
+        assertEquals(0, negativeCache.getKeys().size());
+        assertEquals(entityPair.getFirst(), entityLookupCacheN.getByValue(value).getFirst());
+    }
+    
+    public void testNegativeLookupInvalidatedByUpdate() throws Exception
+    {
+        TestValue valueOne = new TestValue(getName() + "-ONE");
+        TestValue valueTwo = new TestValue(getName() + "-TWO");
+        Long id = entityLookupCacheN.getOrCreateByValue(valueOne).getFirst();
+        assertNull(entityLookupCacheN.getByValue(valueTwo));
+        assertEquals(1, negativeCache.getKeys().size());
+        
+        entityLookupCacheN.updateValue(id, valueTwo);
+        assertEquals(0, negativeCache.getKeys().size());
+        assertEquals(id, entityLookupCacheN.getByValue(valueTwo).getFirst());
+    }
+    
+    public void testNegativeLookupStaleEntryIsRepaired() throws Exception
+    {
+        TestValue value = new TestValue(getName());
+        assertNull(entityLookupCacheN.getByValue(value));
+        // Created elsewhere e.g. by another transaction or cluster member
+        Long id = createValue(value).getFirst();
+        
+        // The value is found and the stale entry removed
+        Pair<Long, Object> entityPair = entityLookupCacheN.getOrCreateByValue(value);
+        assertEquals(id, entityPair.getFirst());
+        assertEquals(0, negativeCache.getKeys().size());
+        assertEquals(1, database.size());
+    }
+    
+    public void testNegativeLookupClear() throws Exception
+    {
+        assertNull(entityLookupCacheN.getByValue(new TestValue(getName())));
+        assertEquals(1, negativeCache.getKeys().size());
+        entityLookupCacheN.clear();
+        assertEquals(0, negativeCache.getKeys().size());
+    }
+
     /**
      * Helper class to represent business object
      */
@@ -40,22 +40,34 @@ import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.only;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.alfresco.repo.content.ContentContext;
 import org.alfresco.repo.content.ContentStore;
 import org.alfresco.repo.content.caching.quota.QuotaManagerStrategy;
 import org.alfresco.repo.content.caching.quota.UnlimitedQuotaStrategy;
+import org.alfresco.repo.content.filestore.FileContentReader;
+import org.alfresco.repo.content.filestore.FileContentWriter;
 import org.alfresco.repo.content.filestore.SpoofedTextContentReader;
 import org.alfresco.service.cmr.repository.ContentIOException;
 import org.alfresco.service.cmr.repository.ContentReader;
 import org.alfresco.service.cmr.repository.ContentStreamListener;
 import org.alfresco.service.cmr.repository.ContentWriter;
 import org.alfresco.service.cmr.repository.DirectAccessUrl;
+import org.alfresco.util.TempFileProvider;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -103,6 +115,8 @@ public class CachingContentStoreTest
         
         assertSame(returnedReader, cachedContent);
         verify(backingStore, never()).getReader(anyString());
+        assertEquals(1, cachingStore.getStatistics().getHits());
+        assertEquals(0, cachingStore.getStatistics().getMisses());
     }
     
     
@@ -126,6 +140,163 @@ public class CachingContentStoreTest
         verify(quota).afterWritingCacheFile(1274L);
         // Check backing store reader is only acquired once
         verify(backingStore, only()).getReader("url");
+        assertEquals(1, cachingStore.getStatistics().getMisses());
+        assertEquals(1, cachingStore.getStatistics().getFills());
+    }
+    
+    
+    @Test
+    // Readers that miss while the same URL is being cached wait for that fill.
+    public void concurrentMissesAreCoalesced() throws Exception
+    {
+        final CountDownLatch fillStarted = new CountDownLatch(1);
+        final CountDownLatch fillReleased = new CountDownLatch(1);
+        when(backingStore.getReader("url")).thenReturn(sourceContent);
+        when(cache.put("url", sourceContent)).thenAnswer(invocation ->
+        {
+            fillStarted.countDown();
+            fillReleased.await(10, TimeUnit.SECONDS);
+            return true;
+        });
+        when(cache.getReader("url")).thenReturn(cachedContent);
+        
+        final AtomicReference<ContentReader> first = new AtomicReference<>();
+        final AtomicReference<ContentReader> second = new AtomicReference<>();
+        Thread leader = new Thread(() -> first.set(cachingStore.getReader("url")));
+        leader.start();
+        assertTrue(fillStarted.await(10, TimeUnit.SECONDS));
+        Thread follower = new Thread(() -> second.set(cachingStore.getReader("url")));
+        follower.start();
+        long deadline = System.currentTimeMillis() + 10000L;
+        while (cachingStore.getStatistics().getCoalescedReads() == 0 && System.currentTimeMillis() < deadline)
+        {
+            Thread.sleep(10L);
+        }
+        fillReleased.countDown();
+        leader.join(10000L);
+        follower.join(10000L);
+        
+        assertSame(cachedContent, first.get());
+        assertSame(cachedContent, second.get());
+        verify(backingStore, only()).getReader("url");
+        assertEquals(2, cachingStore.getStatistics().getMisses());
+        assertEquals(1, cachingStore.getStatistics().getCoalescedReads());
+        assertEquals(1, cachingStore.getStatistics().getFills());
+    }
+    
+    
+    @Test
+    // A reader that has waited too long for another thread's fill reads the backing store itself.
+    public void coalescedReadTimesOut() throws Exception
+    {
+        final CountDownLatch fillStarted = new CountDownLatch(1);
+        final CountDownLatch fillReleased = new CountDownLatch(1);
+        when(backingStore.getReader("url")).thenReturn(sourceContent);
+        when(cache.put("url", sourceContent)).thenAnswer(invocation ->
+        {
+            fillStarted.countDown();
+            fillReleased.await(10, TimeUnit.SECONDS);
+            return true;
+        });
+        when(cache.getReader("url")).thenReturn(cachedContent);
+        cachingStore.setFillWaitTimeout(50L);
+        
+        final AtomicReference<ContentReader> first = new AtomicReference<>();
+        Thread leader = new Thread(() -> first.set(cachingStore.getReader("url")));
+        leader.start();
+        try
+        {
+            assertTrue(fillStarted.await(10, TimeUnit.SECONDS));
+            assertSame(sourceContent, cachingStore.getReader("url"));
+        }
+        finally
+        {
+            fillReleased.countDown();
+            leader.join(10000L);
+        }
+        
+        assertSame(cachedContent, first.get());
+        verify(backingStore, times(2)).getReader("url");
+        assertEquals(1, cachingStore.getStatistics().getCoalescedReads());
+    }
+    
+    
+    @Test
+    // The first reader streams from the backing store and the content is cached once it has been read.
+    public void streamingFillCachesContentWhenFullyRead()
+    {
+        ContentReader source = createSourceContent("Content read through the cache");
+        when(backingStore.getReader("url")).thenReturn(source);
+        final AtomicReference<String> cached = new AtomicReference<>();
+        when(cache.putFile(any(), any())).thenAnswer(invocation ->
+        {
+            // The copy is handed over as a file, not copied again through a reader
+            cached.set(new String(Files.readAllBytes(((File) invocation.getArgument(1)).toPath()), StandardCharsets.UTF_8));
+            return true;
+        });
+        cachingStore.setStreamingFill(true);
+        
+        ContentReader reader = cachingStore.getReader("url");
+        verify(cache, never()).putFile(any(), any());
+        
+        assertEquals("Content read through the cache", reader.getContentString());
+        verify(cache).putFile(any(), any());
+        verify(cache, never()).put(any(), any());
+        assertEquals("Content read through the cache", cached.get());
+        assertEquals(1, cachingStore.getStatistics().getFills());
+    }
+    
+    
+    @Test
+    public void streamingFillDiscardsPartiallyReadContent() throws IOException
+    {
+        ContentReader source = createSourceContent("Content read through the cache");
+        when(backingStore.getReader("url")).thenReturn(source);
+        cachingStore.setStreamingFill(true);
+        
+        ContentReader reader = cachingStore.getReader("url");
+        try (InputStream is = reader.getContentInputStream())
+        {
+            assertEquals('C', is.read());
+        }
+        
+        verify(cache, never()).putFile(any(), any());
+        assertEquals(0, cachingStore.getStatistics().getFills());
+        assertEquals(1, cachingStore.getStatistics().getFailedFills());
+    }
+    
+    
+    @Test
+    public void prefetchCachesContentInBackground()
+    {
+        when(backingStore.getReader("url")).thenReturn(sourceContent);
+        when(sourceContent.getSize()).thenReturn(1274L);
+        when(cache.put("url", sourceContent)).thenReturn(true);
+        when(cache.getReader("url")).thenReturn(cachedContent);
+        Executor executor = Runnable::run;
+        cachingStore.setPrefetchExecutor(executor);
+        
+        assertTrue(cachingStore.prefetch("url"));
+        
+        verify(cache).put("url", sourceContent);
+        assertEquals(1, cachingStore.getStatistics().getPrefetches());
+        assertEquals(1, cachingStore.getStatistics().getFills());
+    }
+    
+    
+    @Test
+    public void prefetchIgnoredWithoutExecutor()
+    {
+        assertFalse(cachingStore.prefetch("url"));
+        verify(backingStore, never()).getReader(anyString());
+    }
+    
+    
+    private ContentReader createSourceContent(String content)
+    {
+        File file = TempFileProvider.createTempFile(getClass().getSimpleName(), ".txt");
+        new FileContentWriter(file).putContent(content);
+        return new FileContentReader(file, "url");
     }
     
     
@@ -0,0 +1,358 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2020 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.content.caching.quota;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.alfresco.repo.content.caching.cleanup.CachedContentCleaner;
+
+/**
+ * Replays a trace of content reads against a model of the CachingContentStore's cache and reports the hit
+ * ratio achieved with the {@link StandardQuotaStrategy} and the {@link FrequencyAwareQuotaStrategy}.
+ * <p>
+ * The quota strategies are the real implementations.  The rest of the cache is modelled:
+ * <ul>
+ *   <li>the in-memory lookup table of the ContentCacheImpl holds up to lookupCapacity URLs and evicts the least
+ *       recently read; a cached file whose URL has been evicted can no longer be read</li>
+ *   <li>the CachedContentCleaner runs before the next read whenever the quota strategy asks for it, as it runs in
+ *       its own thread, and every cleanInterval reads (standing in for its scheduled job).  It removes files
+ *       whose URLs have left the lookup table and, when asked to clean aggressively, removes files oldest first,
+ *       or least frequently read first for the FrequencyAwareQuotaStrategy, until the target reduction is
+ *       reached.</li>
+ * </ul>
+ * Without arguments synthetic traces are used: reads of a hot set of content following a Zipf distribution,
+ * interrupted by scans that read a run of content never seen before, as a bulk export would, and optionally
+ * moving on to a new hot set from time to time.  Alternatively
+ * give the path of a trace file with one read per line, as <tt>contentUrl [sizeInBytes]</tt>:
+ * <pre>
+ *    java -cp ... org.alfresco.repo.content.caching.quota.CacheEvictionSimulation reads.txt
+ * </pre>
+ * 
+ * @since 7.1
+ */
+public class CacheEvictionSimulation
+{
+    private static final long MB = 1024L * 1024L;
+    
+    /**
+     * A read of content of a given size.
+     */
+    public static class Read
+    {
+        private final String contentUrl;
+        private final long size;
+        
+        public Read(String contentUrl, long size)
+        {
+            this.contentUrl = contentUrl;
+            this.size = size;
+        }
+    }
+    
+    private final StandardQuotaStrategy quota;
+    private final CacheAccessTracker accessTracker;
+    private final int lookupCapacity;
+    private final int cleanInterval;
+    private final Map<String, Long> lookup;
+    private final Map<String, Long> files = new LinkedHashMap<>();
+    private boolean cleanRequested;
+    private long requestedReductionBytes;
+    private long hits;
+    private long misses;
+    
+    /**
+     * @param quota             the quota strategy under test, with its limits set
+     * @param lookupCapacity    the number of URLs held by the in-memory lookup table
+     * @param cleanInterval     the number of reads between scheduled cleans
+     */
+    public CacheEvictionSimulation(StandardQuotaStrategy quota, int lookupCapacity, int cleanInterval)
+    {
+        this.quota = quota;
+        this.accessTracker = (quota instanceof CacheAccessTracker) ? (CacheAccessTracker) quota : null;
+        this.lookupCapacity = lookupCapacity;
+        this.cleanInterval = cleanInterval;
+        this.lookup = new LinkedHashMap<String, Long>(16, 0.75f, true)
+        {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Long> eldest)
+            {
+                return size() > CacheEvictionSimulation.this.lookupCapacity;
+            }
+        };
+        quota.setCleaner(new ModelCleaner());
+        quota.setCurrentUsageBytes(0L);
+    }
+    
+    /**
+     * Replay the reads, as made through CachingContentStore.getReader
+     * 
+     * @return          the fraction of reads served from the cache
+     */
+    public double replay(List<Read> reads)
+    {
+        for (Read read : reads)
+        {
+            if (cleanRequested)
+            {
+                cleanRequested = false;
+                clean(requestedReductionBytes);
+                requestedReductionBytes = 0L;
+            }
+            if (accessTracker != null)
+            {
+                accessTracker.recordAccess(read.contentUrl);
+            }
+            if (lookup.get(read.contentUrl) != null)
+            {
+                hits++;
+            }
+            else
+            {
+                misses++;
+                if ((accessTracker == null || accessTracker.admit(read.contentUrl, read.size)) &&
+                            quota.beforeWritingCacheFile(read.size))
+                {
+                    files.remove(read.contentUrl);
+                    files.put(read.contentUrl, read.size);
+                    lookup.put(read.contentUrl, read.size);
+                    if (!quota.afterWritingCacheFile(read.size))
+                    {
+                        lookup.remove(read.contentUrl);
+                    }
+                }
+            }
+            if ((hits + misses) % cleanInterval == 0)
+            {
+                clean(0L);
+            }
+        }
+        return getHitRatio();
+    }
+    
+    public double getHitRatio()
+    {
+        return (hits + misses) == 0 ? 0.0 : (double) hits / (hits + misses);
+    }
+    
+    /**
+     * Model of a CachedContentCleaner run.
+     */
+    private void clean(long targetReductionBytes)
+    {
+        long deleted = 0L;
+        int maxFrequency = (accessTracker == null) ? FrequencySketch.MAX_FREQUENCY : 0;
+        while (true)
+        {
+            for (Iterator<Map.Entry<String, Long>> it = files.entrySet().iterator(); it.hasNext(); )
+            {
+                Map.Entry<String, Long> file = it.next();
+                String url = file.getKey();
+                boolean inLookup = lookup.containsKey(url);
+                boolean remove;
+                if (deleted < targetReductionBytes)
+                {
+                    remove = maxFrequency >= FrequencySketch.MAX_FREQUENCY ||
+                                accessTracker.getFrequency(inLookup ? url : null) <= maxFrequency;
+                }
+                else
+                {
+                    remove = !inLookup;
+                }
+                if (remove)
+                {
+                    it.remove();
+                    lookup.remove(url);
+                    deleted += file.getValue();
+                }
+            }
+            if (deleted >= targetReductionBytes || maxFrequency >= FrequencySketch.MAX_FREQUENCY)
+            {
+                break;
+            }
+            maxFrequency = maxFrequency * 2 + 1;
+        }
+        long usage = 0L;
+        for (long size : files.values())
+        {
+            usage += size;
+        }
+        quota.setCurrentUsageBytes(usage);
+    }
+    
+    /**
+     * Requests the modelled clean before the next read rather than signalling the cleaner thread.
+     */
+    private class ModelCleaner extends CachedContentCleaner
+    {
+        @Override
+        public synchronized void execute(String reasonMessage)
+        {
+            cleanRequested = true;
+        }
+        
+        @Override
+        public synchronized void executeAggressive(String reason, long targetReductionBytes)
+        {
+            cleanRequested = true;
+            requestedReductionBytes = targetReductionBytes;
+        }
+    }
+    
+    /**
+     * Reads of <tt>hotItems</tt> content items chosen with a Zipf distribution.  Every <tt>scanEvery</tt> reads,
+     * a scan reads <tt>scanLength</tt> items that are not read again.
+     */
+    public static List<Read> syntheticTrace(int reads, int hotItems, double zipfExponent, int scanEvery, int scanLength,
+                long size, long seed)
+    {
+        return syntheticTrace(reads, hotItems, zipfExponent, scanEvery, scanLength, 0, size, seed);
+    }
+    
+    /**
+     * As {@link #syntheticTrace(int, int, double, int, int, long, long)}, but every <tt>shiftEvery</tt> reads the
+     * hot set is replaced by <tt>hotItems</tt> content items that have not been read before.
+     */
+    public static List<Read> syntheticTrace(int reads, int hotItems, double zipfExponent, int scanEvery, int scanLength,
+                int shiftEvery, long size, long seed)
+    {
+        Random random = new Random(seed);
+        double[] cumulative = new double[hotItems];
+        double total = 0.0;
+        for (int i = 0; i < hotItems; i++)
+        {
+            total += 1.0 / Math.pow(i + 1, zipfExponent);
+            cumulative[i] = total;
+        }
+        
+        List<Read> trace = new ArrayList<>(reads);
+        int scanned = 0;
+        while (trace.size() < reads)
+        {
+            if (scanEvery > 0 && trace.size() > 0 && trace.size() % scanEvery == 0)
+            {
+                for (int i = 0; i < scanLength && trace.size() < reads; i++)
+                {
+                    trace.add(new Read("store://scan/" + scanned++, size));
+                }
+            }
+            int index = Arrays.binarySearch(cumulative, random.nextDouble() * total);
+            int hotSet = (shiftEvery > 0) ? trace.size() / shiftEvery : 0;
+            trace.add(new Read("store://hot/" + hotSet + "/" + (index < 0 ? -index - 1 : index), size));
+        }
+        return trace;
+    }
+    
+    /**
+     * Read a trace with one <tt>contentUrl [size]</tt> per line.
+     */
+    public static List<Read> readTrace(String path, long defaultSize) throws IOException
+    {
+        List<Read> trace = new ArrayList<>();
+        for (String line : Files.readAllLines(Paths.get(path), StandardCharsets.UTF_8))
+        {
+            String[] fields = line.trim().split("\\s+");
+            if (fields[0].isEmpty() || fields[0].startsWith("#"))
+            {
+                continue;
+            }
+            trace.add(new Read(fields[0], fields.length > 1 ? Long.parseLong(fields[1]) : defaultSize));
+        }
+        return trace;
+    }
+    
+    /**
+     * Run the trace against the standard strategy and the frequency aware strategy, both with its default
+     * admissionThresholdPct and with admission control at all usage levels.
+     * 
+     * @return          the hit ratios in that order
+     */
+    public static double[] compare(List<Read> trace, long maxUsageBytes, int lookupCapacity, int cleanInterval)
+    {
+        StandardQuotaStrategy standard = new StandardQuotaStrategy();
+        standard.setMaxUsageBytes(maxUsageBytes);
+        
+        FrequencyAwareQuotaStrategy frequencyAware = new FrequencyAwareQuotaStrategy();
+        frequencyAware.setMaxUsageBytes(maxUsageBytes);
+        
+        FrequencyAwareQuotaStrategy alwaysAdmitting = new FrequencyAwareQuotaStrategy();
+        alwaysAdmitting.setMaxUsageBytes(maxUsageBytes);
+        alwaysAdmitting.setAdmissionThresholdPct(0);
+        
+        return new double[] {
+            new CacheEvictionSimulation(standard, lookupCapacity, cleanInterval).replay(trace),
+            new CacheEvictionSimulation(frequencyAware, lookupCapacity, cleanInterval).replay(trace),
+            new CacheEvictionSimulation(alwaysAdmitting, lookupCapacity, cleanInterval).replay(trace) };
+    }
+    
+    public static void main(String[] args) throws IOException
+    {
+        int lookupCapacity = 2500;
+        int cleanInterval = 10000;
+        if (args.length > 0)
+        {
+            List<Read> trace = readTrace(args[0], MB);
+            long maxUsageBytes = (args.length > 1 ? Long.parseLong(args[1]) : 4096L) * MB;
+            report(args[0], compare(trace, maxUsageBytes, lookupCapacity, cleanInterval));
+            return;
+        }
+        
+        // A hot set of 2000 items that fits in the cache, read with and without scans of 10000 items.
+        // Lookup limited, as with the default 4GB quota and 5000 entry cachingContentStoreCache.
+        report("hot set, lookup limited", compare(syntheticTrace(500000, 2000, 0.7, 0, 0, MB, 42L),
+                    4096 * MB, lookupCapacity, cleanInterval));
+        report("hot set + scans, lookup limited", compare(syntheticTrace(500000, 2000, 0.7, 20000, 10000, MB, 42L),
+                    4096 * MB, lookupCapacity, cleanInterval));
+        // Disk limited: 2500 files fit on disk and the lookup table holds more
+        report("hot set + scans, disk limited", compare(syntheticTrace(500000, 2000, 0.7, 20000, 10000, 4 * MB, 42L),
+                    2500 * 4 * MB, 2 * lookupCapacity, cleanInterval));
+        // Disk limited, with a new hot set every 100000 reads
+        report("moving hot set, disk limited", compare(syntheticTrace(500000, 2000, 0.7, 0, 0, 100000, 4 * MB, 42L),
+                    2500 * 4 * MB, 2 * lookupCapacity, cleanInterval));
+        report("moving hot set + scans, disk", compare(syntheticTrace(500000, 2000, 0.7, 20000, 10000, 100000, 4 * MB, 42L),
+                    2500 * 4 * MB, 2 * lookupCapacity, cleanInterval));
+        // A more skewed working set that is larger than the cache
+        report("zipf + scans, lookup limited", compare(syntheticTrace(500000, 10000, 0.9, 20000, 10000, MB, 42L),
+                    4096 * MB, lookupCapacity, cleanInterval));
+    }
+    
+    private static void report(String name, double[] hitRatios)
+    {
+        System.out.println(String.format("%-32s standard: %5.1f%%   frequency aware: %5.1f%%   (admissionThresholdPct=0): %5.1f%%",
+                    name, hitRatios[0] * 100, hitRatios[1] * 100, hitRatios[2] * 100));
+    }
+}
@@ -0,0 +1,183 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2020 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.content.caching.quota;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.alfresco.repo.content.caching.cleanup.CachedContentCleaner;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.MockitoJUnitRunner;
+
+/**
+ * Tests for the FrequencyAwareQuotaStrategy and its FrequencySketch.
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class FrequencyAwareQuotaStrategyTest
+{
+    private static final long MB = 1024L * 1024L;
+    private FrequencyAwareQuotaStrategy quota;
+    
+    @Mock
+    private CachedContentCleaner cleaner;
+    
+    @Before
+    public void setUp() throws Exception
+    {
+        quota = new FrequencyAwareQuotaStrategy();
+        // 1000 Bytes max. - unrealistic value but makes the figures easier.
+        quota.setMaxUsageBytes(1000);
+        quota.setMaxFileSizeMB(100);
+        quota.setCleaner(cleaner);
+    }
+    
+    @Test
+    public void sketchCountsAndSaturates()
+    {
+        FrequencySketch sketch = new FrequencySketch(1000);
+        assertEquals(0, sketch.frequency("store://a"));
+        
+        sketch.increment("store://a");
+        sketch.increment("store://a");
+        sketch.increment("store://b");
+        assertEquals(2, sketch.frequency("store://a"));
+        assertEquals(1, sketch.frequency("store://b"));
+        
+        for (int i = 0; i < 100; i++)
+        {
+            sketch.increment("store://a");
+        }
+        assertEquals(FrequencySketch.MAX_FREQUENCY, sketch.frequency("store://a"));
+        
+        sketch.clear();
+        assertEquals(0, sketch.frequency("store://a"));
+        assertEquals(0, sketch.frequency("store://b"));
+    }
+    
+    @Test
+    public void sketchAgesOldCounts()
+    {
+        FrequencySketch sketch = new FrequencySketch(16);
+        for (int i = 0; i < 8; i++)
+        {
+            sketch.increment("store://old");
+        }
+        // Enough distinct reads to halve the counters at least once
+        for (int i = 0; i < 1000; i++)
+        {
+            sketch.increment("store://" + i);
+        }
+        assertTrue("Old reads should be forgotten", sketch.frequency("store://old") < 8);
+    }
+    
+    @Test
+    public void admitsEverythingBelowThreshold()
+    {
+        quota.setCurrentUsageBytes(100);
+        assertTrue(quota.admit("store://never-read", 10));
+    }
+    
+    @Test
+    public void admitsOnlyFrequentlyReadContentAboveThreshold()
+    {
+        quota.setCurrentUsageBytes(850);
+        assertFalse(quota.admit("store://never-read", 10));
+        
+        quota.recordAccess("store://read-once");
+        assertFalse(quota.admit("store://read-once", 10));
+        
+        quota.recordAccess("store://read-twice");
+        quota.recordAccess("store://read-twice");
+        assertTrue(quota.admit("store://read-twice", 10));
+        assertEquals(2, quota.getFrequency("store://read-twice"));
+        assertEquals(0, quota.getFrequency(null));
+    }
+    
+    @Test
+    public void zeroThresholdAlwaysRequiresFrequency()
+    {
+        quota.setAdmissionThresholdPct(0);
+        quota.setCurrentUsageBytes(0);
+        quota.recordAccess("store://read-once");
+        assertFalse(quota.admit("store://read-once", 10));
+        
+        quota.recordAccess("store://read-once");
+        assertTrue(quota.admit("store://read-once", 10));
+    }
+    
+    @Test
+    public void panicThresholdRemovesRarelyReadFilesForFrequentContent()
+    {
+        quota.setCurrentUsageBytes(900);
+        quota.recordAccess("store://read-once");
+        assertFalse(quota.admit("store://read-once", 10));
+        Mockito.verify(cleaner, Mockito.never()).executeAggressive(Mockito.anyString(), Mockito.anyLong());
+        
+        quota.recordAccess("store://read-twice");
+        quota.recordAccess("store://read-twice");
+        assertTrue(quota.admit("store://read-twice", 10));
+        // Down to the default targetUsagePct of 70%
+        Mockito.verify(cleaner).executeAggressive("quota (panic threshold, frequently read content)", 200);
+        assertFalse("The panic threshold still applies to this write", quota.beforeWritingCacheFile(10));
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void admissionFrequencyMustFitTheSketch()
+    {
+        quota.setAdmissionFrequency(FrequencySketch.MAX_FREQUENCY + 1);
+    }
+    
+    @Test
+    public void frequencyAdmissionResistsScans()
+    {
+        // A hot set of 2000 items interleaved with scans of 10000 items read once, with the lookup table as the limit
+        List<CacheEvictionSimulation.Read> trace =
+                    CacheEvictionSimulation.syntheticTrace(200000, 2000, 0.7, 20000, 10000, MB, 42L);
+        double[] hitRatios = CacheEvictionSimulation.compare(trace, 4096 * MB, 2500, 10000);
+        
+        assertTrue("Frequency admission should improve the hit ratio [standard=" + hitRatios[0] +
+                    ", frequencyAware=" + hitRatios[2] + "]", hitRatios[2] > hitRatios[0] + 0.05);
+    }
+    
+    @Test
+    public void frequentContentDisplacesStaleContentWhenDiskLimited()
+    {
+        // 2500 files fit on disk, the lookup table holds 5000 and the 2000 item hot set moves every 50000 reads
+        List<CacheEvictionSimulation.Read> trace =
+                    CacheEvictionSimulation.syntheticTrace(200000, 2000, 0.7, 0, 0, 50000, 4 * MB, 42L);
+        double[] hitRatios = CacheEvictionSimulation.compare(trace, 2500 * 4 * MB, 5000, 10000);
+        
+        assertTrue("Removing rarely read files at the panic threshold should improve the hit ratio [standard=" +
+                    hitRatios[0] + ", frequencyAware=" + hitRatios[1] + "]", hitRatios[1] > hitRatios[0] + 0.2);
+    }
+}
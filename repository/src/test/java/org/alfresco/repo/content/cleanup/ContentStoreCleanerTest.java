@@ -50,6 +50,7 @@ import org.alfresco.repo.node.ContentPropertyRestrictionInterceptor;
 import org.alfresco.repo.security.authentication.AuthenticationUtil;
 import org.alfresco.repo.transaction.RetryingTransactionHelper.RetryingTransactionCallback;
 import org.alfresco.service.ServiceRegistry;
+import org.alfresco.service.cmr.attributes.AttributeService;
 import org.alfresco.service.cmr.dictionary.DictionaryService;
 import org.alfresco.service.cmr.repository.ContentData;
 import org.alfresco.service.cmr.repository.ContentIOException;
@@ -394,6 +395,58 @@ public class ContentStoreCleanerTest extends TestCase
         assertTrue("Content listener was not called", deletedUrls.contains(reader.getContentUrl()));
     }
     
+    /**
+     * Orphans are cleaned in batches by several worker threads and the checkpoint is removed
+     * once every batch has been committed.
+     */
+    public void testParallelCleanup() throws Exception
+    {
+        eagerCleaner.setEagerOrphanCleanup(false);
+        
+        final StoreRef storeRef = nodeService.createStore("test", getName() + "-" + GUID.generate());
+        RetryingTransactionCallback<List<String>> testCallback = new RetryingTransactionCallback<List<String>>()
+        {
+            public List<String> execute() throws Throwable
+            {
+                List<String> contentUrls = new ArrayList<String>(10);
+                NodeRef rootNodeRef = nodeService.getRootNode(storeRef);
+                for (int i = 0; i < 10; i++)
+                {
+                    Map<QName, Serializable> properties = new HashMap<QName, Serializable>(13);
+                    properties.put(ContentModel.PROP_NAME, (Serializable)("test-" + i + ".txt"));
+                    NodeRef contentNodeRef = nodeService.createNode(
+                            rootNodeRef,
+                            ContentModel.ASSOC_CHILDREN,
+                            ContentModel.ASSOC_CHILDREN,
+                            ContentModel.TYPE_CONTENT,
+                            properties).getChildRef();
+                    ContentWriter writer = contentService.getWriter(contentNodeRef, ContentModel.PROP_CONTENT, true);
+                    writer.setMimetype(MimetypeMap.MIMETYPE_TEXT_PLAIN);
+                    writer.putContent("CONTENT " + i);
+                    contentUrls.add(writer.getContentUrl());
+                    
+                    // Delete the node, bypassing archive
+                    nodeService.addAspect(contentNodeRef, ContentModel.ASPECT_TEMPORARY, null);
+                    nodeService.deleteNode(contentNodeRef);
+                }
+                return contentUrls;
+            }
+        };
+        List<String> contentUrls = transactionService.getRetryingTransactionHelper().doInTransaction(testCallback);
+        
+        // fire the cleaner with small batches so that the workers share the orphans
+        cleaner.setAttributeService((AttributeService) ctx.getBean("attributeService"));
+        cleaner.setProtectDays(0);
+        cleaner.setBatchSize(2);
+        cleaner.setWorkerThreads(3);
+        cleaner.execute();
+        
+        checkForExistence(new HashSet<String>(contentUrls), false);
+        assertTrue("Orphans were not counted", cleaner.getDeletedCount() >= contentUrls.size());
+        assertFalse("Cleanup should have completed", cleaner.isRunning());
+        assertNull("Checkpoint should be removed once the run completes", cleaner.getCheckpointId());
+    }
+    
     /**
      * Test forced and immediate shredding of content
      * <p/>
@@ -0,0 +1,220 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2020 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.content.compression;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.alfresco.repo.content.ContentStore;
+import org.alfresco.repo.content.filestore.FileContentReader;
+import org.alfresco.repo.content.filestore.FileContentStore;
+import org.alfresco.service.cmr.repository.ContentIOException;
+import org.alfresco.service.cmr.repository.ContentReader;
+import org.alfresco.service.cmr.repository.ContentWriter;
+import org.alfresco.service.cmr.repository.MimetypeService;
+import org.alfresco.util.GUID;
+import org.alfresco.util.TempFileProvider;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.context.ApplicationContext;
+
+/**
+ * Tests for the CompressingContentStore class, using a file content store as the backing store.
+ * 
+ * @since 7.1
+ */
+public class CompressingContentStoreTest
+{
+    private static final int BLOCK_SIZE = 4096;
+    
+    private FileContentStore backingStore;
+    private CompressingContentStore store;
+    private byte[] text;
+    
+    @Before
+    public void setUp() throws Exception
+    {
+        File root = new File(TempFileProvider.getTempDir(), "CompressingContentStoreTest-" + GUID.generate());
+        backingStore = new FileContentStore(mock(ApplicationContext.class), root);
+        MimetypeService mimetypeService = mock(MimetypeService.class);
+        when(mimetypeService.isText("text/plain")).thenReturn(true);
+        when(mimetypeService.getExtension("image/png")).thenReturn("png");
+        store = new CompressingContentStore(backingStore, mimetypeService);
+        store.setBlockSize(BLOCK_SIZE);
+        
+        StringBuilder sb = new StringBuilder();
+        Random random = new Random(42);
+        while (sb.length() < BLOCK_SIZE * 10 + 123)
+        {
+            sb.append("<line number=\"").append(random.nextInt(1000)).append("\">Some text</line>\n");
+        }
+        text = sb.toString().getBytes("UTF-8");
+    }
+    
+    private ContentWriter write(String mimetype, byte[] content)
+    {
+        ContentWriter writer = store.getWriter(ContentStore.NEW_CONTENT_CONTEXT);
+        writer.setMimetype(mimetype);
+        writer.putContent(new ByteArrayInputStream(content));
+        return writer;
+    }
+    
+    private byte[] readAll(ContentReader reader) throws Exception
+    {
+        try (InputStream is = reader.getContentInputStream())
+        {
+            return is.readAllBytes();
+        }
+    }
+    
+    @Test
+    public void testTextIsCompressed() throws Exception
+    {
+        ContentWriter writer = write("text/plain", text);
+        assertEquals(text.length, writer.getSize());
+        assertTrue(CompressingContentStore.isCompressedUrl(writer.getContentUrl()));
+        assertTrue(store.exists(writer.getContentUrl()));
+        
+        long stored = backingStore.getReader(CompressingContentStore.getBackingUrl(writer.getContentUrl())).getSize();
+        assertTrue("Text should be compressed: " + stored, stored < text.length / 2);
+        
+        ContentReader reader = store.getReader(writer.getContentUrl());
+        assertTrue(reader instanceof CompressedContentReader);
+        assertEquals(text.length, reader.getSize());
+        assertArrayEquals(text, readAll(reader));
+        assertArrayEquals(text, readAll(writer.getReader()));
+        
+        assertTrue(store.delete(writer.getContentUrl()));
+        assertFalse(store.exists(writer.getContentUrl()));
+    }
+    
+    @Test
+    public void testCompressedMimetypeIsStored() throws Exception
+    {
+        byte[] image = new byte[BLOCK_SIZE * 3];
+        new Random(1).nextBytes(image);
+        assertFalse(store.isCompressible("image/png"));
+        assertFalse(store.isCompressible("application/vnd.openxmlformats-officedocument.wordprocessingml.document"));
+        assertTrue(store.isCompressible("application/pdf"));
+        
+        // written as it is, so that file readers keep their zero-copy transfers
+        ContentWriter writer = write("image/png", image);
+        assertFalse(CompressingContentStore.isCompressedUrl(writer.getContentUrl()));
+        assertEquals(image.length, writer.getSize());
+        ContentReader reader = store.getReader(writer.getContentUrl());
+        assertTrue(reader instanceof FileContentReader);
+        assertEquals(image.length, reader.getSize());
+        assertArrayEquals(image, readAll(reader));
+    }
+    
+    @Test
+    public void testRandomAccess() throws Exception
+    {
+        ContentWriter writer = write("text/plain", text);
+        
+        // skipping through the stream seeks without reading the skipped blocks
+        ContentReader reader = store.getReader(writer.getContentUrl());
+        try (InputStream is = reader.getContentInputStream())
+        {
+            long offset = BLOCK_SIZE * 7 + 11;
+            assertEquals(offset, is.skip(offset));
+            byte[] bytes = new byte[100];
+            assertEquals(100, is.readNBytes(bytes, 0, 100));
+            assertArrayEquals(Arrays.copyOfRange(text, (int) offset, (int) offset + 100), bytes);
+        }
+        
+        // the file channel is a random access view of the uncompressed content
+        FileChannel channel = store.getReader(writer.getContentUrl()).getFileChannel();
+        try
+        {
+            assertEquals(text.length, channel.size());
+            ByteBuffer buffer = ByteBuffer.allocate(50);
+            channel.read(buffer, BLOCK_SIZE * 9 - 25);
+            assertArrayEquals(Arrays.copyOfRange(text, BLOCK_SIZE * 9 - 25, BLOCK_SIZE * 9 + 25), buffer.array());
+        }
+        finally
+        {
+            channel.close();
+        }
+    }
+    
+    @Test
+    public void testEmptyContent() throws Exception
+    {
+        ContentWriter writer = write("text/plain", new byte[0]);
+        ContentReader reader = store.getReader(writer.getContentUrl());
+        assertEquals(0L, reader.getSize());
+        assertEquals(0, readAll(reader).length);
+    }
+    
+    @Test
+    public void testUncompressedContentIsReadAsIs() throws Exception
+    {
+        // content written before the store was wrapped
+        ContentWriter writer = backingStore.getWriter(ContentStore.NEW_CONTENT_CONTEXT);
+        writer.putContent(new ByteArrayInputStream(text));
+        
+        ContentReader reader = store.getReader(writer.getContentUrl());
+        assertFalse(reader instanceof CompressedContentReader);
+        assertArrayEquals(text, readAll(reader));
+        
+        assertTrue(store.delete(writer.getContentUrl()));
+        assertFalse(store.exists(writer.getContentUrl()));
+    }
+    
+    @Test
+    public void testCorruptContentIsRejected() throws Exception
+    {
+        ContentWriter writer = write("text/plain", text);
+        File file = new File(backingStore.getRootLocation(), CompressingContentStore.getBackingUrl(writer.getContentUrl()).substring("store://".length()));
+        byte[] stored = Files.readAllBytes(file.toPath());
+        Files.write(file.toPath(), Arrays.copyOf(stored, stored.length - 1));
+        
+        try
+        {
+            store.getReader(writer.getContentUrl()).getSize();
+            fail("Truncated content should not be readable");
+        }
+        catch (ContentIOException e)
+        {
+            // expected
+        }
+    }
+}
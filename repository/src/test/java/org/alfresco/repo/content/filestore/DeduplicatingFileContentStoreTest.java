@@ -0,0 +1,134 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2020 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.content.filestore;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import org.alfresco.repo.content.ContentStore;
+import org.alfresco.service.cmr.repository.ContentWriter;
+import org.alfresco.test_category.OwnJVMTestsCategory;
+import org.alfresco.util.TempFileProvider;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+/**
+ * Tests the deduplicating file-based store, which must behave as a normal file-based store.
+ * 
+ * @see org.alfresco.repo.content.filestore.DeduplicatingFileContentStore
+ * 
+ * @since 7.1
+ */
+@Category(OwnJVMTestsCategory.class)
+public class DeduplicatingFileContentStoreTest extends FileContentStoreTest
+{
+    @Before
+    @Override
+    public void before() throws Exception
+    {
+        // create a store that uses a subdirectory of the temp directory
+        File tempDir = TempFileProvider.getTempDir();
+        store = new DeduplicatingFileContentStore(ctx,
+                tempDir.getAbsolutePath() +
+                File.separatorChar +
+                getName());
+        
+        store.setDeleteEmptyDirs(true);
+    }
+    
+    private long countBlobs() throws IOException
+    {
+        File blobs = new File(store.getRootLocation(), DeduplicatingFileContentStore.BLOBS_DIRECTORY);
+        try (Stream<Path> paths = Files.walk(blobs.toPath()))
+        {
+            return paths.filter(Files::isRegularFile).count();
+        }
+    }
+    
+    private File getFile(ContentWriter writer)
+    {
+        return ((FileContentWriter) writer).getFile();
+    }
+    
+    /**
+     * Identical content written to different URLs must share the same file.
+     */
+    @Test
+    public void testDuplicateContentIsShared() throws Exception
+    {
+        assumeTrue(((DeduplicatingFileContentStore) store).isDeduplicationSupported());
+        
+        String content = "Duplicated content for test: " + getName();
+        ContentWriter firstWriter = store.getWriter(ContentStore.NEW_CONTENT_CONTEXT);
+        firstWriter.putContent(content);
+        ContentWriter secondWriter = store.getWriter(ContentStore.NEW_CONTENT_CONTEXT);
+        secondWriter.putContent(content);
+        ContentWriter otherWriter = store.getWriter(ContentStore.NEW_CONTENT_CONTEXT);
+        otherWriter.putContent("Other content for test: " + getName());
+        
+        assertNotEquals(firstWriter.getContentUrl(), secondWriter.getContentUrl());
+        assertTrue(Files.isSameFile(getFile(firstWriter).toPath(), getFile(secondWriter).toPath()));
+        assertFalse(Files.isSameFile(getFile(firstWriter).toPath(), getFile(otherWriter).toPath()));
+        assertEquals(2, DeduplicatingFileContentStore.getReferenceCount(getFile(firstWriter)));
+        assertEquals(1, DeduplicatingFileContentStore.getReferenceCount(getFile(otherWriter)));
+        assertEquals(content, store.getReader(secondWriter.getContentUrl()).getContentString());
+    }
+    
+    /**
+     * Deleting a URL must leave the content of the other URLs sharing it, and the last delete must remove the blob.
+     */
+    @Test
+    public void testDeleteSharedContent() throws Exception
+    {
+        assumeTrue(((DeduplicatingFileContentStore) store).isDeduplicationSupported());
+        
+        String content = "Deleted content for test: " + getName();
+        ContentWriter firstWriter = store.getWriter(ContentStore.NEW_CONTENT_CONTEXT);
+        firstWriter.putContent(content);
+        ContentWriter secondWriter = store.getWriter(ContentStore.NEW_CONTENT_CONTEXT);
+        secondWriter.putContent(content);
+        assertEquals(1, countBlobs());
+        
+        assertTrue(store.delete(firstWriter.getContentUrl()));
+        assertFalse(store.exists(firstWriter.getContentUrl()));
+        assertEquals(content, store.getReader(secondWriter.getContentUrl()).getContentString());
+        assertEquals(1, DeduplicatingFileContentStore.getReferenceCount(getFile(secondWriter)));
+        assertEquals(1, countBlobs());
+        
+        assertTrue(store.delete(secondWriter.getContentUrl()));
+        assertEquals(0, countBlobs());
+    }
+}
@@ -27,7 +27,11 @@ package org.alfresco.repo.content.filestore;
 
 import java.io.File;
 import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+import java.util.HashMap;
 import java.util.Locale;
+import java.util.Map;
 
 import org.alfresco.repo.content.AbstractWritableContentStoreTest;
 import org.alfresco.repo.content.ContentContext;
@@ -41,6 +45,8 @@ import org.alfresco.service.cmr.repository.ContentReader;
 import org.alfresco.service.cmr.repository.ContentWriter;
 import org.alfresco.test_category.OwnJVMTestsCategory;
 import org.alfresco.util.TempFileProvider;
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.io.FileUtils;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
@@ -49,6 +55,7 @@ import org.junit.experimental.categories.Category;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
@@ -348,6 +355,130 @@ public class FileContentStoreTest extends AbstractWritableContentStoreTest
         assertEquals(1024L, reader.getContentString().getBytes("UTF-8").length);
     }
     
+    /**
+     * Content is digested as it is written, when the store is given a digest algorithm.
+     * 
+     * @since 7.1
+     */
+    @Test
+    public void testContentDigest() throws Exception
+    {
+        String content = "The quick brown fox jumps over the lazy dog";
+        String expectedDigest = "SHA-256:" + Hex.encodeHexString(MessageDigest.getInstance("SHA-256").digest(content.getBytes("UTF-8")));
+        
+        ContentWriter writer = getWriter();
+        writer.setEncoding("UTF-8");
+        writer.putContent(content);
+        assertNull("Content should not be digested by default", writer.getContentData().getContentDigest());
+        
+        store.setContentDigestAlgorithm("SHA-256");
+        writer = getWriter();
+        writer.setEncoding("UTF-8");
+        writer.putContent(content);
+        assertEquals(expectedDigest, writer.getContentData().getContentDigest());
+        assertEquals(content, store.getReader(writer.getContentUrl()).getContentString());
+        
+        // Random access is spoofed, and the content is digested when it is copied into the store
+        writer = getWriter();
+        FileChannel channel = writer.getFileChannel(true);
+        channel.write(ByteBuffer.wrap(content.getBytes("UTF-8")));
+        assertNull("The digest is only known once the content is closed", writer.getContentData().getContentDigest());
+        channel.close();
+        assertEquals(expectedDigest, writer.getContentData().getContentDigest());
+        
+        try
+        {
+            store.setContentDigestAlgorithm("NO-SUCH-DIGEST");
+            fail("Unknown digest algorithms should be rejected");
+        }
+        catch (IllegalArgumentException e)
+        {
+            // Expected
+        }
+        store.setContentDigestAlgorithm("");
+        writer = getWriter();
+        writer.putContent(content);
+        assertNull(writer.getContentData().getContentDigest());
+    }
+    
+    /**
+     * New content is spread across the volumes in line with their weights and found again from its URL.
+     */
+    @Test
+    public void testVolumes() throws Exception
+    {
+        // Content written before the volumes were configured
+        ContentWriter legacyWriter = getWriter();
+        legacyWriter.putContent("legacy");
+        
+        File tempDir = TempFileProvider.getTempDir();
+        Map<String, File> roots = new HashMap<>();
+        roots.put("vola", new File(tempDir, getName() + "-vola"));
+        roots.put("volb", new File(tempDir, getName() + "-volb"));
+        roots.put("volc", new File(tempDir, getName() + "-volc"));
+        Map<String, Integer> weights = new HashMap<>();
+        weights.put("volc", 0);
+        FileContentVolumes volumes = new FileContentVolumes(roots, weights);
+        store.setVolumes(volumes);
+        
+        Map<String, Integer> counts = new HashMap<>();
+        for (int i = 0; i < 40; i++)
+        {
+            ContentWriter writer = getWriter();
+            writer.putContent("Content " + i);
+            String url = writer.getContentUrl();
+            assertTrue(url.startsWith("store://" + FileContentStore.VOLUME_MARKER));
+            String volume = url.substring(url.indexOf("://") + 4, url.indexOf('/', url.indexOf("://") + 3));
+            counts.merge(volume, 1, Integer::sum);
+            assertTrue("Content not on its volume: " + url, new File(roots.get(volume), url.substring(url.indexOf(volume) + volume.length() + 1)).exists());
+            assertEquals("Content " + i, store.getReader(url).getContentString());
+        }
+        assertNull("A volume with no weight should not receive content", counts.get("volc"));
+        assertEquals(40, counts.get("vola") + counts.get("volb"));
+        assertEquals("legacy", store.getReader(legacyWriter.getContentUrl()).getContentString());
+        
+        // A directory below the root that has the name of a volume is not taken for the volume
+        File volumeNamedDir = new File(store.getRootLocation(), "vola/2021/1/1/0/0");
+        volumeNamedDir.mkdirs();
+        FileUtils.writeStringToFile(new File(volumeNamedDir, "legacy.bin"), "below the root", "UTF-8");
+        assertEquals("below the root", store.getReader("store://vola/2021/1/1/0/0/legacy.bin").getContentString());
+        
+        // A failed volume is taken out of rotation
+        volumes.volumeFailed("vola");
+        for (int i = 0; i < 10; i++)
+        {
+            ContentWriter writer = getWriter();
+            writer.putContent("Content " + i);
+            assertTrue(writer.getContentUrl().startsWith("store://~volb/"));
+            
+            // Empty directories are removed up to the volume root
+            assertTrue(store.delete(writer.getContentUrl()));
+            assertTrue(roots.get("volb").exists());
+        }
+        
+        // Volumes cannot be escaped
+        try
+        {
+            store.getReader("store://~vola/../../file.bin");
+            fail("Access outside of the volume should be refused");
+        }
+        catch (ContentIOException e)
+        {
+            // Expected
+        }
+        
+        volumes.volumeFailed("volb");
+        try
+        {
+            getWriter().putContent("no volumes");
+            fail("Writes should fail when no volume is healthy");
+        }
+        catch (ContentIOException e)
+        {
+            // Expected
+        }
+    }
+    
     private void assertDirExists(File root, String dir)
     {
         assertTrue("Directory [" + dir + "] should exist", new File(root, dir).exists());
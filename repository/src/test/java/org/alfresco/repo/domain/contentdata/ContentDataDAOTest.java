@@ -185,6 +185,26 @@ public class ContentDataDAOTest extends TestCase
         getAndCheck(resultPair.getFirst(), contentData);
     }
     
+    /**
+     * Check that the content digest is persisted with the content URL.
+     */
+    public void testCreateContentDataWithDigest() throws Exception
+    {
+        String contentDigest = "SHA-256:" + GUID.generate();
+        ContentData contentData = ContentData.setContentDigest(getContentData(), contentDigest);
+        
+        Pair<Long, ContentData> resultPair = create(contentData);
+        resultPair = getAndCheck(resultPair.getFirst(), contentData);
+        assertEquals(contentDigest, resultPair.getSecond().getContentDigest());
+        assertEquals(contentDigest, contentDataDAO.getContentUrl(contentData.getContentUrl()).getContentDigest());
+        
+        // Content without a digest has none
+        contentData = getContentData();
+        resultPair = create(contentData);
+        resultPair = getAndCheck(resultPair.getFirst(), contentData);
+        assertNull(resultPair.getSecond().getContentDigest());
+    }
+    
     /**
      * Ensure that upper and lowercase URLs don't clash
      * @throws Exception
@@ -356,6 +376,42 @@ public class ContentDataDAOTest extends TestCase
         assertEquals("Expected exactly 5 results callbacks", 5, count[0]);
     }
     
+    public void testContentUrl_FetchingOrphansInRange() throws Exception
+    {
+        // Orphan some content
+        for (int i = 0; i < 5; i++)
+        {
+            ContentData contentData = getContentData();
+            Pair<Long, ContentData> resultPair = create(contentData);
+            getAndCheck(resultPair.getFirst(), contentData);
+            delete(resultPair.getFirst());
+        }
+        assertTrue("Expected at least 5 orphans", contentDataDAO.countContentUrlsOrphaned(Long.MAX_VALUE) >= 5);
+        
+        // Page through the orphans in ID order, two at a time
+        final List<Long> ids = new ArrayList<Long>();
+        ContentUrlHandler handler = new ContentUrlHandler()
+        {
+            public void handle(Long id, String contentUrl, Long orphanTime)
+            {
+                if (!ids.isEmpty() && id <= ids.get(ids.size() - 1))
+                {
+                    fail("Orphans not returned in ID order: " + ids + " then " + id);
+                }
+                ids.add(id);
+            }
+        };
+        contentDataDAO.getContentUrlsOrphaned(handler, Long.MAX_VALUE, 0L, null, 2);
+        assertEquals("Expected a page of 2 orphans", 2, ids.size());
+        contentDataDAO.getContentUrlsOrphaned(handler, Long.MAX_VALUE, ids.get(1), null, 2);
+        assertEquals("Expected the next page of 2 orphans", 4, ids.size());
+        
+        // An upper bound restricts the range
+        ids.clear();
+        contentDataDAO.getContentUrlsOrphaned(handler, Long.MAX_VALUE, 0L, 0L, 2);
+        assertEquals("No orphans expected in an empty range", 0, ids.size());
+    }
+    
     private static final String[] MIMETYPES = new String[]
                                                          {
                                                             MimetypeMap.MIMETYPE_ACP,
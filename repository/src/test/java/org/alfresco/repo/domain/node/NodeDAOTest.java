@@ -29,7 +29,9 @@ import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicLong;
 
@@ -39,11 +41,13 @@ import org.alfresco.model.ContentModel;
 import org.alfresco.repo.cache.SimpleCache;
 import org.alfresco.repo.cache.TransactionalCache;
 import org.alfresco.repo.cache.TransactionalCache.ValueHolder;
+import org.alfresco.repo.domain.node.NodeDAO.ChildAssocRefQueryCallback;
 import org.alfresco.repo.domain.node.NodeDAO.NodeRefQueryCallback;
 import org.alfresco.repo.transaction.RetryingTransactionHelper;
 import org.alfresco.repo.transaction.RetryingTransactionHelper.RetryingTransactionCallback;
 import org.alfresco.service.ServiceRegistry;
 import org.alfresco.service.cmr.dictionary.DataTypeDefinition;
+import org.alfresco.service.cmr.repository.ChildAssociationRef;
 import org.alfresco.service.cmr.repository.NodeRef;
 import org.alfresco.service.cmr.repository.StoreRef;
 import org.alfresco.service.namespace.QName;
@@ -272,6 +276,81 @@ public class NodeDAOTest extends TestCase
         }
     }
     
+    /**
+     * Collects child association IDs and checks the ordering of child node IDs
+     */
+    private static class CollectingChildAssocCallback implements ChildAssocRefQueryCallback
+    {
+        private final int maxResults;
+        private final List<Long> assocIds = new ArrayList<Long>();
+        private long lastChildNodeId = Long.MIN_VALUE;
+        private boolean ordered = true;
+        private boolean done = false;
+        
+        private CollectingChildAssocCallback(int maxResults)
+        {
+            this.maxResults = maxResults;
+        }
+        @Override
+        public boolean handle(
+                Pair<Long, ChildAssociationRef> childAssocPair,
+                Pair<Long, NodeRef> parentNodePair,
+                Pair<Long, NodeRef> childNodePair)
+        {
+            assocIds.add(childAssocPair.getFirst());
+            ordered &= childNodePair.getFirst().longValue() >= lastChildNodeId;
+            lastChildNodeId = childNodePair.getFirst();
+            return assocIds.size() < maxResults;
+        }
+        @Override
+        public boolean preLoadNodes()
+        {
+            return true;
+        }
+        @Override
+        public boolean orderResults()
+        {
+            return false;
+        }
+        @Override
+        public void done()
+        {
+            done = true;
+        }
+    }
+    
+    public void testStreamChildAssocs() throws Throwable
+    {
+        final StoreRef storeRef = new StoreRef(StoreRef.PROTOCOL_WORKSPACE, "SpacesStore");
+        final Long parentId = nodeDAO.getRootNode(storeRef).getFirst();
+        
+        RetryingTransactionCallback<Void> callback = new RetryingTransactionCallback<Void>()
+        {
+            public Void execute() throws Throwable
+            {
+                CollectingChildAssocCallback all = new CollectingChildAssocCallback(Integer.MAX_VALUE);
+                nodeDAO.getChildAssocs(parentId, null, null, null, null, null, all);
+                assertFalse("Root node should have children", all.assocIds.isEmpty());
+                
+                // A page size of 1 forces a keyset query per association
+                CollectingChildAssocCallback streamed = new CollectingChildAssocCallback(Integer.MAX_VALUE);
+                nodeDAO.streamChildAssocs(parentId, null, null, null, 1, streamed);
+                assertTrue(streamed.done);
+                assertTrue("Results must be ordered by child node ID", streamed.ordered);
+                assertEquals(all.assocIds.size(), streamed.assocIds.size());
+                assertEquals(new HashSet<Long>(all.assocIds), new HashSet<Long>(streamed.assocIds));
+                
+                // The callback can stop the iteration
+                CollectingChildAssocCallback first = new CollectingChildAssocCallback(1);
+                nodeDAO.streamChildAssocs(parentId, null, null, null, 1, first);
+                assertTrue(first.done);
+                assertEquals(1, first.assocIds.size());
+                return null;
+            }
+        };
+        txnHelper.doInTransaction(callback, true);
+    }
+    
     public void testGetNodesWithAspects() throws Throwable
     {
         final NodeRefQueryCallback callback = new NodeRefQueryCallback()
@@ -345,6 +424,38 @@ public class NodeDAOTest extends TestCase
         txnHelper.doInTransaction(callback, true);
     }
     
+    public void testGetNodePropertiesAndAspectsBulk() throws Throwable
+    {
+        Long minNodeId = nodeDAO.getMinNodeId();
+        final List<Long> nodeIds = new ArrayList<Long>(300);
+        for (long i = 0; i < 300; i++)
+        {
+            nodeIds.add(Long.valueOf(minNodeId.longValue() + i));
+        }
+        RetryingTransactionCallback<Void> callback = new RetryingTransactionCallback<Void>()
+        {
+            public Void execute() throws Throwable
+            {
+                nodeDAO.clear();
+                Map<Long, Map<QName, Serializable>> propsByNodeId = nodeDAO.getNodeProperties(nodeIds);
+                Map<Long, Set<QName>> aspectsByNodeId = nodeDAO.getNodeAspects(nodeIds);
+                assertEquals(propsByNodeId.keySet(), aspectsByNodeId.keySet());
+                for (Long nodeId : nodeIds)
+                {
+                    if (nodeDAO.getNodeIdStatus(nodeId) == null)
+                    {
+                        assertFalse("Unknown node ID should not be in results: " + nodeId, propsByNodeId.containsKey(nodeId));
+                        continue;
+                    }
+                    assertEquals(nodeDAO.getNodeProperties(nodeId), propsByNodeId.get(nodeId));
+                    assertEquals(nodeDAO.getNodeAspects(nodeId), aspectsByNodeId.get(nodeId));
+                }
+                return null;
+            }
+        };
+        txnHelper.doInTransaction(callback, true);
+    }
+    
     /**
      * Ensure that the {@link NodeEntity} values cached as root nodes are valid instances.
      * <p/>
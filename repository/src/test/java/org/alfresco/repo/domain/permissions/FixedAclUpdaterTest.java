@@ -240,6 +240,42 @@ public class FixedAclUpdaterTest extends TestCase
         }
     }
 
+    /*
+     * Test the job splitting the pending nodes into node ID ranges and processing them in parallel
+     */
+    @Test
+    public void testAsyncPartitioned()
+    {
+        NodeRef folderRef = createFolderHierarchyInRootForFolderTests("testAsyncPartitionedFolder");
+        ACLComparator aclComparator = new ACLComparator(folderRef);
+        fixedAclUpdater.setPartitions(3);
+
+        try
+        {
+            setPermissionsOnTree(folderRef, true, true);
+            NodeRef folderWithPendingAcl = getFirstNodeWithAclPending(ContentModel.TYPE_FOLDER);
+            assertNotNull("No children folders were found with pendingFixACl aspect", folderWithPendingAcl);
+            ACLComparator aclComparatorForPending = new ACLComparator(folderWithPendingAcl);
+
+            triggerFixedACLJob();
+
+            aclComparator.updateCurrentACLs();
+            aclComparatorForPending.updateCurrentACLs();
+            assertEquals("Not all nodes were processed", 0, getNodesCountWithPendingFixedAclAspect());
+            assertTrue("Pending nodes doesn't have same permission as parent",
+                    aclComparatorForPending.parentHasOriginalPermission());
+            assertTrue("Children of Pending nodes doesn't have same permission as parent",
+                    aclComparatorForPending.firstChildHasOriginalPermission());
+            assertEquals("The sweep should be finished", 0, fixedAclUpdater.getPartitionsRemaining());
+            assertEquals("There should be no backlog", 0, fixedAclUpdater.getBacklog());
+        }
+        finally
+        {
+            fixedAclUpdater.setPartitions(1);
+            deleteNodes(folderRef);
+        }
+    }
+
     /*
      * MNT-21847 - Create a new content in folder that has the aspect applied
      */
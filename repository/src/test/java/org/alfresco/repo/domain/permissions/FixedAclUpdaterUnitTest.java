@@ -27,6 +27,7 @@ package org.alfresco.repo.domain.permissions;
 
 import static org.alfresco.model.ContentModel.TYPE_BASE;
 import static org.alfresco.service.cmr.repository.StoreRef.STORE_REF_ARCHIVE_SPACESSTORE;
+import static org.junit.Assert.assertArrayEquals;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
@@ -105,4 +106,13 @@ public class FixedAclUpdaterUnitTest
         verify(listenerA, never()).permissionsUpdatedAsynchronously(any(NodeRef.class));
         verify(listenerB, never()).permissionsUpdatedAsynchronously(any(NodeRef.class));
     }
+
+    /** Check that node IDs are split into contiguous ranges, even when there are fewer IDs than partitions. */
+    @Test
+    public void testPartitionStartIds()
+    {
+        assertArrayEquals(new long[] {10L, 35L, 60L, 85L}, FixedAclUpdater.getPartitionStartIds(10L, 109L, 4));
+        assertArrayEquals(new long[] {5L, 6L, 7L}, FixedAclUpdater.getPartitionStartIds(5L, 5L, 3));
+        assertArrayEquals(new long[] {0L, 1L}, FixedAclUpdater.getPartitionStartIds(null, null, 2));
+    }
 }
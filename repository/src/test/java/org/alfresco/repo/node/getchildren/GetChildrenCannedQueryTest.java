@@ -1307,6 +1307,50 @@ public class GetChildrenCannedQueryTest extends TestCase
         return new PagingNodeRefResultsImpl(nodeRefs, results.hasMoreItems(), totalCount, false);
     }
     
+    // test helper method - keyset paging (optionally sorted)
+    private PagingResults<NodeRef> listKeyset(NodeRef parentNodeRef, final int maxItems, List<Pair<QName, Boolean>> sortProps, String continuationToken)
+    {
+        PagingRequest pagingRequest = new PagingRequest(0, maxItems, null);
+        pagingRequest.setKeysetPaging(true);
+        pagingRequest.setContinuationToken(continuationToken);
+        
+        // get canned query
+        GetChildrenCannedQueryFactory getChildrenCannedQueryFactory = (GetChildrenCannedQueryFactory)cannedQueryRegistry.getNamedObject(CQ_FACTORY_NAME);
+        final GetChildrenCannedQuery cq = (GetChildrenCannedQuery)getChildrenCannedQueryFactory.getCannedQuery(parentNodeRef, null, null, null, null, null, null, sortProps, pagingRequest);
+        
+        // execute canned query
+        RetryingTransactionCallback<CannedQueryResults<NodeRef>> callback = new RetryingTransactionCallback<CannedQueryResults<NodeRef>>()
+        {
+            @Override
+            public CannedQueryResults<NodeRef> execute() throws Throwable
+            {
+                return cq.execute();
+            }
+        };
+        CannedQueryResults<NodeRef> results = transactionService.getRetryingTransactionHelper().doInTransaction(callback, true);
+        
+        return new PagingNodeRefResultsImpl(results.getPages().get(0), results.hasMoreItems(), null, false);
+    }
+    
+    // test helper method - continuation token for the last child of a keyset page
+    private String getContinuationToken(NodeRef nodeRef, List<Pair<QName, Boolean>> sortProps)
+    {
+        Long nodeId = (Long)nodeService.getProperty(nodeRef, ContentModel.PROP_NODE_DBID);
+        Boolean isFolder = null;
+        String name = (String)nodeService.getProperty(nodeRef, ContentModel.PROP_NAME);
+        if (sortProps != null)
+        {
+            for (Pair<QName, Boolean> sortProp : sortProps)
+            {
+                if (sortProp.getFirst().equals(GetChildrenCannedQuery.SORT_QNAME_NODE_IS_FOLDER))
+                {
+                    isFolder = dictionaryService.isSubClass(nodeService.getType(nodeRef), ContentModel.TYPE_FOLDER);
+                }
+            }
+        }
+        return new GetChildrenKeyset(nodeId, isFolder, name).encode();
+    }
+    
     // test helper method - optional filtering/sorting
     private PagingResults<NodeRef> list(NodeRef parentNodeRef, final int skipCount, final int maxItems, final int requestTotalCountMax, Set<QName> assocTypeQNames, Set<QName> childTypeQNames, List<FilterProp> filterProps, List<Pair<QName, Boolean>> sortProps, Set<QName> inclusiveAspects, Set<QName> exclusiveAspects)
     {
@@ -1576,4 +1620,90 @@ public class GetChildrenCannedQueryTest extends TestCase
             AuthenticationUtil.clearCurrentSecurityContext();
         }
     }
+
+    public void testKeysetPaging() throws Exception
+    {
+        try
+        {
+            AuthenticationUtil.setFullyAuthenticatedUser(AuthenticationUtil.getAdminUserName());
+            
+            NodeRef parentFolder = createFolder(repositoryHelper.getCompanyHome(), "testKeysetPaging-"+GUID.generate(), ContentModel.TYPE_FOLDER);
+            
+            int folderCount = 9;
+            int fileCount = 14;
+            for (int i = 0; i < folderCount; i++)
+            {
+                createFolder(parentFolder, String.format("keyset-%03d", i * 2), ContentModel.TYPE_FOLDER);
+            }
+            for (int i = 0; i < fileCount; i++)
+            {
+                createContent(parentFolder, String.format("keyset-%03d", (i * 2) + 1), ContentModel.TYPE_CONTENT);
+            }
+            
+            // folders first, then by name (REST API default)
+            List<Pair<QName, Boolean>> sortProps = new ArrayList<Pair<QName, Boolean>>(2);
+            sortProps.add(new Pair<QName, Boolean>(GetChildrenCannedQuery.SORT_QNAME_NODE_IS_FOLDER, false));
+            sortProps.add(new Pair<QName, Boolean>(ContentModel.PROP_NAME, true));
+            
+            List<NodeRef> expected = list(parentFolder, 0, Integer.MAX_VALUE, 0, null, null, sortProps).getPage();
+            assertEquals(folderCount + fileCount, expected.size());
+            
+            // by name descending
+            List<Pair<QName, Boolean>> nameDescSortProps = new ArrayList<Pair<QName, Boolean>>(1);
+            nameDescSortProps.add(new Pair<QName, Boolean>(ContentModel.PROP_NAME, false));
+            List<NodeRef> expectedDesc = list(parentFolder, 0, Integer.MAX_VALUE, 0, null, null, nameDescSortProps).getPage();
+            PagingResults<NodeRef> descPage = listKeyset(parentFolder, 4, nameDescSortProps, null);
+            assertEquals(expectedDesc.subList(0, 4), descPage.getPage());
+            descPage = listKeyset(parentFolder, 4, nameDescSortProps, getContinuationToken(descPage.getPage().get(3), nameDescSortProps));
+            assertEquals(expectedDesc.subList(4, 8), descPage.getPage());
+            
+            for (List<Pair<QName, Boolean>> keysetSortProps : Arrays.asList(sortProps, null))
+            {
+                int maxItems = 5;
+                List<NodeRef> actual = new ArrayList<NodeRef>(expected.size());
+                String continuationToken = null;
+                boolean hasMore = true;
+                int pageCount = 0;
+                while (hasMore)
+                {
+                    PagingResults<NodeRef> results = listKeyset(parentFolder, maxItems, keysetSortProps, continuationToken);
+                    List<NodeRef> page = results.getPage();
+                    assertTrue(page.size() <= maxItems);
+                    actual.addAll(page);
+                    
+                    hasMore = results.hasMoreItems();
+                    if (hasMore)
+                    {
+                        continuationToken = getContinuationToken(page.get(page.size() - 1), keysetSortProps);
+                    }
+                    pageCount++;
+                }
+                
+                assertEquals((expected.size() + maxItems - 1) / maxItems, pageCount);
+                if (keysetSortProps != null)
+                {
+                    assertEquals(expected, actual);
+                }
+                else
+                {
+                    // ordered by child assoc name
+                    assertEquals(expected.size(), actual.size());
+                    assertEquals(new HashSet<NodeRef>(expected), new HashSet<NodeRef>(actual));
+                }
+            }
+            
+            // the last child of a page has been deleted before the next page is requested (the page ends with a folder and the next starts with a file)
+            PagingResults<NodeRef> firstPage = listKeyset(parentFolder, folderCount, sortProps, null);
+            assertEquals(expected.subList(0, folderCount), firstPage.getPage());
+            NodeRef lastChild = firstPage.getPage().get(folderCount - 1);
+            String continuationToken = getContinuationToken(lastChild, sortProps);
+            nodeService.deleteNode(lastChild);
+            PagingResults<NodeRef> nextPage = listKeyset(parentFolder, 5, sortProps, continuationToken);
+            assertEquals(expected.subList(folderCount, folderCount + 5), nextPage.getPage());
+        }
+        finally
+        {
+            AuthenticationUtil.clearCurrentSecurityContext();
+        }
+    }
 }
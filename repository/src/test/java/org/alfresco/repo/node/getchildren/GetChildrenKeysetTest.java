@@ -0,0 +1,113 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2020 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.node.getchildren;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.alfresco.model.ContentModel;
+import org.alfresco.service.namespace.QName;
+import org.alfresco.util.Pair;
+import org.junit.Test;
+
+/**
+ * @see GetChildrenKeyset
+ */
+public class GetChildrenKeysetTest
+{
+    @Test
+    public void testEncodeDecode()
+    {
+        List<GetChildrenKeyset> keys = Arrays.asList(
+                new GetChildrenKeyset(1L, null, null),
+                new GetChildrenKeyset(123456789L, Boolean.TRUE, "folder"),
+                new GetChildrenKeyset(42L, Boolean.FALSE, ""),
+                new GetChildrenKeyset(7L, null, "a:b:c \u00e9\u4e2d/?&="));
+        for (GetChildrenKeyset key : keys)
+        {
+            String token = key.encode();
+            assertTrue("Token should be URL safe: " + token, token.matches("[A-Za-z0-9_-]+"));
+            GetChildrenKeyset decoded = GetChildrenKeyset.decode(token);
+            assertEquals(key, decoded);
+            assertEquals(key.getNodeId(), decoded.getNodeId());
+            assertEquals(key.getFolder(), decoded.getFolder());
+            assertEquals(key.getName(), decoded.getName());
+        }
+        assertNull(GetChildrenKeyset.decode(keys.get(0).encode()).getName());
+    }
+
+    @Test
+    public void testDecodeInvalid()
+    {
+        for (String token : Arrays.asList("", "%%%", "bm90LWEta2V5c2V0", "MTp4Oi06LTo", "Mjo1Oi06LTo", "MTo1Ong6LTo"))
+        {
+            try
+            {
+                GetChildrenKeyset.decode(token);
+                fail("Expected invalid token to be rejected: " + token);
+            }
+            catch (IllegalArgumentException e)
+            {
+                // expected
+            }
+        }
+    }
+
+    @Test
+    public void testSupportedSort()
+    {
+        QName isFolder = GetChildrenCannedQuery.SORT_QNAME_NODE_IS_FOLDER;
+        QName name = ContentModel.PROP_NAME;
+
+        assertTrue(GetChildrenKeyset.isSupportedSort(null));
+        assertTrue(GetChildrenKeyset.isSupportedSort(Collections.<Pair<QName, Boolean>>emptyList()));
+        assertTrue(GetChildrenKeyset.isSupportedSort(sort(isFolder, name)));
+        assertTrue(GetChildrenKeyset.isSupportedSort(sort(isFolder)));
+        assertTrue(GetChildrenKeyset.isSupportedSort(sort(name)));
+
+        assertFalse(GetChildrenKeyset.isSupportedSort(sort(name, isFolder)));
+        assertFalse(GetChildrenKeyset.isSupportedSort(sort(ContentModel.PROP_MODIFIED)));
+        assertFalse(GetChildrenKeyset.isSupportedSort(sort(isFolder, name, ContentModel.PROP_TITLE)));
+    }
+
+    private static List<Pair<QName, Boolean>> sort(QName... sortQNames)
+    {
+        List<Pair<QName, Boolean>> sortProps = new ArrayList<>(sortQNames.length);
+        for (QName sortQName : sortQNames)
+        {
+            sortProps.add(new Pair<>(sortQName, Boolean.TRUE));
+        }
+        return sortProps;
+    }
+}
@@ -32,18 +32,23 @@ import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import org.alfresco.repo.cache.lookup.EntityLookupCache;
 import org.alfresco.repo.domain.node.Node;
 import org.alfresco.repo.domain.node.NodeDAO;
 import org.alfresco.repo.domain.node.StoreEntity;
+import org.alfresco.repo.domain.permissions.Authority;
+import org.alfresco.repo.domain.qname.QNameDAO;
 import org.alfresco.repo.search.impl.querymodel.QueryOptions;
 import org.alfresco.repo.security.permissions.impl.acegi.FilteringResultSet;
 import org.alfresco.service.cmr.repository.StoreRef;
@@ -60,6 +65,7 @@ import org.mybatis.spring.SqlSessionTemplate;
 public class DBQueryEngineTest
 {
     private static final String SQL_TEMPLATE_PATH = "alfresco.metadata.query.select_byDynamicQuery";
+    private static final String ACL_ID_SQL_TEMPLATE_PATH = "alfresco.metadata.query.select_aclIdsByDynamicQuery";
     
     private DBQueryEngine engine;
     private SqlSessionTemplate template;
@@ -86,6 +92,7 @@ public class DBQueryEngineTest
 
         nodeDAO = mock(NodeDAO.class);
         engine.setNodeDAO(nodeDAO);
+        engine.setQnameDAO(mock(QNameDAO.class));
         mockStores();
     }
     
@@ -211,6 +218,76 @@ public class DBQueryEngineTest
         verify(resultContext).stop();
     }
     
+    @Test
+    public void shouldRestrictQueryToReadableAclsAndOwnedNodes()
+    {
+        Authority authority = mock(Authority.class);
+        when(authority.getAuthority()).thenReturn("bob");
+        when(assessor.isReadingRestricted()).thenReturn(true);
+        when(assessor.canRead(1L)).thenReturn(true);
+        when(assessor.canRead(2L)).thenReturn(false);
+        when(assessor.canRead(3L)).thenReturn(true);
+        prepareAclIdTemplate(dbQuery, Arrays.asList(1L, 2L, 3L, null));
+        
+        engine.applyReadableAclFilter(options, dbQuery, assessor, authority);
+        
+        verify(dbQuery).setReadableAclIds(new HashSet<>(Arrays.asList(1L, 3L)));
+        verify(dbQuery).setOwnerAuthority("bob");
+    }
+    
+    @Test
+    public void shouldCheckEachNodeWhenTooManyAclsMatch()
+    {
+        when(assessor.isReadingRestricted()).thenReturn(true);
+        when(assessor.canRead(any(Long.class))).thenReturn(true);
+        prepareAclIdTemplate(dbQuery, Arrays.asList(1L, 2L, 3L));
+        
+        engine.setMaxSqlPermissionFilteringAcls(2);
+        engine.applyReadableAclFilter(options, dbQuery, assessor, mock(Authority.class));
+        
+        verify(dbQuery).setReadableAclIds(null);
+        verify(dbQuery, never()).setReadableAclIds(any(Set.class));
+    }
+    
+    @Test
+    public void shouldCheckEachNodeWhenTooManyNodesMatch()
+    {
+        when(assessor.isReadingRestricted()).thenReturn(true);
+        prepareAclIdTemplate(dbQuery, Arrays.asList(1L, 1L, 1L));
+        
+        engine.setMaxSqlPermissionFilteringNodes(2);
+        engine.applyReadableAclFilter(options, dbQuery, assessor, mock(Authority.class));
+        
+        verify(dbQuery).setAclScanLimit(3L);
+        verify(dbQuery, never()).setReadableAclIds(any(Set.class));
+    }
+    
+    @Test
+    public void shouldNotFilterByAclForUnrestrictedReaders()
+    {
+        when(assessor.isReadingRestricted()).thenReturn(false);
+        
+        engine.applyReadableAclFilter(options, dbQuery, assessor, mock(Authority.class));
+        
+        verify(template, never()).select(eq(ACL_ID_SQL_TEMPLATE_PATH), any(), any());
+        verify(dbQuery, never()).setReadableAclIds(any(Set.class));
+    }
+    
+    private void prepareAclIdTemplate(DBQuery dbQuery, List<Long> aclIds)
+    {
+        doAnswer(invocation -> {
+            ResultHandler<Long> handler = (ResultHandler<Long>)invocation.getArgument(2);
+            ResultContext<Long> context = mock(ResultContext.class);
+            for (Long aclId : aclIds)
+            {
+                when(context.getResultObject()).thenReturn(aclId);
+                handler.handleResult(context);
+            }
+            return null;
+            
+        }).when(template).select(eq(ACL_ID_SQL_TEMPLATE_PATH), eq(dbQuery), any());
+    }
+    
     private void prepareTemplate(DBQuery dbQuery, List<Node> nodes)
     {
         doAnswer(invocation -> {
@@ -37,6 +37,10 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 
 import javax.transaction.Status;
 import javax.transaction.UserTransaction;
@@ -61,6 +65,7 @@ import org.alfresco.repo.security.authority.AuthorityServicePolicies.OnAuthority
 import org.alfresco.repo.security.authority.AuthorityServicePolicies.OnAuthorityRemovedFromGroup;
 import org.alfresco.repo.security.authority.AuthorityServicePolicies.OnGroupDeleted;
 import org.alfresco.repo.security.permissions.AccessDeniedException;
+import org.alfresco.repo.transaction.RetryingTransactionHelper;
 import org.alfresco.repo.transaction.AlfrescoTransactionSupport;
 import org.alfresco.repo.transaction.AlfrescoTransactionSupport.TxnReadState;
 import org.alfresco.service.ServiceRegistry;
@@ -109,6 +114,7 @@ public class AuthorityServiceTest extends TestCase
     private PolicyComponent policyComponent;
     private TransactionService transactionService;
     private AuthorityDAO authorityDAO;
+    private AuthorityBridgeDAO authorityBridgeDAO;
     
     public AuthorityServiceTest()
     {
@@ -147,6 +153,7 @@ public class AuthorityServiceTest extends TestCase
         policyComponent = (PolicyComponent) ctx.getBean("policyComponent");
         transactionService = (TransactionService) ctx.getBean(ServiceRegistry.TRANSACTION_SERVICE.getLocalName());
         authorityDAO = ctx.getBean("authorityDAO", AuthorityDAO.class);
+        authorityBridgeDAO = ctx.getBean("authorityBridgeDAO", AuthorityBridgeDAO.class);
         
         String defaultAdminUser = AuthenticationUtil.getAdminUserName();
         AuthenticationUtil.setFullyAuthenticatedUser(defaultAdminUser);
@@ -939,6 +946,182 @@ public class AuthorityServiceTest extends TestCase
         assertTrue(pubAuthorityService.getContainedAuthorities(null, auth1, false).contains(auth4));
     }
     
+    public void testAuthorityClosure()
+    {
+        setUseClosureTable(true);
+        try
+        {
+            checkAuthorityClosure();
+        }
+        finally
+        {
+            setUseClosureTable(false);
+        }
+    }
+    
+    /**
+     * With the closure table off, getContainingAuthorities walks the bridge table and no closure rows are written.
+     */
+    public void testAuthorityClosureNotMaintainedWhenUnused()
+    {
+        NodeRef andy = personService.getPerson("andy");
+        String authA = pubAuthorityService.createAuthority(AuthorityType.GROUP, "closureA");
+        String authB = pubAuthorityService.createAuthority(AuthorityType.GROUP, "closureB");
+        pubAuthorityService.addAuthority(authA, authB);
+        pubAuthorityService.addAuthority(authB, "andy");
+        
+        assertEquals(Collections.emptySet(), getClosureAncestors(andy));
+        assertEquals(new HashSet<String>(Arrays.asList(authA, authB)), pubAuthorityService.getContainingAuthorities(null, "andy", false));
+    }
+    
+    private void checkAuthorityClosure()
+    {
+        NodeRef andy = personService.getPerson("andy");
+        
+        String authA = pubAuthorityService.createAuthority(AuthorityType.GROUP, "closureA");
+        String authB = pubAuthorityService.createAuthority(AuthorityType.GROUP, "closureB");
+        String authC = pubAuthorityService.createAuthority(AuthorityType.GROUP, "closureC");
+        String authD = pubAuthorityService.createAuthority(AuthorityType.GROUP, "closureD");
+        pubAuthorityService.addAuthority(authA, authB);
+        pubAuthorityService.addAuthority(authB, authC);
+        pubAuthorityService.addAuthority(authD, authC);
+        pubAuthorityService.addAuthority(authC, "andy");
+        
+        assertEquals(new HashSet<String>(Arrays.asList(authA, authB, authC, authD)), getClosureAncestors(andy));
+        assertEquals(getClosureAncestors(andy), pubAuthorityService.getContainingAuthorities(null, "andy", false));
+        
+        // A second path to the same group is removed without losing the first
+        pubAuthorityService.addAuthority(authA, "andy");
+        pubAuthorityService.removeAuthority(authA, "andy");
+        assertEquals(new HashSet<String>(Arrays.asList(authA, authB, authC, authD)), getClosureAncestors(andy));
+        
+        pubAuthorityService.removeAuthority(authB, authC);
+        assertEquals(new HashSet<String>(Arrays.asList(authC, authD)), getClosureAncestors(andy));
+        assertEquals(getClosureAncestors(andy), pubAuthorityService.getContainingAuthorities(null, "andy", false));
+        
+        pubAuthorityService.deleteAuthority(authD);
+        assertEquals(new HashSet<String>(Arrays.asList(authC)), getClosureAncestors(andy));
+        
+        // Links inside a cycle are handled by rebuilding the closure
+        pubAuthorityService.addAuthority(authB, authC);
+        pubAuthorityService.addAuthority(authC, authA);
+        assertEquals(new HashSet<String>(Arrays.asList(authA, authB, authC)), getClosureAncestors(andy));
+        assertEquals(getClosureAncestors(andy), pubAuthorityService.getContainingAuthorities(null, "andy", false));
+        pubAuthorityService.removeAuthority(authA, authB);
+        assertEquals(new HashSet<String>(Arrays.asList(authB, authC)), getClosureAncestors(andy));
+        assertEquals(getClosureAncestors(andy), pubAuthorityService.getContainingAuthorities(null, "andy", false));
+        pubAuthorityService.removeAuthority(authC, authA);
+        assertEquals(new HashSet<String>(Arrays.asList(authB, authC)), getClosureAncestors(andy));
+        
+        // A rebuild gives the same answer as the incremental updates
+        authorityBridgeDAO.rebuildAuthorityClosure();
+        assertEquals(new HashSet<String>(Arrays.asList(authB, authC)), getClosureAncestors(andy));
+        assertEquals(getClosureAncestors(andy), pubAuthorityService.getContainingAuthorities(null, "andy", false));
+    }
+    
+    /**
+     * Links a group into its parent and a user into the group at the same time.  Neither change sees the other
+     * when it starts, so the closure row from the parent to the user is only right if they are serialized.
+     */
+    public void testAuthorityClosureConcurrentLinks() throws Exception
+    {
+        tx.commit();
+        setUseClosureTable(true);
+        try
+        {
+            checkAuthorityClosureConcurrentLinks();
+        }
+        finally
+        {
+            setUseClosureTable(false);
+        }
+    }
+    
+    private void checkAuthorityClosureConcurrentLinks() throws Exception
+    {
+        final RetryingTransactionHelper txnHelper = transactionService.getRetryingTransactionHelper();
+        for (int i = 0; i < 5; i++)
+        {
+            final String outer = txnHelper.doInTransaction(() -> pubAuthorityService.createAuthority(AuthorityType.GROUP, "closureOuter"), false, true);
+            final String inner = txnHelper.doInTransaction(() -> pubAuthorityService.createAuthority(AuthorityType.GROUP, "closureInner"), false, true);
+            try
+            {
+                CountDownLatch started = new CountDownLatch(2);
+                AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+                Thread outerLink = addAuthorityInThread(started, failure, outer, inner);
+                Thread innerLink = addAuthorityInThread(started, failure, inner, "andy");
+                outerLink.join(60000L);
+                innerLink.join(60000L);
+                assertNull(failure.get());
+                
+                Set<String> ancestors = txnHelper.doInTransaction(() -> getClosureAncestors(personService.getPerson("andy")), true, true);
+                assertEquals(new HashSet<String>(Arrays.asList(outer, inner)), ancestors);
+            }
+            finally
+            {
+                txnHelper.doInTransaction(() ->
+                {
+                    pubAuthorityService.deleteAuthority(inner);
+                    pubAuthorityService.deleteAuthority(outer);
+                    return null;
+                }, false, true);
+            }
+        }
+    }
+    
+    /**
+     * Adds the member in a new transaction, once both threads have started theirs.
+     */
+    private Thread addAuthorityInThread(final CountDownLatch started, final AtomicReference<Throwable> failure, final String parentName, final String childName)
+    {
+        final String adminUser = AuthenticationUtil.getAdminUserName();
+        Thread thread = new Thread(() ->
+        {
+            try
+            {
+                AuthenticationUtil.setFullyAuthenticatedUser(adminUser);
+                final AtomicBoolean firstAttempt = new AtomicBoolean(true);
+                transactionService.getRetryingTransactionHelper().doInTransaction(() ->
+                {
+                    // Read the membership first, so that the transaction sees the state from before either change
+                    nodeService.getChildAssocs(personService.getPerson("andy"));
+                    if (firstAttempt.getAndSet(false))
+                    {
+                        started.countDown();
+                        started.await(10, TimeUnit.SECONDS);
+                    }
+                    pubAuthorityService.addAuthority(parentName, childName);
+                    return null;
+                }, false, true);
+            }
+            catch (Throwable e)
+            {
+                failure.compareAndSet(null, e);
+            }
+            finally
+            {
+                AuthenticationUtil.clearCurrentSecurityContext();
+            }
+        });
+        thread.start();
+        return thread;
+    }
+    
+    private void setUseClosureTable(boolean useClosureTable)
+    {
+        ((AuthorityDAOImpl) authorityDAO).setUseClosureTable(useClosureTable);
+    }
+    
+    private Set<String> getClosureAncestors(NodeRef authRef)
+    {
+        Set<String> ancestors = new HashSet<String>();
+        for (AuthorityBridgeLink link : authorityBridgeDAO.getAncestorAuthorities(authRef))
+        {
+            ancestors.add(link.getParentName());
+        }
+        return ancestors;
+    }
+    
     public void testCreateAuthNet2()
     {
         personService.getPerson("andy");
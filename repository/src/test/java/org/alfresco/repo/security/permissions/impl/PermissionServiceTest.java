@@ -28,7 +28,11 @@ package org.alfresco.repo.security.permissions.impl;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
 
+import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -1360,6 +1364,67 @@ public class PermissionServiceTest extends AbstractPermissionTest
 
     }
 
+    public void testAclReadPermissionFollowsAclChanges()
+    {
+        runAs(AuthenticationUtil.getAdminUserName());
+        NodeRef n1 = nodeService.createNode(rootNodeRef, ContentModel.ASSOC_CHILDREN, QName.createQName("{namespace}one"), ContentModel.TYPE_FOLDER).getChildRef();
+        permissionService.setInheritParentPermissions(n1, false);
+
+        runAs("andy");
+        assertEquals(AccessStatus.DENIED, permissionService.hasAclReadPermission(nodeService.getNodeAclId(n1)));
+        // The decision is remembered
+        assertEquals(AccessStatus.DENIED, permissionService.hasAclReadPermission(nodeService.getNodeAclId(n1)));
+
+        runAs(AuthenticationUtil.getAdminUserName());
+        permissionService.setPermission(n1, "andy", PermissionService.READ, true);
+
+        runAs("andy");
+        assertEquals(AccessStatus.ALLOWED, permissionService.hasAclReadPermission(nodeService.getNodeAclId(n1)));
+        assertEquals(AccessStatus.ALLOWED, permissionService.hasReadPermission(n1));
+
+        runAs(AuthenticationUtil.getAdminUserName());
+        permissionService.deletePermission(n1, "andy", PermissionService.READ);
+
+        runAs("andy");
+        assertEquals(AccessStatus.DENIED, permissionService.hasAclReadPermission(nodeService.getNodeAclId(n1)));
+        assertEquals(AccessStatus.DENIED, permissionService.hasAclReadPermission(null));
+    }
+
+    public void testBatchPermissionsMatchSingleChecks()
+    {
+        runAs(AuthenticationUtil.getAdminUserName());
+        NodeRef readable = nodeService.createNode(rootNodeRef, ContentModel.ASSOC_CHILDREN, QName.createQName("{namespace}one"), ContentModel.TYPE_FOLDER).getChildRef();
+        permissionService.setPermission(readable, "andy", PermissionService.READ, true);
+        NodeRef readableChild = nodeService.createNode(readable, ContentModel.ASSOC_CONTAINS, QName.createQName("{namespace}two"), ContentModel.TYPE_CONTENT).getChildRef();
+        NodeRef hidden = nodeService.createNode(rootNodeRef, ContentModel.ASSOC_CHILDREN, QName.createQName("{namespace}three"), ContentModel.TYPE_FOLDER).getChildRef();
+        permissionService.setInheritParentPermissions(hidden, false);
+        NodeRef hiddenChild = nodeService.createNode(hidden, ContentModel.ASSOC_CONTAINS, QName.createQName("{namespace}four"), ContentModel.TYPE_CONTENT).getChildRef();
+        NodeRef ownedChild = nodeService.createNode(hidden, ContentModel.ASSOC_CONTAINS, QName.createQName("{namespace}five"), ContentModel.TYPE_CONTENT).getChildRef();
+        nodeService.addAspect(hiddenChild, ContentModel.ASPECT_OWNABLE, Collections.<QName, Serializable>singletonMap(ContentModel.PROP_OWNER, "lemur"));
+        nodeService.addAspect(ownedChild, ContentModel.ASPECT_OWNABLE, Collections.<QName, Serializable>singletonMap(ContentModel.PROP_OWNER, "andy"));
+        // The two children share an ACL and differ only by their owner
+        assertEquals(nodeService.getNodeAclId(hiddenChild), nodeService.getNodeAclId(ownedChild));
+
+        List<NodeRef> nodeRefs = Arrays.asList(readable, readableChild, hidden, hiddenChild, ownedChild, null, readableChild);
+        runAs("andy");
+        for (String permission : new String[] { PermissionService.READ, PermissionService.WRITE, PermissionService.ALL_PERMISSIONS })
+        {
+            BitSet allowed = permissionService.hasPermissions(nodeRefs, permission);
+            for (int i = 0; i < nodeRefs.size(); i++)
+            {
+                assertEquals(permission + " on " + nodeRefs.get(i),
+                        permissionService.hasPermission(nodeRefs.get(i), permission) == AccessStatus.ALLOWED, allowed.get(i));
+            }
+        }
+
+        BitSet readAllowed = permissionService.hasPermissions(nodeRefs, PermissionService.READ);
+        assertTrue(readAllowed.get(1));
+        assertFalse(readAllowed.get(3));
+        assertTrue(readAllowed.get(4));
+        assertTrue(readAllowed.get(5));
+        assertTrue(readAllowed.get(6));
+    }
+
     public void testSystemUserPermissions()
     {
         AuthenticationUtil.setRunAsUserSystem();